@@ -142,7 +142,7 @@ public class IndexEndpoint {
 
   @POST
   @Path("recreateIndex")
-  @RestQuery(name = "recreateIndex", description = "Clear and repopulates the Admin UI Index directly from the Services",
+  @RestQuery(name = "recreateIndex", description = "Repopulates the Admin UI Index directly from the Services",
     returnDescription = "OK if repopulation has started", reponses = {
     @RestResponse(description = "OK if repopulation has started", responseCode = HttpServletResponse.SC_OK) })
   public Response recreateIndex() {
@@ -298,7 +298,7 @@ public abstract class AbstractAssetManager implements AssetManager {
         }
       } else {
         final Opt<Long> size = e.getSize() > 0 ? Opt.some(e.getSize()) : Opt.<Long>none();
-        getLocalAssetStore().put(storagePath, Source.mk(e.getURI(), size, Opt.nul(e.getMimeType())));
+        getLocalAssetStore().put(storagePath, Source.mk(e.getURI(), size, Opt.nul(e.getMimeType()), Opt.nul(e.getChecksum())));
       }
     }
   }
@@ -384,7 +384,7 @@ public abstract class AbstractAssetManagerWithTieredStorage extends AbstractAsse
         }
       } else {
         final Opt<Long> size = e.getSize() > 0 ? Opt.some(e.getSize()) : Opt.<Long>none();
-        store.put(storagePath, Source.mk(e.getURI(), size, Opt.nul(e.getMimeType())));
+        store.put(storagePath, Source.mk(e.getURI(), size, Opt.nul(e.getMimeType()), Opt.nul(e.getChecksum())));
       }
       getDb().setAssetStorageLocation(VersionImpl.mk(version), mpId, e.getIdentifier(), store.getStoreType());
     }
@@ -20,6 +20,7 @@
  */
 package org.opencastproject.assetmanager.impl.storage;
 
+import org.opencastproject.util.Checksum;
 import org.opencastproject.util.MimeType;
 
 import com.entwinemedia.fn.data.Opt;
@@ -36,11 +37,17 @@ public final class Source {
   private final URI uri;
   private final Opt<Long> size;
   private final Opt<MimeType> mimeType;
+  private final Opt<Checksum> checksum;
 
   public Source(URI uri, Opt<Long> size, Opt<MimeType> mimeType) {
+    this(uri, size, mimeType, Opt.<Checksum>none());
+  }
+
+  public Source(URI uri, Opt<Long> size, Opt<MimeType> mimeType, Opt<Checksum> checksum) {
     this.uri = uri;
     this.size = size;
     this.mimeType = mimeType;
+    this.checksum = checksum;
   }
 
   /** Create a new source. */
@@ -63,6 +70,11 @@ public final class Source {
     return new Source(uri, size, mimeType);
   }
 
+  /** Create a new source. */
+  public static Source mk(URI uri, Opt<Long> size, Opt<MimeType> mimeType, Opt<Checksum> checksum) {
+    return new Source(uri, size, mimeType, checksum);
+  }
+
   public URI getUri() {
     return uri;
   }
@@ -74,4 +86,9 @@ public final class Source {
   public Opt<MimeType> getMimeType() {
     return mimeType;
   }
+
+  /** The checksum of the content, which allows stores to keep identical content only once. */
+  public Opt<Checksum> getChecksum() {
+    return checksum;
+  }
 }
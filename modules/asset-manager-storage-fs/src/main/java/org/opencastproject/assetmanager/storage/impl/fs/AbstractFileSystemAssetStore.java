@@ -37,6 +37,7 @@ import org.opencastproject.assetmanager.impl.storage.AssetStoreException;
 import org.opencastproject.assetmanager.impl.storage.DeletionSelector;
 import org.opencastproject.assetmanager.impl.storage.Source;
 import org.opencastproject.assetmanager.impl.storage.StoragePath;
+import org.opencastproject.util.Checksum;
 import org.opencastproject.util.FileSupport;
 import org.opencastproject.util.NotFoundException;
 import org.opencastproject.util.data.Option;
@@ -58,11 +59,46 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
 
+/**
+ * Asset store keeping the assets in a file system hierarchy of organization, media package, version and element.
+ * <p>
+ * Assets with a known checksum are additionally kept once per organization in a content addressed directory below the
+ * root directory. The assets in the hierarchy are hard links to this content, so identical assets of different media
+ * packages share their storage. Since the checksum of a source is provided by the client, the content is only shared
+ * after its checksum has been verified. The store records the assets referring to each content in a file next to it.
+ * Once the last asset referring to some content is deleted, the content is deleted as well. Since the assets are hard
+ * links, deleting content never affects the assets, it only stops identical assets stored later from sharing it.
+ */
 public abstract class AbstractFileSystemAssetStore implements AssetStore {
   /** Log facility */
   private static final Logger logger = LoggerFactory.getLogger(AbstractFileSystemAssetStore.class);
 
+  /** Name of the directory below the root directory holding the content addressed files */
+  public static final String CONTENT_DIRECTORY = ".content";
+
+  /** Name of the file in each version directory listing the content referenced by the assets of that version */
+  static final String CONTENT_REFERENCES_FILE = ".references";
+
+  /** Separates the asset file name from the content path in the content references file */
+  private static final String CONTENT_REFERENCE_SEPARATOR = " ";
+
+  /** Suffix of the file next to each content listing the assets referring to it, relative to the root directory */
+  static final String CONTENT_REFERRERS_SUFFIX = ".referrers";
+
+  /** Guards creating and deleting content so that content is never deleted while a new reference is created */
+  private final Object contentLock = new Object();
+
+  /** Whether the file system reports link counts and content can be shared, <code>null</code> if not yet known */
+  private Boolean contentAddressable = null;
+
   /** The store type e.g. filesystem (short-term), aws (long-term), other implementations */
   protected String storeType = null;
 
@@ -76,8 +112,12 @@ public abstract class AbstractFileSystemAssetStore implements AssetStore {
     // working file repository. In the very few cases where the file is not in the working file repository,
     // this strategy leads to a minor overhead because the file not only gets downloaded and stored in the file system
     // but also a hard link needs to be created (or if that's not possible, a copy of the file.
-    final File origin = getUniqueFileFromWorkspace(source);
     final File destination = createFile(storagePath, source);
+    if (source.getChecksum().isSome() && isContentAddressable()) {
+      putContent(destination, storagePath.getOrganizationId(), source, source.getChecksum().get());
+      return;
+    }
+    final File origin = getUniqueFileFromWorkspace(source);
     try {
       mkParent(destination);
       link(origin, destination);
@@ -91,6 +131,194 @@ public abstract class AbstractFileSystemAssetStore implements AssetStore {
     }
   }
 
+  /**
+   * Stores an asset as a hard link to the content of the organization with the given checksum. The checksum is provided
+   * by the client, so the asset is only linked to the content once the checksum of the retrieved file has been
+   * verified. Assets whose checksum does not match are stored on their own.
+   */
+  private void putContent(File destination, String organizationId, Source source, Checksum checksum) {
+    final String contentPath = getContentPath(organizationId, checksum);
+    final File content = getContentFile(contentPath);
+    final File origin = getUniqueFileFromWorkspace(source);
+    try {
+      final Checksum actual = Checksum.create(checksum.getType(), origin);
+      if (!actual.getValue().equalsIgnoreCase(checksum.getValue())) {
+        logger.warn("Checksum {} of {} does not match its content with checksum {}, not sharing it", checksum,
+                source.getUri(), actual);
+        mkParent(destination);
+        link(origin, destination);
+        return;
+      }
+      synchronized (contentLock) {
+        if (isUsableContent(content, origin)) {
+          logger.debug("Content of {} with checksum {} is already stored", source.getUri(), checksum);
+        } else {
+          mkParent(content);
+          link(origin, content, true);
+        }
+        linkContent(content, destination, contentPath);
+      }
+    } catch (IOException e) {
+      logger.error("Error while linking content {} to {}: {}", content, destination, getMessage(e));
+      throw new AssetStoreException(e);
+    } finally {
+      FileUtils.deleteQuietly(origin);
+    }
+  }
+
+  /** Check if the content file exists and has the size of the verified file it is supposed to replace. */
+  private boolean isUsableContent(File content, File origin) {
+    if (!content.isFile()) {
+      return false;
+    }
+    if (content.length() != origin.length()) {
+      logger.warn("Content {} does not match the size of {}, replacing it", content, origin);
+      return false;
+    }
+    return true;
+  }
+
+  /** Link an asset to its content and record the reference. */
+  private void linkContent(File content, File destination, String contentPath) throws IOException {
+    mkParent(destination);
+    link(content, destination, true);
+    addContentReference(destination, contentPath);
+  }
+
+  /**
+   * Record that <code>asset</code> refers to the content at the given path relative to the content directory, both in
+   * the version directory of the asset and next to the content. Must be called while holding the content lock.
+   */
+  private void addContentReference(File asset, String contentPath) throws IOException {
+    final File references = new File(asset.getParentFile(), CONTENT_REFERENCES_FILE);
+    FileUtils.writeStringToFile(references, asset.getName() + CONTENT_REFERENCE_SEPARATOR + contentPath + "\n",
+            StandardCharsets.UTF_8, true);
+    FileUtils.writeStringToFile(getContentReferrersFile(contentPath), getAssetPath(asset) + "\n",
+            StandardCharsets.UTF_8, true);
+  }
+
+  /** Return the file listing the assets referring to the content at the given path. */
+  private File getContentReferrersFile(String contentPath) {
+    return file(getRootDirectory(), CONTENT_DIRECTORY, contentPath + CONTENT_REFERRERS_SUFFIX);
+  }
+
+  /** Return the path of an asset relative to the root directory. */
+  private String getAssetPath(File asset) {
+    return new File(getRootDirectory()).toPath().relativize(asset.toPath()).toString();
+  }
+
+  /** Return the content referenced by the assets of a version directory, keyed by the asset file name. */
+  private Map<String, String> getContentReferences(File versionDir) {
+    final Map<String, String> contentPaths = new HashMap<>();
+    final File references = new File(versionDir, CONTENT_REFERENCES_FILE);
+    if (!references.isFile()) {
+      return contentPaths;
+    }
+    try {
+      for (String line : FileUtils.readLines(references, StandardCharsets.UTF_8)) {
+        final String[] reference = line.split(CONTENT_REFERENCE_SEPARATOR, 2);
+        if (reference.length == 2) {
+          contentPaths.put(reference[0], reference[1]);
+        }
+      }
+    } catch (IOException e) {
+      logger.warn("Unable to read content references {}: {}", references, getMessage(e));
+    }
+    return contentPaths;
+  }
+
+  /**
+   * Return the path of the content of an organization with the given checksum relative to the content directory.
+   * Content is never shared across organizations.
+   */
+  private String getContentPath(String organizationId, Checksum checksum) {
+    final String value = checksum.getValue().toLowerCase();
+    return path(organizationId, checksum.getType().getName(), value.substring(0, Math.min(2, value.length())), value);
+  }
+
+  /** Return the content file from its path relative to the content directory. */
+  private File getContentFile(String contentPath) {
+    return file(getRootDirectory(), CONTENT_DIRECTORY, contentPath);
+  }
+
+  /**
+   * Collect the assets of a version directory referring to content, keyed by the content path.
+   *
+   * @param referrers
+   *          the map to add the assets to
+   */
+  private void collectContentReferrers(File versionDir, Map<String, Set<String>> referrers) {
+    for (Map.Entry<String, String> reference : getContentReferences(versionDir).entrySet()) {
+      referrers.computeIfAbsent(reference.getValue(), path -> new HashSet<>())
+              .add(getAssetPath(new File(versionDir, reference.getKey())));
+    }
+  }
+
+  /**
+   * Remove deleted assets from the referrers of their content and delete the content no asset refers to anymore.
+   *
+   * @param referrers
+   *          the deleted assets keyed by the path of the content they referred to
+   */
+  private void removeContentReferrers(Map<String, Set<String>> referrers) {
+    synchronized (contentLock) {
+      for (Map.Entry<String, Set<String>> entry : referrers.entrySet()) {
+        final File content = getContentFile(entry.getKey());
+        final File referrersFile = getContentReferrersFile(entry.getKey());
+        try {
+          final Set<String> remaining = new LinkedHashSet<>();
+          if (referrersFile.isFile()) {
+            remaining.addAll(FileUtils.readLines(referrersFile, StandardCharsets.UTF_8));
+          }
+          remaining.removeAll(entry.getValue());
+          remaining.remove("");
+          if (remaining.isEmpty()) {
+            logger.debug("Deleting unreferenced content {}", content);
+            FileUtils.deleteQuietly(content);
+            FileUtils.deleteQuietly(referrersFile);
+            FileSupport.deleteHierarchyIfEmpty(file(getRootDirectory(), CONTENT_DIRECTORY), content.getParentFile());
+          } else {
+            FileUtils.writeLines(referrersFile, StandardCharsets.UTF_8.name(), remaining);
+          }
+        } catch (IOException e) {
+          logger.warn("Unable to update the references of content {}: {}", content, getMessage(e));
+        }
+      }
+    }
+  }
+
+  /** Return the number of hard links to a file. */
+  private static int getLinkCount(File f) throws IOException {
+    return (Integer) Files.getAttribute(f.toPath(), "unix:nlink");
+  }
+
+  /** Check if the file system of the root directory supports hard links, which sharing content relies on. */
+  private boolean isContentAddressable() {
+    if (contentAddressable == null) {
+      final File root = new File(getRootDirectory());
+      mkDirs(root);
+      boolean supported = false;
+      try {
+        final File probe = File.createTempFile("link", ".probe", root);
+        final File probeLink = new File(root, probe.getName() + ".link");
+        try {
+          Files.createLink(probeLink.toPath(), probe.toPath());
+          supported = getLinkCount(probe) == 2;
+        } finally {
+          FileUtils.deleteQuietly(probeLink);
+          FileUtils.deleteQuietly(probe);
+        }
+      } catch (IOException | UnsupportedOperationException | IllegalArgumentException e) {
+        logger.debug("Unable to count hard links in {}: {}", root, getMessage(e));
+      }
+      if (!supported) {
+        logger.info("File system of {} does not support hard links, identical assets are stored more than once", root);
+      }
+      contentAddressable = supported;
+    }
+    return contentAddressable;
+  }
+
   private File getUniqueFileFromWorkspace(Source source) {
     try {
       return getWorkspace().get(source.getUri(), true);
@@ -111,7 +339,13 @@ public abstract class AbstractFileSystemAssetStore implements AssetStore {
         mkParent(t);
         logger.debug("Copying {} to {}", f.getAbsolutePath(), t.getAbsolutePath());
         try {
-          link(f, t, true);
+          synchronized (contentLock) {
+            link(f, t, true);
+            final String contentPath = getContentReferences(f.getParentFile()).get(f.getName());
+            if (contentPath != null) {
+              addContentReference(t, contentPath);
+            }
+          }
         } catch (IOException e) {
           logger.error("Error copying archive file {} to {}", f, t);
           throw new AssetStoreException(e);
@@ -144,8 +378,17 @@ public abstract class AbstractFileSystemAssetStore implements AssetStore {
   @Override
   public boolean delete(DeletionSelector sel) throws AssetStoreException {
     File dir = getDeletionSelectorDir(sel);
+    final Map<String, Set<String>> referrers = new HashMap<>();
+    if (sel.getVersion().isSome()) {
+      collectContentReferrers(dir, referrers);
+    } else {
+      for (File versionDir : nul(dir.listFiles()).getOr(new File[0])) {
+        collectContentReferrers(versionDir, referrers);
+      }
+    }
     try {
       FileUtils.deleteDirectory(dir);
+      removeContentReferrers(referrers);
       // also delete the media package directory if all versions have been deleted
       FileSupport.deleteHierarchyIfEmpty(file(path(getRootDirectory(), sel.getOrganizationId())), dir.getParentFile());
       return true;
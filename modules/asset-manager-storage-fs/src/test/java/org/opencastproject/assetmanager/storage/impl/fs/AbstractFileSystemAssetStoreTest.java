@@ -29,7 +29,10 @@ import org.opencastproject.assetmanager.impl.VersionImpl;
 import org.opencastproject.assetmanager.impl.storage.DeletionSelector;
 import org.opencastproject.assetmanager.impl.storage.Source;
 import org.opencastproject.assetmanager.impl.storage.StoragePath;
+import org.opencastproject.util.Checksum;
+import org.opencastproject.util.ChecksumType;
 import org.opencastproject.util.IoSupport;
+import org.opencastproject.util.MimeType;
 import org.opencastproject.util.PathSupport;
 import org.opencastproject.workspace.api.Workspace;
 
@@ -48,6 +51,9 @@ import org.junit.rules.TemporaryFolder;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
 
 public class AbstractFileSystemAssetStoreTest {
   private static final String XML_EXTENSTION = ".xml";
@@ -134,6 +140,124 @@ public class AbstractFileSystemAssetStoreTest {
     }
   }
 
+  @Test
+  public void testPutSharesIdenticalContent() throws Exception {
+    final File asset = IoSupport.classPathResourceAsFile("/" + FILE_NAME).get();
+    final Source source = Source.mk(asset.toURI(), Opt.some(asset.length()), Opt.<MimeType>none(),
+            Opt.some(Checksum.create(ChecksumType.DEFAULT_TYPE, asset)));
+    final StoragePath first = new StoragePath(ORG_ID, MP_ID, VERSION_1, MP_ELEM_ID);
+    final StoragePath second = new StoragePath(ORG_ID, "otherMediaPackageId", VERSION_1, MP_ELEM_ID);
+    repo.put(first, source);
+    repo.put(second, source);
+
+    final File firstFile = new File(PathSupport.concat(new String[] { tmpRoot.toString(), ORG_ID, MP_ID,
+            VERSION_1.toString(), MP_ELEM_ID + XML_EXTENSTION }));
+    final File secondFile = new File(PathSupport.concat(new String[] { tmpRoot.toString(), ORG_ID,
+            "otherMediaPackageId", VERSION_1.toString(), MP_ELEM_ID + XML_EXTENSTION }));
+    assertTrue(Files.isSameFile(firstFile.toPath(), secondFile.toPath()));
+    assertEquals(asset.length(), secondFile.length());
+
+    // Content stays as long as it is referenced
+    final File contentDir = new File(tmpRoot, AbstractFileSystemAssetStore.CONTENT_DIRECTORY);
+    assertTrue(repo.delete(DeletionSelector.delete(ORG_ID, MP_ID, VERSION_1)));
+    assertEquals(1, getContentFiles(contentDir).size());
+    assertTrue(repo.contains(second));
+
+    assertTrue(repo.delete(DeletionSelector.deleteAll(ORG_ID, "otherMediaPackageId")));
+    assertFalse(contentDir.exists() && FileUtils.listFiles(contentDir, null, true).size() > 0);
+  }
+
+  @Test
+  public void testContentIsDeletedByRecordedReferences() throws Exception {
+    final File asset = IoSupport.classPathResourceAsFile("/" + FILE_NAME).get();
+    final Source source = Source.mk(asset.toURI(), Opt.some(asset.length()), Opt.<MimeType>none(),
+            Opt.some(Checksum.create(ChecksumType.DEFAULT_TYPE, asset)));
+    final StoragePath first = new StoragePath(ORG_ID, MP_ID, VERSION_1, MP_ELEM_ID);
+    final StoragePath copy = new StoragePath(ORG_ID, "otherMediaPackageId", VERSION_1, MP_ELEM_ID);
+    repo.put(first, source);
+    assertTrue(repo.copy(first, copy));
+
+    // A hard link created outside of the store, e.g. by a backup, must not keep the content alive
+    final File contentDir = new File(tmpRoot, AbstractFileSystemAssetStore.CONTENT_DIRECTORY);
+    final File content = getContentFiles(contentDir).iterator().next();
+    Files.createLink(tmpFolder.getRoot().toPath().resolve("backup"), content.toPath());
+
+    // The copy is a reference of its own
+    assertTrue(repo.delete(DeletionSelector.deleteAll(ORG_ID, MP_ID)));
+    assertTrue(content.exists());
+    assertTrue(repo.contains(copy));
+
+    assertTrue(repo.delete(DeletionSelector.deleteAll(ORG_ID, "otherMediaPackageId")));
+    assertFalse(content.exists());
+    assertFalse(new File(content.getPath() + AbstractFileSystemAssetStore.CONTENT_REFERRERS_SUFFIX).exists());
+  }
+
+  /** Return the content files of the store without the files listing their references. */
+  private static Collection<File> getContentFiles(File contentDir) {
+    final Collection<File> files = new ArrayList<>();
+    for (File file : FileUtils.listFiles(contentDir, null, true)) {
+      if (!file.getName().endsWith(AbstractFileSystemAssetStore.CONTENT_REFERRERS_SUFFIX))
+        files.add(file);
+    }
+    return files;
+  }
+
+  @Test
+  public void testPutDoesNotShareContentAcrossOrganizations() throws Exception {
+    final File asset = IoSupport.classPathResourceAsFile("/" + FILE_NAME).get();
+    final Source source = Source.mk(asset.toURI(), Opt.some(asset.length()), Opt.<MimeType>none(),
+            Opt.some(Checksum.create(ChecksumType.DEFAULT_TYPE, asset)));
+    final StoragePath first = new StoragePath(ORG_ID, MP_ID, VERSION_1, MP_ELEM_ID);
+    final StoragePath second = new StoragePath("otherOrgId", MP_ID, VERSION_1, MP_ELEM_ID);
+    repo.put(first, source);
+    repo.put(second, source);
+
+    final File firstFile = new File(PathSupport.concat(new String[] { tmpRoot.toString(), ORG_ID, MP_ID,
+            VERSION_1.toString(), MP_ELEM_ID + XML_EXTENSTION }));
+    final File secondFile = new File(PathSupport.concat(new String[] { tmpRoot.toString(), "otherOrgId", MP_ID,
+            VERSION_1.toString(), MP_ELEM_ID + XML_EXTENSTION }));
+    assertFalse(Files.isSameFile(firstFile.toPath(), secondFile.toPath()));
+    assertEquals(asset.length(), secondFile.length());
+  }
+
+  @Test
+  public void testPutDoesNotShareContentWithMismatchedChecksum() throws Exception {
+    final File asset = IoSupport.classPathResourceAsFile("/" + FILE_NAME).get();
+    final Checksum checksum = Checksum.create(ChecksumType.DEFAULT_TYPE, asset);
+    final StoragePath first = new StoragePath(ORG_ID, MP_ID, VERSION_1, MP_ELEM_ID);
+    repo.put(first, Source.mk(asset.toURI(), Opt.some(asset.length()), Opt.<MimeType>none(), Opt.some(checksum)));
+
+    // A client claiming the checksum of the stored content for different content must not get linked to it
+    final File other = tmpFolder.newFile("other.xml");
+    FileUtils.writeStringToFile(other, "<other/>", "UTF-8");
+    final Workspace workspace = EasyMock.createNiceMock(Workspace.class);
+    EasyMock.expect(workspace.get(EasyMock.anyObject(), EasyMock.anyBoolean())).andAnswer(() -> {
+      File tmp = tmpFolder.newFile();
+      FileUtils.copyFile(other, tmp);
+      return tmp;
+    }).anyTimes();
+    EasyMock.replay(workspace);
+    final AbstractFileSystemAssetStore otherRepo = new AbstractFileSystemAssetStore() {
+      @Override protected Workspace getWorkspace() {
+        return workspace;
+      }
+
+      @Override protected String getRootDirectory() {
+        return tmpRoot.getAbsolutePath();
+      }
+    };
+    final StoragePath second = new StoragePath(ORG_ID, "otherMediaPackageId", VERSION_1, MP_ELEM_ID);
+    otherRepo.put(second, Source.mk(other.toURI(), Opt.<Long>none(), Opt.<MimeType>none(), Opt.some(checksum)));
+
+    final File firstFile = new File(PathSupport.concat(new String[] { tmpRoot.toString(), ORG_ID, MP_ID,
+            VERSION_1.toString(), MP_ELEM_ID + XML_EXTENSTION }));
+    final File secondFile = new File(PathSupport.concat(new String[] { tmpRoot.toString(), ORG_ID,
+            "otherMediaPackageId", VERSION_1.toString(), MP_ELEM_ID + XML_EXTENSTION }));
+    assertFalse(Files.isSameFile(firstFile.toPath(), secondFile.toPath()));
+    assertEquals("<other/>", FileUtils.readFileToString(secondFile, "UTF-8"));
+    assertEquals(asset.length(), firstFile.length());
+  }
+
   @Test
   public void testCopy() throws Exception {
     StoragePath from = new StoragePath(ORG_ID, MP_ID, VERSION_2, MP_ELEM_ID);
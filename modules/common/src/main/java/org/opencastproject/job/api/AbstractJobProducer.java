@@ -50,8 +50,6 @@ import org.slf4j.LoggerFactory;
 
 import java.text.DecimalFormat;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 /**
  * This class serves as a convenience for services that implement the {@link JobProducer} api to deal with handling long
@@ -79,8 +77,8 @@ public abstract class AbstractJobProducer implements JobProducer {
   /** The types of job that this producer can handle */
   protected String jobType = null;
 
-  /** To enable threading when dispatching jobs */
-  protected ExecutorService executor = Executors.newCachedThreadPool();
+  /** To enable threading when dispatching jobs, shared by all producers of the same job type */
+  protected JobExecutor executor;
 
   /**
    * OSGI activate method.
@@ -101,6 +99,7 @@ public abstract class AbstractJobProducer implements JobProducer {
    */
   public AbstractJobProducer(String jobType) {
     this.jobType = jobType;
+    this.executor = JobExecutor.forJobType(jobType);
   }
 
   /**
@@ -163,6 +162,11 @@ public abstract class AbstractJobProducer implements JobProducer {
       logger.debug("Invalid job type submitted: {}", job.getJobType());
       return false;
     }
+    if (executor.isSaturated()) {
+      logger.debug("{} Declining job {} of type {} because {} jobs are already waiting for a thread",
+              Thread.currentThread().getId(), job.getId(), job.getJobType(), executor.getQueueDepth());
+      return false;
+    }
     NodeLoad maxload;
     try {
       maxload = getServiceRegistry().getMaxLoadOnNode(getServiceRegistry().getRegistryHostname());
@@ -22,6 +22,7 @@
 package org.opencastproject.job.api;
 
 import org.opencastproject.job.api.Job.Status;
+import org.opencastproject.serviceregistry.api.JobStatusPublisher;
 import org.opencastproject.serviceregistry.api.ServiceRegistry;
 import org.opencastproject.serviceregistry.api.ServiceRegistryException;
 import org.opencastproject.util.JobCanceledException;
@@ -32,11 +33,12 @@ import com.entwinemedia.fn.data.Opt;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * This class is a utility implementation that will wait for all given jobs to change their status to either one of:
@@ -45,6 +47,10 @@ import java.util.Map;
  * <li>{@link Job.Status#FAILED}</li>
  * <li>{@link Job.Status#DELETED}</li>
  * </ul>
+ * <p>
+ * If the service registry is a {@link JobStatusPublisher}, the barrier subscribes to job status changes and only
+ * polls the registry if no notification arrived within the polling interval, e. g. because the jobs are processed
+ * on another node.
  */
 public final class JobBarrier {
   /** The logging facility */
@@ -71,6 +77,25 @@ public final class JobBarrier {
   /** The status map */
   private volatile Result status = null;
 
+  /** Job updates that have been published by the service registry but not yet processed, keyed by job id */
+  private final Map<Long, Job> publishedUpdates = new ConcurrentHashMap<Long, Job>();
+
+  /** Listener collecting status changes of the monitored jobs */
+  private final JobListener jobListener = new JobListener() {
+    @Override
+    public void jobStatusChanged(Job job) {
+      for (Job monitored : jobs) {
+        if (monitored.getId() == job.getId()) {
+          publishedUpdates.put(job.getId(), job);
+          synchronized (publishedUpdates) {
+            publishedUpdates.notifyAll();
+          }
+          return;
+        }
+      }
+    }
+  };
+
   /**
    * Creates a barrier without any jobs, using <code>registry</code> to poll for the outcome of the monitored jobs using
    * the default polling interval {@link #DEFAULT_POLLING_INTERVAL}. The <code>waiter</code> is the job which is waiting
@@ -142,7 +167,7 @@ public final class JobBarrier {
       this.waiterJobId = Opt.some(waiter.getId());
     else
       this.waiterJobId = Opt.none();
-    this.jobs = new ArrayList<Job>(Arrays.asList(jobs));
+    this.jobs = new CopyOnWriteArrayList<Job>(Arrays.asList(jobs));
   }
 
   private void suspendWaiterJob() {
@@ -204,14 +229,22 @@ public final class JobBarrier {
     if (jobs.size() == 0)
       return new Result(new HashMap<Job, Status>());
     this.suspendWaiterJob();
-    synchronized (this) {
-      JobStatusUpdater updater = new JobStatusUpdater(timeout);
-      try {
-        updater.start();
-        wait();
-      } catch (InterruptedException e) {
-        logger.debug("Interrupted while waiting for job");
+    final boolean subscribed = serviceRegistry instanceof JobStatusPublisher;
+    if (subscribed)
+      ((JobStatusPublisher) serviceRegistry).addJobListener(jobListener);
+    try {
+      synchronized (this) {
+        JobStatusUpdater updater = new JobStatusUpdater(timeout, subscribed);
+        try {
+          updater.start();
+          wait();
+        } catch (InterruptedException e) {
+          logger.debug("Interrupted while waiting for job");
+        }
       }
+    } finally {
+      if (subscribed)
+        ((JobStatusPublisher) serviceRegistry).removeJobListener(jobListener);
     }
     if (pollingException != null) {
       if (pollingException instanceof JobCanceledException)
@@ -261,27 +294,63 @@ public final class JobBarrier {
     /** Maximum wait in milliseconds or 0 for unlimited waiting */
     private final long workTime;
 
+    /** Whether status changes are published to this barrier by the service registry */
+    private final boolean subscribed;
+
     /**
      * Creates a new status updater that will wait for finished jobs. If <code>0</code> is passed in as the work time,
      * the updater will wait as long as it takes. Otherwise, it will stop after the indicated amount of time has passed.
      *
      * @param workTime
      *          the work time
+     * @param subscribed
+     *          whether the barrier is subscribed to status changes published by the service registry
      */
-    JobStatusUpdater(long workTime) {
+    JobStatusUpdater(long workTime, boolean subscribed) {
       this.workTime = workTime;
+      this.subscribed = subscribed;
+    }
+
+    /**
+     * Waits for published job updates or until the given amount of time has passed.
+     *
+     * @param timeToWait
+     *          the maximum time to wait in milliseconds
+     * @return <code>true</code> if job updates have been published while waiting
+     * @throws InterruptedException
+     *           if the thread was interrupted while waiting
+     */
+    private boolean waitForUpdates(long timeToWait) throws InterruptedException {
+      if (!subscribed) {
+        Thread.sleep(timeToWait);
+        return false;
+      }
+      final long deadline = System.currentTimeMillis() + timeToWait;
+      synchronized (publishedUpdates) {
+        long remaining = timeToWait;
+        while (publishedUpdates.isEmpty() && remaining > 0) {
+          publishedUpdates.wait(remaining);
+          remaining = deadline - System.currentTimeMillis();
+        }
+        return !publishedUpdates.isEmpty();
+      }
     }
 
     @Override
     public void run() {
       final long endTime = workTime > 0 ? System.currentTimeMillis() + workTime : 0;
       final Map<Job, Job.Status> finishedJobs = new HashMap<Job, Job.Status>();
+      // When subscribed and waiting without a timeout, poll once right away to catch jobs that have finished before
+      // the listener was registered
+      boolean firstRound = subscribed && workTime == 0;
       while (true) {
         final long time = System.currentTimeMillis();
-        // Wait a little..
+        // Wait a little, or until the service registry tells us about a status change
+        final boolean notified;
         try {
-          final long timeToSleep = Math.min(pollingInterval, Math.abs(endTime - time));
-          Thread.sleep(timeToSleep);
+          final long timeToSleep = firstRound ? 0 : Math.min(pollingInterval, Math.abs(endTime - time));
+          notified = waitForUpdates(timeToSleep);
+          firstRound = false;
         } catch (InterruptedException e) {
           logger.debug("Job polling thread was interrupted");
           return;
@@ -290,34 +359,41 @@ public final class JobBarrier {
         for (final Job job : jobs) {
           // Don't ask if we already know
           if (!finishedJobs.containsKey(job)) {
-            // Get the job status from the service registry
+            // Get the job status from the published update, or from the service registry if nothing was published
+            // within the polling interval
             try {
-              final Job processedJob = serviceRegistry.getJob(job.getId());
-              final Job.Status jobStatus = processedJob.getStatus();
-              switch (jobStatus) {
-                case CANCELED:
-                  throw new JobCanceledException(processedJob);
-                case DELETED:
-                case FAILED:
-                case FINISHED:
-                  job.setStatus(jobStatus);
-                  job.setPayload(processedJob.getPayload());
-                  finishedJobs.put(job, jobStatus);
-                  break;
-                case PAUSED:
-                case QUEUED:
-                case RESTART:
-                case DISPATCHING:
-                case INSTANTIATED:
-                case RUNNING:
-                  logger.trace("{} is still in the works", job);
-                  break;
-                case WAITING:
-                  logger.trace("{} is waiting", job);
-                  break;
-                default:
-                  logger.error("Unhandled job status '{}' found", jobStatus);
-                  break;
+              Job processedJob = publishedUpdates.remove(job.getId());
+              if (processedJob == null && !notified)
+                processedJob = serviceRegistry.getJob(job.getId());
+              if (processedJob == null) {
+                logger.trace("No update has been published for {}", job);
+              } else {
+                final Job.Status jobStatus = processedJob.getStatus();
+                switch (jobStatus) {
+                  case CANCELED:
+                    throw new JobCanceledException(processedJob);
+                  case DELETED:
+                  case FAILED:
+                  case FINISHED:
+                    job.setStatus(jobStatus);
+                    job.setPayload(processedJob.getPayload());
+                    finishedJobs.put(job, jobStatus);
+                    break;
+                  case PAUSED:
+                  case QUEUED:
+                  case RESTART:
+                  case DISPATCHING:
+                  case INSTANTIATED:
+                  case RUNNING:
+                    logger.trace("{} is still in the works", job);
+                    break;
+                  case WAITING:
+                    logger.trace("{} is waiting", job);
+                    break;
+                  default:
+                    logger.error("Unhandled job status '{}' found", jobStatus);
+                    break;
+                }
               }
             } catch (NotFoundException e) {
               logger.warn("Error polling job {}: Not found!", job);
@@ -0,0 +1,328 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.job.api;
+
+import org.opencastproject.util.jmx.JmxUtil;
+
+import org.apache.commons.lang3.StringUtils;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.FrameworkUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.ObjectName;
+
+/**
+ * The executor running the jobs of a single job type on this node. All job producers of the same type share one
+ * executor which is looked up using {@link #forJobType(String)}.
+ * <p>
+ * By default, the number of threads is not bounded which means that every accepted job is run right away. If a maximum
+ * number of threads is configured, accepted jobs that exceed it are queued until a thread becomes available. A
+ * producer may additionally stop accepting jobs once the queue has reached the configured capacity, see
+ * {@link #isSaturated()}.
+ */
+public final class JobExecutor extends ThreadPoolExecutor implements JobExecutorMXBean {
+
+  /** The logger */
+  private static final Logger logger = LoggerFactory.getLogger(JobExecutor.class);
+
+  /**
+   * The configuration key for the maximum number of threads per job type. May be suffixed with
+   * <code>.&lt;job type&gt;</code> to configure a single job type.
+   */
+  public static final String THREADS_PROPERTY = "org.opencastproject.job.executor.threads";
+
+  /**
+   * The configuration key for the number of queued jobs at which a job type stops accepting further jobs. May be
+   * suffixed with <code>.&lt;job type&gt;</code> to configure a single job type.
+   */
+  public static final String QUEUE_SIZE_PROPERTY = "org.opencastproject.job.executor.queue.size";
+
+  /** The default maximum number of threads, <code>0</code> meaning unbounded */
+  public static final int DEFAULT_THREADS = 0;
+
+  /** The default queue capacity, <code>0</code> meaning unbounded */
+  public static final int DEFAULT_QUEUE_SIZE = 0;
+
+  /** The JMX type prefix of the executor beans */
+  public static final String JMX_JOB_EXECUTOR_TYPE = "JobExecutor";
+
+  /** The upper bounds of the run time histogram buckets in milliseconds */
+  private static final long[] RUN_TIME_BOUNDS = { TimeUnit.SECONDS.toMillis(1), TimeUnit.SECONDS.toMillis(10),
+          TimeUnit.MINUTES.toMillis(1), TimeUnit.MINUTES.toMillis(10), TimeUnit.HOURS.toMillis(1) };
+
+  /** Time after which idle threads are terminated */
+  private static final long KEEP_ALIVE_SECONDS = 60L;
+
+  /** The executors by job type */
+  private static final Map<String, JobExecutor> executors = new ConcurrentHashMap<>();
+
+  /** The job type */
+  private final String jobType;
+
+  /** The configured maximum number of threads */
+  private final int maxThreads;
+
+  /** The configured queue capacity */
+  private final int queueCapacity;
+
+  /** The start time of the job running on the current thread */
+  private final ThreadLocal<Long> startTime = new ThreadLocal<>();
+
+  private final LongAdder completedJobs = new LongAdder();
+  private final LongAdder totalRunTime = new LongAdder();
+  private final LongAdder totalQueueTime = new LongAdder();
+  private final LongAdder queuedJobs = new LongAdder();
+  private final AtomicLong maxRunTime = new AtomicLong();
+  private final AtomicLongArray runTimeHistogram = new AtomicLongArray(RUN_TIME_BOUNDS.length + 1);
+
+  /**
+   * Creates a new executor.
+   *
+   * @param jobType
+   *          the job type
+   * @param maxThreads
+   *          the maximum number of threads, or <code>0</code> for no limit
+   * @param queueCapacity
+   *          the queue depth at which the executor reports to be saturated, or <code>0</code> for no limit
+   */
+  JobExecutor(String jobType, int maxThreads, int queueCapacity) {
+    super(maxThreads > 0 ? maxThreads : 0, maxThreads > 0 ? maxThreads : Integer.MAX_VALUE, KEEP_ALIVE_SECONDS,
+            TimeUnit.SECONDS, JobExecutor.<Runnable> createQueue(maxThreads), new JobThreadFactory(jobType));
+    this.jobType = jobType;
+    this.maxThreads = Math.max(0, maxThreads);
+    this.queueCapacity = Math.max(0, queueCapacity);
+    if (this.maxThreads > 0)
+      allowCoreThreadTimeOut(true);
+  }
+
+  /**
+   * Returns the executor shared by all producers of the given job type, creating and registering it with JMX on first
+   * use.
+   *
+   * @param jobType
+   *          the job type
+   * @return the executor
+   */
+  public static JobExecutor forJobType(String jobType) {
+    final String type = StringUtils.defaultString(jobType);
+    return executors.computeIfAbsent(type, t -> {
+      final BundleContext bundleContext = getBundleContext();
+      final int threads = getIntProperty(bundleContext, THREADS_PROPERTY, t, DEFAULT_THREADS);
+      final int queueSize = getIntProperty(bundleContext, QUEUE_SIZE_PROPERTY, t, DEFAULT_QUEUE_SIZE);
+      final JobExecutor executor = new JobExecutor(t, threads, queueSize);
+      if (threads > 0) {
+        logger.info("Running jobs of type '{}' on at most {} threads (queue capacity {})", t, threads,
+                queueSize > 0 ? queueSize : "unbounded");
+      }
+      JmxUtil.registerMXBean(executor, JMX_JOB_EXECUTOR_TYPE + ",jobType=" + ObjectName.quote(t));
+      return executor;
+    });
+  }
+
+  /**
+   * Returns <code>true</code> if the number of queued jobs has reached the configured queue capacity, in which case no
+   * further jobs should be accepted.
+   *
+   * @return whether the executor is saturated
+   */
+  public boolean isSaturated() {
+    return maxThreads > 0 && queueCapacity > 0 && getQueueDepth() >= queueCapacity;
+  }
+
+  @Override
+  protected <T> RunnableFuture<T> newTaskFor(Callable<T> callable) {
+    return new TimedTask<>(callable);
+  }
+
+  @Override
+  protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
+    return new TimedTask<>(runnable, value);
+  }
+
+  @Override
+  protected void beforeExecute(Thread t, Runnable r) {
+    super.beforeExecute(t, r);
+    final long now = System.nanoTime();
+    if (r instanceof TimedTask) {
+      totalQueueTime.add(TimeUnit.NANOSECONDS.toMillis(now - ((TimedTask<?>) r).created));
+      queuedJobs.increment();
+    }
+    startTime.set(now);
+  }
+
+  @Override
+  protected void afterExecute(Runnable r, Throwable t) {
+    final Long start = startTime.get();
+    startTime.remove();
+    if (start != null) {
+      final long runTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+      completedJobs.increment();
+      totalRunTime.add(runTime);
+      maxRunTime.accumulateAndGet(runTime, Math::max);
+      runTimeHistogram.incrementAndGet(bucketOf(runTime));
+    }
+    super.afterExecute(r, t);
+  }
+
+  @Override
+  public String getJobType() {
+    return jobType;
+  }
+
+  @Override
+  public int getMaximumThreads() {
+    return maxThreads;
+  }
+
+  @Override
+  public int getQueueDepth() {
+    return getQueue().size();
+  }
+
+  @Override
+  public int getQueueCapacity() {
+    return queueCapacity;
+  }
+
+  @Override
+  public long getCompletedJobs() {
+    return completedJobs.sum();
+  }
+
+  @Override
+  public long getAverageQueueTime() {
+    final long count = queuedJobs.sum();
+    return count == 0 ? 0 : totalQueueTime.sum() / count;
+  }
+
+  @Override
+  public long getAverageRunTime() {
+    final long count = completedJobs.sum();
+    return count == 0 ? 0 : totalRunTime.sum() / count;
+  }
+
+  @Override
+  public long getMaxRunTime() {
+    return maxRunTime.get();
+  }
+
+  @Override
+  public long[] getRunTimeHistogramBounds() {
+    return RUN_TIME_BOUNDS.clone();
+  }
+
+  @Override
+  public long[] getRunTimeHistogram() {
+    final long[] histogram = new long[runTimeHistogram.length()];
+    for (int i = 0; i < histogram.length; i++) {
+      histogram[i] = runTimeHistogram.get(i);
+    }
+    return histogram;
+  }
+
+  /** Returns the index of the histogram bucket a run time falls into. */
+  static int bucketOf(long runTime) {
+    int i = 0;
+    while (i < RUN_TIME_BOUNDS.length && runTime >= RUN_TIME_BOUNDS[i]) {
+      i++;
+    }
+    return i;
+  }
+
+  /**
+   * Without a thread limit, jobs are handed off directly to a new or idle thread just like a cached thread pool does.
+   * With a limit, jobs exceeding it are queued.
+   */
+  private static <E> BlockingQueue<E> createQueue(int maxThreads) {
+    return maxThreads > 0 ? new LinkedBlockingQueue<>() : new SynchronousQueue<>();
+  }
+
+  private static BundleContext getBundleContext() {
+    final Bundle bundle = FrameworkUtil.getBundle(JobExecutor.class);
+    return bundle != null ? bundle.getBundleContext() : null;
+  }
+
+  /** Reads a job type specific property, falling back to the general one and finally to the default value. */
+  private static int getIntProperty(BundleContext bundleContext, String key, String jobType, int defaultValue) {
+    if (bundleContext == null)
+      return defaultValue;
+    String value = StringUtils.trimToNull(bundleContext.getProperty(key + "." + jobType));
+    if (value == null)
+      value = StringUtils.trimToNull(bundleContext.getProperty(key));
+    if (value == null)
+      return defaultValue;
+    try {
+      return Integer.parseInt(value);
+    } catch (NumberFormatException e) {
+      logger.warn("Ignoring invalid value '{}' of {} for jobs of type '{}'", value, key, jobType);
+      return defaultValue;
+    }
+  }
+
+  /** A future remembering when it has been submitted. */
+  private static final class TimedTask<T> extends FutureTask<T> {
+    private final long created = System.nanoTime();
+
+    TimedTask(Callable<T> callable) {
+      super(callable);
+    }
+
+    TimedTask(Runnable runnable, T value) {
+      super(runnable, value);
+    }
+  }
+
+  /** Names the threads after the job type they are running jobs for. */
+  private static final class JobThreadFactory implements ThreadFactory {
+    private final AtomicInteger count = new AtomicInteger();
+    private final String prefix;
+
+    JobThreadFactory(String jobType) {
+      prefix = "job-" + StringUtils.substringAfterLast("." + jobType, ".") + "-";
+    }
+
+    @Override
+    public Thread newThread(Runnable r) {
+      return new Thread(r, prefix + count.incrementAndGet());
+    }
+  }
+
+}
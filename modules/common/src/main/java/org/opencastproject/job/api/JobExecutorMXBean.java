@@ -0,0 +1,122 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.job.api;
+
+/**
+ * JMX Bean interface exposing the statistics of the executor running the jobs of a single job type.
+ */
+public interface JobExecutorMXBean {
+
+  /**
+   * Gets the job type this executor is running jobs for
+   *
+   * @return the job type
+   */
+  String getJobType();
+
+  /**
+   * Gets the configured maximum number of threads, or <code>0</code> if the number of threads is not bounded
+   *
+   * @return the maximum number of threads
+   */
+  int getMaximumThreads();
+
+  /**
+   * Gets the number of threads currently in the pool
+   *
+   * @return the pool size
+   */
+  int getPoolSize();
+
+  /**
+   * Gets the largest number of threads that have ever simultaneously been in the pool
+   *
+   * @return the largest pool size
+   */
+  int getLargestPoolSize();
+
+  /**
+   * Gets the number of threads that are currently running a job
+   *
+   * @return the number of active threads
+   */
+  int getActiveCount();
+
+  /**
+   * Gets the number of accepted jobs waiting for a thread
+   *
+   * @return the queue depth
+   */
+  int getQueueDepth();
+
+  /**
+   * Gets the queue depth at which no further jobs are accepted, or <code>0</code> if there is no such limit
+   *
+   * @return the queue capacity
+   */
+  int getQueueCapacity();
+
+  /**
+   * Gets the number of jobs that have been run to completion
+   *
+   * @return the number of completed jobs
+   */
+  long getCompletedJobs();
+
+  /**
+   * Gets the average time in milliseconds a job has been waiting for a thread
+   *
+   * @return the average queue time
+   */
+  long getAverageQueueTime();
+
+  /**
+   * Gets the average run time of a job in milliseconds
+   *
+   * @return the average run time
+   */
+  long getAverageRunTime();
+
+  /**
+   * Gets the longest run time of a job in milliseconds
+   *
+   * @return the maximum run time
+   */
+  long getMaxRunTime();
+
+  /**
+   * Gets the upper bounds in milliseconds of the buckets of the {@link #getRunTimeHistogram() run time histogram}. The
+   * last bucket has no upper bound.
+   *
+   * @return the bucket bounds
+   */
+  long[] getRunTimeHistogramBounds();
+
+  /**
+   * Gets the number of completed jobs per run time bucket
+   *
+   * @return the run time histogram
+   */
+  long[] getRunTimeHistogram();
+
+}
@@ -65,6 +65,9 @@ import javax.xml.bind.annotation.XmlElementWrapper;
 import javax.xml.bind.annotation.XmlRootElement;
 import javax.xml.bind.annotation.XmlType;
 import javax.xml.bind.annotation.adapters.XmlAdapter;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMSource;
@@ -93,6 +96,9 @@ public final class MediaPackageImpl implements MediaPackage {
   /** Context for serializing and deserializing */
   static final JAXBContext context;
 
+  /** Factory for the streaming readers used for deserializing */
+  private static final XMLInputFactory xmlInputFactory;
+
   /** List of observers */
   private final List<MediaPackageObserver> observers = new ArrayList<MediaPackageObserver>();
 
@@ -159,6 +165,9 @@ public final class MediaPackageImpl implements MediaPackage {
     } catch (JAXBException e) {
       throw new RuntimeException(e);
     }
+    xmlInputFactory = XMLInputFactory.newInstance();
+    xmlInputFactory.setProperty(XMLInputFactory.IS_COALESCING, true);
+    xmlInputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
   }
 
   /**
@@ -1520,12 +1529,39 @@ public final class MediaPackageImpl implements MediaPackage {
    * @return the deserialized media package
    */
   public static MediaPackageImpl valueOf(InputStream xml) throws MediaPackageException {
+    return valueOf(xml, null);
+  }
+
+  /**
+   * Reads the media package from the input stream, decoding the element urls with the given serializer while the
+   * manifest is streamed.
+   *
+   * @param xml
+   *          the input stream
+   * @param serializer
+   *          the serializer used to decode the urls, may be <code>null</code>
+   * @return the deserialized media package
+   */
+  static MediaPackageImpl valueOf(InputStream xml, MediaPackageSerializer serializer) throws MediaPackageException {
+    XMLStreamReader reader = null;
     try {
+      reader = xmlInputFactory.createXMLStreamReader(xml);
+      if (serializer != null)
+        reader = new UrlDecodingStreamReader(reader, serializer);
       Unmarshaller unmarshaller = context.createUnmarshaller();
-      return unmarshaller.unmarshal(new StreamSource(xml), MediaPackageImpl.class).getValue();
+      return unmarshaller.unmarshal(reader, MediaPackageImpl.class).getValue();
     } catch (JAXBException e) {
       throw new MediaPackageException(e.getLinkedException() != null ? e.getLinkedException() : e);
+    } catch (XMLStreamException e) {
+      throw new MediaPackageException(e);
     } finally {
+      if (reader != null) {
+        try {
+          reader.close();
+        } catch (XMLStreamException e) {
+          logger.debug("Unable to close media package reader", e);
+        }
+      }
       IoSupport.closeQuietly(xml);
     }
   }
@@ -52,6 +52,14 @@ import javax.xml.stream.XMLStreamWriter;
  */
 public final class MediaPackageParser {
 
+  /** Factory for the documents media packages are serialized to */
+  private static final DocumentBuilderFactory docBuilderFactory;
+
+  static {
+    docBuilderFactory = DocumentBuilderFactory.newInstance();
+    docBuilderFactory.setNamespaceAware(true);
+  }
+
   /**
    * Private constructor to prohibit instances of this static utility class.
    */
@@ -139,8 +147,6 @@ public final class MediaPackageParser {
 
   /** Create a new DOM document. */
   private static Document newDocument() {
-    final DocumentBuilderFactory docBuilderFactory = DocumentBuilderFactory.newInstance();
-    docBuilderFactory.setNamespaceAware(true);
     try {
       return docBuilderFactory.newDocumentBuilder().newDocument();
     } catch (ParserConfigurationException e) {
@@ -165,9 +171,6 @@ public final class MediaPackageParser {
    */
   public static Document getAsXml(MediaPackage mediaPackage, MediaPackageSerializer serializer)
           throws MediaPackageException {
-    DocumentBuilderFactory docBuilderFactory = DocumentBuilderFactory.newInstance();
-    docBuilderFactory.setNamespaceAware(true);
-
     DocumentBuilder docBuilder = null;
     try {
       docBuilder = docBuilderFactory.newDocumentBuilder();
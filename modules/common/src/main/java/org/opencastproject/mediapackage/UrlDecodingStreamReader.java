@@ -0,0 +1,152 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package org.opencastproject.mediapackage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.util.StreamReaderDelegate;
+
+/**
+ * Stream reader that passes the content of all <code>url</code> elements through
+ * {@link MediaPackageSerializer#decodeURI(URI)} while a media package manifest is being read. This replaces rewriting
+ * the urls on a DOM copy of the manifest. The underlying reader is expected to coalesce adjacent text.
+ */
+final class UrlDecodingStreamReader extends StreamReaderDelegate {
+
+  /** The logging facility */
+  private static final Logger logger = LoggerFactory.getLogger(UrlDecodingStreamReader.class);
+
+  /** The name of the elements to rewrite */
+  private static final String URL = "url";
+
+  /** The serializer used to decode the urls */
+  private final MediaPackageSerializer serializer;
+
+  /** Whether the reader is positioned inside of a url element */
+  private boolean url = false;
+
+  /** The decoded text of the current event or <code>null</code> if the text is passed through */
+  private char[] text = null;
+
+  /**
+   * Creates a reader decoding the urls of the given reader.
+   *
+   * @param reader
+   *          the underlying reader
+   * @param serializer
+   *          the serializer
+   */
+  UrlDecodingStreamReader(XMLStreamReader reader, MediaPackageSerializer serializer) {
+    super(reader);
+    this.serializer = serializer;
+  }
+
+  @Override
+  public int next() throws XMLStreamException {
+    return track(super.next());
+  }
+
+  @Override
+  public int nextTag() throws XMLStreamException {
+    return track(super.nextTag());
+  }
+
+  @Override
+  public String getElementText() throws XMLStreamException {
+    boolean decode = url;
+    String value = super.getElementText();
+    url = false;
+    return decode ? decode(value) : value;
+  }
+
+  @Override
+  public String getText() {
+    return text != null ? new String(text) : super.getText();
+  }
+
+  @Override
+  public char[] getTextCharacters() {
+    return text != null ? text : super.getTextCharacters();
+  }
+
+  @Override
+  public int getTextCharacters(int sourceStart, char[] target, int targetStart, int length)
+          throws XMLStreamException {
+    if (text == null)
+      return super.getTextCharacters(sourceStart, target, targetStart, length);
+    int count = Math.max(0, Math.min(length, text.length - sourceStart));
+    System.arraycopy(text, sourceStart, target, targetStart, count);
+    return count;
+  }
+
+  @Override
+  public int getTextStart() {
+    return text != null ? 0 : super.getTextStart();
+  }
+
+  @Override
+  public int getTextLength() {
+    return text != null ? text.length : super.getTextLength();
+  }
+
+  /** Keeps track of url elements and decodes their content. */
+  private int track(int event) throws XMLStreamException {
+    text = null;
+    switch (event) {
+      case START_ELEMENT:
+        url = URL.equals(getLocalName());
+        break;
+      case END_ELEMENT:
+        url = false;
+        break;
+      case CHARACTERS:
+      case CDATA:
+        if (url)
+          text = decode(super.getText()).toCharArray();
+        break;
+      default:
+        break;
+    }
+    return event;
+  }
+
+  /** Decodes a single url. */
+  private String decode(String uri) throws XMLStreamException {
+    String trimmed = uri.trim();
+    // Warn the user if trimming is necessary as this means that the URI was technically invalid.
+    if (!trimmed.equals(uri)) {
+      logger.warn("Detected invalid URI. Trying to fix it by removing spaces from beginning/end.");
+    }
+    try {
+      return serializer.decodeURI(new URI(trimmed)).toString();
+    } catch (URISyntaxException e) {
+      throw new XMLStreamException("Unable to decode url " + trimmed, e);
+    }
+  }
+
+}
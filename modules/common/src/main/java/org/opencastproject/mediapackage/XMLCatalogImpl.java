@@ -116,6 +116,17 @@ public abstract class XMLCatalogImpl extends CatalogImpl implements XMLCatalog {
    */
   public static final EName XSI_TYPE_ATTR = new EName(W3C_XML_SCHEMA_INSTANCE_NS_URI, "type");
 
+  /** Factory for the documents catalogs are serialized to */
+  private static final DocumentBuilderFactory docBuilderFactory;
+
+  /** Factory for the transformers writing the documents to streams */
+  private static final TransformerFactory transformerFactory = TransformerFactory.newInstance();
+
+  static {
+    docBuilderFactory = DocumentBuilderFactory.newInstance();
+    docBuilderFactory.setNamespaceAware(true);
+  }
+
   /** Key (QName) value meta data */
   protected final Map<EName, List<CatalogEntry>> data = new HashMap<>();
 
@@ -237,15 +248,26 @@ public abstract class XMLCatalogImpl extends CatalogImpl implements XMLCatalog {
     if (element == null)
       throw new IllegalArgumentException("Expanded name must not be null");
 
-    Map<EName, String> attributeMap = new HashMap<>();
-    if (attributes != null) {
-      for (int i = 0; i < attributes.getLength(); i++) {
-        attributeMap.put(new EName(attributes.getURI(i), attributes.getLocalName(i)), attributes.getValue(i));
-      }
+    if (attributes == null || attributes.getLength() == 0) {
+      addElement(new CatalogEntry(element, value, NO_ATTRIBUTES));
+      return;
+    }
+    Map<EName, String> attributeMap = new HashMap<>(attributes.getLength() * 2);
+    for (int i = 0; i < attributes.getLength(); i++) {
+      attributeMap.put(toAttributeName(attributes.getURI(i), attributes.getLocalName(i)), attributes.getValue(i));
     }
     addElement(new CatalogEntry(element, value, attributeMap));
   }
 
+  /** Returns the expanded name of an attribute, reusing the constants for the well known ones. */
+  private static EName toAttributeName(String namespaceURI, String localName) {
+    if (XML_LANG_ATTR.getLocalName().equals(localName) && XML_LANG_ATTR.getNamespaceURI().equals(namespaceURI))
+      return XML_LANG_ATTR;
+    if (XSI_TYPE_ATTR.getLocalName().equals(localName) && XSI_TYPE_ATTR.getNamespaceURI().equals(namespaceURI))
+      return XSI_TYPE_ATTR;
+    return new EName(namespaceURI, localName);
+  }
+
   /**
    * Adds the catalog element to the list of elements.
    *
@@ -457,8 +479,6 @@ public abstract class XMLCatalogImpl extends CatalogImpl implements XMLCatalog {
    *           If the xml parser environment is not correctly configured
    */
   protected Document newDocument() throws ParserConfigurationException {
-    DocumentBuilderFactory docBuilderFactory = DocumentBuilderFactory.newInstance();
-    docBuilderFactory.setNamespaceAware(true);
     DocumentBuilder docBuilder = docBuilderFactory.newDocumentBuilder();
     return docBuilder.newDocument();
   }
@@ -476,8 +496,7 @@ public abstract class XMLCatalogImpl extends CatalogImpl implements XMLCatalog {
    */
   protected void saveToXml(Node document, String docType, OutputStream out) throws TransformerException, IOException {
     StreamResult streamResult = new StreamResult(out);
-    TransformerFactory tf = TransformerFactory.newInstance();
-    Transformer serializer = tf.newTransformer();
+    Transformer serializer = transformerFactory.newTransformer();
     serializer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
     if (docType != null)
       serializer.setOutputProperty(OutputKeys.DOCTYPE_SYSTEM, docType);
@@ -836,7 +855,7 @@ public abstract class XMLCatalogImpl extends CatalogImpl implements XMLCatalog {
       Document doc = this.toXml();
       DOMSource domSource = new DOMSource(doc);
       StreamResult result = new StreamResult(out);
-      Transformer transformer = TransformerFactory.newInstance().newTransformer();
+      Transformer transformer = transformerFactory.newTransformer();
       transformer.transform(domSource, result);
     } catch (ParserConfigurationException e) {
       throw new IOException("unable to parse document");
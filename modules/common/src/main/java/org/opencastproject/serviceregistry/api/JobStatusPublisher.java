@@ -0,0 +1,52 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.serviceregistry.api;
+
+import org.opencastproject.job.api.JobListener;
+
+/**
+ * A service registry that publishes job status transitions to listeners running on the same node.
+ * <p>
+ * Notifications are only sent for updates that are done through this registry instance. Jobs that are updated on
+ * other nodes of a cluster are not reported, so listeners need to keep checking the job status themselves
+ * if they do not receive a notification within a reasonable amount of time.
+ */
+public interface JobStatusPublisher {
+
+  /**
+   * Registers a listener for job status changes.
+   *
+   * @param listener
+   *          the listener
+   */
+  void addJobListener(JobListener listener);
+
+  /**
+   * Removes a listener for job status changes.
+   *
+   * @param listener
+   *          the listener
+   */
+  void removeJobListener(JobListener listener);
+
+}
@@ -25,6 +25,7 @@ import org.opencastproject.job.api.JaxbJob;
 import org.opencastproject.job.api.Job;
 import org.opencastproject.job.api.Job.Status;
 import org.opencastproject.job.api.JobImpl;
+import org.opencastproject.job.api.JobListener;
 import org.opencastproject.job.api.JobParser;
 import org.opencastproject.job.api.JobProducer;
 import org.opencastproject.security.api.Organization;
@@ -52,6 +53,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -59,7 +61,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 /** Simple and in-memory implementation of a the service registry intended for testing scenarios. */
-public class ServiceRegistryInMemoryImpl implements ServiceRegistry {
+public class ServiceRegistryInMemoryImpl implements ServiceRegistry, JobStatusPublisher {
 
   /** Logging facility */
   private static final Logger logger = LoggerFactory.getLogger(ServiceRegistryInMemoryImpl.class);
@@ -91,6 +93,12 @@ public class ServiceRegistryInMemoryImpl implements ServiceRegistry {
   /** Holds the current running job */
   protected Job currentJob = null;
 
+  /** The listeners that are notified about job status changes */
+  private final List<JobListener> jobListeners = new CopyOnWriteArrayList<JobListener>();
+
+  /** The status of each job the listeners have last been notified about, guarded by {@link #jobs} */
+  private final Map<Long, Status> notifiedStatuses = new HashMap<Long, Status>();
+
   /**
    * An (optional) security service. If set to a non-null value, this will be used to obtain the current user when
    * creating new jobs.
@@ -488,6 +496,7 @@ public class ServiceRegistryInMemoryImpl implements ServiceRegistry {
         throw new NotFoundException("No job with ID '" + id + "' found");
 
       jobs.remove(id);
+      notifiedStatuses.remove(id);
     }
   }
 
@@ -576,6 +585,7 @@ public class ServiceRegistryInMemoryImpl implements ServiceRegistry {
     if (job == null)
       throw new IllegalArgumentException("Job cannot be null");
     Job updatedJob = null;
+    boolean statusChanged;
     synchronized (jobs) {
       try {
         updatedJob = updateInternal(job);
@@ -583,10 +593,41 @@ public class ServiceRegistryInMemoryImpl implements ServiceRegistry {
       } catch (IOException e) {
         throw new IllegalStateException("Error serializing job", e);
       }
+      final Status previous = notifiedStatuses.put(updatedJob.getId(), updatedJob.getStatus());
+      statusChanged = previous != updatedJob.getStatus();
+    }
+    if (statusChanged) {
+      for (JobListener listener : jobListeners) {
+        try {
+          listener.jobStatusChanged(updatedJob);
+        } catch (Exception e) {
+          logger.warn("Job listener {} failed to handle the status change of job {}", listener, updatedJob, e);
+        }
+      }
     }
     return updatedJob;
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * @see org.opencastproject.serviceregistry.api.JobStatusPublisher#addJobListener(JobListener)
+   */
+  @Override
+  public void addJobListener(JobListener listener) {
+    jobListeners.add(listener);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @see org.opencastproject.serviceregistry.api.JobStatusPublisher#removeJobListener(JobListener)
+   */
+  @Override
+  public void removeJobListener(JobListener listener) {
+    jobListeners.remove(listener);
+  }
+
   private Job updateInternal(Job job) {
     Date now = new Date();
     Status status = job.getStatus();
@@ -1121,8 +1162,10 @@ public class ServiceRegistryInMemoryImpl implements ServiceRegistry {
         }
 
         Long parentJobId = job.getParentJobId();
-        if (parentJobId == null | parentJobId < 1)
+        if (parentJobId == null | parentJobId < 1) {
           jobs.remove(job.getId());
+          notifiedStatuses.remove(job.getId());
+        }
       }
     }
   }
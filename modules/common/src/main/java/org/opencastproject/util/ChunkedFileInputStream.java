@@ -89,12 +89,43 @@ public class ChunkedFileInputStream extends FileInputStream {
    *
    * @return the next byte or -1 if the expected offset has been reached
    */
+  @Override
   public int read() throws IOException {
-    this.currentOffset++;
     if (currentOffset > endOffset) {
       return -1;
     }
-    return super.read();
+    int read = super.read();
+    if (read != -1) {
+      currentOffset++;
+    }
+    return read;
+  }
+
+  /**
+   * read up to <code>b.length</code> bytes without passing the ending offset
+   *
+   * @return the number of bytes read or -1 if the expected offset has been reached
+   */
+  @Override
+  public int read(byte[] b) throws IOException {
+    return read(b, 0, b.length);
+  }
+
+  /**
+   * read up to <code>len</code> bytes without passing the ending offset
+   *
+   * @return the number of bytes read or -1 if the expected offset has been reached
+   */
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (currentOffset > endOffset) {
+      return -1;
+    }
+    int read = super.read(b, off, (int) Math.min(len, endOffset - currentOffset + 1));
+    if (read > 0) {
+      currentOffset += read;
+    }
+    return read;
   }
 
   /**
@@ -147,18 +147,19 @@ public final class RestUtil {
       end = fileLength - 1;
     }
 
+    // the range lies outside of the file, e.g. because the file is empty
+    if (start < 0 || start > end) {
+      return Response.status(416).header("Content-Range", "bytes */" + fileLength);
+    }
+
     // send partial response status code
     Response.ResponseBuilder response = Response.status(206);
-
-    if (start <= end) {
-      long contentLength = end - start + 1;
-      response.header("Accept-Ranges", "bytes");
-      response.header("Connection", "Close");
-      response.header("Content-Length", contentLength + "");
-      response.header("Content-Range", "bytes " + start + "-" + end + "/" + fileLength);
-      response.header("Content-Type", contentType);
-      response.entity(new ChunkedFileInputStream(f, start, end));
-    }
+    long contentLength = end - start + 1;
+    response.header("Accept-Ranges", "bytes");
+    response.header("Content-Length", contentLength + "");
+    response.header("Content-Range", "bytes " + start + "-" + end + "/" + fileLength);
+    response.header("Content-Type", contentType);
+    response.entity(new ChunkedFileInputStream(f, start, end));
 
     return response;
   }
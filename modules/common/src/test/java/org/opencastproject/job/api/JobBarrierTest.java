@@ -22,14 +22,17 @@
 package org.opencastproject.job.api;
 
 import static org.easymock.EasyMock.createNiceMock;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.opencastproject.util.data.Collections.toArray;
 import static org.opencastproject.util.data.Monadics.mlist;
 
+import org.opencastproject.serviceregistry.api.JobStatusPublisher;
 import org.opencastproject.serviceregistry.api.ServiceRegistry;
 import org.opencastproject.util.data.Function;
 import org.opencastproject.util.data.Function2;
 
+import org.easymock.Capture;
 import org.easymock.EasyMock;
 import org.junit.Test;
 import org.slf4j.Logger;
@@ -56,6 +59,44 @@ public class JobBarrierTest {
     }
   }
 
+  @Test
+  public void testWaitForPublishedJobs() throws Exception {
+    final Job running = new JobImpl(1L);
+    running.setStatus(Job.Status.RUNNING);
+    final Job finished = new JobImpl(1L);
+    finished.setStatus(Job.Status.FINISHED);
+    finished.setPayload("result");
+
+    // the registry keeps reporting the job as running, so the barrier can only learn about the outcome by listening
+    final Capture<JobListener> listener = EasyMock.newCapture();
+    final PublishingServiceRegistry sr = createNiceMock(PublishingServiceRegistry.class);
+    EasyMock.expect(sr.getJob(1L)).andReturn(running).anyTimes();
+    sr.addJobListener(EasyMock.capture(listener));
+    EasyMock.expectLastCall().andAnswer(() -> {
+      new Thread(() -> {
+        try {
+          Thread.sleep(100L);
+        } catch (InterruptedException e) {
+          return;
+        }
+        listener.getValue().jobStatusChanged(finished);
+      }).start();
+      return null;
+    });
+    EasyMock.replay(sr);
+
+    final Job job = new JobImpl(1L);
+    final long start = System.currentTimeMillis();
+    final JobBarrier.Result res = new JobBarrier(null, sr, 60000L, job).waitForJobs();
+    assertTrue(res.isSuccess());
+    assertEquals("result", job.getPayload());
+    assertTrue("Barrier did not wake up on the published update", System.currentTimeMillis() - start < 60000L);
+  }
+
+  /** Service registry that publishes job status changes */
+  interface PublishingServiceRegistry extends ServiceRegistry, JobStatusPublisher {
+  }
+
   private void runWaitForJobsTest(Function<Long, TestJob> jobCreator) throws Exception {
     // create a bunch of jobs
     final Map<Long, TestJob> jobs = new HashMap<Long, TestJob>();
@@ -0,0 +1,109 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.job.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class JobExecutorTest {
+
+  @Test
+  public void testSharedPerJobType() {
+    assertSame(JobExecutor.forJobType("org.opencastproject.test"), JobExecutor.forJobType("org.opencastproject.test"));
+  }
+
+  @Test
+  public void testBoundedExecutorQueuesAndSaturates() throws Exception {
+    final JobExecutor executor = new JobExecutor("org.opencastproject.test.bounded", 1, 2);
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    try {
+      final Future<?> first = executor.submit(() -> {
+        started.countDown();
+        release.await();
+        return null;
+      });
+      assertTrue(started.await(10, TimeUnit.SECONDS));
+      assertFalse(executor.isSaturated());
+
+      executor.submit(() -> null);
+      assertEquals(1, executor.getQueueDepth());
+      assertFalse(executor.isSaturated());
+      final Future<?> last = executor.submit(() -> null);
+      assertEquals(2, executor.getQueueDepth());
+      assertTrue(executor.isSaturated());
+      assertEquals(1, executor.getActiveCount());
+
+      release.countDown();
+      first.get(10, TimeUnit.SECONDS);
+      last.get(10, TimeUnit.SECONDS);
+      assertFalse(executor.isSaturated());
+    } finally {
+      executor.shutdownNow();
+    }
+    assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    assertEquals(3, executor.getCompletedJobs());
+    long total = 0;
+    for (long count : executor.getRunTimeHistogram()) {
+      total += count;
+    }
+    assertEquals(3, total);
+  }
+
+  @Test
+  public void testUnboundedExecutorNeverSaturates() throws Exception {
+    final JobExecutor executor = new JobExecutor("org.opencastproject.test.unbounded", 0, 1);
+    final CountDownLatch release = new CountDownLatch(1);
+    try {
+      for (int i = 0; i < 5; i++) {
+        executor.submit(() -> {
+          release.await();
+          return null;
+        });
+      }
+      assertEquals(0, executor.getQueueDepth());
+      assertEquals(5, executor.getPoolSize());
+      assertFalse(executor.isSaturated());
+    } finally {
+      release.countDown();
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testRunTimeBuckets() {
+    assertEquals(0, JobExecutor.bucketOf(0));
+    assertEquals(1, JobExecutor.bucketOf(1000));
+    assertEquals(2, JobExecutor.bucketOf(TimeUnit.SECONDS.toMillis(30)));
+    assertEquals(5, JobExecutor.bucketOf(TimeUnit.DAYS.toMillis(1)));
+  }
+
+}
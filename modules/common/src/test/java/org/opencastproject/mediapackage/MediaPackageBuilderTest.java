@@ -36,6 +36,7 @@ import org.w3c.dom.Document;
 import java.io.File;
 import java.io.FileInputStream;
 import java.net.URI;
+import java.net.URISyntaxException;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -127,4 +128,43 @@ public class MediaPackageBuilderTest extends AbstractMediaPackageTest {
     // Test presence of attachments
     assertEquals(2, mediaPackage.getAttachments().length);
   }
+
+  /**
+   * Test method for {@link org.opencastproject.mediapackage.MediaPackageBuilderImpl#loadFromXml(java.io.InputStream)}
+   * using a serializer to decode the element urls.
+   */
+  @Test
+  public void testLoadFromManifestWithSerializer() throws Exception {
+    final URI base = new URI("http://localhost/files/");
+    MediaPackageBuilder builder = new MediaPackageBuilderImpl(new MediaPackageSerializer() {
+      @Override
+      public URI encodeURI(URI uri) throws URISyntaxException {
+        return base.relativize(uri);
+      }
+
+      @Override
+      public URI decodeURI(URI path) throws URISyntaxException {
+        return base.resolve(path);
+      }
+
+      @Override
+      public int getRanking() {
+        return 0;
+      }
+    });
+    MediaPackage plain = mediaPackageBuilder.loadFromXml(new FileInputStream(manifestFile));
+    MediaPackage decoded = builder.loadFromXml(new FileInputStream(manifestFile));
+
+    assertEquals(plain.getTitle(), decoded.getTitle());
+    assertEquals(plain.getElements().length, decoded.getElements().length);
+    for (MediaPackageElement element : plain.getElements()) {
+      assertEquals(base.resolve(element.getURI()), decoded.getElementById(element.getIdentifier()).getURI());
+    }
+
+    // Reading the serialized media package again has to yield the very same document
+    String xml = MediaPackageParser.getAsXml(plain);
+    MediaPackage reloaded = MediaPackageParser.getFromXml(xml);
+    assertEquals(xml, MediaPackageParser.getAsXml(reloaded));
+    assertEquals(MediaPackageParser.getAsJSON(plain), MediaPackageParser.getAsJSON(reloaded));
+  }
 }
@@ -91,7 +91,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
@@ -194,7 +193,8 @@ public class ComposerServiceImpl extends AbstractJobProducer implements Composer
 
   /** List of available operations on jobs */
   enum Operation {
-    Encode, Image, ImageConversion, Mux, Trim, Composite, Concat, ImageToVideo, ParallelEncode, Demux, ProcessSmil, MultiEncode
+    Encode, Image, ImageConversion, Mux, Trim, Composite, Concat, ImageToVideo, ParallelEncode, Demux, ProcessSmil, MultiEncode,
+    MultiImage
   }
 
   /** tracked encoder engines */
@@ -459,15 +459,11 @@ public class ComposerServiceImpl extends AbstractJobProducer implements Composer
       URI returnURL;
       final String targetTrackId = idBuilder.createNew().toString();
 
-      try (InputStream in = new FileInputStream(encodingOutput)) {
-        returnURL = workspace.putInCollection(COLLECTION,
-                job.getId() + "-" + i + "." + FilenameUtils.getExtension(encodingOutput.getAbsolutePath()), in);
-        logger.info("Copied the encoded file to the workspace at {}", returnURL);
-        if (encodingOutput.delete()) {
-          logger.info("Deleted the local copy of the encoded file at {}", encodingOutput.getAbsolutePath());
-        } else {
-          logger.warn("Unable to delete the encoding output at {}", encodingOutput);
-        }
+      try {
+        returnURL = workspace.moveToCollection(COLLECTION,
+                job.getId() + "-" + i + "." + FilenameUtils.getExtension(encodingOutput.getAbsolutePath()),
+                encodingOutput);
+        logger.info("Moved the encoded file to the workspace at {}", returnURL);
       } catch (Exception e) {
         throw new EncoderException("Unable to put the encoded file into the workspace", e);
       }
@@ -1071,6 +1067,41 @@ public class ComposerServiceImpl extends AbstractJobProducer implements Composer
     }
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * @see org.opencastproject.composer.api.ComposerService#multiImage(Track, List, double...)
+   */
+  @Override
+  public Job multiImage(Track sourceTrack, List<String> profileIds, double... times) throws EncoderException,
+          MediaPackageException {
+    if (sourceTrack == null)
+      throw new IllegalArgumentException("SourceTrack cannot be null");
+
+    if (profileIds == null || profileIds.isEmpty())
+      throw new IllegalArgumentException("At least one encoding profile must be set");
+
+    if (times.length == 0)
+      throw new IllegalArgumentException("At least one time argument has to be specified");
+
+    List<String> parameters = new ArrayList<>();
+    parameters.add(new Gson().toJson(profileIds));
+    parameters.add(MediaPackageElementParser.getAsXml(sourceTrack));
+    for (double time : times) {
+      parameters.add(Double.toString(time));
+    }
+    // All images are extracted with the same decoding process, so the most expensive profile defines the load
+    float jobLoad = profileIds.stream()
+            .map(p -> profileScanner.getProfile(p).getJobLoad())
+            .max(Float::compare)
+            .orElse(0.f);
+    try {
+      return serviceRegistry.createJob(JOB_TYPE, Operation.MultiImage.toString(), parameters, jobLoad);
+    } catch (ServiceRegistryException e) {
+      throw new EncoderException("Unable to create a job", e);
+    }
+  }
+
   /**
    * Extracts an image from <code>sourceTrack</code> at the given point in time.
    *
@@ -1090,13 +1121,38 @@ public class ComposerServiceImpl extends AbstractJobProducer implements Composer
    */
   private List<Attachment> extractImages(Job job, Track sourceTrack, String profileId, Map<String, String> properties,
           double... times) throws EncoderException {
+    return extractImages(job, sourceTrack, Arrays.asList(profileId), properties, times);
+  }
+
+  /**
+   * Extracts images from <code>sourceTrack</code> at the given points in time using each of the given profiles.
+   *
+   * @param job
+   *          the associated job
+   * @param sourceTrack
+   *          the source track
+   * @param profileIds
+   *          the identifiers of the encoding profiles to use
+   * @param properties
+   *          the properties applied to the encoding profiles
+   * @param times
+   *          (one or more) times in seconds
+   * @return the images as an attachment element list, ordered by profile and time
+   * @throws EncoderException
+   *           if extracting the images fails
+   */
+  private List<Attachment> extractImages(Job job, Track sourceTrack, List<String> profileIds,
+          Map<String, String> properties, double... times) throws EncoderException {
     if (sourceTrack == null) {
       throw new EncoderException("SourceTrack cannot be null");
     }
     logger.info("creating an image using video track {}", sourceTrack.getIdentifier());
 
-    // Get the encoding profile
-    final EncodingProfile profile = getProfile(job, profileId);
+    // Get the encoding profiles
+    final List<EncodingProfile> profiles = new ArrayList<>();
+    for (String profileId : profileIds) {
+      profiles.add(getProfile(job, profileId));
+    }
 
     // Create the encoding engine
     final EncoderEngine encoderEngine = getEncoderEngine();
@@ -1107,17 +1163,17 @@ public class ComposerServiceImpl extends AbstractJobProducer implements Composer
     // Do the work
     List<File> encodingOutput;
     try {
-      encodingOutput = encoderEngine.extract(videoFile, profile, properties, times);
+      encodingOutput = encoderEngine.extract(videoFile, profiles, properties, times);
       // check for validity of output
       if (encodingOutput == null || encodingOutput.isEmpty()) {
-        logger.error("Image extraction from video {} with profile {} failed: no images were produced",
-                sourceTrack.getURI(), profile.getIdentifier());
+        logger.error("Image extraction from video {} with profiles {} failed: no images were produced",
+                sourceTrack.getURI(), profileIds);
         throw new EncoderException("Image extraction failed: no images were produced");
       }
     } catch (EncoderException e) {
       Map<String, String> params = new HashMap<>();
       params.put("video", sourceTrack.getURI().toString());
-      params.put("profile", profile.getIdentifier());
+      params.put("profile", StringUtils.join(profileIds, ","));
       params.put("positions", Arrays.toString(times));
       incident().recordFailure(job, IMAGE_EXTRACTION_FAILED, e, params, detailsFor(e, encoderEngine));
       throw e;
@@ -1136,10 +1192,10 @@ public class ComposerServiceImpl extends AbstractJobProducer implements Composer
 
       // Put the file in the workspace
 
-      try (InputStream in = new FileInputStream(output)) {
-        URI returnURL = workspace.putInCollection(COLLECTION,
-                job.getId() + "_" + i++ + "." + FilenameUtils.getExtension(output.getAbsolutePath()), in);
-        logger.debug("Copied image file to the workspace at {}", returnURL);
+      try {
+        URI returnURL = workspace.moveToCollection(COLLECTION,
+                job.getId() + "_" + i++ + "." + FilenameUtils.getExtension(output.getAbsolutePath()), output);
+        logger.debug("Moved image file to the workspace at {}", returnURL);
         workspaceURIs.add(returnURL);
       } catch (Exception e) {
         cleanup(encodingOutput.toArray(new File[encodingOutput.size()]));
@@ -1366,6 +1422,16 @@ public class ComposerServiceImpl extends AbstractJobProducer implements Composer
           }
           serialized = MediaPackageElementParser.getArrayAsXml(resultingElements);
           break;
+        case MultiImage:
+          String[] imageProfiles = new Gson().fromJson(arguments.get(0), String[].class);
+          firstTrack = (Track) MediaPackageElementParser.getFromXml(arguments.get(1));
+          double[] imageTimes = new double[arguments.size() - 2];
+          for (int i = 2; i < arguments.size(); i++) {
+            imageTimes[i - 2] = Double.parseDouble(arguments.get(i));
+          }
+          List<Attachment> images = extractImages(job, firstTrack, Arrays.asList(imageProfiles), null, imageTimes);
+          serialized = MediaPackageElementParser.getArrayAsXml(images);
+          break;
         case ImageConversion:
           Gson gson = new Gson();
           String[] encodingProfilesArr = gson.fromJson(arguments.get(0), String[].class);
@@ -1764,10 +1830,10 @@ public class ComposerServiceImpl extends AbstractJobProducer implements Composer
   private List<URI> putToCollection(Job job, List<File> files, String description) throws EncoderException {
     List<URI> returnURLs = new ArrayList<>(files.size());
     for (File file: files) {
-      try (InputStream in = new FileInputStream(file)) {
+      try {
         String newFileName = format("%s.%s", job.getId(), FilenameUtils.getName(file.getAbsolutePath()));
-        URI newFileURI = workspace.putInCollection(COLLECTION, newFileName, in);
-        logger.info("Copied the {} to the workspace at {}", description, newFileURI);
+        URI newFileURI = workspace.moveToCollection(COLLECTION, newFileName, file);
+        logger.info("Moved the {} to the workspace at {}", description, newFileURI);
         returnURLs.add(newFileURI);
       } catch (Exception e) {
         incident().recordFailure(job, WORKSPACE_PUT_COLLECTION_IO_EXCEPTION, e,
@@ -70,6 +70,8 @@ public class EncoderEngine implements AutoCloseable {
   static final String PROP_TRIMMING_START_TIME = "trim.start";
   /** The trimming duration property name */
   static final String PROP_TRIMMING_DURATION = "trim.duration";
+  /** The maximum number of seek positions read by a single encoder process when extracting images in batches */
+  static final int EXTRACT_BATCH_SIZE = 16;
   /** If true STDERR and STDOUT of the spawned process will be mixed so that both can be read via STDIN */
   private static final boolean REDIRECT_ERROR_STREAM = true;
 
@@ -118,25 +120,59 @@ public class EncoderEngine implements AutoCloseable {
    */
   List<File> extract(File mediaSource, EncodingProfile format, Map<String, String> properties, double... times)
           throws EncoderException {
+    return extract(mediaSource, Arrays.asList(format), properties, times);
+  }
+
+  /**
+   * Extract several images from a video file using several encoding profiles.
+   * <p>
+   * If the profiles seek the input to <code>#{time}</code> and otherwise share the same input options, the images are
+   * extracted in batches of up to {@link #EXTRACT_BATCH_SIZE} positions per encoder process. Each position is then
+   * opened as a separately fast-seeked input, decoded once and fed to the outputs of all profiles. Other profiles
+   * fall back to one encoder process per image.
+   *
+   * @param mediaSource
+   *          File to extract images from
+   * @param formats
+   *          Encoding profiles to use for extraction
+   * @param properties
+   *          the encoding properties to be interpreted by the actual encoder implementation
+   * @param times
+   *          Times at which to extract the images
+   * @return List of image files, containing the images of the first profile in the order of the given times followed
+   *         by the images of the next profile and so on
+   * @throws EncoderException Something went wrong during image extraction
+   */
+  List<File> extract(File mediaSource, List<EncodingProfile> formats, Map<String, String> properties,
+          double... times) throws EncoderException {
 
     List<File> extractedImages = new LinkedList<>();
     try {
-      // Extract one image if no times are specified
+      // Extract one image per profile if no times are specified
       if (times.length == 0) {
-        extractedImages.add(encode(mediaSource, format, properties));
+        for (EncodingProfile format : formats) {
+          extractedImages.add(encode(mediaSource, format, properties));
+        }
+        return extractedImages;
       }
-      for (double time : times) {
-        Map<String, String> params = new HashMap<>();
-        if (properties != null) {
-          params.putAll(properties);
+
+      if (times.length > 1 || formats.size() > 1) {
+        final List<File> batched = extractBatched(mediaSource, formats, properties, times);
+        if (batched != null) {
+          return batched;
         }
+      }
 
-        DecimalFormatSymbols ffmpegFormat = new DecimalFormatSymbols();
-        ffmpegFormat.setDecimalSeparator('.');
-        DecimalFormat df = new DecimalFormat("0.00000", ffmpegFormat);
-        params.put("time", df.format(time));
+      for (EncodingProfile format : formats) {
+        for (double time : times) {
+          Map<String, String> params = new HashMap<>();
+          if (properties != null) {
+            params.putAll(properties);
+          }
+          params.put("time", formatTime(time));
 
-        extractedImages.add(encode(mediaSource, format, params));
+          extractedImages.add(encode(mediaSource, format, params));
+        }
       }
     } catch (Exception e) {
       cleanup(extractedImages);
@@ -150,6 +186,106 @@ public class EncoderEngine implements AutoCloseable {
     return extractedImages;
   }
 
+  /**
+   * Extracts the images with one encoder process per batch of positions.
+   *
+   * @return the images ordered by profile and time or <code>null</code> if the profiles do not support batching
+   */
+  private List<File> extractBatched(File mediaSource, List<EncodingProfile> formats, Map<String, String> properties,
+          double... times) throws EncoderException {
+    final Map<String, String> params = createParameters(Collections.map(Tuple.tuple("video", mediaSource)),
+            properties);
+
+    // Split the profile commands into the input options and the output options
+    List<String> inputOptions = null;
+    final List<List<String>> outputOptions = new ArrayList<>();
+    for (EncodingProfile format : formats) {
+      final List<String> arguments = Arrays.asList(parseCommandline(format, params));
+      final int input = arguments.indexOf("-i");
+      if (input < 0 || arguments.lastIndexOf("-i") != input || input + 1 >= arguments.size()
+              || !"#{in.video.path}".equals(arguments.get(input + 1))) {
+        logger.debug("Profile '{}' does not read a single video input, extracting images one by one", format);
+        return null;
+      }
+      final List<String> in = arguments.subList(0, input + 2);
+      final List<String> out = arguments.subList(input + 2, arguments.size());
+      if (in.stream().noneMatch(arg -> arg.contains("#{time}"))
+              || out.stream().anyMatch(arg -> arg.contains("#{time}") || "-map".equals(arg)
+                      || "-filter_complex".equals(arg) || "-lavfi".equals(arg))) {
+        logger.debug("Profile '{}' does not seek its input, extracting images one by one", format);
+        return null;
+      }
+      if (inputOptions != null && !inputOptions.equals(in)) {
+        logger.debug("Profiles {} use different input options, extracting images one by one", formats);
+        return null;
+      }
+      inputOptions = in;
+      outputOptions.add(out);
+    }
+
+    final File[][] images = new File[formats.size()][times.length];
+    final List<File> extracted = new ArrayList<>();
+    try {
+      for (int start = 0; start < times.length; start += EXTRACT_BATCH_SIZE) {
+        final int end = Math.min(times.length, start + EXTRACT_BATCH_SIZE);
+        final List<String> command = new ArrayList<>();
+        command.add("-nostdin");
+        command.add("-nostats");
+        for (int t = start; t < end; t++) {
+          final Map<String, String> inputParams = new HashMap<>(params);
+          inputParams.put("time", formatTime(times[t]));
+          for (String arg : inputOptions) {
+            addArgument(command, arg, inputParams);
+          }
+        }
+        for (int t = start; t < end; t++) {
+          for (int f = 0; f < formats.size(); f++) {
+            final Map<String, String> outputParams = new HashMap<>(params);
+            outputParams.put("time", formatTime(times[t]));
+            putOutputParameters(outputParams, formats.get(f), mediaSource);
+            command.add("-map");
+            command.add((t - start) + ":v:0");
+            for (String arg : outputOptions.get(f)) {
+              addArgument(command, arg, outputParams);
+            }
+          }
+        }
+
+        final List<File> output = process(command);
+        extracted.addAll(output);
+        if (output.size() != (end - start) * formats.size()) {
+          throw new EncoderException(String.format("Image extraction expects %d output files (%d found)",
+                  (end - start) * formats.size(), output.size()));
+        }
+        final Iterator<File> files = output.iterator();
+        for (int t = start; t < end; t++) {
+          for (int f = 0; f < formats.size(); f++) {
+            images[f][t] = files.next();
+          }
+        }
+      }
+    } catch (EncoderException e) {
+      cleanup(extracted);
+      throw e;
+    }
+
+    final List<File> result = new ArrayList<>(extracted.size());
+    for (File[] profileImages : images) {
+      result.addAll(Arrays.asList(profileImages));
+    }
+    return result;
+  }
+
+  /**
+   * Formats a time in seconds as expected by FFmpeg.
+   */
+  private static String formatTime(double time) {
+    DecimalFormatSymbols ffmpegFormat = new DecimalFormatSymbols();
+    ffmpegFormat.setDecimalSeparator('.');
+    DecimalFormat df = new DecimalFormat("0.00000", ffmpegFormat);
+    return df.format(time);
+  }
+
   /**
    * Executes the command line encoder with the given set of files and properties and using the provided encoding
    * profile.
@@ -167,39 +303,9 @@ public class EncoderEngine implements AutoCloseable {
   List<File> process(Map<String, File> source, EncodingProfile profile, Map<String, String> properties)
           throws EncoderException {
     // Fist, update the parameters
-    Map<String, String> params = new HashMap<>();
-    if (properties != null)
-      params.putAll(properties);
-    // build command
-    if (source.isEmpty()) {
-      throw new IllegalArgumentException("At least one track must be specified.");
-    }
-    // Set encoding parameters
-    for (Map.Entry<String, File> f: source.entrySet()) {
-      final String input = FilenameUtils.normalize(f.getValue().getAbsolutePath());
-      final String pre = "in." + f.getKey();
-      params.put(pre + ".path", input);
-      params.put(pre + ".name", FilenameUtils.getBaseName(input));
-      params.put(pre + ".suffix", FilenameUtils.getExtension(input));
-      params.put(pre + ".filename", FilenameUtils.getName(input));
-      params.put(pre + ".mimetype", MimetypesFileTypeMap.getDefaultFileTypeMap().getContentType(input));
-    }
+    final Map<String, String> params = createParameters(source, properties);
     final File parentFile = source.getOrDefault("video", source.get("audio"));
-
-    final String outDir = parentFile.getAbsoluteFile().getParent();
-    final String outFileName = FilenameUtils.getBaseName(parentFile.getName())
-            + "_" + UUID.randomUUID().toString();
-    params.put("out.dir", outDir);
-    params.put("out.name", outFileName);
-    if (profile.getSuffix() != null) {
-      final String outSuffix = processParameters(profile.getSuffix(), params);
-      params.put("out.suffix", outSuffix);
-    }
-
-    for (String tag : profile.getTags()) {
-      final String suffix = processParameters(profile.getSuffix(tag), params);
-      params.put("out.suffix." + tag, suffix);
-    }
+    putOutputParameters(params, profile, parentFile);
 
     // create encoder process.
     final List<String> command = buildCommand(profile, params);
@@ -329,6 +435,56 @@ public class EncoderEngine implements AutoCloseable {
     }
   }
 
+  /**
+   * Creates the encoding parameters describing the source files.
+   *
+   * @param source
+   *          the source files for encoding
+   * @param properties
+   *          the encoding properties to be interpreted by the actual encoder implementation
+   * @return the encoding parameters
+   */
+  private Map<String, String> createParameters(Map<String, File> source, Map<String, String> properties) {
+    Map<String, String> params = new HashMap<>();
+    if (properties != null)
+      params.putAll(properties);
+    // build command
+    if (source.isEmpty()) {
+      throw new IllegalArgumentException("At least one track must be specified.");
+    }
+    // Set encoding parameters
+    for (Map.Entry<String, File> f: source.entrySet()) {
+      final String input = FilenameUtils.normalize(f.getValue().getAbsolutePath());
+      final String pre = "in." + f.getKey();
+      params.put(pre + ".path", input);
+      params.put(pre + ".name", FilenameUtils.getBaseName(input));
+      params.put(pre + ".suffix", FilenameUtils.getExtension(input));
+      params.put(pre + ".filename", FilenameUtils.getName(input));
+      params.put(pre + ".mimetype", MimetypesFileTypeMap.getDefaultFileTypeMap().getContentType(input));
+    }
+    return params;
+  }
+
+  /**
+   * Adds the parameters describing a new output file of the given profile next to <code>parentFile</code>.
+   */
+  private void putOutputParameters(Map<String, String> params, EncodingProfile profile, File parentFile) {
+    final String outDir = parentFile.getAbsoluteFile().getParent();
+    final String outFileName = FilenameUtils.getBaseName(parentFile.getName())
+            + "_" + UUID.randomUUID().toString();
+    params.put("out.dir", outDir);
+    params.put("out.name", outFileName);
+    if (profile.getSuffix() != null) {
+      final String outSuffix = processParameters(profile.getSuffix(), params);
+      params.put("out.suffix", outSuffix);
+    }
+
+    for (String tag : profile.getTags()) {
+      final String suffix = processParameters(profile.getSuffix(tag), params);
+      params.put("out.suffix." + tag, suffix);
+    }
+  }
+
   /**
    * Creates the command that is sent to the commandline encoder.
    *
@@ -343,6 +499,21 @@ public class EncoderEngine implements AutoCloseable {
     command.add("-nostdin");
     command.add("-nostats");
 
+    for (String arg: parseCommandline(profile, argumentReplacements)) {
+      addArgument(command, arg, argumentReplacements);
+    }
+    return command;
+  }
+
+  /**
+   * Splits the command line of the encoding profile into its arguments without replacing the parameters.
+   *
+   * @return the arguments
+   * @throws EncoderException
+   *           if the command line cannot be parsed
+   */
+  private String[] parseCommandline(final EncodingProfile profile, final Map<String, String> argumentReplacements)
+          throws EncoderException {
     String commandline = profile.getExtension(CMD_SUFFIX);
 
     // Handle command line extensions before parsing:
@@ -356,20 +527,21 @@ public class EncoderEngine implements AutoCloseable {
       }
     }
 
-    String[] arguments;
     try {
-      arguments = CommandLineUtils.translateCommandline(commandline);
+      return CommandLineUtils.translateCommandline(commandline);
     } catch (Exception e) {
       throw new EncoderException("Could not parse encoding profile command line", e);
     }
+  }
 
-    for (String arg: arguments) {
-      String result = processParameters(arg, argumentReplacements);
-      if (StringUtils.isNotBlank(result)) {
-        command.add(result);
-      }
+  /**
+   * Adds the argument to the command after replacing its parameters, unless the result is blank.
+   */
+  private void addArgument(List<String> command, String arg, final Map<String, String> argumentReplacements) {
+    String result = processParameters(arg, argumentReplacements);
+    if (StringUtils.isNotBlank(result)) {
+      command.add(result);
     }
-    return command;
   }
 
   /**
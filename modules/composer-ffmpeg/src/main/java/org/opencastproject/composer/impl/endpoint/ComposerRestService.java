@@ -480,6 +480,58 @@ public class ComposerRestService extends AbstractJobProducerEndpoint {
     }
   }
 
+  /**
+   * Extracts images from a track using several encoding profiles within a single job.
+   *
+   * @param sourceTrackXml
+   *          The source track
+   * @param profileIds
+   *          The comma-delimited profiles to use for extracting the images
+   * @param times
+   *          one or more times in seconds separated by semicolon
+   * @return A {@link Response} with the image extraction job in the response body
+   * @throws Exception
+   */
+  @POST
+  @Path("multiimage")
+  @Produces(MediaType.TEXT_XML)
+  @RestQuery(name = "multiimage", description = "Starts an image extraction process that extracts the images of all specified encoding profiles at all specified times, reading the source track only once", restParameters = {
+      @RestParameter(description = "The track containing the video stream", isRequired = true, name = "sourceTrack", type = Type.TEXT, defaultValue = VIDEO_TRACK_DEFAULT),
+      @RestParameter(description = "The comma-delimited encoding profiles to use", isRequired = true, name = "profileIds", type = Type.STRING, defaultValue = "player-preview.http"),
+      @RestParameter(description = "The number of seconds (many numbers can be specified, separated by semicolon) into the video to extract the images", isRequired = true, name = "time", type = Type.STRING)}, reponses = {
+      @RestResponse(description = "Results in an xml document containing the job for the image extraction", responseCode = HttpServletResponse.SC_OK),
+      @RestResponse(description = "If required parameters aren't set or if sourceTrack isn't from the type Track", responseCode = HttpServletResponse.SC_BAD_REQUEST) }, returnDescription = "The image extraction job")
+  public Response multiImage(@FormParam("sourceTrack") String sourceTrackXml, @FormParam("profileIds") String profileIds,
+          @FormParam("time") String times) throws Exception {
+    // Ensure that the POST parameters are present
+    if (StringUtils.isBlank(sourceTrackXml) || StringUtils.isBlank(profileIds) || StringUtils.isBlank(times)) {
+      return Response.status(Response.Status.BAD_REQUEST).entity("sourceTrack, times, and profileIds must not be null").build();
+    }
+
+    // Deserialize the source track
+    MediaPackageElement sourceTrack = MediaPackageElementParser.getFromXml(sourceTrackXml);
+    if (!Track.TYPE.equals(sourceTrack.getElementType())) {
+      return Response.status(Response.Status.BAD_REQUEST).entity("sourceTrack element must be of type track").build();
+    }
+
+    double[] timeArray = null;
+    // parse time codes
+    try {
+      timeArray = parseTimeArray(times);
+    } catch (Exception e) {
+      return Response.status(Response.Status.BAD_REQUEST).entity("could not parse times: invalid format").build();
+    }
+
+    try {
+      String[] profiles = StringUtils.split(profileIds, ",");
+      Job job = composerService.multiImage((Track) sourceTrack, Arrays.asList(profiles), timeArray);
+      return Response.ok().entity(new JaxbJob(job)).build();
+    } catch (EncoderException e) {
+      logger.warn("Unable to extract image(s): " + e.getMessage());
+      return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
+    }
+  }
+
   /**
    * Compose two videos into one with an optional watermark.
    *
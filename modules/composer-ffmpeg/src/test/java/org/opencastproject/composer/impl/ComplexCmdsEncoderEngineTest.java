@@ -65,8 +65,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
-import java.io.FileOutputStream;
-import java.io.InputStream;
 import java.net.URI;
 import java.net.URL;
 import java.nio.charset.Charset;
@@ -210,14 +208,13 @@ public class ComplexCmdsEncoderEngineTest {
     }).anyTimes();
 
     EasyMock.expect(
-            workspace.putInCollection((String) EasyMock.anyObject(), (String) EasyMock.anyObject(),
-                    (InputStream) EasyMock.anyObject())).andAnswer(new IAnswer<URI>() {
+            workspace.moveToCollection((String) EasyMock.anyObject(), (String) EasyMock.anyObject(),
+                    (File) EasyMock.anyObject())).andAnswer(new IAnswer<URI>() {
                       @Override
                       public URI answer() throws Throwable {
                         File f = new File(workingDirectory, (String) EasyMock.getCurrentArguments()[1]);
-                        FileOutputStream out = new FileOutputStream(f);
-                        InputStream in = (InputStream) EasyMock.getCurrentArguments()[2];
-                        IOUtils.copy(in, out);
+                        FileUtils.deleteQuietly(f);
+                        FileUtils.moveFile((File) EasyMock.getCurrentArguments()[2], f);
                         return (f.toURI());
                       }
                     }).anyTimes();
@@ -39,6 +39,7 @@ import org.opencastproject.composer.layout.Serializer;
 import org.opencastproject.job.api.Job;
 import org.opencastproject.job.api.JobImpl;
 import org.opencastproject.mediapackage.Attachment;
+import org.opencastproject.mediapackage.MediaPackageElement;
 import org.opencastproject.mediapackage.MediaPackageElementParser;
 import org.opencastproject.mediapackage.Track;
 import org.opencastproject.mediapackage.attachment.AttachmentImpl;
@@ -78,6 +79,7 @@ import java.io.File;
 import java.net.URI;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 
@@ -251,6 +253,38 @@ public class ComposerServiceTest {
     }
   }
 
+  @Test
+  public void testMultiImage() throws Exception {
+    assertTrue(sourceVideoOnly.isFile());
+
+    // Keep the extracted images to check their order
+    Workspace workspace = EasyMock.createNiceMock(Workspace.class);
+    EasyMock.expect(workspace.get(EasyMock.anyObject(), EasyMock.eq(true))).andAnswer(() -> {
+      File uniqueSourceVideo = File.createTempFile("video", ".mp4", testDir);
+      FileUtils.copyFile(sourceVideoOnly, uniqueSourceVideo);
+      return uniqueSourceVideo;
+    }).anyTimes();
+    EasyMock.expect(workspace.moveToCollection(EasyMock.anyString(), EasyMock.anyString(), EasyMock.anyObject()))
+            .andAnswer(() -> {
+              File image = File.createTempFile("image", ".jpg", testDir);
+              FileUtils.copyFile((File) EasyMock.getCurrentArguments()[2], image);
+              return image.toURI();
+            }).anyTimes();
+    composerService.setWorkspace(workspace);
+    EasyMock.replay(workspace);
+
+    Job job = composerService.multiImage(sourceVideoTrack, Arrays.asList("still.http", "thumbnail.http"),
+            1D, 2D, 3D);
+    List<? extends MediaPackageElement> images = MediaPackageElementParser.getArrayFromXml(job.getPayload());
+    assertEquals(6, images.size());
+    for (int i = 0; i < images.size(); i++) {
+      File file = new File(images.get(i).getURI());
+      BufferedImage image = ImageIO.read(file);
+      assertEquals(i < 3 ? 640 : 160, image.getWidth());
+      FileUtils.deleteQuietly(file);
+    }
+  }
+
   @Test
   public void testEncode() throws Exception {
     assertTrue(sourceVideoOnly.isFile());
@@ -258,7 +292,7 @@ public class ComposerServiceTest {
     // Need different media files
     Workspace workspace = EasyMock.createNiceMock(Workspace.class);
     EasyMock.expect(workspace.get(EasyMock.anyObject(), EasyMock.anyBoolean())).andReturn(sourceVideoOnly).anyTimes();
-    EasyMock.expect(workspace.putInCollection(EasyMock.anyString(), EasyMock.anyString(), EasyMock.anyObject()))
+    EasyMock.expect(workspace.moveToCollection(EasyMock.anyString(), EasyMock.anyString(), EasyMock.anyObject()))
             .andReturn(sourceVideoOnly.toURI()).anyTimes();
     composerService.setWorkspace(workspace);
     EasyMock.replay(workspace);
@@ -274,7 +308,7 @@ public class ComposerServiceTest {
     // Need different media files
     Workspace workspace = EasyMock.createNiceMock(Workspace.class);
     EasyMock.expect(workspace.get(EasyMock.anyObject(), EasyMock.anyBoolean())).andReturn(sourceVideoOnly).anyTimes();
-    EasyMock.expect(workspace.putInCollection(EasyMock.anyString(), EasyMock.anyString(), EasyMock.anyObject()))
+    EasyMock.expect(workspace.moveToCollection(EasyMock.anyString(), EasyMock.anyString(), EasyMock.anyObject()))
             .andReturn(sourceVideoOnly.toURI()).anyTimes();
     composerService.setWorkspace(workspace);
     EasyMock.replay(workspace);
@@ -291,7 +325,7 @@ public class ComposerServiceTest {
     // Need different media files
     Workspace workspace = EasyMock.createNiceMock(Workspace.class);
     EasyMock.expect(workspace.get(EasyMock.anyObject(), EasyMock.anyBoolean())).andReturn(sourceVideoOnly).anyTimes();
-    EasyMock.expect(workspace.putInCollection(EasyMock.anyString(), EasyMock.anyString(), EasyMock.anyObject()))
+    EasyMock.expect(workspace.moveToCollection(EasyMock.anyString(), EasyMock.anyString(), EasyMock.anyObject()))
             .andReturn(sourceVideoOnly.toURI()).anyTimes();
     composerService.setWorkspace(workspace);
     EasyMock.replay(workspace);
@@ -309,7 +343,7 @@ public class ComposerServiceTest {
     Workspace workspace = EasyMock.createNiceMock(Workspace.class);
     EasyMock.expect(workspace.get(EasyMock.anyObject(), EasyMock.anyBoolean())).andReturn(sourceVideoOnly).once();
     EasyMock.expect(workspace.get(EasyMock.anyObject(), EasyMock.anyBoolean())).andReturn(sourceAudioOnly).once();
-    EasyMock.expect(workspace.putInCollection(EasyMock.anyString(), EasyMock.anyString(), EasyMock.anyObject()))
+    EasyMock.expect(workspace.moveToCollection(EasyMock.anyString(), EasyMock.anyString(), EasyMock.anyObject()))
             .andReturn(sourceVideoOnly.toURI()).anyTimes();
     composerService.setWorkspace(workspace);
     EasyMock.replay(workspace);
@@ -329,7 +363,7 @@ public class ComposerServiceTest {
     // Need different media files
     Workspace workspace = EasyMock.createNiceMock(Workspace.class);
     EasyMock.expect(workspace.get(EasyMock.anyObject())).andReturn(sourceImage).anyTimes();
-    EasyMock.expect(workspace.putInCollection(EasyMock.anyString(), EasyMock.anyString(), EasyMock.anyObject()))
+    EasyMock.expect(workspace.moveToCollection(EasyMock.anyString(), EasyMock.anyString(), EasyMock.anyObject()))
             .andReturn(sourceImage.toURI()).anyTimes();
     composerService.setWorkspace(workspace);
     EasyMock.replay(workspace);
@@ -524,7 +558,7 @@ public class ComposerServiceTest {
     // Need different media files
     Workspace workspace = EasyMock.createNiceMock(Workspace.class);
     EasyMock.expect(workspace.get(EasyMock.anyObject())).andReturn(sourceImage).anyTimes();
-    EasyMock.expect(workspace.putInCollection(EasyMock.anyString(), EasyMock.anyString(), EasyMock.anyObject()))
+    EasyMock.expect(workspace.moveToCollection(EasyMock.anyString(), EasyMock.anyString(), EasyMock.anyObject()))
             .andReturn(sourceImage.toURI()).anyTimes();
     composerService.setWorkspace(workspace);
     EasyMock.replay(workspace);
@@ -63,7 +63,6 @@ import org.opencastproject.util.MimeType;
 import org.opencastproject.workspace.api.Workspace;
 
 import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.IOUtils;
 import org.easymock.Capture;
 import org.easymock.EasyMock;
 import org.easymock.IAnswer;
@@ -79,8 +78,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
-import java.io.FileOutputStream;
-import java.io.InputStream;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -204,14 +201,13 @@ public class ProcessSmilTest {
     }).anyTimes();
 
     EasyMock.expect(
-            workspace.putInCollection((String) EasyMock.anyObject(), (String) EasyMock.anyObject(),
-                    (InputStream) EasyMock.anyObject())).andAnswer(new IAnswer<URI>() {
+            workspace.moveToCollection((String) EasyMock.anyObject(), (String) EasyMock.anyObject(),
+                    (File) EasyMock.anyObject())).andAnswer(new IAnswer<URI>() {
                       @Override
                       public URI answer() throws Throwable {
                         File f = new File(workingDirectory, (String) EasyMock.getCurrentArguments()[1]);
-                        FileOutputStream out = new FileOutputStream(f);
-                        InputStream in = (InputStream) EasyMock.getCurrentArguments()[2];
-                        IOUtils.copy(in, out);
+                        FileUtils.deleteQuietly(f);
+                        FileUtils.moveFile((File) EasyMock.getCurrentArguments()[2], f);
                         return (f.toURI());
                       }
                     }).anyTimes();
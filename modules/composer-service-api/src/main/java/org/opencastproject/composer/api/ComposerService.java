@@ -239,6 +239,27 @@ public interface ComposerService {
   Job image(Track sourceTrack, String profileId, Map<String, String> properties) throws EncoderException,
           MediaPackageException;
 
+  /**
+   * Extracts images from the source track for each of the given encoding profiles at each of the given timepoints
+   * (seconds into the movie) within a single job. The track is only read once for all profiles and timepoints, which
+   * makes this the preferred way to create larger numbers of stills and thumbnails.
+   *
+   * @param sourceTrack
+   *          the source video track
+   * @param profileIds
+   *          identifiers of the encoding profiles
+   * @param time
+   *          number of seconds into the video
+   * @return the receipt for this job. The payload lists the images of the first profile in the order of the given
+   *         timepoints, followed by the images of the next profile and so on.
+   * @throws EncoderException
+   *           if image extraction fails
+   * @throws MediaPackageException
+   *           if the mediapackage is invalid
+   */
+  Job multiImage(Track sourceTrack, List<String> profileIds, double... time) throws EncoderException,
+          MediaPackageException;
+
   /**
    * Converts the given image to a different image format using the specified image profiles.
    *
@@ -295,6 +295,38 @@ public class ComposerServiceRemoteImpl extends RemoteBase implements ComposerSer
         + " using the remote composer service proxy");
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Job multiImage(Track sourceTrack, List<String> profileIds, double... times) throws EncoderException {
+    HttpPost post = new HttpPost("/multiimage");
+    try {
+      List<BasicNameValuePair> params = new ArrayList<BasicNameValuePair>();
+      params.add(new BasicNameValuePair("sourceTrack", MediaPackageElementParser.getAsXml(sourceTrack)));
+      params.add(new BasicNameValuePair("profileIds", StringUtils.join(profileIds, ","))); // comma separated profiles
+      params.add(new BasicNameValuePair("time", buildTimeArray(times)));
+      post.setEntity(new UrlEncodedFormEntity(params, "UTF-8"));
+    } catch (Exception e) {
+      throw new EncoderException(e);
+    }
+    HttpResponse response = null;
+    try {
+      response = getResponse(post);
+      if (response != null) {
+        Job r = JobParser.parseJob(response.getEntity().getContent());
+        logger.info("Image extraction job {} started on a remote composer", r.getId());
+        return r;
+      }
+    } catch (Exception e) {
+      throw new EncoderException(e);
+    } finally {
+      closeConnection(response);
+    }
+    throw new EncoderException("Unable to extract images from track " + sourceTrack
+        + " using the remote composer service proxy");
+  }
+
   /**
    * {@inheritDoc}
    *
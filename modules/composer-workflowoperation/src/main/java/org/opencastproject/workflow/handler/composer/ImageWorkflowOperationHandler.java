@@ -167,20 +167,16 @@ public class ImageWorkflowOperationHandler extends AbstractWorkflowOperationHand
         return handler.createResult(mp, Action.SKIP);
       }
       // start image extraction jobs
-      final List<Extraction> extractions = $(cfg.sourceTracks).bind(new Fn<Track, Stream<Extraction>>() {
-        @Override public Stream<Extraction> apply(final Track t) {
+      final List<Extraction> extractions = $(cfg.sourceTracks).map(new Fn<Track, Extraction>() {
+        @Override public Extraction apply(final Track t) {
           final List<MediaPosition> p = limit(t, cfg.positions);
           if (p.size() != cfg.positions.size()) {
             logger.warn("Could not apply all configured positions to track " + t);
           } else {
             logger.info(format("Extracting images from %s at position %s", t, $(p).mkString(", ")));
           }
-          // create one extraction per encoding profile
-          return $(cfg.profiles).map(new Fn<EncodingProfile, Extraction>() {
-            @Override public Extraction apply(EncodingProfile profile) {
-              return new Extraction(extractImages(t, profile, p), t, profile, p);
-            }
-          });
+          // create one extraction for all encoding profiles so that the track is only read once
+          return new Extraction(extractImages(t, cfg.profiles, p), t, cfg.profiles, p);
         }
       }).toList();
       final List<Job> extractionJobs = concatJobs(extractions);
@@ -189,16 +185,21 @@ public class ImageWorkflowOperationHandler extends AbstractWorkflowOperationHand
         // all extractions were successful; iterate them
         for (final Extraction extraction : extractions) {
           final List<Attachment> images = getImages(extraction.job);
-          final int expectedNrOfImages = extraction.positions.size();
+          final int expectedNrOfImages = extraction.positions.size() * extraction.profiles.size();
           if (images.size() == expectedNrOfImages) {
-            // post process images
-            for (final P2<Attachment, MediaPosition> image : $(images).zip(extraction.positions)) {
-              adjustMetadata(extraction, image.get1());
-              if (image.get1().getIdentifier() == null) image.get1().setIdentifier(UUID.randomUUID().toString());
-              mp.addDerived(image.get1(), extraction.track);
-              final String fileName = createFileName(
-                      extraction.profile.getSuffix(), extraction.track.getURI(), image.get2());
-              moveToWorkspace(mp, image.get1(), fileName);
+            // post process images, which are returned profile by profile
+            final int nrOfPositions = extraction.positions.size();
+            for (int i = 0; i < extraction.profiles.size(); i++) {
+              final EncodingProfile profile = extraction.profiles.get(i);
+              final List<Attachment> profileImages = images.subList(i * nrOfPositions, (i + 1) * nrOfPositions);
+              for (final P2<Attachment, MediaPosition> image : $(profileImages).zip(extraction.positions)) {
+                adjustMetadata(extraction, image.get1());
+                if (image.get1().getIdentifier() == null) image.get1().setIdentifier(UUID.randomUUID().toString());
+                mp.addDerived(image.get1(), extraction.track);
+                final String fileName = createFileName(
+                        profile.getSuffix(), extraction.track.getURI(), image.get2());
+                moveToWorkspace(mp, image.get1(), fileName);
+              }
             }
           } else {
             // less images than expected have been extracted
@@ -272,15 +273,21 @@ public class ImageWorkflowOperationHandler extends AbstractWorkflowOperationHand
       }
     }
 
-    /** Start a composer job to extract images from a track at the given positions. */
-    private Job extractImages(final Track track, final EncodingProfile profile, final List<MediaPosition> positions) {
+    /** Start a composer job to extract images from a track at the given positions using all given profiles. */
+    private Job extractImages(final Track track, final List<EncodingProfile> profiles,
+            final List<MediaPosition> positions) {
       final List<Double> p = $(positions).map(new Fn<MediaPosition, Double>() {
         @Override public Double apply(MediaPosition mediaPosition) {
           return toSeconds(track, mediaPosition, cfg.endMargin);
         }
       }).toList();
       try {
-        return handler.composerService.image(track, profile.getIdentifier(), Collections.toDoubleArray(p));
+        final List<String> profileIds = $(profiles).map(new Fn<EncodingProfile, String>() {
+          @Override public String apply(EncodingProfile profile) {
+            return profile.getIdentifier();
+          }
+        }).toList();
+        return handler.composerService.multiImage(track, profileIds, Collections.toDoubleArray(p));
       } catch (Exception e) {
         return chuck(new WorkflowOperationException("Error starting image extraction job", e));
       }
@@ -416,15 +423,15 @@ public class ImageWorkflowOperationHandler extends AbstractWorkflowOperationHand
     private final Job job;
     /** The track to extract from. */
     private final Track track;
-    /** The encoding profile to use for extraction. */
-    private final EncodingProfile profile;
+    /** The encoding profiles to use for extraction. */
+    private final List<EncodingProfile> profiles;
     /** Media positions. */
     private final List<MediaPosition> positions;
 
-    private Extraction(Job job, Track track, EncodingProfile profile, List<MediaPosition> positions) {
+    private Extraction(Job job, Track track, List<EncodingProfile> profiles, List<MediaPosition> positions) {
       this.job = job;
       this.track = track;
-      this.profile = profile;
+      this.profiles = profiles;
       this.positions = positions;
     }
   }
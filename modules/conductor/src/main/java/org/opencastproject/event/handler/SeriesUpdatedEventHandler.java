@@ -22,12 +22,12 @@
 package org.opencastproject.event.handler;
 
 import static org.opencastproject.job.api.Job.Status.FINISHED;
-import static org.opencastproject.mediapackage.MediaPackageElementParser.getFromXml;
 import static org.opencastproject.mediapackage.MediaPackageElements.XACML_POLICY_EPISODE;
 import static org.opencastproject.workflow.handler.distribution.EngagePublicationChannel.CHANNEL_ID;
 
 import org.opencastproject.distribution.api.DistributionException;
 import org.opencastproject.distribution.api.DistributionService;
+import org.opencastproject.distribution.api.DownloadDistributionService;
 import org.opencastproject.job.api.Job;
 import org.opencastproject.job.api.JobBarrier;
 import org.opencastproject.job.api.JobBarrier.Result;
@@ -35,6 +35,7 @@ import org.opencastproject.mediapackage.Attachment;
 import org.opencastproject.mediapackage.Catalog;
 import org.opencastproject.mediapackage.MediaPackage;
 import org.opencastproject.mediapackage.MediaPackageElement;
+import org.opencastproject.mediapackage.MediaPackageElementParser;
 import org.opencastproject.mediapackage.MediaPackageElements;
 import org.opencastproject.mediapackage.MediaPackageException;
 import org.opencastproject.message.broker.api.series.SeriesItem;
@@ -61,12 +62,23 @@ import org.opencastproject.util.NotFoundException;
 import org.opencastproject.workspace.api.Workspace;
 
 import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.osgi.framework.BundleContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /** Responds to series events by re-distributing metadata and security policy files for published mediapackages. */
 public class SeriesUpdatedEventHandler {
@@ -101,6 +113,15 @@ public class SeriesUpdatedEventHandler {
   /** The system account to use for running asynchronous events */
   protected String systemAccount = null;
 
+  /** Configuration key for the number of episodes to update in parallel */
+  public static final String THREADS_CONFIG_KEY = "org.opencastproject.series.update.threads";
+
+  /** The default number of episodes to update in parallel */
+  public static final int DEFAULT_THREADS = 4;
+
+  /** The number of episodes to update in parallel */
+  protected int threads = DEFAULT_THREADS;
+
   /**
    * OSGI callback for component activation.
    *
@@ -109,6 +130,15 @@ public class SeriesUpdatedEventHandler {
    */
   protected void activate(BundleContext bundleContext) {
     this.systemAccount = bundleContext.getProperty("org.opencastproject.security.digest.user");
+    String threadsValue = StringUtils.trimToNull(bundleContext.getProperty(THREADS_CONFIG_KEY));
+    if (threadsValue != null) {
+      try {
+        threads = Math.max(1, Integer.parseInt(threadsValue));
+      } catch (NumberFormatException e) {
+        logger.warn("Found illegal value '{}' for {}, using {}", threadsValue, THREADS_CONFIG_KEY, DEFAULT_THREADS);
+      }
+    }
+    logger.debug("Updating up to {} episodes of a series in parallel", threads);
   }
 
   /**
@@ -183,121 +213,158 @@ public class SeriesUpdatedEventHandler {
     // We must be an administrative user to make this query
     final User prevUser = securityService.getUser();
     final Organization prevOrg = securityService.getOrganization();
+    final User systemUser = SecurityUtil.createSystemUser(systemAccount, prevOrg);
+    ExecutorService executor = null;
     try {
-      securityService.setUser(SecurityUtil.createSystemUser(systemAccount, prevOrg));
+      securityService.setUser(systemUser);
 
       SearchQuery q = new SearchQuery().withSeriesId(seriesId);
       SearchResult result = searchService.getForAdministrativeRead(q);
-
-      for (SearchResultItem item : result.getItems()) {
-        MediaPackage mp = item.getMediaPackage();
-        Organization org = organizationDirectoryService.getOrganization(item.getOrganization());
-        securityService.setOrganization(org);
-
-        // If the security policy has been updated, make sure to distribute that change
-        // to the distribution channels as well
-        if (SeriesItem.Type.UpdateAcl.equals(seriesItem.getType())) {
-          if (seriesItem.getOverrideEpisodeAcl()) {
-
-            MediaPackageElement[] distributedEpisodeAcls = mp.getElementsByFlavor(XACML_POLICY_EPISODE);
-            authorizationService.removeAcl(mp, AclScope.Episode);
-
-            for (MediaPackageElement distributedEpisodeAcl : distributedEpisodeAcls) {
-              Job retractJob = distributionService.retract(CHANNEL_ID, mp, distributedEpisodeAcl.getIdentifier());
-              JobBarrier barrier = new JobBarrier(null, serviceRegistry, retractJob);
-              Result jobResult = barrier.waitForJobs();
-              if (!jobResult.getStatus().get(retractJob).equals(FINISHED)) {
-                logger.error("Unable to retract episode XACML {}", distributedEpisodeAcl.getIdentifier());
-              }
-            }
+      final SearchResultItem[] items = result.getItems();
+      if (items.length == 0)
+        return;
+
+      // Update the episodes in parallel, each of them in its own security context
+      logger.info("Updating {} episodes of series {}", items.length, seriesId);
+      final AtomicInteger done = new AtomicInteger();
+      final int progressStep = Math.max(1, items.length / 10);
+      executor = Executors.newFixedThreadPool(Math.min(threads, items.length));
+      List<Future<?>> futures = new ArrayList<>(items.length);
+      for (final SearchResultItem item : items) {
+        futures.add(executor.submit(() -> {
+          try {
+            securityService.setUser(systemUser);
+            securityService.setOrganization(organizationDirectoryService.getOrganization(item.getOrganization()));
+            updateEpisode(seriesItem, item.getMediaPackage());
+          } catch (Exception e) {
+            logger.warn("Unable to update mediapackage {} for series {} for user {}: {} {}",
+                    item.getId(), seriesId, prevUser.getUsername(), e.getClass().getSimpleName(), e.getMessage());
+          } finally {
+            securityService.setOrganization(null);
+            securityService.setUser(null);
           }
-
-          Attachment fileRepoCopy = authorizationService.setAcl(mp, AclScope.Series, seriesItem.getAcl()).getB();
-
-          // Distribute the updated XACML file
-          Job distributionJob = distributionService.distribute(CHANNEL_ID, mp, fileRepoCopy.getIdentifier());
-          JobBarrier barrier = new JobBarrier(null, serviceRegistry, distributionJob);
-          Result jobResult = barrier.waitForJobs();
-          if (jobResult.getStatus().get(distributionJob).equals(FINISHED)) {
-            mp.remove(fileRepoCopy);
-            mp.add(getFromXml(serviceRegistry.getJob(distributionJob.getId()).getPayload()));
-          } else {
-            logger.error("Unable to distribute series XACML {}", fileRepoCopy.getIdentifier());
-            continue;
+          int count = done.incrementAndGet();
+          if (count % progressStep == 0 || count == items.length) {
+            logger.info("Updated {} of {} episodes of series {}", count, items.length, seriesId);
           }
-        }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } catch (SearchException e) {
+      logger.warn("Unable to find mediapackages for series {} in search: {}", seriesItem, e.getMessage());
+    } catch (UnauthorizedException e) {
+      logger.warn("Unable to find mediapackages for series {} for user {}: {}", seriesId, prevUser.getUsername(),
+              e.getMessage());
+    } catch (InterruptedException e) {
+      logger.warn("Interrupted while updating mediapackages for series {}", seriesId);
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      logger.warn("Unable to update mediapackages for series {} for user {}: {}", seriesId, prevUser.getUsername(),
+              e.getCause());
+    } finally {
+      if (executor != null)
+        executor.shutdownNow();
+      securityService.setOrganization(prevOrg);
+      securityService.setUser(prevUser);
+    }
+  }
 
-        // Update the series dublin core
-        if (SeriesItem.Type.UpdateCatalog.equals(seriesItem.getType())) {
-          DublinCoreCatalog seriesDublinCore = seriesItem.getMetadata();
-          mp.setSeriesTitle(seriesDublinCore.getFirst(DublinCore.PROPERTY_TITLE));
-
-          // Update the series dublin core
-          Catalog[] seriesCatalogs = mp.getCatalogs(MediaPackageElements.SERIES);
-          if (seriesCatalogs.length == 1) {
-            Catalog c = seriesCatalogs[0];
-            String filename = FilenameUtils.getName(c.getURI().toString());
-            URI uri = workspace.put(mp.getIdentifier().toString(), c.getIdentifier(), filename,
-                    dublinCoreService.serialize(seriesDublinCore));
-            c.setURI(uri);
-            // setting the URI to a new source so the checksum will most like be invalid
-            c.setChecksum(null);
-
-            // Distribute the updated series dc
-            Job distributionJob = distributionService.distribute(CHANNEL_ID, mp, c.getIdentifier());
-            JobBarrier barrier = new JobBarrier(null, serviceRegistry, distributionJob);
-            Result jobResult = barrier.waitForJobs();
-            if (jobResult.getStatus().get(distributionJob).equals(FINISHED)) {
-              mp.remove(c);
-              mp.add(getFromXml(serviceRegistry.getJob(distributionJob.getId()).getPayload()));
-            } else {
-              logger.error("Unable to distribute series catalog {}", c.getIdentifier());
-              continue;
-            }
-          }
+  /**
+   * Redistributes the security policy or series catalog of an episode, or removes the series from it, and updates the
+   * search index with the modified mediapackage.
+   *
+   * @param seriesItem
+   *          the series update
+   * @param mp
+   *          the published mediapackage
+   */
+  private void updateEpisode(SeriesItem seriesItem, MediaPackage mp) throws UnauthorizedException,
+          MediaPackageException, ServiceRegistryException, NotFoundException, IOException, DistributionException {
+    // If the security policy has been updated, make sure to distribute that change
+    // to the distribution channels as well
+    if (SeriesItem.Type.UpdateAcl.equals(seriesItem.getType())) {
+      if (seriesItem.getOverrideEpisodeAcl()) {
+
+        MediaPackageElement[] distributedEpisodeAcls = mp.getElementsByFlavor(XACML_POLICY_EPISODE);
+        authorizationService.removeAcl(mp, AclScope.Episode);
+
+        Set<String> episodeAclIds = new HashSet<>();
+        for (MediaPackageElement distributedEpisodeAcl : distributedEpisodeAcls) {
+          episodeAclIds.add(distributedEpisodeAcl.getIdentifier());
+        }
+        if (!episodeAclIds.isEmpty() && retract(mp, episodeAclIds) == null) {
+          logger.error("Unable to retract episode XACML {}", episodeAclIds);
         }
+      }
 
-        // Remove the series catalog and isPartOf from episode catalog
-        if (SeriesItem.Type.Delete.equals(seriesItem.getType())) {
-          mp.setSeries(null);
-          mp.setSeriesTitle(null);
+      Attachment fileRepoCopy = authorizationService.setAcl(mp, AclScope.Series, seriesItem.getAcl()).getB();
 
-          boolean retractSeriesCatalog = retractSeriesCatalog(mp);
-          boolean updateEpisodeCatalog = updateEpisodeCatalog(mp);
+      // Distribute the updated XACML file
+      if (distribute(mp, Collections.singleton(fileRepoCopy.getIdentifier())) == null) {
+        logger.error("Unable to distribute series XACML {}", fileRepoCopy.getIdentifier());
+        return;
+      }
+    }
 
-          if (!retractSeriesCatalog || !updateEpisodeCatalog)
-            continue;
+    // Update the series dublin core
+    if (SeriesItem.Type.UpdateCatalog.equals(seriesItem.getType())) {
+      DublinCoreCatalog seriesDublinCore = seriesItem.getMetadata();
+      mp.setSeriesTitle(seriesDublinCore.getFirst(DublinCore.PROPERTY_TITLE));
+
+      // Update the series dublin core
+      Catalog[] seriesCatalogs = mp.getCatalogs(MediaPackageElements.SERIES);
+      if (seriesCatalogs.length == 1) {
+        Catalog c = seriesCatalogs[0];
+        String filename = FilenameUtils.getName(c.getURI().toString());
+        URI uri = workspace.put(mp.getIdentifier().toString(), c.getIdentifier(), filename,
+                dublinCoreService.serialize(seriesDublinCore));
+        c.setURI(uri);
+        // setting the URI to a new source so the checksum will most like be invalid
+        c.setChecksum(null);
+
+        // Distribute the updated series dc
+        if (distribute(mp, Collections.singleton(c.getIdentifier())) == null) {
+          logger.error("Unable to distribute series catalog {}", c.getIdentifier());
+          return;
         }
-
-        // Update the search index with the modified mediapackage
-        Job searchJob = searchService.add(mp);
-        JobBarrier barrier = new JobBarrier(null, serviceRegistry, searchJob);
-        barrier.waitForJobs();
       }
-    } catch (SearchException e) {
-      logger.warn("Unable to find mediapackages for series {} in search: {}", seriesItem, e.getMessage());
-    } catch (UnauthorizedException | MediaPackageException | ServiceRegistryException
-             | NotFoundException | IOException | DistributionException e) {
-      logger.warn("Unable to update mediapackages for series {} for user {}: {} {}",
-                  seriesId, prevUser.getUsername(), e.getClass().getSimpleName(), e.getMessage());
-    } finally {
-      securityService.setOrganization(prevOrg);
-      securityService.setUser(prevUser);
     }
+
+    // Remove the series catalog and isPartOf from episode catalog
+    if (SeriesItem.Type.Delete.equals(seriesItem.getType())) {
+      mp.setSeries(null);
+      mp.setSeriesTitle(null);
+
+      boolean retractSeriesCatalog = retractSeriesCatalog(mp);
+      boolean updateEpisodeCatalog = updateEpisodeCatalog(mp);
+
+      if (!retractSeriesCatalog || !updateEpisodeCatalog)
+        return;
+    }
+
+    // Update the search index with the modified mediapackage
+    Job searchJob = searchService.add(mp);
+    JobBarrier barrier = new JobBarrier(null, serviceRegistry, searchJob);
+    barrier.waitForJobs();
   }
 
-  private boolean retractSeriesCatalog(MediaPackage mp) throws DistributionException {
+  private boolean retractSeriesCatalog(MediaPackage mp) throws DistributionException, MediaPackageException,
+          NotFoundException, ServiceRegistryException {
     // Retract the series catalog
+    Set<String> seriesCatalogIds = new HashSet<>();
     for (Catalog c : mp.getCatalogs(MediaPackageElements.SERIES)) {
-      Job retractJob = distributionService.retract(CHANNEL_ID, mp, c.getIdentifier());
-      JobBarrier barrier = new JobBarrier(null, serviceRegistry, retractJob);
-      Result jobResult = barrier.waitForJobs();
-      if (jobResult.getStatus().get(retractJob).equals(FINISHED)) {
-        mp.remove(c);
-      } else {
-        logger.error("Unable to retract series catalog {}", c.getIdentifier());
-        return false;
-      }
+      seriesCatalogIds.add(c.getIdentifier());
+    }
+    if (seriesCatalogIds.isEmpty())
+      return true;
+    if (retract(mp, seriesCatalogIds) == null) {
+      logger.error("Unable to retract series catalog {}", seriesCatalogIds);
+      return false;
+    }
+    for (Catalog c : mp.getCatalogs(MediaPackageElements.SERIES)) {
+      mp.remove(c);
     }
     return true;
   }
@@ -305,6 +372,7 @@ public class SeriesUpdatedEventHandler {
   private boolean updateEpisodeCatalog(MediaPackage mp) throws DistributionException, MediaPackageException,
           NotFoundException, ServiceRegistryException, IllegalArgumentException, IOException {
     // Update the episode catalog
+    Set<String> episodeCatalogIds = new HashSet<>();
     for (Catalog episodeCatalog : mp.getCatalogs(MediaPackageElements.EPISODE)) {
       DublinCoreCatalog episodeDublinCore = DublinCoreUtil.loadDublinCore(workspace, episodeCatalog);
       episodeDublinCore.remove(DublinCore.PROPERTY_IS_PART_OF);
@@ -314,19 +382,91 @@ public class SeriesUpdatedEventHandler {
       episodeCatalog.setURI(uri);
       // setting the URI to a new source so the checksum will most like be invalid
       episodeCatalog.setChecksum(null);
+      episodeCatalogIds.add(episodeCatalog.getIdentifier());
+    }
 
-      // Distribute the updated episode dublincore
-      Job distributionJob = distributionService.distribute(CHANNEL_ID, mp, episodeCatalog.getIdentifier());
-      JobBarrier barrier = new JobBarrier(null, serviceRegistry, distributionJob);
-      Result jobResult = barrier.waitForJobs();
-      if (jobResult.getStatus().get(distributionJob).equals(FINISHED)) {
-        mp.remove(episodeCatalog);
-        mp.add(getFromXml(serviceRegistry.getJob(distributionJob.getId()).getPayload()));
-      } else {
-        logger.error("Unable to distribute episode catalog {}", episodeCatalog.getIdentifier());
-        return false;
-      }
+    // Distribute the updated episode dublincores
+    if (!episodeCatalogIds.isEmpty() && distribute(mp, episodeCatalogIds) == null) {
+      logger.error("Unable to distribute episode catalog {}", episodeCatalogIds);
+      return false;
     }
     return true;
   }
+
+  /**
+   * Distributes the given elements of a mediapackage and replaces them with their distributed versions. If the
+   * distribution service supports it, all elements are distributed with a single job.
+   *
+   * @param mp
+   *          the mediapackage
+   * @param elementIds
+   *          the identifiers of the elements to distribute
+   * @return the distributed elements or <code>null</code> if the distribution failed
+   */
+  private List<MediaPackageElement> distribute(MediaPackage mp, Set<String> elementIds) throws DistributionException,
+          MediaPackageException, NotFoundException, ServiceRegistryException {
+    List<Job> jobs = new ArrayList<>();
+    if (distributionService instanceof DownloadDistributionService) {
+      jobs.add(((DownloadDistributionService) distributionService).distribute(CHANNEL_ID, mp, elementIds, true));
+    } else {
+      for (String elementId : elementIds) {
+        jobs.add(distributionService.distribute(CHANNEL_ID, mp, elementId));
+      }
+    }
+    List<MediaPackageElement> distributed = waitForElements(jobs);
+    if (distributed != null) {
+      for (MediaPackageElement element : distributed) {
+        MediaPackageElement original = mp.getElementById(element.getIdentifier());
+        if (original != null)
+          mp.remove(original);
+        mp.add(element);
+      }
+    }
+    return distributed;
+  }
+
+  /**
+   * Retracts the given elements of a mediapackage. If the distribution service supports it, all elements are retracted
+   * with a single job.
+   *
+   * @param mp
+   *          the mediapackage
+   * @param elementIds
+   *          the identifiers of the elements to retract
+   * @return the retracted elements or <code>null</code> if the retraction failed
+   */
+  private List<MediaPackageElement> retract(MediaPackage mp, Set<String> elementIds) throws DistributionException,
+          MediaPackageException, NotFoundException, ServiceRegistryException {
+    List<Job> jobs = new ArrayList<>();
+    if (distributionService instanceof DownloadDistributionService) {
+      jobs.add(((DownloadDistributionService) distributionService).retract(CHANNEL_ID, mp, elementIds));
+    } else {
+      for (String elementId : elementIds) {
+        jobs.add(distributionService.retract(CHANNEL_ID, mp, elementId));
+      }
+    }
+    return waitForElements(jobs);
+  }
+
+  /**
+   * Waits for the given distribution jobs and returns the elements of their payloads.
+   *
+   * @param jobs
+   *          the distribution jobs
+   * @return the elements or <code>null</code> if one of the jobs failed
+   */
+  private List<MediaPackageElement> waitForElements(List<Job> jobs) throws MediaPackageException, NotFoundException,
+          ServiceRegistryException {
+    JobBarrier barrier = new JobBarrier(null, serviceRegistry, jobs.toArray(new Job[jobs.size()]));
+    Result jobResult = barrier.waitForJobs();
+    List<MediaPackageElement> elements = new ArrayList<>();
+    for (Job job : jobs) {
+      if (!FINISHED.equals(jobResult.getStatus().get(job)))
+        return null;
+      String payload = serviceRegistry.getJob(job.getId()).getPayload();
+      if (payload != null && !payload.isEmpty())
+        elements.addAll(MediaPackageElementParser.getArrayFromXml(payload));
+    }
+    return elements;
+  }
 }
@@ -0,0 +1,369 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package org.opencastproject.event.handler;
+
+import static org.easymock.EasyMock.anyLong;
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.anyString;
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.getCurrentArguments;
+import static org.easymock.EasyMock.same;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.opencastproject.workflow.handler.distribution.EngagePublicationChannel.CHANNEL_ID;
+
+import org.opencastproject.distribution.api.DistributionException;
+import org.opencastproject.distribution.api.DistributionService;
+import org.opencastproject.distribution.api.DownloadDistributionService;
+import org.opencastproject.job.api.Job;
+import org.opencastproject.job.api.JobImpl;
+import org.opencastproject.mediapackage.Attachment;
+import org.opencastproject.mediapackage.Catalog;
+import org.opencastproject.mediapackage.CatalogImpl;
+import org.opencastproject.mediapackage.MediaPackage;
+import org.opencastproject.mediapackage.MediaPackageBuilder;
+import org.opencastproject.mediapackage.MediaPackageBuilderFactory;
+import org.opencastproject.mediapackage.MediaPackageElement;
+import org.opencastproject.mediapackage.MediaPackageElementFlavor;
+import org.opencastproject.mediapackage.MediaPackageElementParser;
+import org.opencastproject.mediapackage.MediaPackageElements;
+import org.opencastproject.mediapackage.attachment.AttachmentImpl;
+import org.opencastproject.message.broker.api.series.SeriesItem;
+import org.opencastproject.metadata.dublincore.DublinCore;
+import org.opencastproject.metadata.dublincore.DublinCoreCatalog;
+import org.opencastproject.metadata.dublincore.DublinCoreCatalogService;
+import org.opencastproject.metadata.dublincore.DublinCores;
+import org.opencastproject.metadata.dublincore.OpencastDctermsDublinCore;
+import org.opencastproject.search.api.SearchQuery;
+import org.opencastproject.search.api.SearchResult;
+import org.opencastproject.search.api.SearchResultItem;
+import org.opencastproject.search.api.SearchService;
+import org.opencastproject.security.api.AccessControlEntry;
+import org.opencastproject.security.api.AccessControlList;
+import org.opencastproject.security.api.AclScope;
+import org.opencastproject.security.api.AuthorizationService;
+import org.opencastproject.security.api.DefaultOrganization;
+import org.opencastproject.security.api.OrganizationDirectoryService;
+import org.opencastproject.security.api.SecurityService;
+import org.opencastproject.security.api.User;
+import org.opencastproject.serviceregistry.api.JobStatusPublisher;
+import org.opencastproject.serviceregistry.api.ServiceRegistry;
+import org.opencastproject.util.data.Tuple;
+import org.opencastproject.workspace.api.Workspace;
+
+import org.easymock.EasyMockSupport;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class contains some tests for the {@link SeriesUpdatedEventHandler}.
+ */
+public class SeriesUpdatedEventHandlerTest extends EasyMockSupport {
+
+  private static final String SERIES_ID = "123";
+  private static final String SYSTEM_ACCOUNT = "opencast_system_account";
+  private static final String SERIES_XACML_ID = "series-xacml";
+  private static final MediaPackageBuilder MP_BUILDER = MediaPackageBuilderFactory.newInstance()
+      .newMediaPackageBuilder();
+  private static final AccessControlList ACL = new AccessControlList(new AccessControlEntry("ROLE_ADMIN", "read",
+      true));
+
+  /** Lets the job barrier poll the jobs right away instead of waiting for the polling interval */
+  private interface PublishingServiceRegistry extends ServiceRegistry, JobStatusPublisher {
+  }
+
+  private SeriesUpdatedEventHandler cut;
+
+  private ServiceRegistry serviceRegistry;
+  private SearchService searchService;
+  private AuthorizationService authorizationService;
+  private Workspace workspace;
+
+  private final AtomicLong jobIds = new AtomicLong();
+  private final Map<Long, Job> jobs = new ConcurrentHashMap<>();
+  private final List<MediaPackage> indexed = Collections.synchronizedList(new ArrayList<>());
+  private final Map<String, DublinCoreCatalog> stored = new ConcurrentHashMap<>();
+
+  @Before
+  public void setUp() throws Exception {
+    cut = new SeriesUpdatedEventHandler();
+    cut.systemAccount = SYSTEM_ACCOUNT;
+
+    SecurityService securityService = createNiceMock(SecurityService.class);
+    expect(securityService.getUser()).andReturn(createNiceMock(User.class)).anyTimes();
+    expect(securityService.getOrganization()).andReturn(new DefaultOrganization()).anyTimes();
+    cut.setSecurityService(securityService);
+
+    OrganizationDirectoryService organizationDirectoryService = createNiceMock(OrganizationDirectoryService.class);
+    expect(organizationDirectoryService.getOrganization(anyString())).andReturn(new DefaultOrganization()).anyTimes();
+    cut.setOrganizationDirectoryService(organizationDirectoryService);
+
+    serviceRegistry = createNiceMock(PublishingServiceRegistry.class);
+    expect(serviceRegistry.getJob(anyLong())).andAnswer(() -> jobs.get((Long) getCurrentArguments()[0])).anyTimes();
+    cut.setServiceRegistry(serviceRegistry);
+
+    searchService = createMock(SearchService.class);
+    cut.setSearchService(searchService);
+
+    authorizationService = createMock(AuthorizationService.class);
+    cut.setAuthorizationService(authorizationService);
+
+    workspace = createNiceMock(Workspace.class);
+    expect(workspace.read(anyObject())).andAnswer(() -> getClass().getResourceAsStream("/episode.xml")).anyTimes();
+    expect(workspace.put(anyString(), anyString(), anyString(), anyObject(InputStream.class))).andAnswer(() -> {
+      Object[] args = getCurrentArguments();
+      stored.put((String) args[1], DublinCores.read((InputStream) args[3]));
+      return URI.create("http://localhost/files/" + args[0] + "/" + args[1] + "/" + args[2]);
+    }).anyTimes();
+    cut.setWorkspace(workspace);
+
+    cut.setDublinCoreCatalogService(new DublinCoreCatalogService());
+  }
+
+  /**
+   * Tests that an ACL update overriding the episode ACLs retracts the episode XACMLs and distributes the new series
+   * XACML.
+   */
+  @Test
+  public void testUpdateAclOverridingEpisodeAcl() throws Exception {
+    MediaPackage mp = createMediaPackage();
+    Attachment episodeXacml = addAttachment(mp, "episode-xacml", MediaPackageElements.XACML_POLICY_EPISODE);
+    expectSearch(mp);
+    expectSetAcl(mp);
+    expect(authorizationService.removeAcl(mp, AclScope.Episode)).andReturn(mp).once();
+
+    DistributionService distributionService = createMock(DistributionService.class);
+    expect(distributionService.retract(CHANNEL_ID, mp, episodeXacml.getIdentifier()))
+        .andAnswer(() -> finishedJob(Collections.singleton(episodeXacml))).once();
+    expectDistribute(distributionService, mp, SERIES_XACML_ID);
+    cut.setDistributionService(distributionService);
+    replayAll();
+
+    cut.handleEvent(SeriesItem.updateAcl(SERIES_ID, ACL, true));
+
+    verifyAll();
+    assertEquals(Collections.singletonList(mp), indexed);
+  }
+
+  /**
+   * Tests that an ACL update which does not override the episode ACLs leaves them in place.
+   */
+  @Test
+  public void testUpdateAclKeepingEpisodeAcl() throws Exception {
+    MediaPackage mp = createMediaPackage();
+    addAttachment(mp, "episode-xacml", MediaPackageElements.XACML_POLICY_EPISODE);
+    expectSearch(mp);
+    expectSetAcl(mp);
+
+    DistributionService distributionService = createMock(DistributionService.class);
+    expectDistribute(distributionService, mp, SERIES_XACML_ID);
+    cut.setDistributionService(distributionService);
+    replayAll();
+
+    cut.handleEvent(SeriesItem.updateAcl(SERIES_ID, ACL, false));
+
+    verifyAll();
+    assertEquals(Collections.singletonList(mp), indexed);
+    assertEquals(1, mp.getElementsByFlavor(MediaPackageElements.XACML_POLICY_EPISODE).length);
+  }
+
+  /**
+   * Tests that a catalog update rewrites and distributes the series catalog of an episode.
+   */
+  @Test
+  public void testUpdateCatalog() throws Exception {
+    MediaPackage mp = createMediaPackage();
+    Catalog seriesCatalog = addCatalog(mp, "series-dc", MediaPackageElements.SERIES);
+    expectSearch(mp);
+
+    DistributionService distributionService = createMock(DistributionService.class);
+    expectDistribute(distributionService, mp, seriesCatalog.getIdentifier());
+    cut.setDistributionService(distributionService);
+    replayAll();
+
+    OpencastDctermsDublinCore.Series series = DublinCores.mkOpencastSeries(SERIES_ID);
+    series.setTitle("Updated series");
+    cut.handleEvent(SeriesItem.updateCatalog(series.getCatalog()));
+
+    verifyAll();
+    assertEquals(Collections.singletonList(mp), indexed);
+    assertEquals("Updated series", mp.getSeriesTitle());
+    assertEquals("Updated series", stored.get(seriesCatalog.getIdentifier()).getFirst(DublinCore.PROPERTY_TITLE));
+  }
+
+  /**
+   * Tests that deleting a series retracts the series catalog and removes the series from the episode catalog.
+   */
+  @Test
+  public void testDelete() throws Exception {
+    MediaPackage mp = createMediaPackage();
+    Catalog seriesCatalog = addCatalog(mp, "series-dc", MediaPackageElements.SERIES);
+    Catalog episodeCatalog = addCatalog(mp, "episode-dc", MediaPackageElements.EPISODE);
+    expectSearch(mp);
+
+    DistributionService distributionService = createMock(DistributionService.class);
+    expect(distributionService.retract(CHANNEL_ID, mp, seriesCatalog.getIdentifier()))
+        .andAnswer(() -> finishedJob(Collections.singleton(seriesCatalog))).once();
+    expectDistribute(distributionService, mp, episodeCatalog.getIdentifier());
+    cut.setDistributionService(distributionService);
+    replayAll();
+
+    cut.handleEvent(SeriesItem.delete(SERIES_ID));
+
+    verifyAll();
+    assertEquals(Collections.singletonList(mp), indexed);
+    assertNull(mp.getSeries());
+    assertEquals(0, mp.getCatalogs(MediaPackageElements.SERIES).length);
+    assertNull(stored.get(episodeCatalog.getIdentifier()).getFirst(DublinCore.PROPERTY_IS_PART_OF));
+  }
+
+  /**
+   * Tests that an episode which cannot be updated does not keep the other episodes from being updated.
+   */
+  @Test
+  public void testFailingEpisodeDoesNotAbortOthers() throws Exception {
+    MediaPackage failing = createMediaPackage();
+    MediaPackage mp1 = createMediaPackage();
+    MediaPackage mp2 = createMediaPackage();
+    expectSearch(failing, mp1, mp2);
+    expectSetAcl(failing);
+    expectSetAcl(mp1);
+    expectSetAcl(mp2);
+
+    DistributionService distributionService = createMock(DistributionService.class);
+    expect(distributionService.distribute(CHANNEL_ID, failing, SERIES_XACML_ID))
+        .andThrow(new DistributionException("Distribution failed")).once();
+    expectDistribute(distributionService, mp1, SERIES_XACML_ID);
+    expectDistribute(distributionService, mp2, SERIES_XACML_ID);
+    cut.setDistributionService(distributionService);
+    replayAll();
+
+    cut.handleEvent(SeriesItem.updateAcl(SERIES_ID, ACL, false));
+
+    verifyAll();
+    assertEquals(new HashSet<>(Arrays.asList(mp1, mp2)), new HashSet<>(indexed));
+  }
+
+  /**
+   * Tests that a download distribution service retracts and distributes all elements of an episode with a single job.
+   */
+  @Test
+  public void testDownloadDistributionUsesSingleJob() throws Exception {
+    MediaPackage mp = createMediaPackage();
+    Attachment episodeXacml1 = addAttachment(mp, "episode-xacml-1", MediaPackageElements.XACML_POLICY_EPISODE);
+    Attachment episodeXacml2 = addAttachment(mp, "episode-xacml-2", MediaPackageElements.XACML_POLICY_EPISODE);
+    expectSearch(mp);
+    expectSetAcl(mp);
+    expect(authorizationService.removeAcl(mp, AclScope.Episode)).andReturn(mp).once();
+
+    DownloadDistributionService distributionService = createMock(DownloadDistributionService.class);
+    expect(distributionService.retract(CHANNEL_ID, mp, new HashSet<>(Arrays.asList(episodeXacml1.getIdentifier(),
+        episodeXacml2.getIdentifier())))).andAnswer(() -> finishedJob(Arrays.asList(episodeXacml1, episodeXacml2)))
+        .once();
+    expect(distributionService.distribute(CHANNEL_ID, mp, Collections.singleton(SERIES_XACML_ID), true))
+        .andAnswer(() -> finishedJob(Collections.singleton(mp.getElementById(SERIES_XACML_ID)))).once();
+    cut.setDistributionService(distributionService);
+    replayAll();
+
+    cut.handleEvent(SeriesItem.updateAcl(SERIES_ID, ACL, true));
+
+    verifyAll();
+    assertEquals(Collections.singletonList(mp), indexed);
+  }
+
+  private MediaPackage createMediaPackage() throws Exception {
+    MediaPackage mp = MP_BUILDER.createNew();
+    mp.setSeries(SERIES_ID);
+    return mp;
+  }
+
+  private Attachment addAttachment(MediaPackage mp, String id, MediaPackageElementFlavor flavor) {
+    Attachment attachment = AttachmentImpl.fromURI(URI.create("http://localhost/xacml/" + id + ".xml"));
+    attachment.setIdentifier(id);
+    attachment.setFlavor(flavor);
+    mp.add(attachment);
+    return attachment;
+  }
+
+  private Catalog addCatalog(MediaPackage mp, String id, MediaPackageElementFlavor flavor) {
+    Catalog catalog = CatalogImpl.fromURI(URI.create("http://localhost/dublincore/" + id + ".xml"));
+    catalog.setIdentifier(id);
+    catalog.setFlavor(flavor);
+    mp.add(catalog);
+    return catalog;
+  }
+
+  /** Lets the search service find the given episodes and records which of them are added back to the index. */
+  private void expectSearch(MediaPackage... mps) throws Exception {
+    List<SearchResultItem> items = new ArrayList<>();
+    for (MediaPackage mp : mps) {
+      SearchResultItem item = createNiceMock(SearchResultItem.class);
+      expect(item.getId()).andReturn(mp.getIdentifier().toString()).anyTimes();
+      expect(item.getMediaPackage()).andReturn(mp).anyTimes();
+      expect(item.getOrganization()).andReturn(DefaultOrganization.DEFAULT_ORGANIZATION_ID).anyTimes();
+      items.add(item);
+    }
+    SearchResult result = createNiceMock(SearchResult.class);
+    expect(result.getItems()).andReturn(items.toArray(new SearchResultItem[items.size()])).anyTimes();
+    expect(searchService.getForAdministrativeRead(anyObject(SearchQuery.class))).andReturn(result).once();
+    expect(searchService.add(anyObject(MediaPackage.class))).andAnswer(() -> {
+      indexed.add((MediaPackage) getCurrentArguments()[0]);
+      return finishedJob(Collections.emptyList());
+    }).anyTimes();
+  }
+
+  /** Lets the authorization service attach the series XACML to the given episode. */
+  private void expectSetAcl(MediaPackage mp) {
+    expect(authorizationService.setAcl(same(mp), eq(AclScope.Series), anyObject(AccessControlList.class)))
+        .andAnswer(() -> Tuple.tuple(mp, addAttachment(mp, SERIES_XACML_ID,
+            MediaPackageElements.XACML_POLICY_SERIES))).once();
+  }
+
+  private void expectDistribute(DistributionService distributionService, MediaPackage mp, String elementId)
+      throws Exception {
+    expect(distributionService.distribute(CHANNEL_ID, mp, elementId))
+        .andAnswer(() -> finishedJob(Collections.singleton(mp.getElementById(elementId)))).once();
+  }
+
+  /** Creates a finished job whose payload are the given elements, as returned by the distribution services. */
+  private Job finishedJob(Collection<? extends MediaPackageElement> payload) throws Exception {
+    JobImpl job = new JobImpl(jobIds.incrementAndGet());
+    job.setStatus(Job.Status.FINISHED);
+    if (!payload.isEmpty())
+      job.setPayload(MediaPackageElementParser.getArrayAsXml(payload));
+    jobs.put(job.getId(), job);
+    return job;
+  }
+
+}
@@ -48,11 +48,15 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.annotation.Nonnull;
 import javax.annotation.ParametersAreNonnullByDefault;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
 import javax.xml.transform.OutputKeys;
 import javax.xml.transform.Result;
@@ -70,8 +74,39 @@ public final class DublinCoreXmlFormat extends DefaultHandler {
   /** the logging facility provided by log4j */
   private static final Logger logger = LoggerFactory.getLogger(DublinCoreXmlFormat.class);
 
+  /** Maximum number of expanded names kept in {@link #enames} */
+  private static final int MAX_ENAMES = 1024;
+
+  /** Factory for the documents catalogs are written to */
+  private static final DocumentBuilderFactory docBuilderFactory;
+
+  /** Factory for the transformers feeding DOM nodes into the parser */
+  private static final TransformerFactory transformerFactory = TransformerFactory.newInstance();
+
+  /** Factory for the catalog parsers */
+  private static final SAXParserFactory parserFactory;
+
+  /** Parsers are expensive to set up, so each thread keeps one around and resets it after use */
+  private static final ThreadLocal<SAXParser> parser = new ThreadLocal<>();
+
+  /** Interned element names by namespace URI and local name */
+  private static final ConcurrentMap<String, ConcurrentMap<String, EName>> enames = new ConcurrentHashMap<>();
+
+  /** Number of interned element names */
+  private static final AtomicInteger enameCount = new AtomicInteger();
+
+  static {
+    docBuilderFactory = DocumentBuilderFactory.newInstance();
+    docBuilderFactory.setNamespaceAware(true);
+    parserFactory = SAXParserFactory.newInstance();
+    // no DTD
+    parserFactory.setValidating(false);
+    // namespaces!
+    parserFactory.setNamespaceAware(true);
+  }
+
   /** The element content */
-  private StringBuilder content = new StringBuilder();
+  private final StringBuilder content = new StringBuilder();
 
   /** The node attributes */
   private Attributes attributes = null;
@@ -243,12 +278,7 @@ public final class DublinCoreXmlFormat extends DefaultHandler {
   public static Document writeDocument(DublinCoreCatalog dc)
           throws ParserConfigurationException, TransformerException, IOException {
     // Create the DOM document
-    final Document doc;
-    {
-      final DocumentBuilderFactory docBuilderFactory = DocumentBuilderFactory.newInstance();
-      docBuilderFactory.setNamespaceAware(true);
-      doc = docBuilderFactory.newDocumentBuilder().newDocument();
-    }
+    final Document doc = docBuilderFactory.newDocumentBuilder().newDocument();
     if (dc.getRootTag() != null) {
       final Element rootElement = doc.createElementNS(dc.getRootTag().getNamespaceURI(), dc.toQName(dc.getRootTag()));
       doc.appendChild(rootElement);
@@ -273,7 +303,7 @@ public final class DublinCoreXmlFormat extends DefaultHandler {
 
   private DublinCoreCatalog readImpl(Node node) throws TransformerException {
     final Result outputTarget = new SAXResult(this);
-    final Transformer t = TransformerFactory.newInstance().newTransformer();
+    final Transformer t = transformerFactory.newTransformer();
     t.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
     t.transform(new DOMSource(node), outputTarget);
     return dc;
@@ -281,22 +311,47 @@ public final class DublinCoreXmlFormat extends DefaultHandler {
 
   private DublinCoreCatalog readImpl(InputSource in)
           throws ParserConfigurationException, SAXException, IOException {
-    final SAXParserFactory factory = SAXParserFactory.newInstance();
-    // no DTD
-    factory.setValidating(false);
-    // namespaces!
-    factory.setNamespaceAware(true);
-    // read document
-    factory.newSAXParser().parse(in, this);
+    SAXParser saxParser = parser.get();
+    if (saxParser == null) {
+      saxParser = parserFactory.newSAXParser();
+      parser.set(saxParser);
+    }
+    try {
+      // read document
+      saxParser.parse(in, this);
+    } finally {
+      saxParser.reset();
+    }
     return dc;
   }
 
+  /**
+   * Returns the interned expanded name for the given namespace and local name. Only the first {@link #MAX_ENAMES}
+   * names are kept so that arbitrary input cannot grow the table without bounds.
+   */
+  static EName intern(String namespaceURI, String localName) {
+    ConcurrentMap<String, EName> names = enames.get(namespaceURI);
+    EName name = names != null ? names.get(localName) : null;
+    if (name != null)
+      return name;
+    name = EName.mk(namespaceURI, localName);
+    if (enameCount.get() < MAX_ENAMES) {
+      if (names == null)
+        names = enames.computeIfAbsent(namespaceURI, ns -> new ConcurrentHashMap<>());
+      final EName interned = names.putIfAbsent(localName, name);
+      if (interned != null)
+        return interned;
+      enameCount.incrementAndGet();
+    }
+    return name;
+  }
+
   /**
    * Returns the element content.
    */
   private String getAndResetContent() {
     String str = content.toString().trim();
-    content = new StringBuilder();
+    content.setLength(0);
     return str;
   }
 
@@ -319,7 +374,7 @@ public final class DublinCoreXmlFormat extends DefaultHandler {
   @Override
   public void startElement(String uri, String localName, String name, Attributes attributes) throws SAXException {
     if (dc.getRootTag() == null) {
-      dc.setRootTag(new EName(uri, localName));
+      dc.setRootTag(intern(uri, localName));
     }
     this.attributes = attributes;
   }
@@ -327,7 +382,7 @@ public final class DublinCoreXmlFormat extends DefaultHandler {
   @Override
   public void endElement(String uri, String localName, String name) throws SAXException {
     if (dc.getRootTag() != null) {
-      dc.addElement(EName.mk(uri, localName), getAndResetContent(), attributes);
+      dc.addElement(intern(uri, localName), getAndResetContent(), attributes);
     }
   }
 
@@ -23,6 +23,7 @@ package org.opencastproject.metadata.dublincore;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import org.opencastproject.mediapackage.EName;
@@ -143,4 +144,21 @@ public class DublinCoreXmlFormatTest {
             mergedToMergeNoEmpty.getProperties().contains(eNamepropertyFooId));
     assertEquals(fooId, mergedToMergeNoEmpty.getFirstVal(eNamepropertyFooId).getValue());
   }
+
+  @Test
+  public void readReusesParserAfterError() throws Exception {
+    final String xml = IoSupport.loadFileFromClassPathAsString("/dublincore.xml", DublinCoreXmlFormatTest.class).get();
+    final DublinCoreCatalog expected = DublinCoreXmlFormat.read(xml);
+    assertTrue(DublinCoreXmlFormat.readOpt("<dublincore><broken>").isNone());
+    final DublinCoreCatalog dc = DublinCoreXmlFormat.read(xml);
+    assertEquals(expected, dc);
+    assertEquals(DublinCoreXmlFormat.writeString(expected), DublinCoreXmlFormat.writeString(dc));
+  }
+
+  @Test
+  public void internElementNames() throws Exception {
+    final EName title = DublinCoreXmlFormat.intern(DublinCore.TERMS_NS_URI, "title");
+    assertEquals(DublinCore.PROPERTY_TITLE, title);
+    assertSame(title, DublinCoreXmlFormat.intern(DublinCore.TERMS_NS_URI, "title"));
+  }
 }
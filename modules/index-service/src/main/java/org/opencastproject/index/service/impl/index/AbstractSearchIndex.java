@@ -63,6 +63,7 @@ import org.opencastproject.util.data.Option;
 
 import com.entwinemedia.fn.Fn;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.elasticsearch.action.DocWriteResponse;
 import org.elasticsearch.action.delete.DeleteRequestBuilder;
@@ -76,18 +77,31 @@ import org.elasticsearch.search.aggregations.AggregationBuilder;
 import org.elasticsearch.search.aggregations.AggregationBuilders;
 import org.elasticsearch.search.aggregations.bucket.terms.Terms;
 import org.elasticsearch.search.aggregations.bucket.terms.Terms.Bucket;
+import org.osgi.service.component.ComponentContext;
+import org.osgi.service.component.ComponentException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import javax.xml.bind.Unmarshaller;
 
@@ -104,6 +118,45 @@ public abstract class AbstractSearchIndex extends AbstractElasticsearchIndex {
   /** An Executor to get messages */
   private ExecutorService executor = Executors.newSingleThreadExecutor();
 
+  /** Configuration key for the time in seconds to wait for a service to respond while recreating the index */
+  public static final String INDEX_RECREATE_TIMEOUT_KEY = "org.opencastproject.index.recreate.timeout";
+
+  /** The default time in seconds to wait for a service to respond while recreating the index */
+  public static final long DEFAULT_RECREATE_TIMEOUT = 3600L;
+
+  /** Configuration key for whether a recreation of the index resumes an interrupted recreation */
+  public static final String INDEX_RECREATE_RESUME_KEY = "org.opencastproject.index.recreate.resume";
+
+  /** Configuration key for the number of documents written in a single bulk request while recreating the index */
+  public static final String INDEX_RECREATE_BUFFER_SIZE_KEY = "org.opencastproject.index.recreate.buffer.size";
+
+  /** The default number of documents written in a single bulk request while recreating the index */
+  public static final int DEFAULT_RECREATE_BUFFER_SIZE = 500;
+
+  /**
+   * The services to recreate the index from. The services of a phase are recreated concurrently, but only after all
+   * services of the previous phase have finished. Events refer to series, so the services updating events are started
+   * once the series are in place. Concurrent updates of the same event by these services are serialized by the
+   * {@link org.opencastproject.index.service.message.MessageReceiverLockService}.
+   */
+  private static final List<List<IndexRecreateObject.Service>> RECREATE_PHASES = Arrays.asList(
+          Arrays.asList(IndexRecreateObject.Service.Groups, IndexRecreateObject.Service.Acl,
+                  IndexRecreateObject.Service.Themes, IndexRecreateObject.Service.Series),
+          Arrays.asList(IndexRecreateObject.Service.Scheduler, IndexRecreateObject.Service.Workflow,
+                  IndexRecreateObject.Service.AssetManager, IndexRecreateObject.Service.Comments));
+
+  /** File recording the services that have been recreated completely, <code>null</code> to disable checkpoints */
+  private File recreateCheckpoint = null;
+
+  /** Time in seconds to wait for a service to respond while recreating the index, 0 to wait forever */
+  private long recreateTimeout = DEFAULT_RECREATE_TIMEOUT;
+
+  /** Whether {@link #recreateIndex()} resumes an interrupted recreation */
+  private boolean recreateResume = false;
+
+  /** Number of documents written in a single bulk request while recreating the index */
+  private int recreateBufferSize = DEFAULT_RECREATE_BUFFER_SIZE;
+
   @Override
   public abstract String getIndexName();
 
@@ -118,7 +171,31 @@ public abstract class AbstractSearchIndex extends AbstractElasticsearchIndex {
   }
 
   /**
-   * Recreate the index from all of the services that provide data.
+   * OSGi callback to activate this component instance.
+   *
+   * @param ctx
+   *          the component context
+   * @throws ComponentException
+   *           if the search index cannot be initialized
+   */
+  @Override
+  public void activate(ComponentContext ctx) throws ComponentException {
+    super.activate(ctx);
+    String dataPath = StringUtils.trimToNull(ctx.getBundleContext().getProperty("karaf.data"));
+    if (dataPath != null) {
+      recreateCheckpoint = new File(new File(dataPath, "index"), getIndexName() + ".recreate");
+    }
+    recreateTimeout = Long.parseLong(StringUtils.defaultIfBlank(
+            ctx.getBundleContext().getProperty(INDEX_RECREATE_TIMEOUT_KEY), Long.toString(DEFAULT_RECREATE_TIMEOUT)));
+    recreateResume = Boolean.parseBoolean(ctx.getBundleContext().getProperty(INDEX_RECREATE_RESUME_KEY));
+    recreateBufferSize = Integer.parseInt(StringUtils.defaultIfBlank(
+            ctx.getBundleContext().getProperty(INDEX_RECREATE_BUFFER_SIZE_KEY),
+            Integer.toString(DEFAULT_RECREATE_BUFFER_SIZE)));
+  }
+
+  /**
+   * Recreate the index from all of the services that provide data. An interrupted recreation is only resumed if
+   * {@link #INDEX_RECREATE_RESUME_KEY} is enabled.
    *
    * @throws InterruptedException
    *           Thrown if the process is interupted.
@@ -127,22 +204,87 @@ public abstract class AbstractSearchIndex extends AbstractElasticsearchIndex {
    * @throws ExecutionException
    *           Thrown if there is a problem executing the process.
    * @throws IOException
-   *           Thrown if the index cannot be cleared.
+   *           Thrown if the new index cannot be created.
    * @throws IndexServiceException
    *           Thrown if there was a problem adding some of the data back into the index.
+   * @see #recreateIndex(boolean)
    */
   public synchronized void recreateIndex()
           throws InterruptedException, CancellationException, ExecutionException, IOException, IndexServiceException {
-    // Clear index first
-    clear();
-    recreateService(IndexRecreateObject.Service.Groups);
-    recreateService(IndexRecreateObject.Service.Acl);
-    recreateService(IndexRecreateObject.Service.Themes);
-    recreateService(IndexRecreateObject.Service.Series);
-    recreateService(IndexRecreateObject.Service.Scheduler);
-    recreateService(IndexRecreateObject.Service.Workflow);
-    recreateService(IndexRecreateObject.Service.AssetManager);
-    recreateService(IndexRecreateObject.Service.Comments);
+    recreateIndex(recreateResume);
+  }
+
+  /**
+   * Recreate the index from all of the services that provide data.
+   * <p>
+   * The data is written in bulk to a new index while queries are still answered from the current one. Once all
+   * services have sent their data, the name of the index is switched to the new index at once and the old index is
+   * deleted. If the recreation fails, the current index is kept.
+   * <p>
+   * Services that do not depend on each other are recreated concurrently. The services that have been recreated
+   * completely are recorded in a checkpoint as soon as they finish. Resuming continues an interrupted recreation with
+   * the missing services. Since updates made after the interruption may be missing from the partially recreated index
+   * for the services that have already finished, resuming needs to be asked for explicitly.
+   *
+   * @param resume
+   *          whether to resume an interrupted recreation instead of starting over
+   * @throws InterruptedException
+   *           Thrown if the process is interupted.
+   * @throws CancellationException
+   *           Thrown if listeing to messages has been canceled.
+   * @throws ExecutionException
+   *           Thrown if there is a problem executing the process.
+   * @throws IOException
+   *           Thrown if the new index cannot be created.
+   * @throws IndexServiceException
+   *           Thrown if there was a problem adding some of the data back into the index.
+   */
+  public synchronized void recreateIndex(boolean resume)
+          throws InterruptedException, CancellationException, ExecutionException, IOException, IndexServiceException {
+    final long start = System.currentTimeMillis();
+    Set<IndexRecreateObject.Service> completed = EnumSet.noneOf(IndexRecreateObject.Service.class);
+    String target = readRecreateCheckpoint(completed);
+    if (target != null && (!resume || !indexExists(target))) {
+      logger.info("Discarding interrupted recreation of index '{}' into '{}'", getIndexName(), target);
+      deleteIndexQuietly(target);
+      deleteRecreateCheckpoint();
+      completed.clear();
+      target = null;
+    }
+
+    try {
+      target = startRebuild(target, recreateBufferSize);
+    } catch (SearchIndexException e) {
+      throw new IOException("Cannot create new index for index " + getIndexName(), e);
+    }
+    if (completed.isEmpty()) {
+      writeRecreateCheckpoint(target, completed);
+    } else {
+      logger.info("Resuming recreation of index '{}' into '{}', skipping services {}", getIndexName(), target,
+              completed);
+    }
+
+    boolean finished = false;
+    try {
+      for (List<IndexRecreateObject.Service> phase : RECREATE_PHASES) {
+        List<IndexRecreateObject.Service> services = new ArrayList<>(phase);
+        services.removeAll(completed);
+        recreateServices(services, target, completed);
+      }
+      finishRebuild();
+      finished = true;
+    } catch (SearchIndexException e) {
+      throw new IndexServiceException("Cannot switch index " + getIndexName() + " to " + target, e);
+    } finally {
+      if (!finished) {
+        // Keep the partially recreated index only if it can be resumed from
+        abortRebuild(recreateCheckpoint != null);
+      }
+    }
+
+    deleteRecreateCheckpoint();
+    logger.info("Finished recreating index '{}' in {} s", getIndexName(),
+            (System.currentTimeMillis() - start) / 1000);
   }
 
   /**
@@ -199,29 +341,87 @@ public abstract class AbstractSearchIndex extends AbstractElasticsearchIndex {
    */
   private void recreateService(IndexRecreateObject.Service service)
           throws IndexServiceException, InterruptedException, CancellationException, ExecutionException {
-    logger.info("Starting to recreate index for service '{}'", service);
-    messageSender.sendObjectMessage(IndexProducer.RECEIVER_QUEUE + "." + service, MessageSender.DestinationType.Queue,
-            IndexRecreateObject.start(getIndexName(), service));
-    boolean done = false;
-    // TODO Add a timeout for services that are not going to respond.
-    while (!done) {
+    recreateServices(Collections.singletonList(service), null, null);
+  }
+
+  /**
+   * Ask for data to be rebuilt from several services at the same time.
+   *
+   * @param services
+   *          The services to start re-sending the data from.
+   * @param target
+   *          The name of the index that is being recreated, <code>null</code> to not record a checkpoint.
+   * @param completed
+   *          The services that have been recreated completely so far. Each service is added and recorded in the
+   *          checkpoint as soon as it finishes, <code>null</code> to not record a checkpoint.
+   * @return the services in the order they finished re-sending their data
+   * @throws IndexServiceException
+   *           Thrown if there is a problem re-sending the data from a service or if a service stops responding.
+   * @throws InterruptedException
+   *           Thrown if the process of re-sending the data is interupted.
+   * @throws CancellationException
+   *           Thrown if listening to messages has been canceled.
+   * @throws ExecutionException
+   *           Thrown if the process of re-sending the data has an error.
+   */
+  private List<IndexRecreateObject.Service> recreateServices(List<IndexRecreateObject.Service> services,
+          String target, Set<IndexRecreateObject.Service> completed)
+          throws IndexServiceException, InterruptedException, CancellationException, ExecutionException {
+    final Map<IndexRecreateObject.Service, Long> started = new HashMap<>();
+    final List<IndexRecreateObject.Service> finished = new ArrayList<>();
+    for (IndexRecreateObject.Service service : services) {
+      logger.info("Starting to recreate index for service '{}'", service);
+      messageSender.sendObjectMessage(IndexProducer.RECEIVER_QUEUE + "." + service,
+              MessageSender.DestinationType.Queue, IndexRecreateObject.start(getIndexName(), service));
+      started.put(service, System.currentTimeMillis());
+    }
+
+    final Map<IndexRecreateObject.Service, Integer> totals = new HashMap<>();
+    while (finished.size() < services.size()) {
       FutureTask<Serializable> future = messageReceiver.receiveSerializable(IndexProducer.RESPONSE_QUEUE,
               MessageSender.DestinationType.Queue);
       executor.execute(future);
-      BaseMessage message = (BaseMessage) future.get();
+      BaseMessage message;
+      try {
+        message = recreateTimeout > 0 ? (BaseMessage) future.get(recreateTimeout, TimeUnit.SECONDS)
+                : (BaseMessage) future.get();
+      } catch (TimeoutException e) {
+        future.cancel(true);
+        List<IndexRecreateObject.Service> pending = new ArrayList<>(services);
+        pending.removeAll(finished);
+        throw new IndexServiceException(format("Services %s did not respond within %d seconds", pending,
+                recreateTimeout));
+      }
       if (message.getObject() instanceof IndexRecreateObject) {
         IndexRecreateObject indexRecreateObject = (IndexRecreateObject) message.getObject();
         switch (indexRecreateObject.getStatus()) {
           case Update:
             logger.info("Updating service: '{}' with {}/{} finished, {}% complete.", indexRecreateObject.getService(),
                     indexRecreateObject.getCurrent(), indexRecreateObject.getTotal(), (int) (indexRecreateObject.getCurrent() * 100 / indexRecreateObject.getTotal()));
+            totals.put(indexRecreateObject.getService(), indexRecreateObject.getTotal());
             if (indexRecreateObject.getCurrent() == indexRecreateObject.getTotal()) {
               logger.info("Waiting for service '{}' indexing to complete", indexRecreateObject.getService());
             }
             break;
           case End:
-            done = true;
-            logger.info("Finished re-creating data for service '{}'", indexRecreateObject.getService());
+            IndexRecreateObject.Service service = indexRecreateObject.getService();
+            if (!started.containsKey(service) || finished.contains(service)) {
+              logger.warn("Ignoring unexpected end of recreation for service '{}'", service);
+              break;
+            }
+            finished.add(service);
+            if (completed != null) {
+              completed.add(service);
+              writeRecreateCheckpoint(target, completed);
+            }
+            long seconds = Math.max(1, (System.currentTimeMillis() - started.get(service)) / 1000);
+            Integer total = totals.get(service);
+            if (total != null) {
+              logger.info("Finished re-creating data for service '{}': {} items in {} s ({} items/s)", service, total,
+                      seconds, total / seconds);
+            } else {
+              logger.info("Finished re-creating data for service '{}' in {} s", service, seconds);
+            }
             break;
           case Error:
             logger.error("Error updating service '{}' with {}/{} finished.",
@@ -239,6 +439,67 @@ public abstract class AbstractSearchIndex extends AbstractElasticsearchIndex {
         }
       }
     }
+    return finished;
+  }
+
+  /**
+   * Reads the state of an interrupted recreation of the index.
+   *
+   * @param services
+   *          the set to add the services to that have already been recreated
+   * @return the name of the index that has been recreated into, <code>null</code> if there is no interrupted
+   *         recreation
+   */
+  private String readRecreateCheckpoint(Set<IndexRecreateObject.Service> services) {
+    if (recreateCheckpoint == null || !recreateCheckpoint.isFile())
+      return null;
+    try {
+      List<String> lines = FileUtils.readLines(recreateCheckpoint, StandardCharsets.UTF_8);
+      String target = lines.isEmpty() ? null : StringUtils.trimToNull(lines.get(0));
+      if (target == null)
+        throw new IllegalArgumentException("Missing index name");
+      for (String line : lines.subList(1, lines.size())) {
+        if (StringUtils.isNotBlank(line))
+          services.add(IndexRecreateObject.Service.valueOf(line.trim()));
+      }
+      return target;
+    } catch (IOException | IllegalArgumentException e) {
+      logger.warn("Unable to read index recreation checkpoint {}, starting over", recreateCheckpoint, e);
+      deleteRecreateCheckpoint();
+      services.clear();
+      return null;
+    }
+  }
+
+  /**
+   * Records the index that is being recreated and the services that have been recreated completely.
+   *
+   * @param target
+   *          the name of the index that is being recreated
+   * @param services
+   *          the recreated services
+   */
+  private void writeRecreateCheckpoint(String target, Set<IndexRecreateObject.Service> services) {
+    if (recreateCheckpoint == null || target == null)
+      return;
+    List<String> lines = new ArrayList<>();
+    lines.add(target);
+    for (IndexRecreateObject.Service service : services) {
+      lines.add(service.name());
+    }
+    try {
+      FileUtils.writeLines(recreateCheckpoint, StandardCharsets.UTF_8.name(), lines);
+    } catch (IOException e) {
+      logger.warn("Unable to write index recreation checkpoint {}", recreateCheckpoint, e);
+    }
+  }
+
+  /**
+   * Removes the checkpoint after the index has been recreated completely.
+   */
+  private void deleteRecreateCheckpoint() {
+    if (recreateCheckpoint != null)
+      FileUtils.deleteQuietly(recreateCheckpoint);
   }
 
   /**
@@ -367,7 +628,10 @@ public abstract class AbstractSearchIndex extends AbstractElasticsearchIndex {
   public boolean delete(String documentType, String uid) throws SearchIndexException {
     logger.debug("Removing element with id '{}' from searching index '{}'", uid, getIndexName());
 
-    DeleteRequestBuilder deleteRequest = getSearchClient().prepareDelete(getIndexName(), documentType, uid);
+    // Make sure a buffered update does not bring the document back
+    flush();
+
+    DeleteRequestBuilder deleteRequest = getSearchClient().prepareDelete(getWriteIndex(), documentType, uid);
     deleteRequest.setRefreshPolicy(WriteRequest.RefreshPolicy.IMMEDIATE);
     DeleteResponse delete = deleteRequest.execute().actionGet();
     if (delete.getResult() == DocWriteResponse.Result.NOT_FOUND) {
@@ -599,6 +863,144 @@ public abstract class AbstractSearchIndex extends AbstractElasticsearchIndex {
     }
   }
 
+  /**
+   * Returns the latest version of an event that is not visible to queries yet, either because it has been buffered or
+   * because it has been written to the index that is being recreated.
+   *
+   * @param mediapackageId
+   *          the mediapackage identifier
+   * @param organization
+   *          the organization
+   * @return the buffered event or <code>null</code> if there is no buffered update of the event
+   * @throws SearchIndexException
+   *           if the buffered event cannot be read
+   */
+  public Event getBufferedEvent(String mediapackageId, String organization) throws SearchIndexException {
+    SearchMetadataCollection metadata = getBufferedMetadata(Event.DOCUMENT_TYPE, mediapackageId.concat(organization));
+    if (metadata == null)
+      return null;
+    try {
+      return EventIndexUtils.toRecordingEvent(metadata, Event.createUnmarshaller());
+    } catch (IOException e) {
+      throw new SearchIndexException("Cannot read buffered event " + mediapackageId, e);
+    }
+  }
+
+  /**
+   * Returns the latest version of a series that is not visible to queries yet, either because it has been buffered or
+   * because it has been written to the index that is being recreated.
+   *
+   * @param seriesId
+   *          the series identifier
+   * @param organization
+   *          the organization
+   * @return the buffered series or <code>null</code> if there is no buffered update of the series
+   * @throws SearchIndexException
+   *           if the buffered series cannot be read
+   */
+  public Series getBufferedSeries(String seriesId, String organization) throws SearchIndexException {
+    SearchMetadataCollection metadata = getBufferedMetadata(Series.DOCUMENT_TYPE, seriesId.concat(organization));
+    if (metadata == null)
+      return null;
+    try {
+      return SeriesIndexUtils.toSeries(metadata, Series.createUnmarshaller());
+    } catch (IOException e) {
+      throw new SearchIndexException("Cannot read buffered series " + seriesId, e);
+    }
+  }
+
+  /**
+   * Returns the latest version of a group that is not visible to queries yet, either because it has been buffered or
+   * because it has been written to the index that is being recreated.
+   *
+   * @param groupId
+   *          the group identifier
+   * @param organization
+   *          the organization
+   * @return the buffered group or <code>null</code> if there is no buffered update of the group
+   * @throws SearchIndexException
+   *           if the buffered group cannot be read
+   */
+  public Group getBufferedGroup(String groupId, String organization) throws SearchIndexException {
+    SearchMetadataCollection metadata = getBufferedMetadata(Group.DOCUMENT_TYPE, groupId.concat(organization));
+    if (metadata == null)
+      return null;
+    try {
+      return GroupIndexUtils.toGroup(metadata, Group.createUnmarshaller());
+    } catch (IOException e) {
+      throw new SearchIndexException("Cannot read buffered group " + groupId, e);
+    }
+  }
+
+  /**
+   * Returns the latest version of a theme that is not visible to queries yet, either because it has been buffered or
+   * because it has been written to the index that is being recreated.
+   *
+   * @param themeId
+   *          the theme identifier
+   * @param organization
+   *          the organization
+   * @return the buffered theme or <code>null</code> if there is no buffered update of the theme
+   * @throws SearchIndexException
+   *           if the buffered theme cannot be read
+   */
+  public Theme getBufferedTheme(long themeId, String organization) throws SearchIndexException {
+    SearchMetadataCollection metadata = getBufferedMetadata(Theme.DOCUMENT_TYPE,
+            Long.toString(themeId).concat(organization));
+    if (metadata == null)
+      return null;
+    try {
+      return ThemeIndexUtils.toTheme(metadata);
+    } catch (IOException e) {
+      throw new SearchIndexException("Cannot read buffered theme " + themeId, e);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * While the index is recreated, documents that are neither buffered nor have been written to the new index yet
+   * need to be treated as new ones by read-modify-write cycles, since the current index is about to be replaced.
+   */
+  @Override
+  public boolean isRebuilding() {
+    return super.isRebuilding();
+  }
+
+  /**
+   * Returns the metadata of a buffered document in the same form as it is returned by a query. While the index is
+   * recreated, documents that have already been written to the new index are returned as well.
+   *
+   * @param type
+   *          the document type
+   * @param uid
+   *          the document identifier
+   * @return the metadata or <code>null</code> if there is no buffered update of the document
+   * @throws SearchIndexException
+   *           if the document cannot be read from the new index
+   */
+  private SearchMetadataCollection getBufferedMetadata(String type, String uid) throws SearchIndexException {
+    Map<String, Object> doc = getBufferedDocument(type, uid);
+    if (doc == null)
+      doc = getRebuiltDocument(type, uid);
+    if (doc == null)
+      return null;
+    SearchMetadataCollection metadata = new SearchMetadataCollection(type);
+    metadata.setIdentifier(uid);
+    for (Map.Entry<String, Object> field : doc.entrySet()) {
+      SearchMetadata<Object> m = new SearchMetadataImpl<>(field.getKey());
+      if (field.getValue() instanceof Collection) {
+        for (Object v : (Collection<?>) field.getValue()) {
+          m.addValue(v);
+        }
+      } else {
+        m.addValue(field.getValue());
+      }
+      metadata.add(m);
+    }
+    return metadata;
+  }
+
   /**
    * Returns all the known terms for a field (aka facets).
    *
@@ -611,6 +1013,12 @@ public abstract class AbstractSearchIndex extends AbstractElasticsearchIndex {
   public List<String> getTermsForField(String field, Option<String[]> types) {
     final String facetName = "terms";
     AggregationBuilder aggBuilder = AggregationBuilders.terms(facetName).field(field);
+    try {
+      flush();
+    } catch (SearchIndexException e) {
+      logger.error("Unable to write buffered documents before reading the terms of field {}, the terms may be stale",
+              field, e);
+    }
     SearchRequestBuilder search = getSearchClient().prepareSearch(getIndexName()).addAggregation(aggBuilder);
 
     if (types.isSome())
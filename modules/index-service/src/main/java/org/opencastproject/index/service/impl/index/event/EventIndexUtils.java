@@ -337,6 +337,13 @@ public final class EventIndexUtils {
    */
   public static Event getOrCreateEvent(String mediapackageId, String organization, User user,
           AbstractSearchIndex searchIndex) throws SearchIndexException {
+    // Continue with buffered changes that have not been written to the index yet
+    Event bufferedEvent = searchIndex.getBufferedEvent(mediapackageId, organization);
+    if (bufferedEvent != null)
+      return bufferedEvent;
+    // The current index is about to be replaced by the one that is being recreated
+    if (searchIndex.isRebuilding())
+      return new Event(mediapackageId, organization);
     EventSearchQuery query = new EventSearchQuery(organization, user).withoutActions().withIdentifier(mediapackageId);
     SearchResult<Event> searchResult = searchIndex.getByQuery(query);
     if (searchResult.getDocumentCount() == 0) {
@@ -368,6 +375,9 @@ public final class EventIndexUtils {
    */
   public static Event getEvent(String mediapackageId, String organization, User user, AbstractSearchIndex searchIndex)
           throws SearchIndexException {
+    Event bufferedEvent = searchIndex.getBufferedEvent(mediapackageId, organization);
+    if (bufferedEvent != null || searchIndex.isRebuilding())
+      return bufferedEvent;
     EventSearchQuery query = new EventSearchQuery(organization, user).withoutActions().withIdentifier(mediapackageId);
     SearchResult<Event> searchResult = searchIndex.getByQuery(query);
     if (searchResult.getDocumentCount() == 0) {
@@ -498,6 +508,15 @@ public final class EventIndexUtils {
   public static void updateSeriesName(Event event, String organization, User user, AbstractSearchIndex searchIndex,
           int tries, long sleep) throws SearchIndexException {
     if (event.getSeriesId() != null) {
+      // Series are recreated before events, so they may not be visible to queries yet
+      Series bufferedSeries = searchIndex.getBufferedSeries(event.getSeriesId(), organization);
+      if (bufferedSeries != null) {
+        event.setSeriesName(bufferedSeries.getTitle());
+        return;
+      } else if (searchIndex.isRebuilding()) {
+        logger.debug("Series {} of event {} has not been recreated", event.getSeriesId(), event.getIdentifier());
+        return;
+      }
       for (int i = 1; i <= tries; i++) {
         SearchResult<Series> result = searchIndex.getByQuery(
                 new SeriesSearchQuery(organization, user).withoutActions().withIdentifier(event.getSeriesId()));
@@ -111,6 +111,13 @@ public final class GroupIndexUtils {
    */
   public static Group getOrCreate(String groupId, String organization, User user, AbstractSearchIndex searchIndex)
           throws SearchIndexException {
+    // Continue with buffered changes that have not been written to the index yet
+    Group bufferedGroup = searchIndex.getBufferedGroup(groupId, organization);
+    if (bufferedGroup != null)
+      return bufferedGroup;
+    // The current index is about to be replaced by the one that is being recreated
+    if (searchIndex.isRebuilding())
+      return new Group(groupId, organization);
     GroupSearchQuery query = new GroupSearchQuery(organization, user).withoutActions().withIdentifier(groupId);
     SearchResult<Group> searchResult = searchIndex.getByQuery(query);
     if (searchResult.getDocumentCount() == 0) {
@@ -199,6 +199,13 @@ public final class SeriesIndexUtils {
    */
   public static Series getOrCreate(String seriesId, String organization, User user, AbstractSearchIndex searchIndex)
           throws SearchIndexException {
+    // Continue with buffered changes that have not been written to the index yet
+    Series bufferedSeries = searchIndex.getBufferedSeries(seriesId, organization);
+    if (bufferedSeries != null)
+      return bufferedSeries;
+    // The current index is about to be replaced by the one that is being recreated
+    if (searchIndex.isRebuilding())
+      return new Series(seriesId, organization);
     SeriesSearchQuery query = new SeriesSearchQuery(organization, user).withoutActions().withIdentifier(seriesId);
     SearchResult<Series> searchResult = searchIndex.getByQuery(query);
     if (searchResult.getDocumentCount() == 0) {
@@ -238,7 +245,8 @@ public final class SeriesIndexUtils {
 
   public static void updateEventSeriesTitles(Series series, String organization, User user,
           AbstractSearchIndex searchIndex) throws SearchIndexException {
-    if (!series.isSeriesTitleUpdated())
+    // Events that are recreated look up the title of the recreated series themselves
+    if (!series.isSeriesTitleUpdated() || searchIndex.isRebuilding())
       return;
 
     SearchResult<Event> events = searchIndex
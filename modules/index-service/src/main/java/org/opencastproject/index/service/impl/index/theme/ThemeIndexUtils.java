@@ -158,6 +158,13 @@ public final class ThemeIndexUtils {
    */
   public static Theme getOrCreate(long themeId, String organization, User user, AbstractSearchIndex searchIndex)
           throws SearchIndexException {
+    // Continue with buffered changes that have not been written to the index yet
+    Theme bufferedTheme = searchIndex.getBufferedTheme(themeId, organization);
+    if (bufferedTheme != null)
+      return bufferedTheme;
+    // The current index is about to be replaced by the one that is being recreated
+    if (searchIndex.isRebuilding())
+      return new Theme(themeId, organization);
     ThemeSearchQuery query = new ThemeSearchQuery(organization, user).withIdentifier(themeId);
     SearchResult<Theme> searchResult = searchIndex.getByQuery(query);
     if (searchResult.getDocumentCount() == 0) {
@@ -23,6 +23,7 @@ package org.opencastproject.index.service.message;
 
 import org.opencastproject.index.IndexProducer;
 import org.opencastproject.index.service.impl.index.AbstractSearchIndex;
+import org.opencastproject.index.service.message.jmx.MessageReceiverStatistics;
 import org.opencastproject.message.broker.api.BaseMessage;
 import org.opencastproject.message.broker.api.MessageReceiver;
 import org.opencastproject.message.broker.api.MessageSender;
@@ -32,22 +33,58 @@ import org.opencastproject.message.broker.api.index.IndexRecreateObject.Status;
 import org.opencastproject.security.api.SecurityService;
 import org.opencastproject.util.OsgiUtil;
 import org.opencastproject.util.data.Effect2;
+import org.opencastproject.util.jmx.JmxUtil;
 
+import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.osgi.service.component.ComponentContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.Serializable;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
 
+import javax.management.ObjectInstance;
+
+/**
+ * Base class for the receivers updating a search index from the messages of a message broker destination.
+ * <p>
+ * Messages are received by a single watcher thread and handed over to a configurable number of consumers. Messages
+ * are partitioned by the identifier of the item they refer to (usually the media package identifier), so updates of
+ * the same item are applied in order while updates of different items are applied concurrently.
+ */
 public abstract class BaseMessageReceiverImpl<T extends Serializable> {
 
   private static final String DESTINATION_ID_KEY = "destinationId";
+
+  /** Configuration key for the number of consumers processing messages concurrently */
+  public static final String CONSUMERS_KEY = "consumers";
+
+  /** Configuration key for the maximum number of messages waiting to be processed per consumer */
+  public static final String CONSUMER_QUEUE_SIZE_KEY = "consumer.queue.size";
+
+  /** Prefix of the system wide configuration keys used for receivers which are not configured individually */
+  public static final String GLOBAL_KEY_PREFIX = "org.opencastproject.index.message.";
+
+  /** The default number of consumers */
+  public static final int DEFAULT_CONSUMERS = 1;
+
+  /** The default maximum number of messages waiting to be processed per consumer */
+  public static final int DEFAULT_CONSUMER_QUEUE_SIZE = 100;
+
+  /** The time in seconds to wait for the consumers to process the messages already received when deactivating */
+  private static final long CONSUMER_SHUTDOWN_TIMEOUT = 30;
+
+  private static final String JMX_MESSAGE_RECEIVER_TYPE = "MessageReceiver";
+
   private static final Logger logger = LoggerFactory.getLogger(BaseMessageReceiverImpl.class);
   private final ExecutorService singleThreadExecutor = Executors.newSingleThreadExecutor();
 
@@ -55,6 +92,10 @@ public abstract class BaseMessageReceiverImpl<T extends Serializable> {
   private MessageSender messageSender;
   private MessageReceiver messageReceiver;
   private MessageWatcher messageWatcher;
+  private MessageConsumer[] consumers;
+  private ExecutorService consumerExecutor;
+  private MessageReceiverStatistics statistics;
+  private ObjectInstance registeredMXBean;
   private AbstractSearchIndex index;
   private MessageReceiverLockService lockService;
   private String destinationId;
@@ -68,6 +109,26 @@ public abstract class BaseMessageReceiverImpl<T extends Serializable> {
     logger.info("Activating {}", this.getClass().getName());
     destinationId = OsgiUtil.getComponentContextProperty(cc, DESTINATION_ID_KEY);
     logger.info("The {} for this message receiver is '{}'", DESTINATION_ID_KEY, destinationId);
+
+    int consumerCount = getIntProperty(cc, CONSUMERS_KEY, DEFAULT_CONSUMERS);
+    int queueSize = getIntProperty(cc, CONSUMER_QUEUE_SIZE_KEY, DEFAULT_CONSUMER_QUEUE_SIZE);
+    logger.info("Using {} consumers with a queue size of {} for {}", consumerCount, queueSize, destinationId);
+
+    consumers = new MessageConsumer[consumerCount];
+    consumerExecutor = Executors.newFixedThreadPool(consumerCount);
+    for (int i = 0; i < consumerCount; i++) {
+      consumers[i] = new MessageConsumer(queueSize);
+      consumerExecutor.execute(consumers[i]);
+    }
+    statistics = new MessageReceiverStatistics(consumers.length, () -> {
+      long oldest = 0;
+      for (MessageConsumer consumer : consumers) {
+        oldest = Math.max(oldest, consumer.getOldestMessageAge());
+      }
+      return oldest;
+    });
+    registeredMXBean = JmxUtil.registerMXBean(statistics, JMX_MESSAGE_RECEIVER_TYPE + "-" + destinationId);
+
     messageWatcher = new MessageWatcher(lockService);
     singleThreadExecutor.execute(messageWatcher);
   }
@@ -78,6 +139,29 @@ public abstract class BaseMessageReceiverImpl<T extends Serializable> {
       messageWatcher.stopListening();
 
     singleThreadExecutor.shutdown();
+    if (consumerExecutor != null) {
+      // Messages have already been taken off the broker, so give the consumers a chance to apply them
+      for (MessageConsumer consumer : consumers) {
+        consumer.stop();
+      }
+      consumerExecutor.shutdown();
+      try {
+        if (!consumerExecutor.awaitTermination(CONSUMER_SHUTDOWN_TIMEOUT, TimeUnit.SECONDS)) {
+          int pending = 0;
+          for (MessageConsumer consumer : consumers) {
+            pending += consumer.queue.size();
+          }
+          logger.warn("Consumers for {} did not finish within {} seconds, dropping {} unprocessed messages",
+                  destinationId, CONSUMER_SHUTDOWN_TIMEOUT, pending);
+          consumerExecutor.shutdownNow();
+        }
+      } catch (InterruptedException e) {
+        consumerExecutor.shutdownNow();
+        Thread.currentThread().interrupt();
+      }
+    }
+    if (registeredMXBean != null)
+      JmxUtil.unregisterMXBean(registeredMXBean);
   }
 
   protected abstract void execute(T messageContent);
@@ -98,6 +182,62 @@ public abstract class BaseMessageReceiverImpl<T extends Serializable> {
     return securityService;
   }
 
+  /**
+   * Reads a positive integer from the configuration of the component, falling back to the system wide configuration
+   * key {@link #GLOBAL_KEY_PREFIX} followed by the given key.
+   *
+   * @param cc
+   *          the component context
+   * @param key
+   *          the property key
+   * @param defaultValue
+   *          the value to use if the property is missing
+   * @return the configured value
+   */
+  private static int getIntProperty(ComponentContext cc, String key, int defaultValue) {
+    Object value = cc.getProperties().get(key);
+    if ((value == null || StringUtils.isBlank(value.toString())) && cc.getBundleContext() != null)
+      value = cc.getBundleContext().getProperty(GLOBAL_KEY_PREFIX + key);
+    if (value == null || StringUtils.isBlank(value.toString()))
+      return defaultValue;
+    try {
+      int result = Integer.parseInt(value.toString().trim());
+      if (result > 0)
+        return result;
+    } catch (NumberFormatException e) {
+      // Fall through to the warning below
+    }
+    logger.warn("Invalid value '{}' for {}, using default {}", value, key, defaultValue);
+    return defaultValue;
+  }
+
+  /**
+   * Returns the consumer responsible for the given message.
+   *
+   * @param baseMessage
+   *          the message
+   * @return the consumer
+   */
+  private MessageConsumer getConsumer(BaseMessage baseMessage) {
+    if (consumers.length == 1 || baseMessage.getId().isNone())
+      return consumers[0];
+    return consumers[Math.floorMod(baseMessage.getId().get().hashCode(), consumers.length)];
+  }
+
+  /**
+   * Waits until all messages that have been handed over to the consumers so far have been processed.
+   *
+   * @throws InterruptedException
+   *           if the thread is interrupted while waiting
+   */
+  private void awaitConsumers() throws InterruptedException {
+    CountDownLatch latch = new CountDownLatch(consumers.length);
+    for (MessageConsumer consumer : consumers) {
+      consumer.enqueue(new QueuedMessage(null, latch));
+    }
+    latch.await();
+  }
+
   private class MessageWatcher implements Runnable {
 
     private final Logger logger = LoggerFactory.getLogger(MessageWatcher.class);
@@ -128,15 +268,19 @@ public abstract class BaseMessageReceiverImpl<T extends Serializable> {
           if (baseMessage == null) {
             continue;
           }
-          securityService.setOrganization(baseMessage.getOrganization());
-          securityService.setUser(baseMessage.getUser());
-          if (baseMessage.getObject() instanceof IndexRecreateObject) {
+          // Route by the type of the payload, it is only decoded by the consumer applying the message
+          if (IndexRecreateObject.class.getName().equals(baseMessage.getObjectType())) {
             IndexRecreateObject obj = (IndexRecreateObject) baseMessage.getObject();
-            if (Status.End.equals(obj.getStatus()))
+            if (Status.End.equals(obj.getStatus())) {
+              // Only report the end of the index recreation once all of its messages have been applied
+              awaitConsumers();
+              securityService.setOrganization(baseMessage.getOrganization());
+              securityService.setUser(baseMessage.getUser());
               messageSender.sendObjectMessage(IndexProducer.RESPONSE_QUEUE, MessageSender.DestinationType.Queue,
                       IndexRecreateObject.end(obj.getIndexName(), obj.getService()));
+            }
           } else {
-            lockService.synchronize(baseMessage.getId().get(), execute.curry(baseMessage.getObject()).toFn());
+            getConsumer(baseMessage).enqueue(new QueuedMessage(baseMessage, null));
           }
         } catch (InterruptedException e) {
           logger.error("Problem while getting {} message events {}", clazzName, ExceptionUtils.getStackTrace(e));
@@ -155,6 +299,106 @@ public abstract class BaseMessageReceiverImpl<T extends Serializable> {
     }
   }
 
+  /** A received message, or a marker used to wait for the consumer to catch up */
+  private static final class QueuedMessage {
+
+    private final BaseMessage message;
+    private final CountDownLatch marker;
+    private final long received = System.currentTimeMillis();
+
+    QueuedMessage(BaseMessage message, CountDownLatch marker) {
+      this.message = message;
+      this.marker = marker;
+    }
+
+  }
+
+  /** Applies the messages of one partition in the order they have been received. */
+  private class MessageConsumer implements Runnable {
+
+    private final Logger logger = LoggerFactory.getLogger(MessageConsumer.class);
+
+    private final BlockingQueue<QueuedMessage> queue;
+
+    /** Whether the consumer should terminate once its queue is empty */
+    private volatile boolean stopping = false;
+
+    MessageConsumer(int queueSize) {
+      this.queue = new ArrayBlockingQueue<>(queueSize);
+    }
+
+    /**
+     * Hands a message over to this consumer, blocking while the queue is full.
+     *
+     * @param message
+     *          the message
+     * @throws InterruptedException
+     *           if the thread is interrupted while waiting for space in the queue
+     */
+    void enqueue(QueuedMessage message) throws InterruptedException {
+      queue.put(message);
+      if (message.message != null)
+        statistics.messageQueued();
+    }
+
+    /**
+     * Returns the time in milliseconds since the oldest message waiting in this consumer's queue has been received.
+     *
+     * @return the age of the oldest message or <code>0</code> if the queue is empty
+     */
+    long getOldestMessageAge() {
+      QueuedMessage head = queue.peek();
+      return head == null ? 0 : System.currentTimeMillis() - head.received;
+    }
+
+    /**
+     * Asks the consumer to terminate after processing the messages waiting in its queue.
+     */
+    void stop() {
+      stopping = true;
+    }
+
+    @Override
+    public void run() {
+      while (!Thread.currentThread().isInterrupted()) {
+        QueuedMessage queued;
+        try {
+          queued = queue.poll(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          logger.trace("Consumer for {} has been interrupted", destinationId);
+          return;
+        }
+        if (queued == null) {
+          if (stopping) {
+            logger.trace("Consumer for {} has processed all pending messages", destinationId);
+            return;
+          }
+          continue;
+        }
+        if (queued.marker != null) {
+          queued.marker.countDown();
+          continue;
+        }
+
+        BaseMessage baseMessage = queued.message;
+        long start = System.currentTimeMillis();
+        try {
+          securityService.setOrganization(baseMessage.getOrganization());
+          securityService.setUser(baseMessage.getUser());
+          lockService.synchronize(baseMessage.getId().get(), execute.curry(baseMessage.getObject()).toFn());
+        } catch (Throwable t) {
+          logger.error("Problem while processing message {} for {}: {}", baseMessage.getId(), destinationId,
+                  ExceptionUtils.getStackTrace(t));
+        } finally {
+          securityService.setOrganization(null);
+          securityService.setUser(null);
+          long now = System.currentTimeMillis();
+          statistics.messageProcessed(now - start, now - queued.received);
+        }
+      }
+    }
+  }
+
   private final Effect2<Serializable, String> execute = new Effect2<Serializable, String>() {
     @Override
     @SuppressWarnings("unchecked")
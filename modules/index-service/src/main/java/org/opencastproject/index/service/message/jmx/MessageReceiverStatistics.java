@@ -0,0 +1,129 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.index.service.message.jmx;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+public class MessageReceiverStatistics implements MessageReceiverStatisticsMXBean {
+
+  private final int consumers;
+  private final LongSupplier oldestQueuedMessageAge;
+  private final AtomicLong queued = new AtomicLong();
+  private final AtomicLong processed = new AtomicLong();
+  private final AtomicLong totalProcessingTime = new AtomicLong();
+  private final AtomicLong totalLag = new AtomicLong();
+  private volatile long lastLag = 0;
+
+  /**
+   * Creates the statistics of a message receiver.
+   *
+   * @param consumers
+   *          the number of consumers
+   * @param oldestQueuedMessageAge
+   *          supplies the age of the oldest message that is waiting to be processed
+   */
+  public MessageReceiverStatistics(int consumers, LongSupplier oldestQueuedMessageAge) {
+    this.consumers = consumers;
+    this.oldestQueuedMessageAge = oldestQueuedMessageAge;
+  }
+
+  /** Records that a message has been handed over to a consumer. */
+  public void messageQueued() {
+    queued.incrementAndGet();
+  }
+
+  /**
+   * Records that a message has been processed.
+   *
+   * @param processingTime
+   *          the time it took to apply the message in milliseconds
+   * @param lag
+   *          the time between receiving the message and having it applied in milliseconds
+   */
+  public void messageProcessed(long processingTime, long lag) {
+    processed.incrementAndGet();
+    totalProcessingTime.addAndGet(processingTime);
+    totalLag.addAndGet(lag);
+    lastLag = lag;
+  }
+
+  /**
+   * @see org.opencastproject.index.service.message.jmx.MessageReceiverStatisticsMXBean#getConsumers()
+   */
+  @Override
+  public int getConsumers() {
+    return consumers;
+  }
+
+  /**
+   * @see org.opencastproject.index.service.message.jmx.MessageReceiverStatisticsMXBean#getQueuedMessages()
+   */
+  @Override
+  public long getQueuedMessages() {
+    return Math.max(0, queued.get() - processed.get());
+  }
+
+  /**
+   * @see org.opencastproject.index.service.message.jmx.MessageReceiverStatisticsMXBean#getProcessedMessages()
+   */
+  @Override
+  public long getProcessedMessages() {
+    return processed.get();
+  }
+
+  /**
+   * @see org.opencastproject.index.service.message.jmx.MessageReceiverStatisticsMXBean#getOldestQueuedMessageAge()
+   */
+  @Override
+  public long getOldestQueuedMessageAge() {
+    return oldestQueuedMessageAge.getAsLong();
+  }
+
+  /**
+   * @see org.opencastproject.index.service.message.jmx.MessageReceiverStatisticsMXBean#getAverageProcessingTime()
+   */
+  @Override
+  public long getAverageProcessingTime() {
+    long count = processed.get();
+    return count == 0 ? 0 : totalProcessingTime.get() / count;
+  }
+
+  /**
+   * @see org.opencastproject.index.service.message.jmx.MessageReceiverStatisticsMXBean#getAverageLag()
+   */
+  @Override
+  public long getAverageLag() {
+    long count = processed.get();
+    return count == 0 ? 0 : totalLag.get() / count;
+  }
+
+  /**
+   * @see org.opencastproject.index.service.message.jmx.MessageReceiverStatisticsMXBean#getLastLag()
+   */
+  @Override
+  public long getLastLag() {
+    return lastLag;
+  }
+
+}
@@ -0,0 +1,79 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.index.service.message.jmx;
+
+/**
+ * JMX Bean interface exposing the processing statistics of a message receiver
+ */
+public interface MessageReceiverStatisticsMXBean {
+
+  /**
+   * Gets the number of consumers processing messages concurrently
+   *
+   * @return the number of consumers
+   */
+  int getConsumers();
+
+  /**
+   * Gets the number of received messages that have not been processed yet
+   *
+   * @return the number of waiting messages
+   */
+  long getQueuedMessages();
+
+  /**
+   * Gets the number of processed messages
+   *
+   * @return the number of processed messages
+   */
+  long getProcessedMessages();
+
+  /**
+   * Gets the time since the oldest waiting message has been received
+   *
+   * @return the age of the oldest waiting message in milliseconds
+   */
+  long getOldestQueuedMessageAge();
+
+  /**
+   * Gets the average time it took to apply a message to the index
+   *
+   * @return the average processing time in milliseconds
+   */
+  long getAverageProcessingTime();
+
+  /**
+   * Gets the average time between receiving a message and having it applied to the index
+   *
+   * @return the average lag in milliseconds
+   */
+  long getAverageLag();
+
+  /**
+   * Gets the time between receiving the last processed message and having it applied to the index
+   *
+   * @return the lag of the last processed message in milliseconds
+   */
+  long getLastLag();
+
+}
@@ -69,6 +69,8 @@ public class EventIndexUtilsTest {
     EasyMock.expect(event.getIdentifier()).andReturn(eventId).anyTimes();
 
     AbstractSearchIndex searchIndex = EasyMock.createMock(AbstractSearchIndex.class);
+    EasyMock.expect(searchIndex.getBufferedSeries(seriesId, defaultOrganization.getId())).andReturn(null);
+    EasyMock.expect(searchIndex.isRebuilding()).andReturn(false);
     EasyMock.expect(searchIndex.getByQuery(EasyMock.anyObject(SeriesSearchQuery.class))).andReturn(emptyResult);
     EasyMock.expect(searchIndex.getByQuery(EasyMock.anyObject(SeriesSearchQuery.class))).andReturn(emptyResult);
     EasyMock.expect(searchIndex.getByQuery(EasyMock.anyObject(SeriesSearchQuery.class))).andReturn(emptyResult);
@@ -107,6 +109,8 @@ public class EventIndexUtilsTest {
     EasyMock.expectLastCall();
 
     AbstractSearchIndex searchIndex = EasyMock.createMock(AbstractSearchIndex.class);
+    EasyMock.expect(searchIndex.getBufferedSeries(seriesId, defaultOrganization.getId())).andReturn(null);
+    EasyMock.expect(searchIndex.isRebuilding()).andReturn(false);
     EasyMock.expect(searchIndex.getByQuery(EasyMock.anyObject(SeriesSearchQuery.class))).andReturn(eventuallyResult);
     EasyMock.expect(searchIndex.getByQuery(EasyMock.anyObject(SeriesSearchQuery.class))).andReturn(eventuallyResult);
     EasyMock.expect(searchIndex.getByQuery(EasyMock.anyObject(SeriesSearchQuery.class))).andReturn(eventuallyResult);
@@ -116,4 +120,28 @@ public class EventIndexUtilsTest {
     EventIndexUtils.updateSeriesName(event, defaultOrganization.getId(), user, searchIndex, 3, 50L);
   }
 
+  @Test
+  public void testUpdateSeriesNameInputSeriesNotVisibleToQueriesExpectsSetsName() throws SearchIndexException {
+    // Input data
+    String seriesId = "my_series";
+
+    // Mocks
+    Series series = EasyMock.createMock(Series.class);
+    EasyMock.expect(series.getTitle()).andReturn("Recreated");
+
+    Event event = EasyMock.createMock(Event.class);
+    EasyMock.expect(event.getSeriesId()).andReturn(seriesId).anyTimes();
+    event.setSeriesName("Recreated");
+    EasyMock.expectLastCall();
+
+    // Buffered or recreated series are used without querying the index
+    AbstractSearchIndex searchIndex = EasyMock.createMock(AbstractSearchIndex.class);
+    EasyMock.expect(searchIndex.getBufferedSeries(seriesId, defaultOrganization.getId())).andReturn(series);
+
+    EasyMock.replay(event, searchIndex, series);
+    // Run test
+    EventIndexUtils.updateSeriesName(event, defaultOrganization.getId(), user, searchIndex, 3, 50L);
+    EasyMock.verify(event, searchIndex);
+  }
+
 }
@@ -0,0 +1,203 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package org.opencastproject.index.service.message;
+
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.opencastproject.message.broker.api.BaseMessage;
+import org.opencastproject.message.broker.api.MessageItem;
+import org.opencastproject.message.broker.api.MessageReceiver;
+import org.opencastproject.message.broker.api.MessageSender;
+import org.opencastproject.message.broker.api.MessageSender.DestinationType;
+import org.opencastproject.security.api.DefaultOrganization;
+import org.opencastproject.security.api.SecurityService;
+
+import org.junit.After;
+import org.junit.Test;
+import org.osgi.framework.BundleContext;
+import org.osgi.service.component.ComponentContext;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class BaseMessageReceiverImplTest {
+
+  private static final int ITEMS = 8;
+
+  private final DefaultOrganization organization = new DefaultOrganization();
+  private final SecurityService securityService = TestSearchIndex.createSecurityService(organization);
+  private final BlockingQueue<BaseMessage> messages = new LinkedBlockingQueue<>();
+  private TestReceiver receiver;
+
+  @After
+  public void tearDown() {
+    if (receiver != null)
+      receiver.deactivate(null);
+  }
+
+  @Test
+  public void testMessagesOfSameItemAreAppliedInOrder() throws Exception {
+    final int updates = 50;
+    final Hashtable<String, Object> properties = new Hashtable<>();
+    properties.put(BaseMessageReceiverImpl.CONSUMERS_KEY, "4");
+    start("TEST.Ordered", properties, null, ITEMS * updates);
+
+    // interleave the updates of the items so that they are spread over all consumers
+    for (int update = 0; update < updates; update++) {
+      for (int item = 0; item < ITEMS; item++) {
+        send(new TestItem("mp-" + item, update));
+      }
+    }
+    assertTrue(receiver.done.await(30, TimeUnit.SECONDS));
+
+    final List<Integer> expected = new ArrayList<>();
+    for (int update = 0; update < updates; update++) {
+      expected.add(update);
+    }
+    assertEquals(ITEMS, receiver.applied.size());
+    for (int item = 0; item < ITEMS; item++) {
+      assertEquals("Updates of mp-" + item, expected, receiver.applied.get("mp-" + item));
+    }
+    assertEquals(4, receiver.threads.size());
+  }
+
+  @Test
+  public void testConsumersAreConfiguredSystemWide() throws Exception {
+    start("TEST.SystemWide", new Hashtable<>(), "4", ITEMS);
+    for (int item = 0; item < ITEMS; item++) {
+      send(new TestItem("mp-" + item, 0));
+    }
+    assertTrue(receiver.done.await(30, TimeUnit.SECONDS));
+    assertEquals(4, receiver.threads.size());
+  }
+
+  @Test
+  public void testSingleConsumerByDefault() throws Exception {
+    start("TEST.Default", new Hashtable<>(), null, ITEMS);
+    for (int item = 0; item < ITEMS; item++) {
+      send(new TestItem("mp-" + item, 0));
+    }
+    assertTrue(receiver.done.await(30, TimeUnit.SECONDS));
+    assertEquals(1, receiver.threads.size());
+  }
+
+  private void start(String destinationId, Hashtable<String, Object> properties, String systemConsumers,
+          int expectedMessages) {
+    properties.put("destinationId", destinationId);
+    final BundleContext bundleContext = createNiceMock(BundleContext.class);
+    expect(bundleContext.getProperty(BaseMessageReceiverImpl.GLOBAL_KEY_PREFIX + BaseMessageReceiverImpl.CONSUMERS_KEY))
+            .andReturn(systemConsumers).anyTimes();
+    replay(bundleContext);
+    final ComponentContext cc = createNiceMock(ComponentContext.class);
+    expect(cc.getProperties()).andReturn(properties).anyTimes();
+    expect(cc.getBundleContext()).andReturn(bundleContext).anyTimes();
+    replay(cc);
+
+    final MessageSender sender = createNiceMock(MessageSender.class);
+    replay(sender);
+
+    receiver = new TestReceiver(expectedMessages);
+    receiver.setSecurityService(securityService);
+    receiver.setMessageSender(sender);
+    receiver.setMessageReceiver(new MessageReceiver() {
+      @Override
+      public FutureTask<Serializable> receiveSerializable(String destinationId, DestinationType type) {
+        return new FutureTask<>(messages::take);
+      }
+
+      @Override
+      public boolean isConnected() {
+        return true;
+      }
+
+      @Override
+      public boolean reconnect() {
+        return true;
+      }
+    });
+    receiver.setMessageReceiverLockService(new MessageReceiverLockService());
+    receiver.activate(cc);
+  }
+
+  private void send(TestItem item) {
+    messages.add(new BaseMessage(organization, securityService.getUser(), item));
+  }
+
+  private static final class TestItem implements MessageItem {
+    private static final long serialVersionUID = 1L;
+
+    private final String id;
+    private final int update;
+
+    TestItem(String id, int update) {
+      this.id = id;
+      this.update = update;
+    }
+
+    @Override
+    public String getId() {
+      return id;
+    }
+  }
+
+  /** Records the order in which the updates of each item are applied and the threads applying them. */
+  private static final class TestReceiver extends BaseMessageReceiverImpl<TestItem> {
+    private final Map<String, List<Integer>> applied = new ConcurrentHashMap<>();
+    private final Set<String> threads = ConcurrentHashMap.newKeySet();
+    private final CountDownLatch done;
+
+    TestReceiver(int expectedMessages) {
+      super(DestinationType.Queue);
+      done = new CountDownLatch(expectedMessages);
+    }
+
+    @Override
+    protected void execute(TestItem item) {
+      threads.add(Thread.currentThread().getName());
+      // give the consumers of other items a chance to overtake this one
+      if (item.update % 7 == 0) {
+        try {
+          Thread.sleep(1);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      applied.computeIfAbsent(item.id, id -> Collections.synchronizedList(new ArrayList<>())).add(item.update);
+      done.countDown();
+    }
+  }
+
+}
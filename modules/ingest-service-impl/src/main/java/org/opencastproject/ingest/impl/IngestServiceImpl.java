@@ -65,6 +65,8 @@ import org.opencastproject.series.api.SeriesService;
 import org.opencastproject.serviceregistry.api.ServiceRegistry;
 import org.opencastproject.serviceregistry.api.ServiceRegistryException;
 import org.opencastproject.smil.api.util.SmilUtil;
+import org.opencastproject.util.Checksum;
+import org.opencastproject.util.ChecksumType;
 import org.opencastproject.util.ConfigurationException;
 import org.opencastproject.util.IoSupport;
 import org.opencastproject.util.LoadUtil;
@@ -546,18 +548,46 @@ public class IngestServiceImpl extends AbstractJobProducer implements IngestServ
         logger.warn("Mediapackage {} has no media tracks", mediaPackageId);
       }
 
-      // Update the element uris to point to their working file repository location
-      for (MediaPackageElement element : mp.elements()) {
+      // Map all elements to their zip entries and verify them before anything is moved out of the collection, so
+      // that an invalid zip does not touch the files of an existing mediapackage
+      MediaPackageElement[] elements = mp.elements();
+      String[] keys = new String[elements.length];
+      Checksum[] checksums = new Checksum[elements.length];
+      for (int i = 0; i < elements.length; i++) {
+        MediaPackageElement element = elements[i];
         // Key has root folder name if there is one
-        URI uri = uris.get((hasRootFolder ? folderName + "/" : "") + element.getURI().toString());
-
+        keys[i] = (hasRootFolder ? folderName + "/" : "") + element.getURI().toString();
+        URI uri = uris.get(keys[i]);
         if (uri == null)
           throw new MediaPackageException("Unable to map element name '" + element.getURI() + "' to workspace uri");
+
+        // The working file repository has calculated the md5 hash while storing the file
+        String md5 = workingFileRepository.getCollectionElementDigest(wfrCollectionId,
+                FilenameUtils.getName(uri.toString()));
+        if (md5 != null)
+          checksums[i] = Checksum.create(ChecksumType.DEFAULT_TYPE, md5);
+        if (checksums[i] != null && element.getChecksum() != null
+                && element.getChecksum().getType().equals(checksums[i].getType())
+                && !element.getChecksum().equals(checksums[i]))
+          throw new MediaPackageException("Checksum of mediapackage element " + element.getIdentifier() + " ("
+                  + element.getChecksum().getValue() + ") does not match the received data (" + md5 + ")");
+      }
+
+      // Update the element uris to point to their working file repository location
+      for (int i = 0; i < elements.length; i++) {
+        MediaPackageElement element = elements[i];
+        String key = keys[i];
+        URI uri = uris.get(key);
         logger.info("Ingested mediapackage element {}/{} located at {}", mediaPackageId, element.getIdentifier(), uri);
+        // Moving the file is a rename within the working file repository, the data is not copied again
         URI dest = workingFileRepository.moveTo(wfrCollectionId, FilenameUtils.getName(uri.toString()), mediaPackageId,
                 element.getIdentifier(), FilenameUtils.getName(element.getURI().toString()));
         element.setURI(dest);
 
+        // Reuse the checksum of the working file repository so that the file does not need to be read again later
+        if (element.getChecksum() == null)
+          element.setChecksum(checksums[i]);
+
         // TODO: This should be triggered somehow instead of being handled here
         if (MediaPackageElements.SERIES.equals(element.getFlavor())) {
           logger.info("Ingested mediapackage {} contains updated series information", mediaPackageId);
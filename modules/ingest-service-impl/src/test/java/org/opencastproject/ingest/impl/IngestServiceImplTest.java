@@ -32,6 +32,7 @@ import org.opencastproject.mediapackage.MediaPackage;
 import org.opencastproject.mediapackage.MediaPackageElement;
 import org.opencastproject.mediapackage.MediaPackageElementParser;
 import org.opencastproject.mediapackage.MediaPackageElements;
+import org.opencastproject.mediapackage.MediaPackageException;
 import org.opencastproject.mediapackage.MediaPackageParser;
 import org.opencastproject.mediapackage.Publication;
 import org.opencastproject.mediapackage.Track;
@@ -54,6 +55,8 @@ import org.opencastproject.security.api.UserDirectoryService;
 import org.opencastproject.series.api.SeriesService;
 import org.opencastproject.serviceregistry.api.IncidentService;
 import org.opencastproject.serviceregistry.api.ServiceRegistryInMemoryImpl;
+import org.opencastproject.util.Checksum;
+import org.opencastproject.util.ChecksumType;
 import org.opencastproject.util.MimeTypes;
 import org.opencastproject.util.NotFoundException;
 import org.opencastproject.util.XmlUtil;
@@ -68,6 +71,7 @@ import org.opencastproject.workingfilerepository.api.WorkingFileRepository;
 import org.opencastproject.workingfilerepository.impl.WorkingFileRepositoryImpl;
 
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.reflect.FieldUtils;
 import org.apache.http.Header;
@@ -76,6 +80,7 @@ import org.apache.http.HttpResponse;
 import org.apache.http.StatusLine;
 import org.apache.http.client.methods.HttpGet;
 import org.easymock.Capture;
+import org.easymock.CaptureType;
 import org.easymock.EasyMock;
 import org.easymock.IAnswer;
 import org.junit.After;
@@ -87,16 +92,29 @@ import org.w3c.dom.Document;
 import org.xml.sax.InputSource;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Dictionary;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Hashtable;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
 
 public class IngestServiceImplTest {
   private IngestServiceImpl service = null;
@@ -376,6 +394,181 @@ public class IngestServiceImplTest {
 
   }
 
+  @Test
+  public void testZippedMediaPackageWithManifestFirst() throws Exception {
+    testZippedMediaPackage(true);
+  }
+
+  @Test
+  public void testZippedMediaPackageWithManifestLast() throws Exception {
+    testZippedMediaPackage(false);
+  }
+
+  private void testZippedMediaPackage(boolean manifestFirst) throws Exception {
+    final List<String> stored = new ArrayList<>();
+    final Capture<String> moved = EasyMock.newCapture(CaptureType.ALL);
+    final Capture<String> deleted = EasyMock.newCapture(CaptureType.ALL);
+    service.setWorkingFileRepository(createZipRepository(stored, moved, deleted));
+
+    final WorkflowInstance instance = service.addZippedMediaPackage(
+            new ByteArrayInputStream(createZip(manifestFirst, null, true)));
+    Assert.assertEquals(workflowInstanceID, instance.getId());
+
+    // All files are staged in the collection and moved to their elements afterwards
+    Assert.assertEquals(6, stored.size());
+    Assert.assertEquals(new HashSet<>(Arrays.asList("track-1", "track-2", "catalog-1", "catalog-2", "catalog-3")),
+            new HashSet<>(moved.getValues()));
+    Assert.assertEquals(new HashSet<>(stored), new HashSet<>(deleted.getValues()));
+
+    // The checksums of the elements are the ones of the received files
+    final Map<String, String> entryChecksums = getZipEntryChecksums();
+    final MediaPackage mp = instance.getMediaPackage();
+    Assert.assertEquals(5, mp.elements().length);
+    for (MediaPackageElement element : mp.elements()) {
+      Assert.assertEquals(Checksum.create(ChecksumType.DEFAULT_TYPE,
+              entryChecksums.get("data/" + FilenameUtils.getName(element.getURI().toString()))),
+              element.getChecksum());
+    }
+  }
+
+  @Test
+  public void testZippedMediaPackageWithChecksumMismatch() throws Exception {
+    final List<String> stored = new ArrayList<>();
+    final Capture<String> moved = EasyMock.newCapture(CaptureType.ALL);
+    final Capture<String> deleted = EasyMock.newCapture(CaptureType.ALL);
+    service.setWorkingFileRepository(createZipRepository(stored, moved, deleted));
+
+    try {
+      // The manifest of the test media package does not contain the checksums of its files
+      service.addZippedMediaPackage(new ByteArrayInputStream(createZip(true, null, false)));
+      Assert.fail("Ingest of a zip with wrong checksums must fail");
+    } catch (MediaPackageException e) {
+      // expected
+    }
+
+    // Nothing has been moved to the mediapackage, all staged files are removed
+    Assert.assertEquals(6, stored.size());
+    Assert.assertFalse(moved.hasCaptured());
+    Assert.assertEquals(new HashSet<>(stored), new HashSet<>(deleted.getValues()));
+  }
+
+  @Test
+  public void testZippedMediaPackageWithMissingFile() throws Exception {
+    final List<String> stored = new ArrayList<>();
+    final Capture<String> moved = EasyMock.newCapture(CaptureType.ALL);
+    final Capture<String> deleted = EasyMock.newCapture(CaptureType.ALL);
+    service.setWorkingFileRepository(createZipRepository(stored, moved, deleted));
+
+    try {
+      service.addZippedMediaPackage(new ByteArrayInputStream(createZip(true, "data/vonly.mov", true)));
+      Assert.fail("Ingest of a zip with missing files must fail");
+    } catch (MediaPackageException e) {
+      // expected
+    }
+
+    // Nothing has been moved to the mediapackage, all staged files are removed
+    Assert.assertEquals(5, stored.size());
+    Assert.assertFalse(moved.hasCaptured());
+    Assert.assertEquals(new HashSet<>(stored), new HashSet<>(deleted.getValues()));
+  }
+
+  /**
+   * Creates a working file repository mock recording the files stored in collections, the elements files are moved to
+   * and the files deleted from collections. Like the real repository, the mock calculates the md5 hashes of the stored
+   * files.
+   */
+  private WorkingFileRepository createZipRepository(List<String> stored, Capture<String> moved,
+          Capture<String> deleted) throws Exception {
+    final Map<String, String> digests = new HashMap<>();
+    final WorkingFileRepository repository = EasyMock.createNiceMock(WorkingFileRepository.class);
+    EasyMock.expect(repository.putInCollection(EasyMock.anyString(), EasyMock.anyString(),
+            EasyMock.anyObject(InputStream.class))).andAnswer(() -> {
+              final String fileName = (String) EasyMock.getCurrentArguments()[1];
+              digests.put(fileName, Checksum.create(ChecksumType.DEFAULT_TYPE,
+                      (InputStream) EasyMock.getCurrentArguments()[2]).getValue());
+              stored.add(fileName);
+              return URI.create("http://localhost/files/collection/ingest/" + fileName);
+            }).anyTimes();
+    EasyMock.expect(repository.getCollectionElementDigest(EasyMock.anyString(), EasyMock.anyString()))
+            .andAnswer(() -> digests.get((String) EasyMock.getCurrentArguments()[1])).anyTimes();
+    EasyMock.expect(repository.moveTo(EasyMock.anyString(), EasyMock.anyString(), EasyMock.anyString(),
+            EasyMock.capture(moved), EasyMock.anyString())).andAnswer(() -> URI.create(
+                    "http://localhost/files/mediapackage/" + EasyMock.getCurrentArguments()[2] + "/"
+                            + EasyMock.getCurrentArguments()[3] + "/" + EasyMock.getCurrentArguments()[4]))
+            .anyTimes();
+    EasyMock.expect(repository.deleteFromCollection(EasyMock.anyString(), EasyMock.capture(deleted),
+            EasyMock.eq(true))).andReturn(true).anyTimes();
+    EasyMock.replay(repository);
+    return repository;
+  }
+
+  /** Returns the md5 checksums of the entries of the test media package. */
+  private static Map<String, String> getZipEntryChecksums() throws IOException {
+    final Map<String, String> checksums = new HashMap<>();
+    try (ZipInputStream in = new ZipInputStream(urlPackage.toURL().openStream())) {
+      ZipEntry entry;
+      while ((entry = in.getNextEntry()) != null) {
+        if (!entry.isDirectory())
+          checksums.put(entry.getName(), Checksum.create(ChecksumType.DEFAULT_TYPE,
+                  new ByteArrayInputStream(IOUtils.toByteArray(in))).getValue());
+      }
+    }
+    return checksums;
+  }
+
+  /**
+   * Repackages the test media package with the manifest as first or last entry.
+   *
+   * @param omit
+   *          name of an entry to leave out or <code>null</code>
+   * @param fixChecksums
+   *          whether to replace the checksums of the manifest with the ones of the files
+   */
+  private static byte[] createZip(boolean manifestFirst, String omit, boolean fixChecksums) throws IOException {
+    final Map<String, byte[]> entries = new LinkedHashMap<>();
+    try (ZipInputStream in = new ZipInputStream(urlPackage.toURL().openStream())) {
+      ZipEntry entry;
+      while ((entry = in.getNextEntry()) != null) {
+        if (!entry.isDirectory() && !entry.getName().equals(omit))
+          entries.put(entry.getName(), IOUtils.toByteArray(in));
+      }
+    }
+    if (fixChecksums) {
+      final Map<String, String> checksums = getZipEntryChecksums();
+      final Matcher matcher = Pattern.compile("<url>(.*?)</url>(\\s*)<checksum type=\"md5\">\\w*</checksum>")
+              .matcher(new String(entries.get("data/manifest.xml"), StandardCharsets.UTF_8));
+      final StringBuffer manifest = new StringBuffer();
+      while (matcher.find()) {
+        matcher.appendReplacement(manifest, "<url>$1</url>$2<checksum type=\"md5\">"
+                + checksums.get("data/" + matcher.group(1)) + "</checksum>");
+      }
+      matcher.appendTail(manifest);
+      entries.put("data/manifest.xml", manifest.toString().getBytes(StandardCharsets.UTF_8));
+    }
+    final List<String> names = new ArrayList<>(entries.keySet());
+    names.remove("data/manifest.xml");
+    names.add(manifestFirst ? 0 : names.size(), "data/manifest.xml");
+
+    final ByteArrayOutputStream zip = new ByteArrayOutputStream();
+    try (ZipOutputStream out = new ZipOutputStream(zip)) {
+      for (String name : names) {
+        // Store the entries uncompressed so that their sizes are in the local headers, like in the original zip
+        final byte[] data = entries.get(name);
+        final CRC32 crc = new CRC32();
+        crc.update(data);
+        final ZipEntry entry = new ZipEntry(name);
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(data.length);
+        entry.setCompressedSize(data.length);
+        entry.setCrc(crc.getValue());
+        out.putNextEntry(entry);
+        out.write(data);
+        out.closeEntry();
+      }
+    }
+    return zip.toByteArray();
+  }
+
   @Test
   public void testContentDisposition() throws Exception {
     MediaPackage mediaPackage = null;
@@ -21,10 +21,12 @@
 
 package org.opencastproject.kernel.http.impl;
 
-
-
 import org.opencastproject.kernel.http.api.HttpClient;
 
+import org.apache.commons.lang3.math.NumberUtils;
+import org.apache.http.client.AuthCache;
+import org.apache.http.impl.conn.SchemeRegistryFactory;
+import org.osgi.framework.BundleContext;
 import org.osgi.service.cm.ConfigurationException;
 import org.osgi.service.cm.ManagedService;
 import org.osgi.service.component.ComponentContext;
@@ -32,12 +34,63 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Dictionary;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
-/** Creates HttpClients that can be used for making requests such as GET, POST etc.*/
+/**
+ * Creates HttpClients that can be used for making requests such as GET, POST etc. All clients share a pool of
+ * keep-alive connections per host as well as the authentication state of the hosts they have talked to.
+ */
 public class HttpClientFactory implements ManagedService {
   /** The logger */
   private static final Logger logger = LoggerFactory.getLogger(HttpClientFactory.class);
 
+  /** The configuration key for the maximum number of pooled connections */
+  public static final String MAX_CONNECTIONS_KEY = "org.opencastproject.http.client.max.connections";
+
+  /** The configuration key for the maximum number of pooled connections to a single host */
+  public static final String MAX_CONNECTIONS_PER_HOST_KEY = "org.opencastproject.http.client.max.connections.per.host";
+
+  /** The configuration key for the number of seconds after which idle connections are closed */
+  public static final String IDLE_TIMEOUT_KEY = "org.opencastproject.http.client.idle.timeout";
+
+  /** The configuration key for the number of seconds to wait for a pooled connection */
+  public static final String CONNECTION_REQUEST_TIMEOUT_KEY
+          = "org.opencastproject.http.client.connection.request.timeout";
+
+  /** The default maximum number of pooled connections */
+  public static final int DEFAULT_MAX_CONNECTIONS = 400;
+
+  /** The default maximum number of pooled connections to a single host */
+  public static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 100;
+
+  /** The default number of seconds after which idle connections are closed */
+  public static final int DEFAULT_IDLE_TIMEOUT = 30;
+
+  /** The default number of seconds to wait for a pooled connection */
+  public static final int DEFAULT_CONNECTION_REQUEST_TIMEOUT = 60;
+
+  /** The maximum number of pooled connections */
+  private int maxConnections = DEFAULT_MAX_CONNECTIONS;
+
+  /** The maximum number of pooled connections to a single host */
+  private int maxConnectionsPerHost = DEFAULT_MAX_CONNECTIONS_PER_HOST;
+
+  /** The number of seconds after which idle connections are closed */
+  private int idleTimeout = DEFAULT_IDLE_TIMEOUT;
+
+  /** The number of seconds to wait for a pooled connection */
+  private int connectionRequestTimeout = DEFAULT_CONNECTION_REQUEST_TIMEOUT;
+
+  /** The connection pool shared by all clients */
+  private PooledConnectionManager connectionManager = null;
+
+  /** Closes expired and idle connections of the pool */
+  private ScheduledExecutorService idleConnectionMonitor = null;
+
+  /** The authentication cache shared by all clients */
+  private final AuthCache authCache = new SharedAuthCache();
 
   /**
    * Callback from the OSGi container once this service is started. This is where we register our shell commands.
@@ -47,13 +100,30 @@ public class HttpClientFactory implements ManagedService {
    */
   public void activate(ComponentContext componentContext) {
     logger.debug("Starting up");
+    final BundleContext bundleContext = componentContext.getBundleContext();
+    maxConnections = NumberUtils.toInt(bundleContext.getProperty(MAX_CONNECTIONS_KEY), DEFAULT_MAX_CONNECTIONS);
+    maxConnectionsPerHost = NumberUtils.toInt(bundleContext.getProperty(MAX_CONNECTIONS_PER_HOST_KEY),
+            DEFAULT_MAX_CONNECTIONS_PER_HOST);
+    idleTimeout = NumberUtils.toInt(bundleContext.getProperty(IDLE_TIMEOUT_KEY), DEFAULT_IDLE_TIMEOUT);
+    connectionRequestTimeout = NumberUtils.toInt(bundleContext.getProperty(CONNECTION_REQUEST_TIMEOUT_KEY),
+            DEFAULT_CONNECTION_REQUEST_TIMEOUT);
+    logger.info("Pooling up to {} http connections, {} per host, closing them after {} seconds of inactivity",
+            maxConnections, maxConnectionsPerHost, idleTimeout);
   }
 
   /**
    * Deactivates the service
    */
-  public void deactivate() {
+  public synchronized void deactivate() {
     logger.debug("Shutting down");
+    if (idleConnectionMonitor != null) {
+      idleConnectionMonitor.shutdownNow();
+      idleConnectionMonitor = null;
+    }
+    if (connectionManager != null) {
+      connectionManager.shutdown();
+      connectionManager = null;
+    }
   }
 
   /** Updates the properties for this service. */
@@ -65,6 +135,32 @@ public class HttpClientFactory implements ManagedService {
 
   /** Creates a new HttpClient to make requests.*/
   public HttpClient makeHttpClient() {
-    return new HttpClientImpl();
+    return new HttpClientImpl(getConnectionManager(), authCache, TimeUnit.SECONDS.toMillis(connectionRequestTimeout));
+  }
+
+  /**
+   * Returns the connection pool shared by all clients, creating it on first use.
+   *
+   * @return the connection pool
+   */
+  public synchronized PooledConnectionManager getConnectionManager() {
+    if (connectionManager == null) {
+      connectionManager = new PooledConnectionManager(
+              HttpClientImpl.registerForgivingHttpsScheme(SchemeRegistryFactory.createDefault()));
+      connectionManager.setMaxTotal(maxConnections);
+      connectionManager.setDefaultMaxPerRoute(maxConnectionsPerHost);
+      final PooledConnectionManager pool = connectionManager;
+      final long interval = Math.max(1, idleTimeout);
+      idleConnectionMonitor = Executors.newSingleThreadScheduledExecutor(r -> {
+        final Thread thread = new Thread(r, "http-idle-connection-monitor");
+        thread.setDaemon(true);
+        return thread;
+      });
+      idleConnectionMonitor.scheduleWithFixedDelay(() -> {
+        pool.closeExpiredConnections();
+        pool.closeIdleConnections(interval, TimeUnit.SECONDS);
+      }, interval, interval, TimeUnit.SECONDS);
+    }
+    return connectionManager;
   }
 }
@@ -23,16 +23,24 @@ package org.opencastproject.kernel.http.impl;
 
 import org.opencastproject.kernel.http.api.HttpClient;
 
+import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
+import org.apache.http.client.AuthCache;
 import org.apache.http.client.CredentialsProvider;
 import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.params.ClientPNames;
+import org.apache.http.client.protocol.HttpClientContext;
 import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.conn.ClientConnectionRequest;
+import org.apache.http.conn.ManagedClientConnection;
+import org.apache.http.conn.routing.HttpRoute;
 import org.apache.http.conn.scheme.Scheme;
 import org.apache.http.conn.scheme.SchemeRegistry;
 import org.apache.http.conn.ssl.SSLSocketFactory;
 import org.apache.http.conn.ssl.X509HostnameVerifier;
 import org.apache.http.impl.client.DefaultHttpClient;
 import org.apache.http.params.HttpParams;
+import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -42,6 +50,9 @@ import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLException;
@@ -56,8 +67,49 @@ public class HttpClientImpl implements HttpClient {
   /** The logging facility */
   private static final Logger logger = LoggerFactory.getLogger(HttpClientImpl.class);
 
+  /**
+   * The maximum size of an unread response body that is read to keep its connection alive when the connections of the
+   * client are released. Connections of larger or unknown responses are closed instead.
+   */
+  private static final long MAX_DRAINED_CONTENT_LENGTH = 8 * 1024;
+
   /** client used for all http requests. */
-  private DefaultHttpClient defaultHttpClient = makeHttpClient();
+  private final DefaultHttpClient defaultHttpClient;
+
+  /** The connection manager handed out to users of this client */
+  private final ClientConnectionManager connectionManager;
+
+  /** The authentication cache shared with other clients, may be null */
+  private final AuthCache authCache;
+
+  /** The requests whose connections have to be released back to the pool, along with their responses */
+  private final Map<HttpUriRequest, HttpResponse> exchanges = new ConcurrentHashMap<>();
+
+  /** Creates a client with its own connection manager. */
+  public HttpClientImpl() {
+    defaultHttpClient = makeHttpClient();
+    connectionManager = defaultHttpClient.getConnectionManager();
+    authCache = null;
+  }
+
+  /**
+   * Creates a client that leases its connections from a shared pool. Shutting down the connection manager of this
+   * client only releases the connections used by this client back to the pool, keeping them alive for reuse.
+   *
+   * @param pool
+   *          the shared connection pool
+   * @param authCache
+   *          the authentication cache shared between clients, so that authentication can happen preemptively once a
+   *          host has been challenged
+   * @param connectionRequestTimeout
+   *          the number of milliseconds to wait for a connection from the pool before failing the request
+   */
+  public HttpClientImpl(ClientConnectionManager pool, AuthCache authCache, long connectionRequestTimeout) {
+    this.defaultHttpClient = new DefaultHttpClient(pool);
+    this.defaultHttpClient.getParams().setLongParameter(ClientPNames.CONN_MANAGER_TIMEOUT, connectionRequestTimeout);
+    this.connectionManager = new ReleasingConnectionManager(pool);
+    this.authCache = authCache;
+  }
 
   /** See org.opencastproject.kernel.http.api.HttpClient */
   @Override
@@ -74,13 +126,20 @@ public class HttpClientImpl implements HttpClient {
   /** See org.opencastproject.kernel.http.api.HttpClient */
   @Override
   public HttpResponse execute(HttpUriRequest httpUriRequest) throws IOException {
-    return defaultHttpClient.execute(httpUriRequest);
+    if (authCache == null) {
+      return defaultHttpClient.execute(httpUriRequest);
+    }
+    final HttpClientContext context = HttpClientContext.create();
+    context.setAuthCache(authCache);
+    final HttpResponse response = defaultHttpClient.execute(httpUriRequest, context);
+    exchanges.put(httpUriRequest, response);
+    return response;
   }
 
   /** See org.opencastproject.kernel.http.api.HttpClient */
   @Override
   public ClientConnectionManager getConnectionManager() {
-    return defaultHttpClient.getConnectionManager();
+    return connectionManager;
   }
 
   /**
@@ -89,8 +148,19 @@ public class HttpClientImpl implements HttpClient {
    * @return the client
    */
   private DefaultHttpClient makeHttpClient() {
-
     DefaultHttpClient defaultHttpClient = new DefaultHttpClient();
+    registerForgivingHttpsScheme(defaultHttpClient.getConnectionManager().getSchemeRegistry());
+    return defaultHttpClient;
+  }
+
+  /**
+   * Registers an https scheme that does neither check certificates nor host names.
+   *
+   * @param schemeRegistry
+   *          the registry to add the scheme to
+   * @return the scheme registry
+   */
+  static SchemeRegistry registerForgivingHttpsScheme(SchemeRegistry schemeRegistry) {
     try {
       logger.debug("Installing forgiving hostname verifier and trust managers");
       X509TrustManager trustManager = createTrustManager();
@@ -98,16 +168,76 @@ public class HttpClientImpl implements HttpClient {
       SSLContext sslContext = SSLContext.getInstance("TLS");
       sslContext.init(null, new TrustManager[] { trustManager }, new SecureRandom());
       SSLSocketFactory ssf = new SSLSocketFactory(sslContext, hostNameVerifier);
-      ClientConnectionManager ccm = defaultHttpClient.getConnectionManager();
-      SchemeRegistry sr = ccm.getSchemeRegistry();
-      sr.register(new Scheme("https", 443, ssf));
+      schemeRegistry.register(new Scheme("https", 443, ssf));
     } catch (NoSuchAlgorithmException e) {
       logger.error("Error creating context to handle TLS connections: {}", e.getMessage());
     } catch (KeyManagementException e) {
       logger.error("Error creating context to handle TLS connections: {}", e.getMessage());
     }
+    return schemeRegistry;
+  }
+
+  /**
+   * Releases the connections used by this client. Connections of responses which have been read completely are back in
+   * the pool already. What is left of small responses is read so that their connections can be reused, all other
+   * requests are aborted, closing their connections instead of transferring the rest of a possibly huge body.
+   */
+  private void releaseConnections() {
+    for (Map.Entry<HttpUriRequest, HttpResponse> exchange : exchanges.entrySet()) {
+      final HttpEntity entity = exchange.getValue().getEntity();
+      if (entity != null && entity.isStreaming()) {
+        final long length = entity.getContentLength();
+        if (length >= 0 && length <= MAX_DRAINED_CONTENT_LENGTH) {
+          EntityUtils.consumeQuietly(entity);
+        } else {
+          exchange.getKey().abort();
+        }
+      }
+      exchanges.remove(exchange.getKey());
+    }
+  }
+
+  /**
+   * A view on the shared connection pool. Shutting it down only returns the connections of this client to the pool.
+   */
+  private final class ReleasingConnectionManager implements ClientConnectionManager {
+
+    private final ClientConnectionManager pool;
+
+    ReleasingConnectionManager(ClientConnectionManager pool) {
+      this.pool = pool;
+    }
+
+    @Override
+    public SchemeRegistry getSchemeRegistry() {
+      return pool.getSchemeRegistry();
+    }
+
+    @Override
+    public ClientConnectionRequest requestConnection(HttpRoute route, Object state) {
+      return pool.requestConnection(route, state);
+    }
+
+    @Override
+    public void releaseConnection(ManagedClientConnection conn, long validDuration, TimeUnit timeUnit) {
+      pool.releaseConnection(conn, validDuration, timeUnit);
+    }
+
+    @Override
+    public void closeIdleConnections(long idletime, TimeUnit tunit) {
+      pool.closeIdleConnections(idletime, tunit);
+    }
+
+    @Override
+    public void closeExpiredConnections() {
+      pool.closeExpiredConnections();
+    }
+
+    @Override
+    public void shutdown() {
+      releaseConnections();
+    }
 
-    return defaultHttpClient;
   }
 
   /**
@@ -116,7 +246,7 @@ public class HttpClientImpl implements HttpClient {
    *
    * @return the trust manager
    */
-  private X509TrustManager createTrustManager() {
+  private static X509TrustManager createTrustManager() {
     X509TrustManager trustManager = new X509TrustManager() {
 
       /**
@@ -157,7 +287,7 @@ public class HttpClientImpl implements HttpClient {
    *
    * @return the host name verifier
    */
-  private X509HostnameVerifier createHostNameVerifier() {
+  private static X509HostnameVerifier createHostNameVerifier() {
     X509HostnameVerifier verifier = new X509HostnameVerifier() {
 
       /**
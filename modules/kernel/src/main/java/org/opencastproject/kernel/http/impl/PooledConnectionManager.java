@@ -0,0 +1,96 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.kernel.http.impl;
+
+import org.apache.http.conn.ClientConnectionRequest;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ManagedClientConnection;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.scheme.SchemeRegistry;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A connection manager keeping connections alive in a pool per host, which additionally keeps track of how long
+ * clients had to wait for a connection.
+ */
+public class PooledConnectionManager extends PoolingClientConnectionManager {
+
+  /** The number of connections leased from the pool */
+  private final LongAdder leases = new LongAdder();
+
+  /** The total time in nanoseconds clients have been waiting for a connection */
+  private final LongAdder totalWaitTime = new LongAdder();
+
+  /** The longest time in nanoseconds a client has been waiting for a connection */
+  private final AtomicLong maxWaitTime = new AtomicLong();
+
+  public PooledConnectionManager(SchemeRegistry schemeRegistry) {
+    super(schemeRegistry);
+  }
+
+  @Override
+  public ClientConnectionRequest requestConnection(HttpRoute route, Object state) {
+    final ClientConnectionRequest request = super.requestConnection(route, state);
+    return new ClientConnectionRequest() {
+      @Override
+      public ManagedClientConnection getConnection(long timeout, TimeUnit unit)
+              throws InterruptedException, ConnectionPoolTimeoutException {
+        final long start = System.nanoTime();
+        try {
+          return request.getConnection(timeout, unit);
+        } finally {
+          final long waitTime = System.nanoTime() - start;
+          leases.increment();
+          totalWaitTime.add(waitTime);
+          maxWaitTime.accumulateAndGet(waitTime, Math::max);
+        }
+      }
+
+      @Override
+      public void abortRequest() {
+        request.abortRequest();
+      }
+    };
+  }
+
+  /** Returns the number of connections that have been leased from the pool. */
+  public long getLeaseCount() {
+    return leases.sum();
+  }
+
+  /** Returns the average time in milliseconds clients had to wait for a connection. */
+  public long getAverageWaitTime() {
+    final long count = leases.sum();
+    return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalWaitTime.sum() / count);
+  }
+
+  /** Returns the longest time in milliseconds a client had to wait for a connection. */
+  public long getMaxWaitTime() {
+    return TimeUnit.NANOSECONDS.toMillis(maxWaitTime.get());
+  }
+
+}
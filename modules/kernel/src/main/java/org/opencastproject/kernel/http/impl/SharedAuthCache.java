@@ -0,0 +1,102 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package org.opencastproject.kernel.http.impl;
+
+import org.apache.http.HttpHost;
+import org.apache.http.auth.AuthScheme;
+import org.apache.http.client.AuthCache;
+import org.apache.http.impl.auth.DigestScheme;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Authentication cache shared by all clients. A digest scheme keeps the state of the request it authenticates, e.g. the
+ * nonce count and the request URI, so a single instance must never be used by concurrent requests. This cache
+ * therefore only keeps the parameters of the last digest challenge of each host and hands out a new scheme initialized
+ * with them on every lookup. Other schemes are handed out as they are.
+ */
+final class SharedAuthCache implements AuthCache {
+
+  /** The parameters of a digest challenge needed to answer it */
+  private static final String[] DIGEST_PARAMETERS = { "realm", "nonce", "opaque", "qop", "algorithm", "charset" };
+
+  /** The parameters of the digest challenges by host */
+  private final Map<HttpHost, Map<String, String>> digests = new ConcurrentHashMap<>();
+
+  /** Schemes other than digest by host */
+  private final Map<HttpHost, AuthScheme> schemes = new ConcurrentHashMap<>();
+
+  @Override
+  public void put(HttpHost host, AuthScheme authScheme) {
+    if (authScheme instanceof DigestScheme) {
+      final Map<String, String> parameters = new HashMap<>();
+      for (String name : DIGEST_PARAMETERS) {
+        final String value = authScheme.getParameter(name);
+        if (value != null) {
+          parameters.put(name, value);
+        }
+      }
+      schemes.remove(key(host));
+      digests.put(key(host), parameters);
+    } else if (authScheme != null) {
+      digests.remove(key(host));
+      schemes.put(key(host), authScheme);
+    }
+  }
+
+  @Override
+  public AuthScheme get(HttpHost host) {
+    final Map<String, String> parameters = digests.get(key(host));
+    if (parameters == null) {
+      return schemes.get(key(host));
+    }
+    final DigestScheme digest = new DigestScheme();
+    for (Map.Entry<String, String> parameter : parameters.entrySet()) {
+      digest.overrideParamter(parameter.getKey(), parameter.getValue());
+    }
+    return digest;
+  }
+
+  @Override
+  public void remove(HttpHost host) {
+    digests.remove(key(host));
+    schemes.remove(key(host));
+  }
+
+  @Override
+  public void clear() {
+    digests.clear();
+    schemes.clear();
+  }
+
+  /** Returns the host with an explicit port, so that requests with and without the default port share an entry. */
+  private static HttpHost key(HttpHost host) {
+    if (host.getPort() > 0) {
+      return host;
+    }
+    final int port = "https".equalsIgnoreCase(host.getSchemeName()) ? 443 : 80;
+    return new HttpHost(host.getHostName(), port, host.getSchemeName());
+  }
+
+}
@@ -27,4 +27,25 @@ package org.opencastproject.kernel.security;
 public interface HttpConnectionMXBean {
   /** Gets the number of open http connections */
   int getOpenConnections();
+
+  /** Gets the number of pooled connections currently in use */
+  int getLeasedConnections();
+
+  /** Gets the number of pooled connections kept alive for reuse */
+  int getAvailableConnections();
+
+  /** Gets the number of requests waiting for a pooled connection */
+  int getPendingConnectionRequests();
+
+  /** Gets the maximum number of pooled connections */
+  int getMaxConnections();
+
+  /** Gets the average time in milliseconds a request had to wait for a pooled connection */
+  long getAverageConnectionWaitTime();
+
+  /** Gets the longest time in milliseconds a request had to wait for a pooled connection */
+  long getMaxConnectionWaitTime();
+
+  /** Gets the number of hosts whose digest nonce is cached */
+  int getCachedNonces();
 }
@@ -49,6 +49,8 @@ import com.entwinemedia.fn.data.Opt;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.http.Header;
 import org.apache.http.HeaderElement;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
 import org.apache.http.HttpResponse;
 import org.apache.http.auth.AuthScope;
 import org.apache.http.auth.UsernamePasswordCredentials;
@@ -61,12 +63,17 @@ import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.client.methods.HttpUriRequest;
 import org.apache.http.impl.auth.DigestScheme;
 import org.apache.http.params.CoreConnectionPNames;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.util.EntityUtils;
 import org.osgi.service.component.ComponentContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
 import java.util.Map;
 import java.util.Random;
 import java.util.concurrent.ConcurrentHashMap;
@@ -122,6 +129,12 @@ public class TrustedHttpClientImpl implements TrustedHttpClient, HttpConnectionM
   /** The number of milliseconds in a single second. */
   private static final int MILLISECONDS_IN_SECONDS = 1000;
 
+  /** How long before its expiration a cached nonce is no longer used, to allow for clock skew between nodes. */
+  private static final long NONCE_EXPIRATION_MARGIN = 30 * 1000;
+
+  /** How long to cache a nonce whose expiration time is unknown. */
+  private static final long DEFAULT_NONCE_CACHE_TIME = 60 * 1000;
+
   /** The default amount of time to wait after a nonce timeout. */
   public static final int DEFAULT_RETRY_BASE_TIME = 300;
 
@@ -146,6 +159,9 @@ public class TrustedHttpClientImpl implements TrustedHttpClient, HttpConnectionM
   /** The map of open responses to their http clients, which need to be closed after we are finished with the response */
   protected Map<HttpResponse, HttpClient> responseMap = new ConcurrentHashMap<HttpResponse, HttpClient>();
 
+  /** The realm and nonce of the last digest challenge by host, reused until the nonce expires */
+  private final Map<String, DigestNonce> nonceCache = new ConcurrentHashMap<>();
+
   /** Used to add a random amount of time up to retryMaximumVariableTime to retry a request after a nonce timeout. */
   private Random generator = new Random();
 
@@ -396,15 +412,25 @@ public class TrustedHttpClientImpl implements TrustedHttpClient, HttpConnectionM
     } else {
       // HttpClient doesn't handle the request dynamics for other verbs (especially when sending a streamed multipart
       // request), so we need to handle the details of the digest auth back-and-forth manually
-      manuallyHandleDigestAuthentication(httpUriRequest, httpClient);
+      final boolean cachedNonce = manuallyHandleDigestAuthentication(httpUriRequest, httpClient);
       HttpResponse response = null;
       try {
         response = new HttpResponseWrapper(httpClient.execute(httpUriRequest));
+        if (cachedNonce && hadNonceTimeoutResponse(response) && isRepeatable(httpUriRequest)) {
+          // The cached nonce expired earlier than announced, so there is no reason to wait before getting a new one
+          logger.debug("Cached nonce for {} has expired, requesting a new one", httpUriRequest.getURI());
+          EntityUtils.consumeQuietly(response.getEntity());
+          invalidateNonce(httpUriRequest.getURI());
+          httpUriRequest.removeHeaders(AUTHORIZATION_HEADER_NAME);
+          manuallyHandleDigestAuthentication(httpUriRequest, httpClient);
+          response = new HttpResponseWrapper(httpClient.execute(httpUriRequest));
+        }
         if (nonceTimeoutRetries > 0 && hadNonceTimeoutResponse(response)) {
           httpClient.getConnectionManager().shutdown();
           response = retryAuthAndRequestAfterNonceTimeout(httpUriRequest, response);
         }
-        responseMap.put(response, httpClient);
+        // A successful retry has already registered the response with the client it has been made with
+        responseMap.putIfAbsent(response, httpClient);
         return response;
       } catch (Exception e) {
         // if we have a response, remove it from the map
@@ -474,6 +500,7 @@ public class TrustedHttpClientImpl implements TrustedHttpClient, HttpConnectionM
           throws TrustedHttpClientException, IOException, ClientProtocolException {
     // Get rid of old security headers with the old nonce.
     httpUriRequest.removeHeaders(AUTHORIZATION_HEADER_NAME);
+    invalidateNonce(httpUriRequest.getURI());
 
     for (int i = 0; i < nonceTimeoutRetries; i++) {
       HttpClient httpClient = makeHttpClient(DEFAULT_CONNECTION_TIMEOUT, DEFAULT_SOCKET_TIMEOUT);
@@ -499,6 +526,7 @@ public class TrustedHttpClientImpl implements TrustedHttpClient, HttpConnectionM
         responseMap.put(response, httpClient);
         break;
       }
+      invalidateNonce(httpUriRequest.getURI());
       httpClient.getConnectionManager().shutdown();
     }
     return response;
@@ -517,26 +545,41 @@ public class TrustedHttpClientImpl implements TrustedHttpClient, HttpConnectionM
   }
 
   /**
-   * Handles the necessary handshake for digest authenticaion in the case where it isn't a GET operation.
+   * Handles the necessary handshake for digest authenticaion in the case where it isn't a GET operation. The realm and
+   * nonce of a host are cached and reused until the nonce expires, sparing the handshake for subsequent requests.
    *
    * @param httpUriRequest
    *         The request location to get the digest authentication for.
    * @param httpClient
    *         The client to send the request through.
+   * @return whether a cached nonce has been used
    * @throws TrustedHttpClientException
    *         Thrown if the client cannot be shutdown.
    */
-  private void manuallyHandleDigestAuthentication(HttpUriRequest httpUriRequest, HttpClient httpClient)
+  private boolean manuallyHandleDigestAuthentication(HttpUriRequest httpUriRequest, HttpClient httpClient)
           throws TrustedHttpClientException {
-    HttpRequestBase digestRequest;
-    try {
-      digestRequest = (HttpRequestBase) httpUriRequest.getClass().newInstance();
-    } catch (Exception e) {
-      throw new IllegalStateException("Can not create a new " + httpUriRequest.getClass().getName());
+    final String host = getNonceCacheKey(httpUriRequest.getURI());
+    final DigestNonce cached = nonceCache.get(host);
+    final boolean useCached = cached != null && !cached.isExpired();
+    String[] realmAndNonce;
+    if (useCached) {
+      realmAndNonce = new String[] { cached.realm, cached.nonce };
+    } else {
+      HttpRequestBase digestRequest;
+      try {
+        digestRequest = (HttpRequestBase) httpUriRequest.getClass().newInstance();
+      } catch (Exception e) {
+        throw new IllegalStateException("Can not create a new " + httpUriRequest.getClass().getName());
+      }
+      digestRequest.setURI(httpUriRequest.getURI());
+      digestRequest.setHeader(REQUESTED_AUTH_HEADER, DIGEST_AUTH);
+      realmAndNonce = getRealmAndNonce(digestRequest);
+      if (realmAndNonce != null && realmAndNonce[1] != null) {
+        nonceCache.put(host, new DigestNonce(realmAndNonce[0], realmAndNonce[1]));
+      } else {
+        nonceCache.remove(host);
+      }
     }
-    digestRequest.setURI(httpUriRequest.getURI());
-    digestRequest.setHeader(REQUESTED_AUTH_HEADER, DIGEST_AUTH);
-    String[] realmAndNonce = getRealmAndNonce(digestRequest);
 
     if (realmAndNonce != null) {
       // Set the user/pass
@@ -556,6 +599,24 @@ public class TrustedHttpClientImpl implements TrustedHttpClient, HttpConnectionM
         throw new TrustedHttpClientException(e);
       }
     }
+    return useCached;
+  }
+
+  /** Forgets the cached nonce of the host the given URI points to. */
+  private void invalidateNonce(URI uri) {
+    nonceCache.remove(getNonceCacheKey(uri));
+  }
+
+  private static String getNonceCacheKey(URI uri) {
+    return uri.getScheme() + "://" + uri.getHost() + ":" + uri.getPort();
+  }
+
+  /** Whether the request can be sent again, i.e. whether it has no body or one that can be read more than once. */
+  private static boolean isRepeatable(HttpUriRequest httpUriRequest) {
+    if (!(httpUriRequest instanceof HttpEntityEnclosingRequest))
+      return true;
+    final HttpEntity entity = ((HttpEntityEnclosingRequest) httpUriRequest).getEntity();
+    return entity == null || entity.isRepeatable();
   }
 
   @Override
@@ -638,6 +699,47 @@ public class TrustedHttpClientImpl implements TrustedHttpClient, HttpConnectionM
     return responseMap.size();
   }
 
+  @Override
+  public int getLeasedConnections() {
+    return getPoolStats().getLeased();
+  }
+
+  @Override
+  public int getAvailableConnections() {
+    return getPoolStats().getAvailable();
+  }
+
+  @Override
+  public int getPendingConnectionRequests() {
+    return getPoolStats().getPending();
+  }
+
+  @Override
+  public int getMaxConnections() {
+    return getPoolStats().getMax();
+  }
+
+  @Override
+  public long getAverageConnectionWaitTime() {
+    return httpClientFactory != null ? httpClientFactory.getConnectionManager().getAverageWaitTime() : 0;
+  }
+
+  @Override
+  public long getMaxConnectionWaitTime() {
+    return httpClientFactory != null ? httpClientFactory.getConnectionManager().getMaxWaitTime() : 0;
+  }
+
+  @Override
+  public int getCachedNonces() {
+    return nonceCache.size();
+  }
+
+  private PoolStats getPoolStats() {
+    if (httpClientFactory == null)
+      return new PoolStats(0, 0, 0, 0);
+    return httpClientFactory.getConnectionManager().getTotalStats();
+  }
+
   /**
    * @return Returns the number of times the TrustedHttpClient will retry a request if nonce timeouts are occuring.
    */
@@ -659,4 +761,35 @@ public class TrustedHttpClientImpl implements TrustedHttpClient, HttpConnectionM
     return retryMaximumVariableTime;
   }
 
+  /** The realm and nonce of a digest challenge. */
+  private static final class DigestNonce {
+    private final String realm;
+    private final String nonce;
+    private final long expires;
+
+    DigestNonce(String realm, String nonce) {
+      this.realm = realm;
+      this.nonce = nonce;
+      this.expires = getExpirationTime(nonce) - NONCE_EXPIRATION_MARGIN;
+    }
+
+    boolean isExpired() {
+      return System.currentTimeMillis() >= expires;
+    }
+
+    /**
+     * Spring Security encodes the nonce as
+     * <code>base64(expirationTime + ":" + md5Hex(expirationTime + ":" + key))</code>, so its expiration time can be
+     * read from it. Nonces of any other format are cached for a short time only.
+     */
+    private static long getExpirationTime(String nonce) {
+      try {
+        final String decoded = new String(Base64.getDecoder().decode(nonce), StandardCharsets.UTF_8);
+        return Long.parseLong(StringUtils.substringBefore(decoded, ":"));
+      } catch (IllegalArgumentException e) {
+        return System.currentTimeMillis() + DEFAULT_NONCE_CACHE_TIME + NONCE_EXPIRATION_MARGIN;
+      }
+    }
+  }
+
 }
@@ -0,0 +1,72 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package org.opencastproject.kernel.http.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+
+import org.apache.http.HttpHost;
+import org.apache.http.auth.AuthScheme;
+import org.apache.http.impl.auth.BasicScheme;
+import org.apache.http.impl.auth.DigestScheme;
+import org.junit.Test;
+
+public class SharedAuthCacheTest {
+
+  private final HttpHost host = new HttpHost("localhost", 8080, "http");
+
+  @Test
+  public void testDigestSchemesAreNotShared() {
+    final DigestScheme digest = new DigestScheme();
+    digest.overrideParamter("realm", "Opencast");
+    digest.overrideParamter("nonce", "abcdef");
+    digest.overrideParamter("qop", "auth");
+
+    final SharedAuthCache cache = new SharedAuthCache();
+    cache.put(host, digest);
+
+    final AuthScheme first = cache.get(host);
+    final AuthScheme second = cache.get(host);
+    assertNotNull(first);
+    assertNotSame(digest, first);
+    assertNotSame(first, second);
+    for (AuthScheme scheme : new AuthScheme[] { first, second }) {
+      assertEquals("Opencast", scheme.getParameter("realm"));
+      assertEquals("abcdef", scheme.getParameter("nonce"));
+      assertEquals("auth", scheme.getParameter("qop"));
+    }
+  }
+
+  @Test
+  public void testDefaultPortSharesEntry() {
+    final SharedAuthCache cache = new SharedAuthCache();
+    final BasicScheme basic = new BasicScheme();
+    cache.put(new HttpHost("localhost", -1, "http"), basic);
+    assertEquals(basic, cache.get(new HttpHost("localhost", 80, "http")));
+
+    cache.remove(new HttpHost("localhost", 80, "http"));
+    assertNull(cache.get(new HttpHost("localhost", -1, "http")));
+  }
+
+}
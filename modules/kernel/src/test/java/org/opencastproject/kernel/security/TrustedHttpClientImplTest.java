@@ -66,6 +66,8 @@ import org.osgi.framework.BundleContext;
 import org.osgi.service.component.ComponentContext;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
 
 import junit.framework.Assert;
 
@@ -756,4 +758,54 @@ public class TrustedHttpClientImplTest {
     assertTrue(result.isSome());
     assertEquals(signedOk, result.get().getURI().toString());
   }
+
+  @Test
+  public void cachedNonceIsReusedUntilItExpires() throws Exception {
+    HttpClient httpClient = mockDigestHandshakes(System.currentTimeMillis() + 300 * 1000L, 1);
+    client.execute(new HttpPost("http://localhost:8080/fake"));
+    client.execute(new HttpPost("http://localhost:8080/other"));
+    assertEquals(1, client.getCachedNonces());
+    verify(httpClient);
+  }
+
+  @Test
+  public void expiringNonceIsNotReused() throws Exception {
+    HttpClient httpClient = mockDigestHandshakes(System.currentTimeMillis() + 10 * 1000L, 2);
+    client.execute(new HttpPost("http://localhost:8080/fake"));
+    client.execute(new HttpPost("http://localhost:8080/other"));
+    verify(httpClient);
+  }
+
+  /**
+   * Sets up a client answering two requests, expecting the given number of digest handshakes with a nonce in the
+   * format used by Spring Security.
+   */
+  private HttpClient mockDigestHandshakes(long nonceExpiration, int handshakes) throws IOException {
+    String nonce = Base64.getEncoder()
+            .encodeToString((nonceExpiration + ":8d0ba38de3bfa1a2dc8b5f1f0f7a6e1c").getBytes(StandardCharsets.UTF_8));
+    BasicHttpResponse challenge = new BasicHttpResponse(new ProtocolVersion("Http", 1, 1), 401, "Unauthorized");
+    challenge.addHeader("WWW-Authenticate", "Digest realm=\"Opencast\", qop=\"auth\", nonce=\"" + nonce + "\"");
+
+    HttpParams httpParams = createNiceMock(HttpParams.class);
+    replay(httpParams);
+    ClientConnectionManager clientConnectionManager = createMock(ClientConnectionManager.class);
+
+    HttpClient httpClient = createMock("Request", HttpClient.class);
+    expect(httpClient.getParams()).andReturn(httpParams).anyTimes();
+    for (int i = 0; i < 2; i++) {
+      if (i < handshakes) {
+        expect(httpClient.execute(isA(HttpUriRequest.class))).andReturn(challenge);
+        expect(httpClient.getConnectionManager()).andReturn(clientConnectionManager);
+      }
+      expect(httpClient.execute(isA(HttpUriRequest.class))).andReturn(okResponse);
+    }
+    replay(httpClient);
+
+    HttpClientFactory httpClientFactory = createMock(HttpClientFactory.class);
+    expect(httpClientFactory.makeHttpClient()).andReturn(httpClient).atLeastOnce();
+    replay(httpClientFactory);
+    client.setHttpClientFactory(httpClientFactory);
+    return httpClient;
+  }
+
 }
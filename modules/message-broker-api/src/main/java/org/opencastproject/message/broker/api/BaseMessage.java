@@ -46,6 +46,22 @@ public class BaseMessage implements Serializable {
     this.object = object;
   }
 
+  /**
+   * Creates a message from an already serialized organization and user. Subclasses providing this constructor are
+   * expected to override {@link #getObject()}, {@link #getObjectType()} and {@link #getId()}, e.g. to decode the
+   * payload only on demand.
+   *
+   * @param organizationXml
+   *          the organization as serialized by {@link OrganizationParser}
+   * @param userXml
+   *          the user as serialized by {@link UserParser}
+   */
+  protected BaseMessage(String organizationXml, String userXml) {
+    this.organization = organizationXml;
+    this.user = userXml;
+    this.object = null;
+  }
+
   public Opt<String> getId() {
     if (object instanceof MessageItem)
       return Opt.some(((MessageItem) object).getId());
@@ -65,4 +81,14 @@ public class BaseMessage implements Serializable {
     return object;
   }
 
+  /**
+   * Returns the class name of the payload. Unlike {@link #getObject()}, this does not require the payload to be
+   * decoded, so receivers can route messages by their type without deserializing them.
+   *
+   * @return the fully qualified class name of the payload or <code>null</code> if there is no payload
+   */
+  public String getObjectType() {
+    return object != null ? object.getClass().getName() : null;
+  }
+
 }
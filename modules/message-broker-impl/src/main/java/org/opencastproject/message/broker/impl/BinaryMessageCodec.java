@@ -0,0 +1,283 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.message.broker.impl;
+
+import org.opencastproject.message.broker.api.BaseMessage;
+import org.opencastproject.message.broker.api.MessageItem;
+import org.opencastproject.security.api.JaxbOrganization;
+import org.opencastproject.security.api.JaxbUser;
+import org.opencastproject.security.api.Organization;
+import org.opencastproject.security.api.OrganizationParser;
+import org.opencastproject.security.api.User;
+import org.opencastproject.security.api.UserParser;
+
+import com.entwinemedia.fn.data.Opt;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Binary envelope for {@link BaseMessage}s, sent as JMS bytes messages.
+ * <p>
+ * The encoding starts with a header holding a magic number, the schema version, flags, the message item id, the class
+ * name of the payload and the serialized organization and user. The payload follows as a separate block which is
+ * compressed if it is larger than the configured threshold. The payload itself is still encoded using Java
+ * serialization, restricted to the classes of the message broker API when it is read.
+ * <p>
+ * Decoding a message only reads the header. The payload is decoded when it is accessed for the first time, so
+ * receivers can route a message by its id and payload type on the thread receiving the messages and leave the
+ * deserialization of media packages or catalogs embedded in the payload to the threads processing them.
+ */
+public final class BinaryMessageCodec {
+
+  /** Marks a message as encoded by this codec */
+  static final int MAGIC = 0x4F434D42;
+
+  /** The version of the encoding written by this codec */
+  public static final int SCHEMA_VERSION = 2;
+
+  /** Flag indicating a compressed payload */
+  private static final int FLAG_COMPRESSED = 0x01;
+
+  /** The only packages payload classes may be loaded from, in addition to the ones of the Java runtime */
+  private static final String TRUSTED_PACKAGE = "org.opencastproject.message.broker.api.";
+
+  /** Payloads of at least this size in bytes are compressed, a negative value disables compression */
+  private final int compressionThreshold;
+
+  /**
+   * Creates a codec.
+   *
+   * @param compressionThreshold
+   *          payloads of at least this size in bytes are compressed, a negative value disables compression
+   */
+  public BinaryMessageCodec(int compressionThreshold) {
+    this.compressionThreshold = compressionThreshold;
+  }
+
+  /**
+   * Encodes a message.
+   *
+   * @param organization
+   *          the organization the message is sent in
+   * @param user
+   *          the user sending the message
+   * @param object
+   *          the payload
+   * @return the encoded message
+   * @throws IOException
+   *           if the payload cannot be serialized
+   */
+  public byte[] encode(Organization organization, User user, Serializable object) throws IOException {
+    byte[] payload = serialize(object);
+    int flags = 0;
+    if (compressionThreshold >= 0 && payload.length >= compressionThreshold) {
+      payload = compress(payload);
+      flags |= FLAG_COMPRESSED;
+    }
+
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream(payload.length + 1024);
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      out.writeInt(MAGIC);
+      out.writeByte(SCHEMA_VERSION);
+      out.writeByte(flags);
+      writeString(out, object instanceof MessageItem ? ((MessageItem) object).getId() : null);
+      writeString(out, object != null ? object.getClass().getName() : null);
+      writeString(out, OrganizationParser.toXml(JaxbOrganization.fromOrganization(organization)));
+      writeString(out, UserParser.toXml(JaxbUser.fromUser(user)));
+      out.writeInt(payload.length);
+      out.write(payload);
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Decodes the header of a message. The payload is decoded when {@link BaseMessage#getObject()} is called. Messages of
+   * schema version 1 do not carry the class name of the payload, {@link BaseMessage#getObjectType()} decodes their
+   * payload.
+   *
+   * @param data
+   *          the encoded message
+   * @return the message
+   * @throws IOException
+   *           if the data is not a message encoded by this codec or its version is not supported
+   */
+  public static BaseMessage decode(byte[] data) throws IOException {
+    try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+      if (in.readInt() != MAGIC) {
+        throw new IOException("Not a binary encoded message");
+      }
+      final int version = in.readUnsignedByte();
+      if (version > SCHEMA_VERSION) {
+        throw new IOException("Unsupported message schema version " + version);
+      }
+      final int flags = in.readUnsignedByte();
+      final String id = readString(in);
+      final String type = version >= 2 ? readString(in) : null;
+      final String organization = readString(in);
+      final String user = readString(in);
+      final byte[] payload = new byte[in.readInt()];
+      in.readFully(payload);
+      return new DecodedMessage(organization, user, id, type, payload, (flags & FLAG_COMPRESSED) != 0);
+    }
+  }
+
+  /** Java serialization of the payload. */
+  private static byte[] serialize(Serializable object) throws IOException {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(object);
+    }
+    return bytes.toByteArray();
+  }
+
+  /** Deserialize a payload, restricted to the classes that may be sent through the message broker. */
+  static Serializable deserialize(byte[] payload, boolean compressed) throws IOException, ClassNotFoundException {
+    InputStream bytes = new ByteArrayInputStream(payload);
+    if (compressed) {
+      bytes = new InflaterInputStream(bytes);
+    }
+    try (ObjectInputStream in = new TrustedObjectInputStream(bytes)) {
+      return (Serializable) in.readObject();
+    }
+  }
+
+  private static byte[] compress(byte[] data) throws IOException {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream(data.length / 4);
+    final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    try (OutputStream out = new DeflaterOutputStream(bytes, deflater)) {
+      out.write(data);
+    } finally {
+      deflater.end();
+    }
+    return bytes.toByteArray();
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    if (value == null) {
+      out.writeInt(-1);
+    } else {
+      final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    }
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    final int length = in.readInt();
+    if (length < 0) {
+      return null;
+    }
+    final byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Object input stream only resolving classes of the Java runtime and the message broker API, matching the trusted
+   * packages of the JMS object messages.
+   */
+  private static final class TrustedObjectInputStream extends ObjectInputStream {
+    TrustedObjectInputStream(InputStream in) throws IOException {
+      super(in);
+    }
+
+    @Override
+    protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+      String name = desc.getName();
+      // Strip array type signatures such as "[Lorg.opencastproject.Foo;"
+      if (name.startsWith("[")) {
+        name = name.replaceFirst("^\\[+L?", "").replaceFirst(";$", "");
+      }
+      if (name.length() > 1 && !name.startsWith("java.") && !name.startsWith(TRUSTED_PACKAGE)) {
+        throw new InvalidClassException(desc.getName(), "Class is not allowed in messages");
+      }
+      try {
+        return Class.forName(desc.getName(), false, BinaryMessageCodec.class.getClassLoader());
+      } catch (ClassNotFoundException e) {
+        return super.resolveClass(desc);
+      }
+    }
+  }
+
+  /**
+   * A message decoded by {@link BinaryMessageCodec#decode(byte[])} which deserializes its payload on first access.
+   */
+  private static final class DecodedMessage extends BaseMessage {
+    private static final long serialVersionUID = 7146321045927641316L;
+
+    private final String id;
+    private final String type;
+    private final byte[] payload;
+    private final boolean compressed;
+    private transient Serializable object;
+
+    DecodedMessage(String organization, String user, String id, String type, byte[] payload, boolean compressed) {
+      super(organization, user);
+      this.id = id;
+      this.type = type;
+      this.payload = payload;
+      this.compressed = compressed;
+    }
+
+    @Override
+    public Opt<String> getId() {
+      return Opt.nul(id);
+    }
+
+    @Override
+    public synchronized Serializable getObject() {
+      if (object == null) {
+        try {
+          object = deserialize(payload, compressed);
+        } catch (IOException | ClassNotFoundException e) {
+          throw new IllegalStateException("Unable to decode message payload", e);
+        }
+      }
+      return object;
+    }
+
+    @Override
+    public String getObjectType() {
+      if (type != null)
+        return type;
+      final Serializable decoded = getObject();
+      return decoded != null ? decoded.getClass().getName() : null;
+    }
+  }
+
+}
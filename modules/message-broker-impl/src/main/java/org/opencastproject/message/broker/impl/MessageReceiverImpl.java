@@ -27,10 +27,12 @@ import org.opencastproject.message.broker.api.MessageSender.DestinationType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.concurrent.Callable;
 import java.util.concurrent.FutureTask;
 
+import javax.jms.BytesMessage;
 import javax.jms.Destination;
 import javax.jms.JMSException;
 import javax.jms.Message;
@@ -125,6 +127,17 @@ public class MessageReceiverImpl extends MessageBaseFacility implements MessageR
         ObjectMessage objectMessage = (ObjectMessage) message;
         return objectMessage.getObject();
       }
+      if (message != null && message instanceof BytesMessage) {
+        BytesMessage bytesMessage = (BytesMessage) message;
+        byte[] data = new byte[(int) bytesMessage.getBodyLength()];
+        bytesMessage.readBytes(data);
+        try {
+          return BinaryMessageCodec.decode(data);
+        } catch (IOException e) {
+          logger.warn("Skipping message which cannot be decoded: {}", e.getMessage());
+          continue;
+        }
+      }
 
       logger.debug("Skipping invalid message: {}", message);
     }
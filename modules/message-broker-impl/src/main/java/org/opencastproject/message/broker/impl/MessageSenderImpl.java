@@ -25,11 +25,16 @@ import org.opencastproject.message.broker.api.BaseMessage;
 import org.opencastproject.message.broker.api.MessageSender;
 import org.opencastproject.security.api.SecurityService;
 
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.osgi.framework.BundleContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.io.Serializable;
 
+import javax.jms.BytesMessage;
 import javax.jms.Destination;
 import javax.jms.JMSException;
 import javax.jms.Message;
@@ -46,9 +51,41 @@ public class MessageSenderImpl extends MessageBaseFacility implements MessageSen
   /** The OSGi service PID */
   private static final String SERVICE_PID = "org.opencastproject.message.broker.impl.MessageSenderImpl";
 
+  /** The key to configure the encoding of messages, either "object" or "binary" */
+  protected static final String CODEC_KEY = "org.opencastproject.message.broker.codec";
+
+  /** The key to configure the minimum payload size in bytes at which binary encoded messages are compressed */
+  protected static final String COMPRESSION_THRESHOLD_KEY = "org.opencastproject.message.broker.compression.threshold";
+
+  /** Messages are sent as JMS object messages using Java serialization */
+  private static final String CODEC_OBJECT = "object";
+
+  /** Messages are sent as JMS bytes messages encoded by the {@link BinaryMessageCodec} */
+  private static final String CODEC_BINARY = "binary";
+
+  /** Default compression threshold in bytes */
+  private static final int DEFAULT_COMPRESSION_THRESHOLD = 4096;
+
   /** The security service */
   private SecurityService securityService;
 
+  /** The binary codec or <code>null</code> to send object messages */
+  private BinaryMessageCodec binaryCodec = null;
+
+  @Override
+  public void activate(BundleContext bc) throws Exception {
+    final String codec = StringUtils.defaultIfBlank(StringUtils.trimToNull(bc.getProperty(CODEC_KEY)), CODEC_OBJECT);
+    if (CODEC_BINARY.equalsIgnoreCase(codec)) {
+      final int threshold = NumberUtils.toInt(StringUtils.trimToNull(bc.getProperty(COMPRESSION_THRESHOLD_KEY)),
+              DEFAULT_COMPRESSION_THRESHOLD);
+      binaryCodec = new BinaryMessageCodec(threshold);
+      logger.info("Sending binary encoded messages, compressing payloads of at least {} bytes", threshold);
+    } else if (!CODEC_OBJECT.equalsIgnoreCase(codec)) {
+      logger.warn("Unknown message codec '{}', sending object messages", codec);
+    }
+    super.activate(bc);
+  }
+
   @Override
   public void sendObjectMessage(String destinationId, DestinationType type, Serializable object) {
     if (!isConnected()) {
@@ -63,8 +100,16 @@ public class MessageSenderImpl extends MessageBaseFacility implements MessageSen
         if (session == null)
           return;
         // Create a message or use the provided one.
-        Message message = session.createObjectMessage(
-                new BaseMessage(securityService.getOrganization(), securityService.getUser(), object));
+        Message message;
+        if (binaryCodec != null) {
+          BytesMessage bytesMessage = session.createBytesMessage();
+          bytesMessage.writeBytes(
+                  binaryCodec.encode(securityService.getOrganization(), securityService.getUser(), object));
+          message = bytesMessage;
+        } else {
+          message = session.createObjectMessage(
+                  new BaseMessage(securityService.getOrganization(), securityService.getUser(), object));
+        }
 
         Destination destination;
         // Create the destination (Topic or Queue)
@@ -80,7 +125,7 @@ public class MessageSenderImpl extends MessageBaseFacility implements MessageSen
         // Send the message
         getMessageProducer().send(destination, message);
       }
-    } catch (JMSException e) {
+    } catch (JMSException | IOException e) {
       logger.error("Had an exception while trying to send a message", e);
     }
   }
@@ -0,0 +1,109 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.message.broker.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.opencastproject.message.broker.api.BaseMessage;
+import org.opencastproject.message.broker.api.comments.CommentItem;
+import org.opencastproject.security.api.DefaultOrganization;
+import org.opencastproject.security.api.JaxbOrganization;
+import org.opencastproject.security.api.JaxbRole;
+import org.opencastproject.security.api.JaxbUser;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.Serializable;
+
+public class BinaryMessageCodecTest {
+
+  private final JaxbOrganization organization = JaxbOrganization.fromOrganization(new DefaultOrganization());
+  private final JaxbUser user = new JaxbUser("admin", "test", organization,
+          new JaxbRole("ROLE_ADMIN", organization));
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    BinaryMessageCodec codec = new BinaryMessageCodec(-1);
+    CommentItem item = CommentItem.update("event-1", true, false, true);
+
+    BaseMessage message = BinaryMessageCodec.decode(codec.encode(organization, user, item));
+    assertEquals("event-1", message.getId().get());
+    assertEquals(CommentItem.class.getName(), message.getObjectType());
+    assertEquals(organization.getId(), message.getOrganization().getId());
+    assertEquals("admin", message.getUser().getUsername());
+
+    CommentItem decoded = (CommentItem) message.getObject();
+    assertEquals("event-1", decoded.getEventId());
+    assertTrue(decoded.hasComments());
+    assertFalse(decoded.hasOpenComments());
+    assertTrue(decoded.needsCutting());
+  }
+
+  @Test
+  public void testCompressedPayload() throws Exception {
+    String payload = StringUtils.repeat("<mediapackage/>", 1000);
+    byte[] uncompressed = new BinaryMessageCodec(-1).encode(organization, user, payload);
+    byte[] compressed = new BinaryMessageCodec(0).encode(organization, user, payload);
+    assertTrue(compressed.length < uncompressed.length);
+
+    BaseMessage message = BinaryMessageCodec.decode(compressed);
+    assertFalse(message.getId().isSome());
+    assertEquals(payload, message.getObject());
+  }
+
+  @Test
+  public void testTypeIsReadWithoutDecodingPayload() throws Exception {
+    // classes outside of the message broker API cannot be decoded, so the type has to come from the header
+    BaseMessage message = BinaryMessageCodec.decode(
+            new BinaryMessageCodec(-1).encode(organization, user, new UntrustedPayload()));
+    assertEquals(UntrustedPayload.class.getName(), message.getObjectType());
+    try {
+      message.getObject();
+      fail("Payload should not be decodable");
+    } catch (IllegalStateException e) {
+      // expected
+    }
+  }
+
+  private static final class UntrustedPayload implements Serializable {
+    private static final long serialVersionUID = 1L;
+  }
+
+  @Test(expected = IOException.class)
+  public void testRejectUnknownData() throws Exception {
+    BinaryMessageCodec.decode(new byte[] { 1, 2, 3, 4, 5, 6 });
+  }
+
+  @Test(expected = IOException.class)
+  public void testRejectNewerSchemaVersion() throws Exception {
+    byte[] data = new BinaryMessageCodec(-1).encode(organization, user, 42L);
+    data[4] = (byte) (BinaryMessageCodec.SCHEMA_VERSION + 1);
+    BinaryMessageCodec.decode(data);
+  }
+
+}
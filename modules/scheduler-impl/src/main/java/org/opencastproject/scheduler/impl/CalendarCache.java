@@ -0,0 +1,263 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package org.opencastproject.scheduler.impl;
+
+import org.opencastproject.scheduler.impl.persistence.ExtendedEventDto;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches the iCalendar feeds of the capture agents as well as the calendar entries they are made of.
+ * <p>
+ * A cached feed is valid until a scheduling change for its capture agent is reported through
+ * {@link #invalidate(String)} or until the first of its events drops out of the feed because it has ended. A cached
+ * entry is valid as long as the scheduled event it has been created from is unchanged.
+ * <p>
+ * Feeds are rendered up to a horizon and cut off when they are served, so that agents asking for different cutoffs
+ * share a feed. The horizon is the largest cutoff requested for the feed so far, extended by the time a feed is
+ * cached, so that agents asking for a cutoff relative to the current time keep being served from the cache. Entries are
+ * cached in their serialized form since the iCalendar components are mutable.
+ */
+final class CalendarCache {
+
+  /** Time in seconds after which unused entries are dropped, e.g. to pick up changes of the series metadata */
+  private static final long EXPIRE = 3600L;
+
+  /** Default maximum number of cached feeds */
+  static final long DEFAULT_MAX_CALENDARS = 1000L;
+
+  /** Default maximum number of cached entries */
+  static final long DEFAULT_MAX_EVENTS = 100000L;
+
+  /** Key of the generation of feeds spanning all capture agents */
+  private static final String ALL_AGENTS = "";
+
+  /** End of an iCalendar feed, the entries are inserted in front of it */
+  private static final String CALENDAR_END = "END:VCALENDAR";
+
+  /** A rendered calendar entry of a scheduled event. */
+  static final class Event {
+    private final List<Object> fingerprint;
+    private final long start;
+    private final String entry;
+    private final String seriesId;
+
+    /**
+     * @param entry
+     *          the serialized iCalendar entry
+     */
+    Event(ExtendedEventDto dto, String entry, String seriesId) {
+      this.fingerprint = fingerprint(dto);
+      this.start = dto.getStartDate().getTime();
+      this.entry = entry;
+      this.seriesId = seriesId;
+    }
+
+    String getEntry() {
+      return entry;
+    }
+
+    String getSeriesId() {
+      return seriesId;
+    }
+  }
+
+  /** A rendered feed containing the events starting before its horizon. */
+  private static final class Feed {
+    private final long generation;
+    private final long validUntil;
+    private final long horizon;
+    private final String calendar;
+    private final List<Event> events;
+
+    Feed(long generation, long validUntil, long horizon, String calendar, List<Event> events) {
+      this.generation = generation;
+      this.validUntil = validUntil;
+      this.horizon = horizon;
+      this.calendar = calendar;
+      this.events = events;
+    }
+  }
+
+  /** Rendered feeds by organization, capture agent and series */
+  private final Cache<List<Object>, Feed> calendars;
+
+  /** Rendered entries by organization and media package identifier */
+  private final Cache<List<Object>, Event> events;
+
+  /** The number of scheduling changes by capture agent */
+  private final ConcurrentMap<String, AtomicLong> generations = new ConcurrentHashMap<>();
+
+  CalendarCache() {
+    this(DEFAULT_MAX_CALENDARS, DEFAULT_MAX_EVENTS);
+  }
+
+  /**
+   * @param maxCalendars
+   *          the maximum number of cached feeds
+   * @param maxEvents
+   *          the maximum number of cached entries, should be at least the number of upcoming events
+   */
+  CalendarCache(long maxCalendars, long maxEvents) {
+    calendars = CacheBuilder.newBuilder().maximumSize(maxCalendars).expireAfterWrite(EXPIRE, TimeUnit.SECONDS).build();
+    events = CacheBuilder.newBuilder().maximumSize(maxEvents).expireAfterWrite(EXPIRE, TimeUnit.SECONDS).build();
+  }
+
+  /**
+   * Returns the current generation of the feed of a capture agent. Feeds rendered while the generation changes must
+   * not be cached.
+   *
+   * @param captureAgentId
+   *          the capture agent identifier or <code>null</code> for the feed of all capture agents
+   */
+  long getGeneration(String captureAgentId) {
+    return generation(captureAgentId == null ? ALL_AGENTS : captureAgentId).get();
+  }
+
+  /** Drops the feeds containing events of the given capture agent. */
+  void invalidate(String captureAgentId) {
+    generation(captureAgentId).incrementAndGet();
+    generation(ALL_AGENTS).incrementAndGet();
+  }
+
+  /**
+   * Returns a cached feed.
+   *
+   * @param cutoff
+   *          the date before which the events of the feed have to start or <code>null</code> for all events
+   * @return the feed or <code>null</code> if it is not cached, outdated or does not reach up to the cutoff
+   */
+  String getCalendar(String organization, String captureAgentId, String seriesId, Date cutoff, long generation) {
+    final Feed calendar = calendars.getIfPresent(calendarKey(organization, captureAgentId, seriesId));
+    if (calendar == null || calendar.generation != generation || calendar.validUntil <= System.currentTimeMillis()
+            || calendar.horizon < time(cutoff, Long.MAX_VALUE))
+      return null;
+    return render(calendar.calendar, calendar.events, cutoff);
+  }
+
+  /**
+   * Returns the horizon up to which a feed is to be rendered in order to serve the given cutoff as well as the cutoffs
+   * served by the feed cached before.
+   *
+   * @param cutoff
+   *          the requested cutoff or <code>null</code> for all events
+   * @return the time in milliseconds before which the events of the feed have to start or {@link Long#MAX_VALUE} for
+   *         all events
+   */
+  long getHorizon(String organization, String captureAgentId, String seriesId, Date cutoff) {
+    if (cutoff == null)
+      return Long.MAX_VALUE;
+    final long horizon = cutoff.getTime() + TimeUnit.SECONDS.toMillis(EXPIRE);
+    final Feed calendar = calendars.getIfPresent(calendarKey(organization, captureAgentId, seriesId));
+    return calendar != null ? Math.max(horizon, calendar.horizon) : horizon;
+  }
+
+  /**
+   * Caches a feed unless a scheduling change for the capture agent has been reported since it has been started to be
+   * rendered.
+   *
+   * @param validUntil
+   *          the time in milliseconds until the feed is valid even without any scheduling changes
+   * @param horizon
+   *          the time in milliseconds before which all events of the feed start, see
+   *          {@link #getHorizon(String, String, String, Date)}
+   * @param calendar
+   *          the serialized iCalendar without any entries
+   * @param events
+   *          the entries of the feed in the order of their start dates
+   */
+  void putCalendar(String organization, String captureAgentId, String seriesId, long generation, long validUntil,
+          long horizon, String calendar, List<Event> events) {
+    if (getGeneration(captureAgentId) == generation)
+      calendars.put(calendarKey(organization, captureAgentId, seriesId), new Feed(generation, validUntil, horizon,
+              calendar, Collections.unmodifiableList(new ArrayList<>(events))));
+  }
+
+  /**
+   * Renders a feed from a serialized iCalendar without entries and the entries of the events starting before the
+   * cutoff.
+   */
+  static String render(String calendar, List<Event> events, Date cutoff) {
+    final int end = calendar.lastIndexOf(CALENDAR_END);
+    final StringBuilder feed = new StringBuilder(calendar.length() + 1024 * events.size());
+    feed.append(calendar, 0, end);
+    for (Event event : events) {
+      if (cutoff == null || event.start < cutoff.getTime())
+        feed.append(event.entry);
+    }
+    return feed.append(calendar, end, calendar.length()).toString();
+  }
+
+  /**
+   * Returns the cached entry of a scheduled event.
+   *
+   * @return the entry or <code>null</code> if it is not cached or the event has changed since
+   */
+  Event getEvent(String organization, ExtendedEventDto dto) {
+    final Event event = events.getIfPresent(eventKey(organization, dto));
+    if (event == null || !event.fingerprint.equals(fingerprint(dto)))
+      return null;
+    return event;
+  }
+
+  /** Caches the entry of a scheduled event. */
+  void putEvent(String organization, Event event, ExtendedEventDto dto) {
+    events.put(eventKey(organization, dto), event);
+  }
+
+  private AtomicLong generation(String captureAgentId) {
+    return generations.computeIfAbsent(captureAgentId, id -> new AtomicLong());
+  }
+
+  private static List<Object> calendarKey(String organization, String captureAgentId, String seriesId) {
+    return Arrays.asList(organization, captureAgentId, seriesId);
+  }
+
+  private static List<Object> eventKey(String organization, ExtendedEventDto dto) {
+    return Arrays.asList(organization, dto.getMediaPackageId());
+  }
+
+  /** The properties of a scheduled event which its calendar entry depends on. */
+  private static List<Object> fingerprint(ExtendedEventDto dto) {
+    return Arrays.asList(time(dto.getLastModifiedDate()), dto.getChecksum(), dto.getCaptureAgentId(),
+            time(dto.getStartDate()), time(dto.getEndDate()), dto.getCaptureAgentProperties());
+  }
+
+  private static Long time(Date date) {
+    return date != null ? date.getTime() : null;
+  }
+
+  private static long time(Date date, long defaultTime) {
+    return date != null ? date.getTime() : defaultTime;
+  }
+
+}
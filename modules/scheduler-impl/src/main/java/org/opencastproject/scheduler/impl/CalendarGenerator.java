@@ -123,6 +123,43 @@ public class CalendarGenerator {
    */
   public boolean addEvent(MediaPackage mp, DublinCoreCatalog catalog, String agentId, Date start, Date end,
           Date lastModified, String captureAgentMetadata) {
+    VEvent event = createEvent(mp, catalog, agentId, start, end, lastModified, captureAgentMetadata);
+    if (event == null) {
+      return false;
+    }
+    addEvent(event);
+    return true;
+  }
+
+  /**
+   * Adds an iCalendar entry created by
+   * {@link #createEvent(MediaPackage, DublinCoreCatalog, String, Date, Date, Date, String)} to this iCalendar
+   *
+   * @param event
+   *          the iCalendar entry
+   */
+  public void addEvent(VEvent event) {
+    cal.getComponents().add(event);
+  }
+
+  /**
+   * Creates an iCalendar entry for a scheduled event without adding it to this iCalendar
+   *
+   * @param mp
+   *          {@link MediaPackage} of event
+   * @param agentId
+   *          the agent identifier
+   * @param start
+   *          the start date
+   * @param end
+   *          the end date
+   * @param captureAgentMetadata
+   *          properties for capture agent metadata
+   *
+   * @return the iCalendar entry or <code>null</code> if the event has already passed or the entry cannot be created
+   */
+  public VEvent createEvent(MediaPackage mp, DublinCoreCatalog catalog, String agentId, Date start, Date end,
+          Date lastModified, String captureAgentMetadata) {
     String eventId = mp.getIdentifier().compact();
 
     logger.debug("Creating iCaleandar VEvent from scheduled event '{}'", eventId);
@@ -132,7 +169,7 @@ public class CalendarGenerator {
     Date marginEndDate = new org.joda.time.DateTime(endDate.getTime()).plusHours(1).toDate();
     if (marginEndDate.before(new Date())) {
       logger.debug("Event has already passed more than an hour, skipping!");
-      return false;
+      return null;
     }
     startDate.setUtc(true);
     endDate.setUtc(true);
@@ -187,13 +224,11 @@ public class CalendarGenerator {
 
     } catch (Exception e) {
       logger.error("Unable to add event '{}' to recording calendar", eventId, e);
-      return false;
+      return null;
     }
 
-    cal.getComponents().add(event);
-
-    logger.debug("new VEvent = {} ", event.toString());
-    return true;
+    logger.debug("new VEvent = {} ", event);
+    return event;
   }
 
   /**
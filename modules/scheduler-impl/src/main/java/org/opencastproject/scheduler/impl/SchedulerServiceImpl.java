@@ -116,6 +116,7 @@ import com.google.gson.reflect.TypeToken;
 import net.fortuna.ical4j.model.Period;
 import net.fortuna.ical4j.model.TimeZoneRegistry;
 import net.fortuna.ical4j.model.TimeZoneRegistryFactory;
+import net.fortuna.ical4j.model.component.VEvent;
 import net.fortuna.ical4j.model.property.RRule;
 
 import org.apache.commons.io.IOUtils;
@@ -151,7 +152,6 @@ import java.util.TimeZone;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
-import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -168,6 +168,12 @@ public class SchedulerServiceImpl extends AbstractIndexProducer implements Sched
   /** The maintenance configuration key */
   private static final String CFG_KEY_MAINTENANCE = "maintenance";
 
+  /** The configuration key for the maximum number of cached calendar feeds */
+  private static final String CFG_KEY_CALENDAR_CACHE_FEEDS = "calendar_cache_feeds";
+
+  /** The configuration key for the maximum number of cached calendar entries */
+  private static final String CFG_KEY_CALENDAR_CACHE_EVENTS = "calendar_cache_events";
+
   /** The default cache expire time in seconds */
   private static final int DEFAULT_CACHE_EXPIRE = 60;
 
@@ -198,6 +204,9 @@ public class SchedulerServiceImpl extends AbstractIndexProducer implements Sched
   protected Cache<String, String> lastModifiedCache = CacheBuilder.newBuilder()
           .expireAfterWrite(DEFAULT_CACHE_EXPIRE, TimeUnit.SECONDS).build();
 
+  /** The rendered calendars of the capture agents */
+  private volatile CalendarCache calendarCache = new CalendarCache();
+
   /** The message broker sender service */
   private MessageSender messageSender;
 
@@ -392,6 +401,12 @@ public class SchedulerServiceImpl extends AbstractIndexProducer implements Sched
       } else {
         logger.info("Set last modified cache to default {}", getHumanReadableTimeString(DEFAULT_CACHE_EXPIRE));
       }
+      final int calendarFeeds = OsgiUtil.getOptCfgAsInt(properties, CFG_KEY_CALENDAR_CACHE_FEEDS)
+              .getOrElse((int) CalendarCache.DEFAULT_MAX_CALENDARS);
+      final int calendarEvents = OsgiUtil.getOptCfgAsInt(properties, CFG_KEY_CALENDAR_CACHE_EVENTS)
+              .getOrElse((int) CalendarCache.DEFAULT_MAX_EVENTS);
+      calendarCache = new CalendarCache(calendarFeeds, calendarEvents);
+      logger.info("Caching up to {} calendar feeds and {} calendar entries", calendarFeeds, calendarEvents);
       final Option<Boolean> maintenance = OsgiUtil.getOptCfgAsBoolean(properties, CFG_KEY_MAINTENANCE);
       if (maintenance.getOrElse(false)) {
         final String name = SchedulerServiceImpl.class.getName();
@@ -1108,8 +1123,8 @@ public class SchedulerServiceImpl extends AbstractIndexProducer implements Sched
   private boolean checkPeriodOverlap(final List<Period> periods) {
     final List<Period> sortedPeriods = new ArrayList<>(periods);
     sortedPeriods.sort(Comparator.comparing(Period::getStart));
-    Period prior = periods.get(0);
-    for (Period current : periods.subList(1, periods.size())) {
+    Period prior = sortedPeriods.get(0);
+    for (Period current : sortedPeriods.subList(1, sortedPeriods.size())) {
       if (current.getStart().compareTo(prior.getEnd()) < 0) {
         return true;
       }
@@ -1134,17 +1149,35 @@ public class SchedulerServiceImpl extends AbstractIndexProducer implements Sched
     try {
       TimeZoneRegistry registry = TimeZoneRegistryFactory.getInstance().createRegistry();
 
-      Set<MediaPackage> events = new HashSet<>();
-
+      long start = Long.MAX_VALUE;
+      long end = Long.MIN_VALUE;
       for (Period event : periods) {
         event.setTimeZone(registry.getTimeZone(tz.getID()));
-        final Date startDate = event.getStart();
-        final Date endDate = event.getEnd();
-
-        events.addAll(findConflictingEvents(captureAgentId, startDate, endDate));
+        start = Math.min(start, event.getStart().getTime());
+        end = Math.max(end, event.getEnd().getTime());
       }
 
-      return new ArrayList<>(events);
+      // Fetch all events which may conflict with any of the periods at once and match them in a single pass
+      final Date from = new Date(start - Util.EVENT_MINIMUM_SEPARATION_MILLISECONDS);
+      final Date to = new Date(end + Util.EVENT_MINIMUM_SEPARATION_MILLISECONDS);
+      final Organization organization = new DefaultOrganization();
+      final User user = SecurityUtil.createSystemUser(systemUserName, organization);
+      final List<MediaPackage> conflictingEvents = new ArrayList<>();
+
+      SecurityUtil.runAs(securityService, organization, user, () -> {
+        try {
+          final List<ExtendedEventDto> candidates = persistence.search(Opt.some(captureAgentId), Opt.none(),
+                  Opt.some(to), Opt.some(from), Opt.none(), Opt.none());
+          for (String mpId : SchedulerUtil.findConflictingEvents(candidates, periods,
+                  Util.EVENT_MINIMUM_SEPARATION_MILLISECONDS)) {
+            conflictingEvents.add(getEventMediaPackage(mpId));
+          }
+        } catch (SchedulerServiceDatabaseException e) {
+          logger.error("Failed to get conflicting events", e);
+        }
+      });
+
+      return conflictingEvents;
     } catch (Exception e) {
       throw new SchedulerException(e);
     }
@@ -1155,68 +1188,127 @@ public class SchedulerServiceImpl extends AbstractIndexProducer implements Sched
           throws SchedulerException {
 
     try {
-      final Map<String, ExtendedEventDto> searchResult = persistence.search(captureAgentId, Opt.none(), cutoff,
-          Opt.some(DateTime.now().minusHours(1).toDate()), Opt.none(), Opt.none()).stream()
-          .collect(Collectors.toMap(ExtendedEventDto::getMediaPackageId, Function.identity()));
-      final AQueryBuilder query = assetManager.createQuery();
-      final AResult result = query.select(query.snapshot())
-          .where(withOrganization(query).and(query.mediaPackageIds(searchResult.keySet().toArray(new String[0])))
-              .and(withOwner(query)).and(query.version().isLatest()))
-          .run();
-
-      final CalendarGenerator cal = new CalendarGenerator(seriesService);
-      for (final ARecord record : result.getRecords()) {
-        final Opt<MediaPackage> optMp = record.getSnapshot().map(episodeToMp);
-
-        // If the event media package is empty, skip the event
-        if (optMp.isNone()) {
-          logger.warn("Mediapackage for event '{}' can't be found, event is not recorded", record.getMediaPackageId());
-          continue;
+      final String organization = securityService.getOrganization().getId();
+      final String agent = captureAgentId.getOr(null);
+      final String series = seriesId.getOr(null);
+      final Date cutoffDate = cutoff.getOr(null);
+      final CalendarCache calendarCache = this.calendarCache;
+
+      // Serve the feed from the cache unless the schedule of the agent has changed
+      final long generation = calendarCache.getGeneration(agent);
+      final String cached = calendarCache.getCalendar(organization, agent, series, cutoffDate, generation);
+      if (cached != null) {
+        logger.debug("Serving cached calendar for agent '{}'", agent);
+        return cached;
+      }
+
+      // Render the feed up to a horizon covering this and earlier cutoffs, so that it can be cached for all of them
+      final long horizon = calendarCache.getHorizon(organization, agent, series, cutoffDate);
+      final Opt<Date> startsTo = horizon == Long.MAX_VALUE ? Opt.none() : Opt.some(new Date(horizon));
+      final List<ExtendedEventDto> searchResult = persistence.search(captureAgentId, Opt.none(), startsTo,
+          Opt.some(DateTime.now().minusHours(1).toDate()), Opt.none(), Opt.none());
+
+      // Look up the calendar entries of unchanged events, only the others need to be created
+      final Map<String, CalendarCache.Event> entries = new HashMap<>();
+      final Map<String, ExtendedEventDto> changed = new HashMap<>();
+      for (ExtendedEventDto dto : searchResult) {
+        final CalendarCache.Event entry = calendarCache.getEvent(organization, dto);
+        if (entry != null) {
+          entries.put(dto.getMediaPackageId(), entry);
+        } else {
+          changed.put(dto.getMediaPackageId(), dto);
         }
+      }
+      if (!changed.isEmpty()) {
+        entries.putAll(createCalendarEntries(organization, changed));
+      }
 
-        if (seriesId.isSome() && !seriesId.get().equals(optMp.get().getSeries())) {
+      final List<CalendarCache.Event> feed = new ArrayList<>();
+      long validUntil = Long.MAX_VALUE;
+      for (ExtendedEventDto dto : searchResult) {
+        final CalendarCache.Event entry = entries.get(dto.getMediaPackageId());
+        if (entry == null) {
+          // Retry events which could not be added to the calendar soon
+          validUntil = Math.min(validUntil, System.currentTimeMillis() + DEFAULT_CACHE_EXPIRE * 1000L);
           continue;
         }
-
-        Opt<DublinCoreCatalog> catalogOpt = loadEpisodeDublinCoreFromAsset(record.getSnapshot().get());
-        if (catalogOpt.isNone()) {
-          logger.warn("No episode catalog available, skipping!");
+        if (series != null && !series.equals(entry.getSeriesId())) {
           continue;
         }
+        feed.add(entry);
+        // The event drops out of the calendar an hour after it has ended
+        validUntil = Math.min(validUntil, dto.getEndDate().getTime() + TimeUnit.HOURS.toMillis(1));
+      }
 
-        final Map<String, String> caMetadata = deserializeExtendedEventProperties(searchResult.get(record.getMediaPackageId()).getCaptureAgentProperties());
+      // The entries have been validated on their own. Without any entries, the iCalendar won't validate
+      final String calendar = new CalendarGenerator(seriesService).getCalendar().toString();
+      calendarCache.putCalendar(organization, agent, series, generation, validUntil, horizon, calendar, feed);
+      return CalendarCache.render(calendar, feed, cutoffDate);
 
-        // If the even properties are empty, skip the event
-        if (caMetadata.isEmpty()) {
-          logger.warn("Properties for event '{}' can't be found, event is not recorded", record.getMediaPackageId());
-          continue;
-        }
+    } catch (Exception e) {
+      throw new SchedulerException(e);
+    }
+  }
 
-        final String agentId = searchResult.get(record.getMediaPackageId()).getCaptureAgentId();
-        final Date start = searchResult.get(record.getMediaPackageId()).getStartDate();
-        final Date end = searchResult.get(record.getMediaPackageId()).getEndDate();
-        final Date lastModified = record.getSnapshot().get().getArchivalDate();
+  /**
+   * Creates the calendar entries of scheduled events and caches them.
+   *
+   * @return the created entries by media package identifier, events which cannot be added to the calendar are missing
+   */
+  private Map<String, CalendarCache.Event> createCalendarEntries(String organization,
+          Map<String, ExtendedEventDto> events) {
+    final AQueryBuilder query = assetManager.createQuery();
+    final AResult result = query.select(query.snapshot())
+        .where(withOrganization(query).and(query.mediaPackageIds(events.keySet().toArray(new String[0])))
+            .and(withOwner(query)).and(query.version().isLatest()))
+        .run();
+
+    final Map<String, CalendarCache.Event> entries = new HashMap<>();
+    final CalendarGenerator cal = new CalendarGenerator(seriesService);
+    for (final ARecord record : result.getRecords()) {
+      final Opt<MediaPackage> optMp = record.getSnapshot().map(episodeToMp);
+
+      // If the event media package is empty, skip the event
+      if (optMp.isNone()) {
+        logger.warn("Mediapackage for event '{}' can't be found, event is not recorded", record.getMediaPackageId());
+        continue;
+      }
 
-        // Add the entry to the calendar, skip it with a warning if adding fails
-        try {
-          cal.addEvent(optMp.get(), catalogOpt.get(), agentId, start, end, lastModified, toPropertyString(caMetadata));
-        } catch (Exception e) {
-          logger.warn("Error adding event '{}' to calendar, event is not recorded", record.getMediaPackageId(), e);
-        }
+      Opt<DublinCoreCatalog> catalogOpt = loadEpisodeDublinCoreFromAsset(record.getSnapshot().get());
+      if (catalogOpt.isNone()) {
+        logger.warn("No episode catalog available, skipping!");
+        continue;
       }
 
-      // Only validate calendars with events. Without any events, the iCalendar won't validate
-      if (cal.getCalendar().getComponents().size() > 0) {
-        cal.getCalendar().validate();
+      final ExtendedEventDto dto = events.get(record.getMediaPackageId());
+      final Map<String, String> caMetadata = deserializeExtendedEventProperties(dto.getCaptureAgentProperties());
+
+      // If the even properties are empty, skip the event
+      if (caMetadata.isEmpty()) {
+        logger.warn("Properties for event '{}' can't be found, event is not recorded", record.getMediaPackageId());
+        continue;
       }
 
-      return cal.getCalendar().toString();
+      final Date lastModified = record.getSnapshot().get().getArchivalDate();
 
-    } catch (Exception e) {
-      throw new SchedulerException(e);
+      // Create the entry, skip it with a warning if this fails
+      try {
+        final VEvent event = cal.createEvent(optMp.get(), catalogOpt.get(), dto.getCaptureAgentId(),
+                dto.getStartDate(), dto.getEndDate(), lastModified, toPropertyString(caMetadata));
+        if (event != null) {
+          event.validate();
+          final CalendarCache.Event entry = new CalendarCache.Event(dto, event.toString(), optMp.get().getSeries());
+          calendarCache.putEvent(organization, entry, dto);
+          entries.put(record.getMediaPackageId(), entry);
+        }
+      } catch (Exception e) {
+        logger.warn("Error adding event '{}' to calendar, event is not recorded", record.getMediaPackageId(), e);
+      }
     }
+    return entries;
   }
 
+
   @Override
   public String getScheduleLastModified(String captureAgentId) throws SchedulerException {
     notEmpty(captureAgentId, "captureAgentId");
@@ -1458,6 +1550,7 @@ public class SchedulerServiceImpl extends AbstractIndexProducer implements Sched
   }
 
   private void touchLastEntry(String captureAgentId) throws SchedulerException {
+    calendarCache.invalidate(captureAgentId);
     // touch last entry
     try {
       logger.debug("Marking calendar feed for {} as modified", captureAgentId);
@@ -38,6 +38,7 @@ import org.opencastproject.metadata.dublincore.DublinCoreValue;
 import org.opencastproject.metadata.dublincore.EventCatalogUIAdapter;
 import org.opencastproject.scheduler.api.SchedulerEvent;
 import org.opencastproject.scheduler.api.TechnicalMetadata;
+import org.opencastproject.scheduler.impl.persistence.ExtendedEventDto;
 import org.opencastproject.security.api.AccessControlList;
 import org.opencastproject.security.api.AccessControlUtil;
 import org.opencastproject.util.Checksum;
@@ -48,6 +49,8 @@ import com.entwinemedia.fn.Fn;
 import com.entwinemedia.fn.Fn2;
 import com.entwinemedia.fn.data.Opt;
 
+import net.fortuna.ical4j.model.Period;
+
 import org.apache.commons.lang3.CharUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -59,9 +62,11 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.TreeMap;
 
@@ -76,6 +81,54 @@ public final class SchedulerUtil {
   private SchedulerUtil() {
   }
 
+  /**
+   * Finds the events conflicting with any of the given periods in a single pass over both, sorted by their start.
+   * An event conflicts with a period if the two overlap once the period is extended by the given separation on both
+   * sides.
+   *
+   * @param events
+   *          the scheduled events to check
+   * @param periods
+   *          the periods to check, which must not overlap each other
+   * @param separationMillis
+   *          the minimum separation between events in milliseconds
+   * @return the media package identifiers of the conflicting events, in order of their start
+   */
+  public static List<String> findConflictingEvents(List<ExtendedEventDto> events, List<Period> periods,
+          long separationMillis) {
+    final List<ExtendedEventDto> sortedEvents = new ArrayList<>(events);
+    sortedEvents.sort(Comparator.comparing(ExtendedEventDto::getStartDate));
+    final List<Period> sortedPeriods = new ArrayList<>(periods);
+    sortedPeriods.sort(Comparator.comparing(Period::getStart));
+
+    // Events which have started before the end of the current period, ordered by their end
+    final PriorityQueue<ExtendedEventDto> started = new PriorityQueue<>(
+            Comparator.comparing(ExtendedEventDto::getEndDate));
+    final Set<ExtendedEventDto> conflicts = new HashSet<>();
+    int next = 0;
+    for (Period period : sortedPeriods) {
+      final long start = period.getStart().getTime() - separationMillis;
+      final long end = period.getEnd().getTime() + separationMillis;
+      while (next < sortedEvents.size() && sortedEvents.get(next).getStartDate().getTime() < end) {
+        started.add(sortedEvents.get(next++));
+      }
+      // Events ending before this period cannot conflict with any of the following periods either
+      while (!started.isEmpty() && started.peek().getEndDate().getTime() <= start) {
+        started.poll();
+      }
+      // All remaining events overlap this period
+      conflicts.addAll(started);
+      started.clear();
+    }
+
+    final List<String> result = new ArrayList<>();
+    for (ExtendedEventDto event : sortedEvents) {
+      if (conflicts.contains(event))
+        result.add(event.getMediaPackageId());
+    }
+    return result;
+  }
+
   public static final Comparator<Catalog> sortCatalogById = new Comparator<Catalog>() {
     @Override
     public int compare(Catalog c1, Catalog c2) {
@@ -0,0 +1,129 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package org.opencastproject.scheduler.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.opencastproject.scheduler.impl.persistence.ExtendedEventDto;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+
+public class CalendarCacheTest {
+
+  private static final String EMPTY = "BEGIN:VCALENDAR\r\nVERSION:2.0\r\nEND:VCALENDAR\r\n";
+
+  private final CalendarCache cache = new CalendarCache();
+
+  @Test
+  public void testCalendarIsInvalidatedBySchedulingChange() {
+    final long generation = cache.getGeneration("agent1");
+    cache.putCalendar("org", "agent1", null, generation, Long.MAX_VALUE, Long.MAX_VALUE, EMPTY,
+            Collections.emptyList());
+    cache.putCalendar("org", null, null, cache.getGeneration(null), Long.MAX_VALUE, Long.MAX_VALUE, EMPTY,
+            Collections.emptyList());
+    assertEquals(EMPTY, cache.getCalendar("org", "agent1", null, null, cache.getGeneration("agent1")));
+
+    // changes of other agents only affect the calendar of all agents
+    cache.invalidate("agent2");
+    assertEquals(EMPTY, cache.getCalendar("org", "agent1", null, null, cache.getGeneration("agent1")));
+    assertNull(cache.getCalendar("org", null, null, null, cache.getGeneration(null)));
+
+    cache.invalidate("agent1");
+    assertNull(cache.getCalendar("org", "agent1", null, null, cache.getGeneration("agent1")));
+  }
+
+  @Test
+  public void testCalendarRenderedDuringChangeIsNotCached() {
+    final long generation = cache.getGeneration("agent1");
+    cache.invalidate("agent1");
+    cache.putCalendar("org", "agent1", null, generation, Long.MAX_VALUE, Long.MAX_VALUE, EMPTY,
+            Collections.emptyList());
+    assertNull(cache.getCalendar("org", "agent1", null, null, cache.getGeneration("agent1")));
+  }
+
+  @Test
+  public void testCalendarExpires() {
+    final long generation = cache.getGeneration("agent1");
+    cache.putCalendar("org", "agent1", null, generation, System.currentTimeMillis() - 1, Long.MAX_VALUE, EMPTY,
+            Collections.emptyList());
+    assertNull(cache.getCalendar("org", "agent1", null, null, generation));
+  }
+
+  @Test
+  public void testCalendarIsSharedBetweenCutoffs() {
+    final CalendarCache.Event first = new CalendarCache.Event(event("mp1", 1000L, 2000L), "first\r\n", null);
+    final CalendarCache.Event second = new CalendarCache.Event(event("mp2", 3000L, 4000L), "second\r\n", null);
+    final long generation = cache.getGeneration("agent1");
+    cache.putCalendar("org", "agent1", null, generation, Long.MAX_VALUE, Long.MAX_VALUE, EMPTY,
+            Arrays.asList(first, second));
+
+    assertEquals("BEGIN:VCALENDAR\r\nVERSION:2.0\r\nfirst\r\nsecond\r\nEND:VCALENDAR\r\n",
+            cache.getCalendar("org", "agent1", null, null, generation));
+    assertEquals("BEGIN:VCALENDAR\r\nVERSION:2.0\r\nfirst\r\nEND:VCALENDAR\r\n",
+            cache.getCalendar("org", "agent1", null, new Date(3000L), generation));
+    assertEquals(EMPTY, cache.getCalendar("org", "agent1", null, new Date(1000L), generation));
+  }
+
+  @Test
+  public void testCalendarIsRenderedUpToHorizon() {
+    final CalendarCache.Event first = new CalendarCache.Event(event("mp1", 1000L, 2000L), "first\r\n", null);
+    final long generation = cache.getGeneration("agent1");
+    final long horizon = cache.getHorizon("org", "agent1", null, new Date(3000L));
+    assertTrue(horizon > 3000L);
+    assertEquals(Long.MAX_VALUE, cache.getHorizon("org", "agent1", null, null));
+    cache.putCalendar("org", "agent1", null, generation, Long.MAX_VALUE, horizon, EMPTY, Arrays.asList(first));
+
+    // cutoffs up to the horizon are served from the feed, later ones need the feed to be rendered again
+    assertEquals("BEGIN:VCALENDAR\r\nVERSION:2.0\r\nfirst\r\nEND:VCALENDAR\r\n",
+            cache.getCalendar("org", "agent1", null, new Date(horizon), generation));
+    assertNull(cache.getCalendar("org", "agent1", null, new Date(horizon + 1), generation));
+    assertNull(cache.getCalendar("org", "agent1", null, null, generation));
+
+    // the next feed covers the cutoffs of the previous one as well
+    assertEquals(horizon, cache.getHorizon("org", "agent1", null, new Date(1000L)));
+  }
+
+  @Test
+  public void testEventIsInvalidatedByChange() {
+    final ExtendedEventDto dto = event("mp1", 1000L, 2000L);
+    cache.putEvent("org", new CalendarCache.Event(dto, "entry", "series"), dto);
+    assertEquals("entry", cache.getEvent("org", dto).getEntry());
+    assertNull(cache.getEvent("org2", dto));
+
+    dto.setEndDate(new Date(3000L));
+    assertNull(cache.getEvent("org", dto));
+  }
+
+  private static ExtendedEventDto event(String mediaPackageId, long start, long end) {
+    final ExtendedEventDto dto = new ExtendedEventDto();
+    dto.setMediaPackageId(mediaPackageId);
+    dto.setStartDate(new Date(start));
+    dto.setEndDate(new Date(end));
+    return dto;
+  }
+
+}
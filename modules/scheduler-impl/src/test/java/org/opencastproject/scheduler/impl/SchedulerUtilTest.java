@@ -31,6 +31,7 @@ import org.opencastproject.mediapackage.MediaPackageElementFlavor;
 import org.opencastproject.metadata.dublincore.DublinCoreCatalog;
 import org.opencastproject.metadata.dublincore.EncodingSchemeUtils;
 import org.opencastproject.metadata.dublincore.Precision;
+import org.opencastproject.scheduler.impl.persistence.ExtendedEventDto;
 import org.opencastproject.security.api.AccessControlEntry;
 import org.opencastproject.security.api.AccessControlList;
 import org.opencastproject.util.DateTimeSupport;
@@ -38,6 +39,9 @@ import org.opencastproject.workspace.api.Workspace;
 
 import com.entwinemedia.fn.data.Opt;
 
+import net.fortuna.ical4j.model.DateTime;
+import net.fortuna.ical4j.model.Period;
+
 import org.apache.commons.io.FileUtils;
 import org.easymock.EasyMock;
 import org.junit.After;
@@ -49,6 +53,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -205,4 +210,41 @@ public class SchedulerUtilTest {
     Assert.assertNotEquals(expectedChecksum, checksum);
   }
 
+  @Test
+  public void testFindConflictingEvents() throws Exception {
+    final long minute = 60000L;
+    final List<ExtendedEventDto> events = new ArrayList<>();
+    events.add(event("long", 0, 500 * minute));
+    events.add(event("late", 900 * minute, 1000 * minute));
+    events.add(event("between", 250 * minute, 260 * minute));
+    events.add(event("separated", 400 * minute + 30000L, 420 * minute));
+
+    final List<Period> periods = new ArrayList<>();
+    periods.add(period(300 * minute, 400 * minute));
+    periods.add(period(100 * minute, 200 * minute));
+    periods.add(period(600 * minute, 700 * minute));
+
+    // without separation, the event starting shortly after the end of a period does not conflict
+    Assert.assertEquals(Arrays.asList("long"), SchedulerUtil.findConflictingEvents(events, periods, 0));
+    // with separation it does, but events in between the periods do not
+    Assert.assertEquals(Arrays.asList("long", "separated"),
+            SchedulerUtil.findConflictingEvents(events, periods, minute));
+    Assert.assertEquals(Arrays.asList("long"),
+            SchedulerUtil.findConflictingEvents(events, Arrays.asList(period(100 * minute, 200 * minute)), minute));
+    Assert.assertTrue(SchedulerUtil.findConflictingEvents(events,
+            Arrays.asList(period(700 * minute, 800 * minute)), minute).isEmpty());
+  }
+
+  private static ExtendedEventDto event(String mpId, long start, long end) {
+    final ExtendedEventDto event = new ExtendedEventDto();
+    event.setMediaPackageId(mpId);
+    event.setStartDate(new Date(start));
+    event.setEndDate(new Date(end));
+    return event;
+  }
+
+  private static Period period(long start, long end) {
+    return new Period(new DateTime(start), new DateTime(end));
+  }
+
 }
@@ -105,6 +105,16 @@ public class UnitTestWorkspace implements Workspace {
     return file.toURI();
   }
 
+  @Override
+  public URI moveToCollection(String collectionId, String fileName, File source)
+          throws IOException, IllegalArgumentException {
+    final File file = IoSupport.file(baseDir.getAbsolutePath(), "COLLECTIONS", collectionId, fileName);
+    file.getParentFile().mkdirs();
+    FileUtils.deleteQuietly(file);
+    FileUtils.moveFile(source, file);
+    return file.toURI();
+  }
+
   @Override
   public URI[] getCollectionContents(String collectionId) throws NotFoundException, IllegalArgumentException {
     return new URI[0];
@@ -36,6 +36,8 @@ import org.apache.logging.log4j.core.config.builder.api.ConfigurationBuilderFact
 import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.ResourceAlreadyExistsException;
 import org.elasticsearch.action.DocWriteResponse;
+import org.elasticsearch.action.admin.indices.alias.IndicesAliasesRequest;
+import org.elasticsearch.action.admin.indices.alias.IndicesAliasesRequestBuilder;
 import org.elasticsearch.action.admin.indices.create.CreateIndexRequest;
 import org.elasticsearch.action.admin.indices.create.CreateIndexResponse;
 import org.elasticsearch.action.admin.indices.delete.DeleteIndexRequest;
@@ -55,12 +57,15 @@ import org.elasticsearch.action.search.SearchType;
 import org.elasticsearch.action.support.WriteRequest;
 import org.elasticsearch.action.support.master.AcknowledgedResponse;
 import org.elasticsearch.client.Client;
+import org.elasticsearch.cluster.metadata.AliasMetaData;
+import org.elasticsearch.common.collect.ImmutableOpenMap;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.settings.loader.JsonSettingsLoader;
 import org.elasticsearch.common.transport.InetSocketTransportAddress;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.node.Node;
 import org.elasticsearch.node.NodeValidationException;
+import org.elasticsearch.rest.RestStatus;
 import org.elasticsearch.search.sort.SortOrder;
 import org.elasticsearch.transport.client.PreBuiltTransportClient;
 import org.osgi.service.component.ComponentContext;
@@ -75,9 +80,16 @@ import java.net.InetAddress;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * A search index implementation based on ElasticSearch.
@@ -96,6 +108,17 @@ public abstract class AbstractElasticsearchIndex implements SearchIndex {
   /** Configuration key defining the port of an external Elasticsearch server */
   public static final String ELASTICSEARCH_SERVER_PORT_KEY = "org.opencastproject.elasticsearch.server.port";
 
+  /** Configuration key defining the maximum number of buffered document updates, <code>0</code> disables buffering */
+  public static final String ELASTICSEARCH_WRITE_BUFFER_SIZE_KEY
+          = "org.opencastproject.elasticsearch.write.buffer.size";
+
+  /** Configuration key defining the maximum time in milliseconds document updates are buffered */
+  public static final String ELASTICSEARCH_WRITE_BUFFER_INTERVAL_KEY
+          = "org.opencastproject.elasticsearch.write.buffer.interval";
+
+  /** The default maximum time in milliseconds document updates are buffered */
+  public static final long DEFAULT_WRITE_BUFFER_INTERVAL = 1000L;
+
   /** Identifier of the root entry */
   private static final String ROOT_ID = "root";
 
@@ -132,6 +155,30 @@ public abstract class AbstractElasticsearchIndex implements SearchIndex {
   /** Port of an external Elasticsearch server to connect to */
   private int externalServerPort = 9300;
 
+  /** Maximum number of buffered document updates, buffering is disabled if this is <code>0</code> */
+  private int writeBufferSize = 0;
+
+  /** Maximum time in milliseconds document updates are buffered */
+  private long writeBufferInterval = DEFAULT_WRITE_BUFFER_INTERVAL;
+
+  /** Buffered document updates by document type and identifier, only the latest update of a document is kept */
+  private final Map<String, ElasticsearchDocument> pendingDocuments = new LinkedHashMap<>();
+
+  /** Buffered document updates that are being written to the index, guarded by the lock on the pending documents */
+  private final Map<String, ElasticsearchDocument> writingDocuments = new HashMap<>();
+
+  /** Lock making sure buffered updates are written in the order they have been buffered */
+  private final Object flushLock = new Object();
+
+  /** Periodically writes buffered document updates */
+  private ScheduledExecutorService flushExecutor = null;
+
+  /** The index receiving all document updates while this index is rebuilt, <code>null</code> if there is no rebuild */
+  private String rebuildIndex = null;
+
+  /** The number of document updates buffered while this index is rebuilt */
+  private int rebuildBufferSize = 0;
+
   /**
    * Returns an array of document types for the index. For every one of these, the corresponding document type
    * definition will be loaded.
@@ -161,6 +208,27 @@ public abstract class AbstractElasticsearchIndex implements SearchIndex {
     // Silently fall back to port 9300
     externalServerPort = Integer.parseInt(StringUtils.defaultIfBlank(
             ctx.getBundleContext().getProperty(ELASTICSEARCH_SERVER_PORT_KEY), "9300"));
+
+    // Buffering of document updates is disabled by default
+    int bufferSize = Integer.parseInt(StringUtils.defaultIfBlank(
+            ctx.getBundleContext().getProperty(ELASTICSEARCH_WRITE_BUFFER_SIZE_KEY), "0"));
+    long bufferInterval = Long.parseLong(StringUtils.defaultIfBlank(
+            ctx.getBundleContext().getProperty(ELASTICSEARCH_WRITE_BUFFER_INTERVAL_KEY),
+            Long.toString(DEFAULT_WRITE_BUFFER_INTERVAL)));
+    setWriteBuffer(bufferSize, bufferInterval);
+  }
+
+  /**
+   * Configures the buffering of document updates. This needs to be called before the index is initialized.
+   *
+   * @param size
+   *          the maximum number of buffered document updates, <code>0</code> disables buffering
+   * @param interval
+   *          the maximum time in milliseconds document updates are buffered
+   */
+  protected void setWriteBuffer(int size, long interval) {
+    writeBufferSize = size;
+    writeBufferInterval = interval;
   }
 
   /**
@@ -185,12 +253,19 @@ public abstract class AbstractElasticsearchIndex implements SearchIndex {
    */
   @Override
   public void clear() throws IOException {
+    synchronized (pendingDocuments) {
+      pendingDocuments.clear();
+    }
+    List<String> indices;
     try {
-      IndicesExistsResponse indicesExistsResponse = nodeClient.admin().indices()
-              .exists(new IndicesExistsRequest(getIndexName())).actionGet();
-      if (indicesExistsResponse.isExists()) {
-        AcknowledgedResponse delete = nodeClient.admin().indices().delete(new DeleteIndexRequest(getIndexName()))
-                .actionGet();
+      // Delete the index the name refers to if it has been rebuilt before
+      indices = getAliasedIndices();
+      if (indices.isEmpty() && indexExists(getIndexName())) {
+        indices = Collections.singletonList(getIndexName());
+      }
+      if (!indices.isEmpty()) {
+        AcknowledgedResponse delete = nodeClient.admin().indices()
+                .delete(new DeleteIndexRequest(indices.toArray(new String[indices.size()]))).actionGet();
         if (!delete.isAcknowledged())
           logger.error("Index '{}' could not be deleted", getIndexName());
       } else {
@@ -200,6 +275,7 @@ public abstract class AbstractElasticsearchIndex implements SearchIndex {
       throw new IOException("Cannot clear index", t);
     }
 
+    preparedIndices.removeAll(indices);
     preparedIndices.remove(getIndexName());
     // Create the index
     try {
@@ -222,6 +298,9 @@ public abstract class AbstractElasticsearchIndex implements SearchIndex {
    */
   protected boolean delete(String type, String uid) throws SearchIndexException {
 
+    // Make sure a buffered update does not bring the document back
+    flush();
+
     if (!preparedIndices.contains(index)) {
       try {
         createIndex(index);
@@ -232,7 +311,7 @@ public abstract class AbstractElasticsearchIndex implements SearchIndex {
 
     logger.debug("Removing element with id '{}' from searching index", uid);
 
-    DeleteRequestBuilder deleteRequest = nodeClient.prepareDelete(index, type, uid);
+    DeleteRequestBuilder deleteRequest = nodeClient.prepareDelete(getWriteIndex(), type, uid);
     deleteRequest.setRefreshPolicy(WriteRequest.RefreshPolicy.IMMEDIATE);
     DeleteResponse delete = deleteRequest.execute().actionGet();
     if (delete.getResult().equals(DocWriteResponse.Result.NOT_FOUND)) {
@@ -245,41 +324,380 @@ public abstract class AbstractElasticsearchIndex implements SearchIndex {
 
   /**
    * Posts the input document to the search index.
+   * <p>
+   * If write buffering is enabled, the documents are buffered and written together with other updates once the
+   * buffer is full, the buffer interval has passed or the buffered document types are queried. Repeated updates of
+   * the same document within that time are coalesced into one. Use {@link #getBufferedDocument(String, String)} to
+   * look up documents that may not have been written yet.
    *
    * @param documents
    *          the input documents
-   * @return the query response
+   * @return the query response, or <code>null</code> if the documents have been buffered
    * @throws SearchIndexException
    *           if posting to the index fails
    */
   protected BulkResponse update(ElasticsearchDocument... documents) throws SearchIndexException {
+    int bufferSize;
+    boolean full = false;
+    synchronized (pendingDocuments) {
+      bufferSize = rebuildIndex != null ? Math.max(writeBufferSize, rebuildBufferSize) : writeBufferSize;
+      if (bufferSize > 0) {
+        for (ElasticsearchDocument doc : documents) {
+          String key = getBufferKey(doc.getType(), doc.getUID());
+          // Remove first so that the document moves to the end of the write order
+          pendingDocuments.remove(key);
+          pendingDocuments.put(key, doc);
+        }
+        full = pendingDocuments.size() >= bufferSize;
+      }
+    }
+
+    if (bufferSize <= 0) {
+      BulkResponse bulkResponse = write(documents);
+      for (BulkItemResponse item : bulkResponse.getItems()) {
+        if (item.isFailed()) {
+          logger.warn("Error updating {}: {}", item, item.getFailureMessage());
+          throw new SearchIndexException("Cannot update documents in index " + index,
+                  new SearchIndexException(item.getFailureMessage()));
+        }
+      }
+      return bulkResponse;
+    }
+    if (full)
+      return flush();
+    return null;
+  }
+
+  /**
+   * Writes all buffered document updates to the index.
+   * <p>
+   * Documents that Elasticsearch rejects, e.g. because they do not match the mapping, are logged and dropped so that
+   * they do not block the documents buffered after them. Documents that could not be written because Elasticsearch
+   * is overloaded or not reachable at all are buffered again unless they have been updated in the meantime.
+   *
+   * @return the bulk response, or <code>null</code> if there was nothing to write
+   * @throws SearchIndexException
+   *           if the index cannot be reached
+   */
+  public BulkResponse flush() throws SearchIndexException {
+    synchronized (flushLock) {
+      List<ElasticsearchDocument> documents;
+      synchronized (pendingDocuments) {
+        if (pendingDocuments.isEmpty())
+          return null;
+        documents = new ArrayList<>(pendingDocuments.values());
+        writingDocuments.putAll(pendingDocuments);
+        pendingDocuments.clear();
+      }
+      logger.debug("Writing {} buffered documents to index {}", documents.size(), index);
+      try {
+        BulkResponse bulkResponse = write(documents.toArray(new ElasticsearchDocument[documents.size()]));
+        List<ElasticsearchDocument> retry = new ArrayList<>();
+        for (BulkItemResponse item : bulkResponse.getItems()) {
+          if (!item.isFailed())
+            continue;
+          ElasticsearchDocument doc = documents.get(item.getItemId());
+          if (item.status() == RestStatus.TOO_MANY_REQUESTS) {
+            retry.add(doc);
+          } else {
+            logger.error("Dropping update of document {} of type {} rejected by index {}: {}", doc.getUID(),
+                    doc.getType(), index, item.getFailureMessage());
+          }
+        }
+        rebuffer(retry);
+        return bulkResponse;
+      } catch (SearchIndexException e) {
+        rebuffer(documents);
+        throw e;
+      } finally {
+        synchronized (pendingDocuments) {
+          writingDocuments.clear();
+        }
+      }
+    }
+  }
+
+  /**
+   * Buffers documents that could not be written again, unless they have been updated in the meantime.
+   *
+   * @param documents
+   *          the documents to write again with the next flush
+   */
+  private void rebuffer(List<ElasticsearchDocument> documents) {
+    if (documents.isEmpty())
+      return;
+    logger.warn("Retrying the update of {} documents in index {} with the next flush", documents.size(), index);
+    synchronized (pendingDocuments) {
+      for (ElasticsearchDocument doc : documents) {
+        pendingDocuments.putIfAbsent(getBufferKey(doc.getType(), doc.getUID()), doc);
+      }
+    }
+  }
+
+  /**
+   * Returns the latest buffered update of a document that has not been written to the index yet. Read-modify-write
+   * cycles need to start from this version of the document rather than from the indexed one, since the latter does
+   * not contain the buffered changes yet.
+   *
+   * @param type
+   *          the document type
+   * @param uid
+   *          the document identifier
+   * @return the buffered document or <code>null</code> if there is no buffered update of the document
+   */
+  protected ElasticsearchDocument getBufferedDocument(String type, String uid) {
+    String key = getBufferKey(type, uid);
+    synchronized (pendingDocuments) {
+      ElasticsearchDocument doc = pendingDocuments.get(key);
+      return doc != null ? doc : writingDocuments.get(key);
+    }
+  }
+
+  /**
+   * Returns whether there are buffered updates of documents of the given types that have not been written yet.
+   *
+   * @param types
+   *          the document types, all types are considered if none are given
+   * @return <code>true</code> if there are buffered updates
+   */
+  protected boolean hasBufferedDocuments(String... types) {
+    synchronized (pendingDocuments) {
+      if (types == null || types.length == 0)
+        return !pendingDocuments.isEmpty() || !writingDocuments.isEmpty();
+      List<String> typeList = Arrays.asList(types);
+      return pendingDocuments.values().stream().anyMatch(doc -> typeList.contains(doc.getType()))
+              || writingDocuments.values().stream().anyMatch(doc -> typeList.contains(doc.getType()));
+    }
+  }
+
+  /**
+   * Returns a document from the index that is being rebuilt. Like buffered documents, these documents are not
+   * visible to queries until the rebuild is finished, so read-modify-write cycles need to start from them.
+   *
+   * @param type
+   *          the document type
+   * @param uid
+   *          the document identifier
+   * @return the document fields or <code>null</code> if the document has not been written to the new index yet or
+   *         if there is no rebuild in progress
+   * @throws SearchIndexException
+   *           if the document cannot be read
+   */
+  protected Map<String, Object> getRebuiltDocument(String type, String uid) throws SearchIndexException {
+    String target = rebuildIndex;
+    if (target == null)
+      return null;
+    try {
+      GetResponse response = nodeClient.prepareGet(target, type, uid).setRealtime(true).get();
+      return response.isExists() ? response.getSourceAsMap() : null;
+    } catch (ElasticsearchException e) {
+      throw new SearchIndexException("Cannot read document " + uid + " from index " + target, e);
+    }
+  }
+
+  /**
+   * Returns whether this index is being rebuilt.
+   *
+   * @return <code>true</code> if document updates are written to a new index
+   */
+  protected boolean isRebuilding() {
+    return rebuildIndex != null;
+  }
+
+  /**
+   * Starts to rebuild this index into a new index. Until the rebuild is finished, all document updates are written to
+   * the new index and buffered to be written in bulk, while queries are still answered from the current index.
+   *
+   * @param name
+   *          the name of the new index or <code>null</code> to create a new index. An existing index is reused, which
+   *          allows to resume an interrupted rebuild.
+   * @param bufferSize
+   *          the number of document updates to write in a single bulk request while rebuilding
+   * @return the name of the new index
+   * @throws SearchIndexException
+   *           if the new index cannot be created
+   * @throws IOException
+   *           if loading of the index configuration fails
+   */
+  protected String startRebuild(String name, int bufferSize) throws SearchIndexException, IOException {
+    if (rebuildIndex != null)
+      throw new IllegalStateException("Index " + index + " is already being rebuilt into " + rebuildIndex);
+    String target = StringUtils.isBlank(name) ? index + "_" + System.currentTimeMillis() : name;
+    // Write pending updates to the current index before they are routed to the new one
+    flush();
+    createIndex(target);
+    synchronized (pendingDocuments) {
+      rebuildIndex = target;
+      rebuildBufferSize = bufferSize;
+    }
+    logger.info("Rebuilding index {} into {}", index, target);
+    return target;
+  }
+
+  /**
+   * Finishes the rebuild of this index by pointing its name to the new index in a single, atomic alias update.
+   * Indices the name has been pointing to before are deleted.
+   *
+   * @throws SearchIndexException
+   *           if the buffered document updates cannot be written or if the alias cannot be switched
+   */
+  protected void finishRebuild() throws SearchIndexException {
+    String target = rebuildIndex;
+    if (target == null)
+      throw new IllegalStateException("Index " + index + " is not being rebuilt");
+    flush();
+
+    List<String> previous;
+    try {
+      previous = getAliasedIndices();
+      IndicesAliasesRequestBuilder aliases = nodeClient.admin().indices().prepareAliases();
+      if (previous.isEmpty() && indexExists(index)) {
+        // The index has been created before it was rebuilt for the first time, so it is replaced by the alias
+        aliases.addAliasAction(IndicesAliasesRequest.AliasActions.removeIndex().index(index));
+      }
+      for (String name : previous) {
+        aliases.removeAlias(name, index);
+      }
+      aliases.addAlias(target, index);
+      if (!aliases.get().isAcknowledged())
+        throw new SearchIndexException("Unable to point index " + index + " to " + target);
+    } catch (ElasticsearchException e) {
+      throw new SearchIndexException("Unable to point index " + index + " to " + target, e);
+    }
+
+    synchronized (pendingDocuments) {
+      rebuildIndex = null;
+    }
+    // Updates that have been buffered in the meantime are written through the alias now
+    flush();
+    for (String name : previous) {
+      deleteIndexQuietly(name);
+    }
+    logger.info("Index {} now refers to rebuilt index {}", index, target);
+  }
+
+  /**
+   * Stops the rebuild of this index without switching to the new index. Document updates are written to the current
+   * index again.
+   *
+   * @param keep
+   *          whether to keep the new index so that the rebuild can be resumed later on
+   */
+  protected void abortRebuild(boolean keep) {
+    String target = rebuildIndex;
+    if (target == null)
+      return;
+    flushQuietly();
+    synchronized (pendingDocuments) {
+      rebuildIndex = null;
+    }
+    if (!keep) {
+      deleteIndexQuietly(target);
+    }
+    logger.info("Aborted rebuild of index {} into {}", index, target);
+  }
+
+  /**
+   * Deletes an index that has been created by a rebuild, logging failures.
+   *
+   * @param name
+   *          the index name
+   */
+  protected void deleteIndexQuietly(String name) {
+    if (index.equals(name) || name.equals(rebuildIndex)) {
+      logger.warn("Not deleting index {} which is in use", name);
+      return;
+    }
+    preparedIndices.remove(name);
+    try {
+      if (indexExists(name))
+        nodeClient.admin().indices().delete(new DeleteIndexRequest(name)).actionGet();
+    } catch (ElasticsearchException e) {
+      logger.error("Unable to delete index {}", name, e);
+    }
+  }
+
+  /**
+   * Returns whether an index or alias of the given name exists.
+   *
+   * @param name
+   *          the index name
+   * @return <code>true</code> if the index exists
+   */
+  protected boolean indexExists(String name) {
+    return nodeClient.admin().indices().exists(new IndicesExistsRequest(name)).actionGet().isExists();
+  }
+
+  /**
+   * Returns the indices the name of this index is an alias for.
+   *
+   * @return the index names, empty if the name is not an alias
+   */
+  private List<String> getAliasedIndices() {
+    ImmutableOpenMap<String, List<AliasMetaData>> aliases = nodeClient.admin().indices().prepareGetAliases(index)
+            .get().getAliases();
+    List<String> indices = new ArrayList<>();
+    for (Iterator<String> it = aliases.keysIt(); it.hasNext();) {
+      String name = it.next();
+      if (!aliases.get(name).isEmpty())
+        indices.add(name);
+    }
+    return indices;
+  }
+
+  /**
+   * Returns the index document updates are written to.
+   *
+   * @return the new index while this index is rebuilt, the name of this index otherwise
+   */
+  protected String getWriteIndex() {
+    String target = rebuildIndex;
+    return target != null ? target : index;
+  }
+
+  private static String getBufferKey(String type, String uid) {
+    return type + "/" + uid;
+  }
+
+  /**
+   * Writes buffered document updates, logging instead of propagating failures. This is meant for background writes
+   * only, readers need to call {@link #flush()} so that they do not silently work on stale data.
+   */
+  protected void flushQuietly() {
+    try {
+      flush();
+    } catch (SearchIndexException e) {
+      logger.error("Unable to write buffered documents to index {}", index, e);
+    }
+  }
+
+  /**
+   * Writes the documents to the index using a single bulk request. Failures of single documents are reported in the
+   * items of the bulk response.
+   *
+   * @param documents
+   *          the documents
+   * @return the bulk response
+   * @throws SearchIndexException
+   *           if the bulk request fails as a whole
+   */
+  private BulkResponse write(ElasticsearchDocument... documents) throws SearchIndexException {
 
     BulkRequestBuilder bulkRequest = nodeClient.prepareBulk();
+    String target = getWriteIndex();
     for (ElasticsearchDocument doc : documents) {
       String type = doc.getType();
       String uid = doc.getUID();
-      bulkRequest.add(nodeClient.prepareIndex(index, type, uid).setSource(doc));
+      bulkRequest.add(nodeClient.prepareIndex(target, type, uid).setSource(doc));
     }
 
     // Make sure the operations are searchable immediately
     bulkRequest.setRefreshPolicy(WriteRequest.RefreshPolicy.IMMEDIATE);
 
     try {
-      BulkResponse bulkResponse = bulkRequest.execute().actionGet();
-
-      // Check for errors
-      if (bulkResponse.hasFailures()) {
-        for (BulkItemResponse item : bulkResponse.getItems()) {
-          if (item.isFailed()) {
-            logger.warn("Error updating {}: {}", item, item.getFailureMessage());
-            throw new SearchIndexException(item.getFailureMessage());
-          }
-        }
-      }
-
-      return bulkResponse;
+      return bulkRequest.execute().actionGet();
     } catch (Throwable t) {
-      throw new SearchIndexException("Cannot update documents in index " + index, t);
+      throw new SearchIndexException("Cannot update documents in index " + target, t);
     }
   }
 
@@ -341,6 +759,14 @@ public abstract class AbstractElasticsearchIndex implements SearchIndex {
 
     // Create the index
     createIndex(index);
+
+    if (writeBufferSize > 0 && flushExecutor == null) {
+      logger.info("Buffering up to {} document updates for {} ms in index {}", writeBufferSize, writeBufferInterval,
+              index);
+      flushExecutor = Executors.newSingleThreadScheduledExecutor();
+      flushExecutor.scheduleWithFixedDelay(this::flushQuietly, writeBufferInterval, writeBufferInterval,
+              TimeUnit.MILLISECONDS);
+    }
   }
 
   /**
@@ -350,6 +776,11 @@ public abstract class AbstractElasticsearchIndex implements SearchIndex {
    *           if stopping the Elasticsearch node fails
    */
   protected void close() throws IOException {
+    if (flushExecutor != null) {
+      flushExecutor.shutdown();
+      flushExecutor = null;
+    }
+    flushQuietly();
     try {
       if (nodeClient != null) {
         nodeClient.close();
@@ -506,8 +937,15 @@ public abstract class AbstractElasticsearchIndex implements SearchIndex {
    * @param query
    *          the search query
    * @return the request builder
+   * @throws SearchIndexException
+   *           if buffered document updates cannot be written to the index
    */
-  protected SearchRequestBuilder getSearchRequestBuilder(SearchQuery query, QueryBuilder queryBuilder) {
+  protected SearchRequestBuilder getSearchRequestBuilder(SearchQuery query, QueryBuilder queryBuilder)
+          throws SearchIndexException {
+
+    // Read your writes, but only write the buffer if it contains documents that may be part of the result
+    if (hasBufferedDocuments(query.getTypes()))
+      flush();
 
     SearchRequestBuilder requestBuilder = getSearchClient().prepareSearch(getIndexName());
     requestBuilder.setSearchType(SearchType.QUERY_THEN_FETCH);
@@ -25,6 +25,7 @@ package org.opencastproject.matterhorn.search.impl;
 import org.opencastproject.matterhorn.search.SearchIndexException;
 
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Stub implementation for the search index.
@@ -55,6 +56,27 @@ public class SearchIndexImplStub extends AbstractElasticsearchIndex {
     super.init(indexName, indexVersion);
   }
 
+  /**
+   * Creates a new search index that buffers document updates until they are flushed explicitly or the buffer is full.
+   *
+   * @param indexName
+   *          the name of the index
+   * @param indexVersion
+   *          the version
+   * @param bufferSize
+   *          the maximum number of buffered document updates
+   * @throws SearchIndexException
+   *           if the index cannot be created
+   * @throws IOException
+   *           if reading and writing from and to the index fails
+   */
+  public SearchIndexImplStub(String indexName, int indexVersion, String settingsPath, int bufferSize)
+          throws SearchIndexException, IOException {
+    indexSettingsPath = settingsPath;
+    setWriteBuffer(bufferSize, TimeUnit.HOURS.toMillis(1));
+    super.init(indexName, indexVersion);
+  }
+
   /**
    * Calls the underlying deactivate-method.
    *
@@ -23,11 +23,17 @@
 package org.opencastproject.matterhorn.search.impl;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.opencastproject.matterhorn.search.impl.SearchIndexImplStub.CONTENT_TYPE;
 
 import org.opencastproject.matterhorn.search.SearchMetadata;
 
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.index.query.QueryBuilders;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
@@ -38,6 +44,7 @@ import org.junit.rules.TemporaryFolder;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -48,6 +55,9 @@ public class SearchIndexTest {
   /** The search index */
   protected static SearchIndexImplStub idx = null;
 
+  /** The search index buffering document updates */
+  protected static SearchIndexImplStub bufferedIdx = null;
+
   /** The index root directory */
   protected static File idxRoot = null;
 
@@ -76,6 +86,7 @@ public class SearchIndexTest {
     System.setProperty("opencast.home", idxRoot.getPath());
     ElasticsearchUtils.createIndexConfigurationAt(idxRoot);
     idx = new SearchIndexImplStub(indexName, indexVersion, idxRoot.getPath());
+    bufferedIdx = new SearchIndexImplStub(indexName + "-buffered", indexVersion, idxRoot.getPath(), 100);
   }
 
   /**
@@ -84,6 +95,8 @@ public class SearchIndexTest {
   @AfterClass
   public static void tearDownClass() {
     try {
+      if (bufferedIdx != null)
+        bufferedIdx.close();
       if (idx != null)
         idx.close();
     } catch (IOException e) {
@@ -97,6 +110,7 @@ public class SearchIndexTest {
   @After
   public void tearDown() throws Exception {
     idx.clear();
+    bufferedIdx.clear();
   }
 
   /**
@@ -108,6 +122,138 @@ public class SearchIndexTest {
     assertEquals(indexVersion, idx.getIndexVersion());
   }
 
+  @Test
+  public void testBufferedUpdatesAreCoalesced() throws Exception {
+    assertNull(bufferedIdx.update(createDocument("1", "first")));
+    assertNull(bufferedIdx.update(createDocument("1", "second")));
+    assertNull(bufferedIdx.update(createDocument("2", "other")));
+
+    // Lookups see the latest buffered version before it is written
+    assertEquals(Collections.singletonList("second"), bufferedIdx.getBufferedDocument(CONTENT_TYPE, "1").get("title"));
+    assertTrue(bufferedIdx.hasBufferedDocuments(CONTENT_TYPE));
+    assertFalse(bufferedIdx.hasBufferedDocuments("version"));
+    assertEquals(0, countDocuments("second"));
+
+    BulkResponse response = bufferedIdx.flush();
+    assertNotNull(response);
+    assertEquals(2, response.getItems().length);
+    assertFalse(response.hasFailures());
+    assertNull(bufferedIdx.getBufferedDocument(CONTENT_TYPE, "1"));
+    assertNull(bufferedIdx.flush());
+
+    assertEquals(0, countDocuments("first"));
+    assertEquals(1, countDocuments("second"));
+    assertEquals(1, countDocuments("other"));
+  }
+
+  @Test
+  public void testRejectedDocumentDoesNotBlockTheBuffer() throws Exception {
+    // An object does not match the text mapping of the title
+    List<SearchMetadata<?>> metadata = new ArrayList<>();
+    SearchMetadata<Object> title = new SearchMetadataImpl<>("title");
+    title.addValue(Collections.singletonMap("invalid", "title"));
+    metadata.add(title);
+    bufferedIdx.update(new ElasticsearchDocument("1", CONTENT_TYPE, metadata));
+    bufferedIdx.update(createDocument("2", "valid"));
+
+    BulkResponse response = bufferedIdx.flush();
+    assertTrue(response.getItems()[0].isFailed());
+    assertFalse(response.getItems()[1].isFailed());
+    assertFalse(bufferedIdx.hasBufferedDocuments());
+    assertEquals(1, countDocuments("valid"));
+
+    // Later updates are written without failing on the rejected document again
+    bufferedIdx.update(createDocument("3", "later"));
+    response = bufferedIdx.flush();
+    assertEquals(1, response.getItems().length);
+    assertFalse(response.hasFailures());
+    assertEquals(1, countDocuments("later"));
+  }
+
+  @Test
+  public void testRebuildSwitchesIndexAtOnce() throws Exception {
+    bufferedIdx.update(createDocument("1", "old"));
+    bufferedIdx.flush();
+
+    String target = bufferedIdx.startRebuild(null, 10);
+    assertTrue(bufferedIdx.isRebuilding());
+    bufferedIdx.update(createDocument("2", "rebuilt"));
+    bufferedIdx.flush();
+
+    // Queries are answered from the current index while lookups see the rebuilt documents
+    assertEquals(1, countDocuments("old"));
+    assertEquals(0, countDocuments("rebuilt"));
+    assertNull(bufferedIdx.getRebuiltDocument(CONTENT_TYPE, "1"));
+    assertEquals(Collections.singletonList("rebuilt"), bufferedIdx.getRebuiltDocument(CONTENT_TYPE, "2").get("title"));
+
+    bufferedIdx.finishRebuild();
+    assertFalse(bufferedIdx.isRebuilding());
+    assertEquals(0, countDocuments("old"));
+    assertEquals(1, countDocuments("rebuilt"));
+
+    // Rebuilding again replaces the previously rebuilt index
+    bufferedIdx.startRebuild(null, 10);
+    bufferedIdx.update(createDocument("3", "again"));
+    bufferedIdx.finishRebuild();
+    assertFalse(bufferedIdx.indexExists(target));
+    assertEquals(0, countDocuments("rebuilt"));
+    assertEquals(1, countDocuments("again"));
+  }
+
+  @Test
+  public void testRebuildWritesInBulk() throws Exception {
+    // The unbuffered index buffers while rebuilding
+    idx.startRebuild(null, 2);
+    assertNull(idx.update(createDocument("1", "first")));
+    BulkResponse response = idx.update(createDocument("2", "second"));
+    assertNotNull(response);
+    assertEquals(2, response.getItems().length);
+    idx.finishRebuild();
+
+    // Afterwards, updates are written immediately again
+    assertNotNull(idx.update(createDocument("3", "third")));
+  }
+
+  @Test
+  public void testAbortedRebuildKeepsIndex() throws Exception {
+    bufferedIdx.update(createDocument("1", "old"));
+    bufferedIdx.flush();
+
+    String target = bufferedIdx.startRebuild(null, 10);
+    bufferedIdx.update(createDocument("2", "rebuilt"));
+    bufferedIdx.abortRebuild(true);
+    assertFalse(bufferedIdx.isRebuilding());
+    assertTrue(bufferedIdx.indexExists(target));
+    assertEquals(1, countDocuments("old"));
+    assertEquals(0, countDocuments("rebuilt"));
+
+    // The kept index can be resumed from
+    assertEquals(target, bufferedIdx.startRebuild(target, 10));
+    assertNotNull(bufferedIdx.getRebuiltDocument(CONTENT_TYPE, "2"));
+    bufferedIdx.abortRebuild(false);
+    assertFalse(bufferedIdx.indexExists(target));
+    assertEquals(1, countDocuments("old"));
+  }
+
+  /**
+   * Creates a content document with the given title.
+   */
+  private static ElasticsearchDocument createDocument(String id, String titleValue) {
+    List<SearchMetadata<?>> metadata = new ArrayList<>();
+    SearchMetadata<String> title = new SearchMetadataImpl<>("title");
+    title.addValue(titleValue);
+    metadata.add(title);
+    return new ElasticsearchDocument(id, CONTENT_TYPE, metadata);
+  }
+
+  /**
+   * Returns the number of documents in the buffered index whose title matches the given term.
+   */
+  private static long countDocuments(String term) {
+    return bufferedIdx.getSearchClient().prepareSearch(bufferedIdx.getIndexName()).setTypes(CONTENT_TYPE)
+            .setQuery(QueryBuilders.matchQuery("title", term)).get().getHits().getTotalHits();
+  }
+
   /**
    * Adds sample pages to the search index and returns the number of documents added.
    *
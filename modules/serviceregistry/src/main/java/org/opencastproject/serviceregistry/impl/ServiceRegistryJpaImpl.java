@@ -39,6 +39,7 @@ import static org.opencastproject.util.OsgiUtil.getOptContextProperty;
 
 import org.opencastproject.job.api.Job;
 import org.opencastproject.job.api.Job.Status;
+import org.opencastproject.job.api.JobListener;
 import org.opencastproject.job.jpa.JpaJob;
 import org.opencastproject.rest.RestConstants;
 import org.opencastproject.security.api.Organization;
@@ -52,6 +53,7 @@ import org.opencastproject.serviceregistry.api.HostRegistration;
 import org.opencastproject.serviceregistry.api.IncidentService;
 import org.opencastproject.serviceregistry.api.Incidents;
 import org.opencastproject.serviceregistry.api.JaxbServiceStatistics;
+import org.opencastproject.serviceregistry.api.JobStatusPublisher;
 import org.opencastproject.serviceregistry.api.ServiceRegistration;
 import org.opencastproject.serviceregistry.api.ServiceRegistry;
 import org.opencastproject.serviceregistry.api.ServiceRegistryException;
@@ -106,6 +108,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -123,7 +126,7 @@ import javax.persistence.TemporalType;
 import javax.persistence.TypedQuery;
 
 /** JPA implementation of the {@link ServiceRegistry} */
-public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
+public class ServiceRegistryJpaImpl implements ServiceRegistry, JobStatusPublisher, ManagedService {
 
   /** JPA persistence unit name */
   public static final String PERSISTENCE_UNIT = "org.opencastproject.common";
@@ -266,6 +269,9 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
   /** The dispatcher priority list */
   protected final Map<Long, String> dispatchPriorityList = new HashMap<>();
 
+  /** The listeners that are notified about job status changes */
+  private final List<JobListener> jobListeners = new CopyOnWriteArrayList<>();
+
   /** Whether to accept a job whose load exceeds the host’s max load */
   protected Boolean acceptJobLoadsExeedingMaxLoad = true;
 
@@ -922,6 +928,10 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
         updateServiceForFailover(em, job);
       }
 
+      if (oldJob.getStatus() != job.getStatus()) {
+        fireJobStatusChanged(jpaJob.toJob());
+      }
+
       return jpaJob;
     } catch (PersistenceException e) {
       throw new ServiceRegistryException(e);
@@ -935,6 +945,42 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
     }
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * @see org.opencastproject.serviceregistry.api.JobStatusPublisher#addJobListener(JobListener)
+   */
+  @Override
+  public void addJobListener(JobListener listener) {
+    jobListeners.add(listener);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @see org.opencastproject.serviceregistry.api.JobStatusPublisher#removeJobListener(JobListener)
+   */
+  @Override
+  public void removeJobListener(JobListener listener) {
+    jobListeners.remove(listener);
+  }
+
+  /**
+   * Notifies the job listeners about a job status change.
+   *
+   * @param job
+   *          the updated job
+   */
+  private void fireJobStatusChanged(Job job) {
+    for (JobListener listener : jobListeners) {
+      try {
+        listener.jobStatusChanged(job);
+      } catch (Exception e) {
+        logger.warn("Job listener {} failed handling the status change of {}", listener, job, e);
+      }
+    }
+  }
+
   @Override
   public Job updateJob(Job job) throws ServiceRegistryException {
     JpaJob jpaJob = JpaJob.from(job);
@@ -2965,6 +3011,9 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
           }
         }
 
+        // Load the registrations and running jobs once for the whole round of dispatching
+        DispatchSnapshot snapshot = new DispatchSnapshot(em);
+
         int jobsOffset = 0;
         List<JpaJob> dispatchableJobs = null;
         List<JpaJob> workflowJobs = new ArrayList();
@@ -2984,7 +3033,7 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
           if (dispatchableJobs.removeAll(workflowJobs) && dispatchableJobs.isEmpty())
             continue;
 
-          dispatchDispatchableJobs(em, dispatchableJobs);
+          dispatchDispatchableJobs(em, snapshot, dispatchableJobs);
         } while (jobsFound);
 
         jobsOffset = 0;
@@ -3004,11 +3053,11 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
           if (dispatchableJobs.removeAll(workflowJobs) && dispatchableJobs.isEmpty())
             continue;
 
-          dispatchDispatchableJobs(em, dispatchableJobs);
+          dispatchDispatchableJobs(em, snapshot, dispatchableJobs);
         } while (jobsFound);
 
         if (!workflowJobs.isEmpty())
-          dispatchDispatchableJobs(em, workflowJobs);
+          dispatchDispatchableJobs(em, snapshot, workflowJobs);
 
       } catch (Throwable t) {
         logger.warn("Error dispatching jobs", t);
@@ -3025,9 +3074,10 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
      * Dispatch the given jobs.
      *
      * @param em the entity manager
+     * @param snapshot the registrations and running jobs of the current round of dispatching
      * @param jobsToDispatch list with dispatchable jobs to dispatch
      */
-    private void dispatchDispatchableJobs(EntityManager em, List<JpaJob> jobsToDispatch) {
+    private void dispatchDispatchableJobs(EntityManager em, DispatchSnapshot snapshot, List<JpaJob> jobsToDispatch) {
       //Get the current system load
       SystemLoad systemLoad = getHostLoads(em);
 
@@ -3068,33 +3118,19 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
 
         // Start dispatching
         try {
-          List<ServiceRegistration> services = getServiceRegistrations(em);
-          List<HostRegistration> hosts = $(getHostRegistrations(em)).filter(filterOutPriorityHosts._2(job.getId()))
-                  .toList();
+          List<ServiceRegistration> services = snapshot.getServiceRegistrations();
+          List<HostRegistration> hosts = $(snapshot.getHostRegistrations())
+                  .filter(filterOutPriorityHosts._2(job.getId())).toList();
           List<ServiceRegistration> candidateServices = null;
 
           // Depending on whether this running job is trying to reach out to other services or whether this is an
           // attempt to execute the next operation in a workflow, choose either from a limited or from the full list
           // of services
-          Job parentJob = null;
-          try {
-            if (job.getParentJob() != null)
-              parentJob = getJob(job.getParentJob().getId());
-          } catch (NotFoundException e) {
-            // That's ok
-          }
+          JpaJob parentJob = job.getParentJob();
 
           // When a job A starts a series of child jobs, then those child jobs should only be dispatched at the
           // same time if there is processing capacity available.
-          boolean parentHasRunningChildren = false;
-          if (parentJob != null) {
-            for (Job child : getChildJobs(parentJob.getId())) {
-              if (Status.RUNNING.equals(child.getStatus())) {
-                parentHasRunningChildren = true;
-                break;
-              }
-            }
-          }
+          boolean parentHasRunningChildren = parentJob != null && snapshot.hasRunningChildren(parentJob.getId());
 
           // If this is a root job (a new workflow or a new workflow operation), then only dispatch if there is
           // capacity, i. e. the workflow service is ok dispatching the next workflow or the next workflow operation.
@@ -3118,6 +3154,9 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
             }
 
             dispatchPriorityList.remove(job.getId());
+
+            // The job is about to be started on the accepting host, so treat it as running for the rest of the round
+            snapshot.addRunningJob(job);
           } catch (ServiceUnavailableException e) {
             logger.debug("Jobs of type {} currently cannot be dispatched", job.getOperation());
             // Don't mark workflow jobs as undispatchable to not impact worklfow operations
@@ -3314,6 +3353,74 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
 
   }
 
+  /**
+   * The state the {@link JobDispatcher} needs to take its decisions during one round of dispatching. Service and host
+   * registrations as well as the currently running jobs are loaded once at the beginning of the round and the index of
+   * jobs with running children is updated in memory while jobs are being dispatched, so that the cost of a round
+   * grows with the number of dispatchable jobs only.
+   */
+  class DispatchSnapshot {
+
+    /** The service registrations */
+    private final List<ServiceRegistration> services;
+
+    /** The host registrations */
+    private final List<HostRegistration> hosts;
+
+    /** Identifiers of jobs that have at least one running descendant */
+    private final Set<Long> jobsWithRunningChildren = new HashSet<>();
+
+    /**
+     * Creates a new snapshot of the dispatching state.
+     *
+     * @param em
+     *          the entity manager used for the current round of dispatching
+     * @throws ServiceRegistryException
+     *           if loading the running jobs fails
+     */
+    DispatchSnapshot(EntityManager em) throws ServiceRegistryException {
+      services = getServiceRegistrations(em);
+      hosts = getHostRegistrations(em);
+      for (JpaJob job : getJobsByStatus(em, Status.RUNNING)) {
+        addRunningJob(job);
+      }
+    }
+
+    List<ServiceRegistration> getServiceRegistrations() {
+      return services;
+    }
+
+    List<HostRegistration> getHostRegistrations() {
+      return hosts;
+    }
+
+    /**
+     * Registers a job as running by marking all of its ancestors as having running children.
+     *
+     * @param job
+     *          the running job
+     */
+    void addRunningJob(JpaJob job) {
+      JpaJob parent = job.getParentJob();
+      // Stop as soon as an ancestor is known already, since its own ancestors have been marked before
+      while (parent != null && jobsWithRunningChildren.add(parent.getId())) {
+        parent = parent.getParentJob();
+      }
+    }
+
+    /**
+     * Returns whether any descendant of the given job is running.
+     *
+     * @param jobId
+     *          the job identifier
+     * @return <code>true</code> if the job has running children
+     */
+    boolean hasRunningChildren(long jobId) {
+      return jobsWithRunningChildren.contains(jobId);
+    }
+
+  }
+
   /** A periodic check on each service registration to ensure that it is still alive. */
   class JobProducerHeartbeat implements Runnable {
 
@@ -73,6 +73,7 @@ import java.util.Hashtable;
 import java.util.concurrent.Executors;
 
 import javax.management.ObjectInstance;
+import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 
 public class ServiceRegistryJpaImplTest {
@@ -461,4 +462,28 @@ public class ServiceRegistryJpaImplTest {
     Assert.assertEquals(runTime, updatedJob.getRunTime());
   }
 
+  @Test
+  public void testDispatchSnapshotTracksRunningDescendants() throws Exception {
+    serviceRegistryJpaImpl.activate(null);
+    registerTestHostAndService();
+    Job root = serviceRegistryJpaImpl.createJob(TEST_HOST, TEST_SERVICE, TEST_OPERATION, null, null, false, null);
+    Job child = serviceRegistryJpaImpl.createJob(TEST_HOST, TEST_SERVICE, TEST_OPERATION, null, null, false, root);
+    Job grandChild = serviceRegistryJpaImpl.createJob(TEST_HOST, TEST_SERVICE, TEST_OPERATION, null, null, false,
+            child);
+    Job other = serviceRegistryJpaImpl.createJob(TEST_HOST, TEST_SERVICE, TEST_OPERATION, null, null, false, null);
+    grandChild.setStatus(Status.RUNNING);
+    serviceRegistryJpaImpl.updateJob(grandChild);
+
+    EntityManager em = emf.createEntityManager();
+    try {
+      ServiceRegistryJpaImpl.DispatchSnapshot snapshot = serviceRegistryJpaImpl.new DispatchSnapshot(em);
+      Assert.assertTrue(snapshot.hasRunningChildren(root.getId()));
+      Assert.assertTrue(snapshot.hasRunningChildren(child.getId()));
+      Assert.assertFalse(snapshot.hasRunningChildren(grandChild.getId()));
+      Assert.assertFalse(snapshot.hasRunningChildren(other.getId()));
+    } finally {
+      em.close();
+    }
+  }
+
 }
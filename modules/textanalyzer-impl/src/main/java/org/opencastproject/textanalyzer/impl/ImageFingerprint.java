@@ -0,0 +1,89 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package org.opencastproject.textanalyzer.impl;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+/**
+ * A small grayscale thumbnail of an image, used to detect consecutive near-duplicate slides which do not need to be
+ * passed through text extraction again.
+ */
+final class ImageFingerprint {
+
+  /** Width and height of the thumbnail */
+  private static final int SIZE = 32;
+
+  /** The gray values of the thumbnail */
+  private final byte[] pixels;
+
+  private ImageFingerprint(byte[] pixels) {
+    this.pixels = pixels;
+  }
+
+  /**
+   * Creates the fingerprint of an image file.
+   *
+   * @param imageFile
+   *          the image
+   * @return the fingerprint or <code>null</code> if the image format is not supported
+   * @throws IOException
+   *           if reading the image fails
+   */
+  static ImageFingerprint of(File imageFile) throws IOException {
+    BufferedImage image = ImageIO.read(imageFile);
+    if (image == null)
+      return null;
+    BufferedImage thumbnail = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_BYTE_GRAY);
+    Graphics2D g = thumbnail.createGraphics();
+    try {
+      g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+      g.drawImage(image, 0, 0, SIZE, SIZE, null);
+    } finally {
+      g.dispose();
+    }
+    byte[] pixels = new byte[SIZE * SIZE];
+    thumbnail.getRaster().getDataElements(0, 0, SIZE, SIZE, pixels);
+    return new ImageFingerprint(pixels);
+  }
+
+  /**
+   * Returns the mean absolute difference of the gray values of both thumbnails.
+   *
+   * @param other
+   *          the fingerprint to compare with
+   * @return the difference between 0 (identical) and 1
+   */
+  float distance(ImageFingerprint other) {
+    long sum = 0;
+    for (int i = 0; i < pixels.length; i++) {
+      sum += Math.abs((pixels[i] & 0xff) - (other.pixels[i] & 0xff));
+    }
+    return sum / (255f * pixels.length);
+  }
+
+}
@@ -26,6 +26,7 @@ import org.opencastproject.job.api.AbstractJobProducer;
 import org.opencastproject.job.api.Job;
 import org.opencastproject.mediapackage.Attachment;
 import org.opencastproject.mediapackage.Catalog;
+import org.opencastproject.mediapackage.MediaPackageElement;
 import org.opencastproject.mediapackage.MediaPackageElementBuilderFactory;
 import org.opencastproject.mediapackage.MediaPackageElementParser;
 import org.opencastproject.mediapackage.MediaPackageElements;
@@ -68,6 +69,11 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Dictionary;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Media analysis service that takes takes an image and returns text as extracted from that image.
@@ -79,7 +85,7 @@ public class TextAnalyzerServiceImpl extends AbstractJobProducer implements Text
 
   /** List of available operations on jobs */
   private enum Operation {
-    Extract
+    Extract, ExtractBatch
   };
 
   /** Resulting collection in the working file repository */
@@ -94,6 +100,36 @@ public class TextAnalyzerServiceImpl extends AbstractJobProducer implements Text
   /** The approximate load placed on the system by creating a text analysis job */
   private float analysisJobLoad = DEFAULT_ANALYSIS_JOB_LOAD;
 
+  /** The approximate load placed on the system by creating a batch text analysis job */
+  public static final float DEFAULT_ANALYSIS_BATCH_JOB_LOAD = 1.0f;
+
+  /** The key to look for in the service configuration file to override the {@link DEFAULT_ANALYSIS_BATCH_JOB_LOAD} */
+  public static final String ANALYSIS_BATCH_JOB_LOAD_KEY = "job.load.analysis.batch";
+
+  /** The approximate load placed on the system by creating a batch text analysis job */
+  private float analysisBatchJobLoad = DEFAULT_ANALYSIS_BATCH_JOB_LOAD;
+
+  /** The default number of text extractions running in parallel for a batch job */
+  public static final int DEFAULT_BATCH_WORKERS = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+  /** The key to look for in the service configuration file to override the {@link DEFAULT_BATCH_WORKERS} */
+  public static final String BATCH_WORKERS_KEY = "batch.workers";
+
+  /** The default difference below which consecutive images of a batch are considered to show the same slide */
+  public static final float DEFAULT_DUPLICATE_THRESHOLD = 0.005f;
+
+  /** The key to look for in the service configuration file to override the {@link DEFAULT_DUPLICATE_THRESHOLD} */
+  public static final String DUPLICATE_THRESHOLD_KEY = "batch.duplicate.threshold";
+
+  /** The difference below which consecutive images of a batch are considered to show the same slide */
+  private float duplicateThreshold = DEFAULT_DUPLICATE_THRESHOLD;
+
+  /** The number of text extractions running in parallel for a batch job */
+  private int batchWorkerCount = DEFAULT_BATCH_WORKERS;
+
+  /** The workers running the text extractions of batch jobs */
+  private ThreadPoolExecutor batchWorkers = null;
+
   /** The text extraction implemenetation */
   private TextExtractor textExtractor = null;
 
@@ -135,6 +171,19 @@ public class TextAnalyzerServiceImpl extends AbstractJobProducer implements Text
   public void activate(ComponentContext cc) {
     logger.info("Activating Text analyser service");
     super.activate(cc);
+    // The configuration may have been updated before the activation
+    synchronized (this) {
+      batchWorkers = new ThreadPoolExecutor(batchWorkerCount, batchWorkerCount, 0L, TimeUnit.MILLISECONDS,
+              new ArrayBlockingQueue<>(batchWorkerCount * 2), new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+  }
+
+  /**
+   * OSGi callback on component deactivation.
+   */
+  public void deactivate() {
+    if (batchWorkers != null)
+      batchWorkers.shutdownNow();
   }
 
   /**
@@ -152,6 +201,21 @@ public class TextAnalyzerServiceImpl extends AbstractJobProducer implements Text
     }
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * @see org.opencastproject.textanalyzer.api.TextAnalyzerService#extract(java.util.List)
+   */
+  @Override
+  public Job extract(List<Attachment> images) throws TextAnalyzerException, MediaPackageException {
+    try {
+      return serviceRegistry.createJob(JOB_TYPE, Operation.ExtractBatch.toString(),
+              Arrays.asList(MediaPackageElementParser.getArrayAsXml(images)), analysisBatchJobLoad);
+    } catch (ServiceRegistryException e) {
+      throw new TextAnalyzerException("Unable to create job", e);
+    }
+  }
+
   /**
    * Starts text extraction on the image and returns a receipt containing the final result in the form of an
    * Mpeg7Catalog.
@@ -170,8 +234,6 @@ public class TextAnalyzerServiceImpl extends AbstractJobProducer implements Text
 
     File imageFile = null;
     try {
-      Mpeg7CatalogImpl mpeg7 = Mpeg7CatalogImpl.newInstance();
-
       logger.info("Starting text extraction from {}", imageUrl);
       try {
         imageFile = workspace.get(imageUrl);
@@ -181,41 +243,9 @@ public class TextAnalyzerServiceImpl extends AbstractJobProducer implements Text
         throw new TextAnalyzerException("Unable to access " + imageUrl + " in workspace", e);
       }
       VideoText[] videoTexts = analyze(imageFile, image.getIdentifier());
-
-      // Create a temporal decomposition
-      MediaTime mediaTime = new MediaTimeImpl(0, 0);
-      Video avContent = mpeg7.addVideoContent(image.getIdentifier(), mediaTime, null);
-      TemporalDecomposition<VideoSegment> temporalDecomposition = (TemporalDecomposition<VideoSegment>) avContent
-              .getTemporalDecomposition();
-
-      // Add a segment
-      VideoSegment videoSegment = temporalDecomposition.createSegment("segment-0");
-      videoSegment.setMediaTime(mediaTime);
-
-      // Add the video text to the spacio temporal decomposition of the segment
-      SpatioTemporalDecomposition spatioTemporalDecomposition = videoSegment.createSpatioTemporalDecomposition(true,
-              false);
-      for (VideoText videoText : videoTexts) {
-        spatioTemporalDecomposition.addVideoText(videoText);
-      }
-
       logger.info("Text extraction of {} finished, {} lines found", attachment.getURI(), videoTexts.length);
 
-      URI uri;
-      InputStream in;
-      try {
-        in = mpeg7CatalogService.serialize(mpeg7);
-      } catch (IOException e) {
-        throw new TextAnalyzerException("Error serializing mpeg7", e);
-      }
-      try {
-        uri = workspace.putInCollection(COLLECTION_ID, job.getId() + ".xml", in);
-      } catch (IOException e) {
-        throw new TextAnalyzerException("Unable to put mpeg7 into the workspace", e);
-      }
-      Catalog catalog = (Catalog) MediaPackageElementBuilderFactory.newInstance().newElementBuilder()
-              .newElement(Catalog.TYPE, MediaPackageElements.TEXTS);
-      catalog.setURI(uri);
+      Catalog catalog = createCatalog(image.getIdentifier(), videoTexts, job.getId() + ".xml");
 
       logger.debug("Created MPEG7 catalog for {}", imageUrl);
 
@@ -236,6 +266,135 @@ public class TextAnalyzerServiceImpl extends AbstractJobProducer implements Text
     }
   }
 
+  /**
+   * Runs text extraction on all images and returns one catalog per image. The text extractions run on the batch
+   * workers, while consecutive images showing the same slide are only analyzed once.
+   *
+   * @param job
+   *          the batch job
+   * @param images
+   *          the elements to analyze
+   * @return the resulting mpeg-7 catalogs, in the order of the images
+   * @throws TextAnalyzerException
+   */
+  private List<Catalog> extract(Job job, List<Attachment> images) throws TextAnalyzerException {
+    try {
+      logger.info("Starting text extraction from {} images", images.size());
+
+      // Submit the text extraction of all images that differ from their predecessor
+      List<Future<List<String>>> results = new ArrayList<>(images.size());
+      Future<List<String>> previousResult = null;
+      ImageFingerprint previousFingerprint = null;
+      int skipped = 0;
+      for (Attachment image : images) {
+        final File imageFile;
+        try {
+          imageFile = workspace.get(image.getURI());
+        } catch (NotFoundException e) {
+          throw new TextAnalyzerException("Image " + image.getURI() + " not found in workspace", e);
+        } catch (IOException e) {
+          throw new TextAnalyzerException("Unable to access " + image.getURI() + " in workspace", e);
+        }
+        ImageFingerprint fingerprint = duplicateThreshold > 0 ? ImageFingerprint.of(imageFile) : null;
+        if (previousResult != null && fingerprint != null && previousFingerprint != null
+                && fingerprint.distance(previousFingerprint) < duplicateThreshold) {
+          logger.debug("Skipping text extraction of {} since it shows the same slide as its predecessor",
+                  image.getURI());
+          results.add(previousResult);
+          skipped++;
+          continue;
+        }
+        previousResult = batchWorkers.submit(() -> textExtractor.extract(imageFile));
+        previousFingerprint = fingerprint;
+        results.add(previousResult);
+      }
+
+      // Collect the results
+      List<Catalog> catalogs = new ArrayList<>(images.size());
+      for (int i = 0; i < images.size(); i++) {
+        Attachment image = images.get(i);
+        List<String> extractedText;
+        try {
+          extractedText = results.get(i).get();
+        } catch (ExecutionException e) {
+          logger.warn("Error extracting text from {}", image.getURI(), e.getCause());
+          throw new TextAnalyzerException(e.getCause());
+        }
+        VideoText[] videoTexts = toVideoTexts(extractedText, image.getIdentifier());
+        catalogs.add(createCatalog(image.getIdentifier(), videoTexts, job.getId() + "-" + i + ".xml"));
+      }
+
+      logger.info("Text extraction of {} images finished, {} of them skipped as duplicates", images.size(), skipped);
+      return catalogs;
+    } catch (Exception e) {
+      logger.warn("Error extracting text from {} images", images.size(), e);
+      if (e instanceof TextAnalyzerException) {
+        throw (TextAnalyzerException) e;
+      } else {
+        throw new TextAnalyzerException(e);
+      }
+    } finally {
+      for (Attachment image : images) {
+        try {
+          workspace.delete(image.getURI());
+        } catch (Exception e) {
+          logger.warn("Unable to delete temporary text analysis image {}: {}", image.getURI(), e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Creates an mpeg-7 catalog containing the video text of an image and puts it into the workspace.
+   *
+   * @param id
+   *          the identifier of the analyzed image
+   * @param videoTexts
+   *          the video text found on the image
+   * @param filename
+   *          the file name of the catalog in the workspace
+   * @return the catalog
+   * @throws TextAnalyzerException
+   *           if the catalog cannot be stored
+   */
+  private Catalog createCatalog(String id, VideoText[] videoTexts, String filename) throws TextAnalyzerException {
+    Mpeg7CatalogImpl mpeg7 = Mpeg7CatalogImpl.newInstance();
+
+    // Create a temporal decomposition
+    MediaTime mediaTime = new MediaTimeImpl(0, 0);
+    Video avContent = mpeg7.addVideoContent(id, mediaTime, null);
+    TemporalDecomposition<VideoSegment> temporalDecomposition = (TemporalDecomposition<VideoSegment>) avContent
+            .getTemporalDecomposition();
+
+    // Add a segment
+    VideoSegment videoSegment = temporalDecomposition.createSegment("segment-0");
+    videoSegment.setMediaTime(mediaTime);
+
+    // Add the video text to the spacio temporal decomposition of the segment
+    SpatioTemporalDecomposition spatioTemporalDecomposition = videoSegment.createSpatioTemporalDecomposition(true,
+            false);
+    for (VideoText videoText : videoTexts) {
+      spatioTemporalDecomposition.addVideoText(videoText);
+    }
+
+    URI uri;
+    InputStream in;
+    try {
+      in = mpeg7CatalogService.serialize(mpeg7);
+    } catch (IOException e) {
+      throw new TextAnalyzerException("Error serializing mpeg7", e);
+    }
+    try {
+      uri = workspace.putInCollection(COLLECTION_ID, filename, in);
+    } catch (IOException e) {
+      throw new TextAnalyzerException("Unable to put mpeg7 into the workspace", e);
+    }
+    Catalog catalog = (Catalog) MediaPackageElementBuilderFactory.newInstance().newElementBuilder()
+            .newElement(Catalog.TYPE, MediaPackageElements.TEXTS);
+    catalog.setURI(uri);
+    return catalog;
+  }
+
   /**
    * {@inheritDoc}
    *
@@ -253,6 +412,12 @@ public class TextAnalyzerServiceImpl extends AbstractJobProducer implements Text
           Attachment element = (Attachment) MediaPackageElementParser.getFromXml(arguments.get(0));
           Catalog catalog = extract(job, element);
           return MediaPackageElementParser.getAsXml(catalog);
+        case ExtractBatch:
+          List<Attachment> images = new ArrayList<>();
+          for (MediaPackageElement image : MediaPackageElementParser.getArrayFromXml(arguments.get(0))) {
+            images.add((Attachment) image);
+          }
+          return MediaPackageElementParser.getArrayAsXml(extract(job, images));
         default:
           throw new IllegalStateException("Don't know how to handle operation '" + operation + "'");
       }
@@ -280,7 +445,6 @@ public class TextAnalyzerServiceImpl extends AbstractJobProducer implements Text
 
     /* Call the text extractor implementation to extract the text from the
      * provided image file */
-    List<VideoText> videoTexts = new ArrayList<VideoText>();
     List<String> extractedText;
     try {
       extractedText = textExtractor.extract(imageFile);
@@ -288,8 +452,21 @@ public class TextAnalyzerServiceImpl extends AbstractJobProducer implements Text
       logger.warn("Error extracting text from {}", imageFile, e);
       throw new TextAnalyzerException(e);
     }
+    return toVideoTexts(extractedText, id);
+  }
 
+  /**
+   * Returns the video text elements for the lines extracted from an image.
+   *
+   * @param extractedText
+   *          the lines of text
+   * @param id
+   *          the video text id
+   * @return the video text
+   */
+  private VideoText[] toVideoTexts(List<String> extractedText, String id) {
     /* Get detected text as raw string */
+    List<VideoText> videoTexts = new ArrayList<VideoText>();
     int i = 1;
     for (String line : extractedText) {
       VideoText videoText = new VideoTextImpl(id + "-" + i++);
@@ -427,5 +604,39 @@ public class TextAnalyzerServiceImpl extends AbstractJobProducer implements Text
   @Override
   public void updated(@SuppressWarnings("rawtypes") Dictionary properties) throws ConfigurationException {
     analysisJobLoad = LoadUtil.getConfiguredLoadValue(properties, ANALYSIS_JOB_LOAD_KEY, DEFAULT_ANALYSIS_JOB_LOAD, serviceRegistry);
+    analysisBatchJobLoad = LoadUtil.getConfiguredLoadValue(properties, ANALYSIS_BATCH_JOB_LOAD_KEY,
+            DEFAULT_ANALYSIS_BATCH_JOB_LOAD, serviceRegistry);
+
+    int workers = DEFAULT_BATCH_WORKERS;
+    String value = (String) properties.get(BATCH_WORKERS_KEY);
+    if (value != null) {
+      try {
+        workers = Math.max(1, Integer.parseInt(value.trim()));
+      } catch (NumberFormatException e) {
+        logger.warn("Found illegal value '{}' for the number of batch workers, using {}", value, workers);
+      }
+    }
+    logger.info("Running up to {} text extractions in parallel for batch jobs", workers);
+    synchronized (this) {
+      batchWorkerCount = workers;
+      if (batchWorkers != null && workers > batchWorkers.getMaximumPoolSize()) {
+        batchWorkers.setMaximumPoolSize(workers);
+        batchWorkers.setCorePoolSize(workers);
+      } else if (batchWorkers != null) {
+        batchWorkers.setCorePoolSize(workers);
+        batchWorkers.setMaximumPoolSize(workers);
+      }
+    }
+
+    duplicateThreshold = DEFAULT_DUPLICATE_THRESHOLD;
+    value = (String) properties.get(DUPLICATE_THRESHOLD_KEY);
+    if (value != null) {
+      try {
+        duplicateThreshold = Float.parseFloat(value.trim());
+      } catch (NumberFormatException e) {
+        logger.warn("Found illegal value '{}' for the duplicate threshold, using {}", value, duplicateThreshold);
+      }
+    }
+    logger.info("Skipping text extraction of consecutive images differing less than {}", duplicateThreshold);
   }
 }
@@ -39,6 +39,9 @@ import org.osgi.service.component.ComponentContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import javax.servlet.http.HttpServletResponse;
 import javax.ws.rs.FormParam;
 import javax.ws.rs.POST;
@@ -105,6 +108,42 @@ public class TextAnalysisRestEndpoint extends AbstractJobProducerEndpoint {
     }
   }
 
+  @POST
+  @Produces(MediaType.TEXT_XML)
+  @Path("batch")
+  @RestQuery(name = "analyzebatch", description = "Submit a list of images for analysis.", restParameters = {
+          @RestParameter(description = "The images to analyze for text.", isRequired = true, name = "images",
+                  type = RestParameter.Type.TEXT) }, reponses = {
+          @RestResponse(description = "OK, The receipt to use when polling for the resulting mpeg7 catalogs.",
+                  responseCode = HttpServletResponse.SC_OK),
+          @RestResponse(description = "The argument cannot be parsed into a list of attachments.",
+                  responseCode = HttpServletResponse.SC_BAD_REQUEST),
+          @RestResponse(description = "The service is unavailable at the moment.",
+                  responseCode = HttpServletResponse.SC_SERVICE_UNAVAILABLE) },
+          returnDescription = "The receipt to use when polling for the resulting mpeg7 catalogs.")
+  public Response analyzeBatch(@FormParam("images") String images) {
+    if (service == null)
+      throw new WebApplicationException(Status.SERVICE_UNAVAILABLE);
+    List<Attachment> attachments = new ArrayList<>();
+    try {
+      for (MediaPackageElement element : MediaPackageElementParser.getArrayFromXml(images)) {
+        if (!(element instanceof Attachment))
+          return Response.status(Status.BAD_REQUEST).build();
+        attachments.add((Attachment) element);
+      }
+    } catch (Exception e) {
+      logger.info("Unable to parse images {}", images, e);
+      return Response.status(Status.BAD_REQUEST).build();
+    }
+    try {
+      Job job = service.extract(attachments);
+      return Response.ok(new JaxbJob(job)).build();
+    } catch (Exception e) {
+      logger.info(e.getMessage(), e);
+      return Response.serverError().build();
+    }
+  }
+
   /**
    * Callback from the OSGi declarative services to set the service registry.
    *
@@ -0,0 +1,93 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package org.opencastproject.textanalyzer.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import javax.imageio.ImageIO;
+
+public class ImageFingerprintTest {
+
+  @Rule
+  public TemporaryFolder testFolder = new TemporaryFolder();
+
+  @Test
+  public void testNearDuplicates() throws Exception {
+    final ImageFingerprint slide = ImageFingerprint.of(createSlide("slide.png", Color.BLACK, 0));
+    final ImageFingerprint copy = ImageFingerprint.of(createSlide("copy.png", Color.BLACK, 0));
+    final ImageFingerprint cursor = ImageFingerprint.of(createSlide("cursor.png", Color.BLACK, 1));
+    final ImageFingerprint other = ImageFingerprint.of(createSlide("other.png", Color.GRAY, 0));
+
+    assertEquals(0f, slide.distance(copy), 0f);
+    assertTrue(slide.distance(cursor) < TextAnalyzerServiceImpl.DEFAULT_DUPLICATE_THRESHOLD);
+    assertTrue(slide.distance(other) > TextAnalyzerServiceImpl.DEFAULT_DUPLICATE_THRESHOLD);
+    assertEquals(slide.distance(other), other.distance(slide), 0f);
+  }
+
+  @Test
+  public void testUnsupportedImage() throws Exception {
+    final File file = testFolder.newFile("image.txt");
+    Files.write(file.toPath(), "no image".getBytes(StandardCharsets.UTF_8));
+    assertNull(ImageFingerprint.of(file));
+  }
+
+  /**
+   * Creates a slide with a text block in the given color.
+   *
+   * @param cursor
+   *          the number of pixels of a small mouse cursor on the slide
+   */
+  private File createSlide(String name, Color color, int cursor) throws IOException {
+    final BufferedImage image = new BufferedImage(640, 480, BufferedImage.TYPE_INT_RGB);
+    final Graphics2D g = image.createGraphics();
+    try {
+      g.setColor(Color.WHITE);
+      g.fillRect(0, 0, 640, 480);
+      g.setColor(color);
+      g.fillRect(40, 40, 560, 80);
+      g.fillRect(40, 200, 400, 40);
+      if (cursor > 0) {
+        g.setColor(Color.BLACK);
+        g.fillRect(600, 400, 4 * cursor, 4 * cursor);
+      }
+    } finally {
+      g.dispose();
+    }
+    final File file = testFolder.newFile(name);
+    ImageIO.write(image, "png", file);
+    return file;
+  }
+
+}
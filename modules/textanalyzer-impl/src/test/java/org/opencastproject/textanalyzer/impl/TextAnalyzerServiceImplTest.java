@@ -0,0 +1,244 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package org.opencastproject.textanalyzer.impl;
+
+import static org.easymock.EasyMock.capture;
+
+import org.opencastproject.dictionary.api.DictionaryService;
+import org.opencastproject.job.api.Job;
+import org.opencastproject.job.api.JobImpl;
+import org.opencastproject.mediapackage.Attachment;
+import org.opencastproject.mediapackage.MediaPackageElement;
+import org.opencastproject.mediapackage.MediaPackageElementBuilderFactory;
+import org.opencastproject.mediapackage.MediaPackageElementFlavor;
+import org.opencastproject.mediapackage.MediaPackageElementParser;
+import org.opencastproject.metadata.mpeg7.Mpeg7Catalog;
+import org.opencastproject.metadata.mpeg7.Mpeg7CatalogService;
+import org.opencastproject.metadata.mpeg7.TextualImpl;
+import org.opencastproject.metadata.mpeg7.Video;
+import org.opencastproject.metadata.mpeg7.VideoSegment;
+import org.opencastproject.metadata.mpeg7.VideoText;
+import org.opencastproject.serviceregistry.api.ServiceRegistry;
+import org.opencastproject.textextractor.api.TextExtractor;
+import org.opencastproject.workspace.api.Workspace;
+
+import org.easymock.Capture;
+import org.easymock.EasyMock;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.osgi.framework.BundleContext;
+import org.osgi.service.component.ComponentContext;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import javax.imageio.ImageIO;
+
+public class TextAnalyzerServiceImplTest {
+
+  private static final MediaPackageElementFlavor SLIDE_FLAVOR = MediaPackageElementFlavor
+          .parseFlavor("presentation/segment+preview");
+
+  @Rule
+  public TemporaryFolder testFolder = new TemporaryFolder();
+
+  private TextAnalyzerServiceImpl service;
+
+  private ComponentContext cc;
+
+  /** The images passed to the text extractor */
+  private final List<String> extracted = Collections.synchronizedList(new ArrayList<>());
+
+  private final Mpeg7CatalogService mpeg7CatalogService = new Mpeg7CatalogService();
+
+  @Before
+  public void setUp() throws Exception {
+    service = new TextAnalyzerServiceImpl();
+
+    BundleContext bc = EasyMock.createNiceMock(BundleContext.class);
+    cc = EasyMock.createNiceMock(ComponentContext.class);
+    EasyMock.expect(cc.getBundleContext()).andReturn(bc).anyTimes();
+
+    final File catalogs = testFolder.newFolder();
+    Workspace workspace = EasyMock.createNiceMock(Workspace.class);
+    final Capture<URI> uri = EasyMock.newCapture();
+    EasyMock.expect(workspace.get(capture(uri))).andAnswer(() -> new File(uri.getValue())).anyTimes();
+    final Capture<String> name = EasyMock.newCapture();
+    final Capture<InputStream> in = EasyMock.newCapture();
+    EasyMock.expect(workspace.putInCollection(EasyMock.anyString(), capture(name), capture(in))).andAnswer(() -> {
+      File catalog = new File(catalogs, name.getValue());
+      Files.copy(in.getValue(), catalog.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      return catalog.toURI();
+    }).anyTimes();
+
+    TextExtractor textExtractor = EasyMock.createNiceMock(TextExtractor.class);
+    final Capture<File> image = EasyMock.newCapture();
+    EasyMock.expect(textExtractor.extract(capture(image))).andAnswer(() -> {
+      String imageName = image.getValue().getName();
+      extracted.add(imageName);
+      return Arrays.asList("text of " + imageName);
+    }).anyTimes();
+
+    DictionaryService dictionaryService = EasyMock.createNiceMock(DictionaryService.class);
+    final Capture<String> text = EasyMock.newCapture();
+    EasyMock.expect(dictionaryService.cleanUpText(capture(text))).andAnswer(() -> new TextualImpl(text.getValue()))
+            .anyTimes();
+
+    EasyMock.replay(bc, cc, workspace, textExtractor, dictionaryService);
+
+    ServiceRegistry serviceRegistry = EasyMock.createNiceMock(ServiceRegistry.class);
+    final Capture<String> type = EasyMock.newCapture();
+    final Capture<String> operation = EasyMock.newCapture();
+    final Capture<List<String>> args = EasyMock.newCapture();
+    EasyMock.expect(serviceRegistry.createJob(capture(type), capture(operation), capture(args), EasyMock.anyFloat()))
+            .andAnswer(() -> {
+              Job job = new JobImpl(1);
+              job.setJobType(type.getValue());
+              job.setOperation(operation.getValue());
+              job.setArguments(args.getValue());
+              job.setPayload(service.process(job));
+              return job;
+            }).anyTimes();
+    EasyMock.replay(serviceRegistry);
+
+    service.setServiceRegistry(serviceRegistry);
+    service.setWorkspace(workspace);
+    service.setTextExtractor(textExtractor);
+    service.setDictionaryService(dictionaryService);
+    service.setMpeg7CatalogService(mpeg7CatalogService);
+  }
+
+  @Test
+  public void testBatchSkipsDuplicates() throws Exception {
+    service.activate(cc);
+    try {
+      List<Attachment> images = Arrays.asList(createSlide("slide1.png", 40), createSlide("slide1-copy.png", 40),
+              createSlide("slide2.png", 200));
+      Job job = service.extract(images);
+      List<String> texts = getTexts(job);
+
+      Assert.assertEquals(new HashSet<>(Arrays.asList("slide1.png", "slide2.png")), new HashSet<>(extracted));
+      Assert.assertEquals(2, extracted.size());
+      Assert.assertEquals(Arrays.asList("text of slide1.png", "text of slide1.png", "text of slide2.png"), texts);
+    } finally {
+      service.deactivate();
+    }
+  }
+
+  @Test
+  public void testBatchWithoutDuplicateDetection() throws Exception {
+    Hashtable<String, String> properties = new Hashtable<>();
+    properties.put(TextAnalyzerServiceImpl.DUPLICATE_THRESHOLD_KEY, "0");
+    service.updated(properties);
+    service.activate(cc);
+    try {
+      List<Attachment> images = Arrays.asList(createSlide("slide1.png", 40), createSlide("slide1-copy.png", 40));
+      List<String> texts = getTexts(service.extract(images));
+
+      Assert.assertEquals(2, extracted.size());
+      Assert.assertEquals(Arrays.asList("text of slide1.png", "text of slide1-copy.png"), texts);
+    } finally {
+      service.deactivate();
+    }
+  }
+
+  @Test
+  public void testBatchWorkersConfiguredBeforeActivation() throws Exception {
+    Hashtable<String, String> properties = new Hashtable<>();
+    properties.put(TextAnalyzerServiceImpl.BATCH_WORKERS_KEY, "7");
+    service.updated(properties);
+    service.activate(cc);
+    try {
+      Assert.assertEquals(7, getBatchWorkers().getMaximumPoolSize());
+
+      properties.put(TextAnalyzerServiceImpl.BATCH_WORKERS_KEY, "3");
+      service.updated(properties);
+      Assert.assertEquals(3, getBatchWorkers().getMaximumPoolSize());
+      Assert.assertEquals(3, getBatchWorkers().getCorePoolSize());
+    } finally {
+      service.deactivate();
+    }
+  }
+
+  /** Returns the text of each catalog returned by a batch job, in order. */
+  private List<String> getTexts(Job job) throws Exception {
+    List<String> texts = new ArrayList<>();
+    for (MediaPackageElement catalog : MediaPackageElementParser.getArrayFromXml(job.getPayload())) {
+      try (InputStream in = new FileInputStream(new File(catalog.getURI()))) {
+        Mpeg7Catalog mpeg7 = mpeg7CatalogService.load(in);
+        Video video = mpeg7.videoContent().next();
+        VideoSegment segment = (VideoSegment) video.getTemporalDecomposition().segments().next();
+        for (VideoText videoText : segment.getSpatioTemporalDecomposition().getVideoText()) {
+          texts.add(videoText.getText().getText());
+        }
+      }
+    }
+    return texts;
+  }
+
+  private ThreadPoolExecutor getBatchWorkers() throws Exception {
+    Field field = TextAnalyzerServiceImpl.class.getDeclaredField("batchWorkers");
+    field.setAccessible(true);
+    return (ThreadPoolExecutor) field.get(service);
+  }
+
+  /**
+   * Creates a slide image with a text block at the given vertical position.
+   */
+  private Attachment createSlide(String name, int y) throws IOException {
+    BufferedImage image = new BufferedImage(640, 480, BufferedImage.TYPE_INT_RGB);
+    Graphics2D g = image.createGraphics();
+    try {
+      g.setColor(Color.WHITE);
+      g.fillRect(0, 0, 640, 480);
+      g.setColor(Color.BLACK);
+      g.fillRect(40, y, 560, 80);
+    } finally {
+      g.dispose();
+    }
+    File file = testFolder.newFile(name);
+    ImageIO.write(image, "png", file);
+    Attachment attachment = (Attachment) MediaPackageElementBuilderFactory.newInstance().newElementBuilder()
+            .elementFromURI(file.toURI(), Attachment.TYPE, SLIDE_FLAVOR);
+    attachment.setIdentifier(name);
+    return attachment;
+  }
+
+}
@@ -0,0 +1,122 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package org.opencastproject.textanalyzer.impl.endpoint;
+
+import org.opencastproject.job.api.JaxbJob;
+import org.opencastproject.job.api.JobImpl;
+import org.opencastproject.mediapackage.Attachment;
+import org.opencastproject.mediapackage.Catalog;
+import org.opencastproject.mediapackage.MediaPackageElement;
+import org.opencastproject.mediapackage.MediaPackageElementBuilderFactory;
+import org.opencastproject.mediapackage.MediaPackageElementFlavor;
+import org.opencastproject.mediapackage.MediaPackageElementParser;
+import org.opencastproject.textanalyzer.api.TextAnalyzerException;
+import org.opencastproject.textanalyzer.api.TextAnalyzerService;
+
+import org.easymock.Capture;
+import org.easymock.EasyMock;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+
+public class TextAnalysisRestEndpointTest {
+
+  private static final MediaPackageElementFlavor SLIDE_FLAVOR = MediaPackageElementFlavor
+          .parseFlavor("presentation/segment+preview");
+
+  private TextAnalysisRestEndpoint rest;
+
+  private TextAnalyzerService service;
+
+  private final Capture<List<Attachment>> images = EasyMock.newCapture();
+
+  @Before
+  public void setUp() throws Exception {
+    service = EasyMock.createMock(TextAnalyzerService.class);
+    rest = new TextAnalysisRestEndpoint();
+    rest.setTextAnalyzer(service);
+  }
+
+  @Test
+  public void testAnalyzeBatch() throws Exception {
+    EasyMock.expect(service.extract(EasyMock.capture(images))).andReturn(new JobImpl(1));
+    EasyMock.replay(service);
+
+    Response response = rest.analyzeBatch(MediaPackageElementParser.getArrayAsXml(
+            Arrays.asList(createElement(Attachment.TYPE, "image-1"), createElement(Attachment.TYPE, "image-2"))));
+    Assert.assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+    Assert.assertEquals(1L, ((JaxbJob) response.getEntity()).toJob().getId());
+    Assert.assertEquals(2, images.getValue().size());
+    Assert.assertEquals("image-1", images.getValue().get(0).getIdentifier());
+    Assert.assertEquals("image-2", images.getValue().get(1).getIdentifier());
+    EasyMock.verify(service);
+  }
+
+  @Test
+  public void testAnalyzeBatchRejectsOtherElements() throws Exception {
+    EasyMock.replay(service);
+
+    Response response = rest.analyzeBatch(MediaPackageElementParser.getArrayAsXml(
+            Arrays.asList(createElement(Attachment.TYPE, "image-1"), createElement(Catalog.TYPE, "catalog-1"))));
+    Assert.assertEquals(Response.Status.BAD_REQUEST.getStatusCode(), response.getStatus());
+
+    response = rest.analyzeBatch("no images");
+    Assert.assertEquals(Response.Status.BAD_REQUEST.getStatusCode(), response.getStatus());
+    EasyMock.verify(service);
+  }
+
+  @Test
+  public void testAnalyzeBatchFailure() throws Exception {
+    EasyMock.expect(service.extract(EasyMock.capture(images))).andThrow(new TextAnalyzerException("failed"));
+    EasyMock.replay(service);
+
+    Response response = rest.analyzeBatch(MediaPackageElementParser.getArrayAsXml(
+            Arrays.asList(createElement(Attachment.TYPE, "image-1"))));
+    Assert.assertEquals(Response.Status.INTERNAL_SERVER_ERROR.getStatusCode(), response.getStatus());
+  }
+
+  @Test
+  public void testAnalyzeBatchWithoutService() throws Exception {
+    rest.setTextAnalyzer(null);
+    try {
+      rest.analyzeBatch(MediaPackageElementParser.getArrayAsXml(
+              Arrays.asList(createElement(Attachment.TYPE, "image-1"))));
+      Assert.fail("Service unavailable expected");
+    } catch (WebApplicationException e) {
+      Assert.assertEquals(Response.Status.SERVICE_UNAVAILABLE.getStatusCode(), e.getResponse().getStatus());
+    }
+  }
+
+  private static MediaPackageElement createElement(MediaPackageElement.Type type, String id) throws Exception {
+    MediaPackageElement element = MediaPackageElementBuilderFactory.newInstance().newElementBuilder()
+            .elementFromURI(new URI("http://localhost/" + id), type, SLIDE_FLAVOR);
+    element.setIdentifier(id);
+    return element;
+  }
+
+}
@@ -210,8 +210,8 @@ public class TextAnalysisWorkflowOperationHandler extends AbstractWorkflowOperat
 
     // Loop over all existing segment catalogs
     for (Entry<Catalog, Mpeg7Catalog> mapEntry : catalogs.entrySet()) {
-      Map<VideoSegment, Job> jobs = new HashMap<VideoSegment, Job>();
       List<Attachment> images = new LinkedList<Attachment>();
+      List<Catalog> textCatalogs = new LinkedList<Catalog>();
       Catalog segmentCatalog = mapEntry.getKey();
       try {
         MediaPackageReference catalogRef = segmentCatalog.getReference();
@@ -287,31 +287,25 @@ public class TextAnalysisWorkflowOperationHandler extends AbstractWorkflowOperat
                   "There are no images produced for " + sourceTrack
                           + " or the images count isn't equal the count of the video segments.");
 
-        // Run text extraction on each of the images
-        Iterator<VideoSegment> it = videoSegments.iterator();
-        for (MediaPackageElement element : images) {
-          Attachment image = (Attachment) element;
-          VideoSegment videoSegment = it.next();
-          jobs.put(videoSegment, analysisService.extract(image));
-        }
-
-        // Wait for all jobs to be finished
-        if (!waitForStatus(jobs.values().toArray(new Job[jobs.size()])).isSuccess()) {
+        // Run text extraction on all of the images with a single job
+        Job job = analysisService.extract(images);
+        if (!waitForStatus(job).isSuccess()) {
           throw new WorkflowOperationException("Text extraction failed on images from " + sourceTrack);
         }
+        job = serviceRegistry.getJob(job.getId());
+        totalTimeInQueue += job.getQueueTime();
+        for (MediaPackageElement catalogMpe : MediaPackageElementParser.getArrayFromXml(job.getPayload())) {
+          textCatalogs.add((Catalog) catalogMpe);
+        }
+        if (textCatalogs.size() != videoSegments.size())
+          throw new WorkflowOperationException("The text analysis of " + sourceTrack
+                  + " did not return one catalog per video segment");
 
         // Process the text extraction results
-        for (Map.Entry<VideoSegment, Job> entry : jobs.entrySet()) {
-          Job job = serviceRegistry.getJob(entry.getValue().getId());
-          totalTimeInQueue += job.getQueueTime();
-
-          VideoSegment videoSegment = entry.getKey();
+        Iterator<VideoSegment> it = videoSegments.iterator();
+        for (Catalog catalog : textCatalogs) {
+          VideoSegment videoSegment = it.next();
           MediaDuration segmentDuration = videoSegment.getMediaTime().getMediaDuration();
-          Catalog catalog = (Catalog) MediaPackageElementParser.getFromXml(job.getPayload());
-          if (catalog == null) {
-            logger.warn("Text analysis did not return a valid mpeg7 for segment {}", videoSegment);
-            continue;
-          }
           Mpeg7Catalog videoTextCatalog = loadMpeg7Catalog(catalog);
           if (videoTextCatalog == null)
             throw new IllegalStateException("Text analysis service did not return a valid mpeg7");
@@ -319,8 +313,8 @@ public class TextAnalysisWorkflowOperationHandler extends AbstractWorkflowOperat
           // Add the spatiotemporal decompositions from the new catalog to the existing video segments
           Iterator<Video> videoTextContents = videoTextCatalog.videoContent();
           if (videoTextContents == null || !videoTextContents.hasNext()) {
-            logger.debug("Text analysis was not able to extract any text from {}", job.getArguments().get(0));
-            break;
+            logger.debug("Text analysis was not able to extract any text for segment {}", videoSegment);
+            continue;
           }
 
           try {
@@ -377,21 +371,11 @@ public class TextAnalysisWorkflowOperationHandler extends AbstractWorkflowOperat
           }
         }
         // Remove the temporary text
-        for (Job j : jobs.values()) {
-          Catalog catalog = null;
+        for (Catalog catalog : textCatalogs) {
           try {
-            Job job = serviceRegistry.getJob(j.getId());
-            if (!Job.Status.FINISHED.equals(job.getStatus()))
-              continue;
-            catalog = (Catalog) MediaPackageElementParser.getFromXml(job.getPayload());
-            if (catalog != null)
-              workspace.delete(catalog.getURI());
+            workspace.delete(catalog.getURI());
           } catch (Exception e) {
-            if (catalog != null) {
-              logger.warn("Unable to delete temporary text file {}: {}", catalog.getURI(), e);
-            } else {
-              logger.warn("Unable to parse textextraction payload of job {}", j.getId());
-            }
+            logger.warn("Unable to delete temporary text file {}: {}", catalog.getURI(), e);
           }
         }
       }
@@ -0,0 +1,159 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package org.opencastproject.videosegmenter.ffmpeg;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The scene change scores of all frames of a track as reported by a single FFmpeg run using
+ *
+ * <pre>
+ * ffmpeg -nostats -nostdin -i in.mp4 -filter:v 'select=gt(scene\,0),metadata=print:key=lavfi.scene_score' -f null -
+ * </pre>
+ *
+ * Frame times and scores are kept in primitive arrays so that segmentations for different changes thresholds can be
+ * computed in memory instead of decoding the track again for each threshold.
+ */
+class SceneChangeScores {
+
+  /** The logging facility */
+  private static final Logger logger = LoggerFactory.getLogger(SceneChangeScores.class);
+
+  /** Prefix of the lines written by the FFmpeg metadata filter */
+  private static final String METADATA_PREFIX = "[Parsed_metadata";
+
+  /** Frame time as printed by the metadata filter, e.g. <code>frame:12 pts:3072 pts_time:12</code> */
+  private static final Pattern PTS_TIME = Pattern.compile("pts_time:(\\d+(\\.\\d+)?)");
+
+  /** Scene score as printed by the metadata filter, e.g. <code>lavfi.scene_score=0.134513</code> */
+  private static final Pattern SCENE_SCORE = Pattern.compile("lavfi\\.scene_score=(\\d+(\\.\\d+)?)");
+
+  /** Frame times in milliseconds */
+  private long[] times;
+
+  /** Scene change score for each frame time */
+  private float[] scores;
+
+  /** The number of frames */
+  private int size = 0;
+
+  /**
+   * Creates an empty list of scene change scores.
+   */
+  SceneChangeScores() {
+    this.times = new long[256];
+    this.scores = new float[256];
+  }
+
+  /**
+   * Adds the scene change score of a frame.
+   *
+   * @param time
+   *          the frame time in milliseconds
+   * @param score
+   *          the scene change score between 0 and 1
+   */
+  void add(long time, float score) {
+    if (size == times.length) {
+      times = Arrays.copyOf(times, size * 2);
+      scores = Arrays.copyOf(scores, size * 2);
+    }
+    times[size] = time;
+    scores[size] = score;
+    size++;
+  }
+
+  /**
+   * @return the number of frames with a scene change score
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Returns the times of all frames whose scene change score is greater than the given threshold. This yields the same
+   * frames as running FFmpeg with <code>select=gt(scene\,threshold)</code>.
+   *
+   * @param threshold
+   *          the changes threshold
+   * @return the frame times in milliseconds
+   */
+  List<Long> getChangeTimes(float threshold) {
+    List<Long> changes = new LinkedList<>();
+    for (int i = 0; i < size; i++) {
+      if (scores[i] > threshold) {
+        changes.add(times[i]);
+      }
+    }
+    return changes;
+  }
+
+  /**
+   * Reads the scene change scores from the output of the FFmpeg metadata filter. Each frame is reported with a line
+   * containing the frame time, followed by a line containing the scene score:
+   *
+   * <pre>
+   * [Parsed_metadata_1 @ 0x2a4e5c0] frame:0    pts:3072    pts_time:12
+   * [Parsed_metadata_1 @ 0x2a4e5c0] lavfi.scene_score=0.134513
+   * </pre>
+   *
+   * @param reader
+   *          the FFmpeg output
+   * @return the scene change scores
+   * @throws IOException
+   *           if reading the output fails
+   * @throws NumberFormatException
+   *           if a frame time or score cannot be parsed
+   */
+  static SceneChangeScores parse(BufferedReader reader) throws IOException {
+    SceneChangeScores sceneScores = new SceneChangeScores();
+    long time = -1;
+    String line = reader.readLine();
+    while (null != line) {
+      if (line.startsWith(METADATA_PREFIX)) {
+        Matcher matcher = PTS_TIME.matcher(line);
+        if (matcher.find()) {
+          time = Math.round(Float.parseFloat(matcher.group(1)) * 1000);
+        } else if (time >= 0) {
+          matcher = SCENE_SCORE.matcher(line);
+          if (matcher.find()) {
+            sceneScores.add(time, Float.parseFloat(matcher.group(1)));
+            time = -1;
+          }
+        }
+      }
+      line = reader.readLine();
+    }
+    logger.debug("Read scene change scores of {} frames", sceneScores.size());
+    return sceneScores;
+  }
+
+}
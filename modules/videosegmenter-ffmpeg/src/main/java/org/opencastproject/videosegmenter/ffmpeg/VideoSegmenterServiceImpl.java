@@ -145,6 +145,12 @@ VideoSegmenterService, ManagedService {
   /** Default value for the option whether segments numbers depend on track duration */
   public static final boolean DEFAULT_DURATION_DEPENDENT = false;
 
+  /** Name of the constant used to retrieve the option whether the track is decoded only once */
+  public static final String OPT_SINGLE_PASS = "singlePass";
+
+  /** Default value for the option whether the track is decoded only once */
+  public static final boolean DEFAULT_SINGLE_PASS = true;
+
   /** The load introduced on the system by a segmentation job */
   public static final float DEFAULT_SEGMENTER_JOB_LOAD = 0.3f;
 
@@ -185,6 +191,9 @@ VideoSegmenterService, ManagedService {
   /** The boolean that defines whether segment numbers are interpreted as absolute or relative to track duration */
   protected boolean durationDependent = DEFAULT_DURATION_DEPENDENT;
 
+  /** The boolean that defines whether scene scores are read once and the changes threshold is optimized in memory */
+  protected boolean singlePass = DEFAULT_SINGLE_PASS;
+
   /** Reference to the receipt service */
   protected ServiceRegistry serviceRegistry = null;
 
@@ -309,6 +318,13 @@ VideoSegmenterService, ManagedService {
       }
     }
 
+    // Single pass scene detection
+    if (properties.get(OPT_SINGLE_PASS) != null) {
+      String value = (String) properties.get(OPT_SINGLE_PASS);
+      singlePass = Boolean.parseBoolean(value);
+      logger.info("Single pass scene detection is set to {}", singlePass);
+    }
+
     segmenterJobLoad = LoadUtil.getConfiguredLoadValue(properties, SEGMENTER_JOB_LOAD_KEY, DEFAULT_SEGMENTER_JOB_LOAD, serviceRegistry);
   }
 
@@ -413,6 +429,16 @@ VideoSegmenterService, ManagedService {
 
       logger.info("Starting video segmentation of {}", mediaUrl);
 
+      // read the scene scores of all frames once, so that the changes threshold can be optimized without decoding
+      // the track again in every cycle
+      SceneChangeScores sceneScores = null;
+      if (singlePass) {
+        sceneScores = runSceneDetectionFFmpeg(mediaFile);
+        if (sceneScores.size() == 0) {
+          logger.info("No scene scores found for {}, falling back to one FFmpeg run per optimization cycle", mediaUrl);
+          sceneScores = null;
+        }
+      }
 
       // optimization loop to get a segmentation with a number of segments close
       // to the desired number of segments
@@ -423,8 +449,14 @@ VideoSegmenterService, ManagedService {
             contentTime, contentLocator);
 
 
-        // run the segmentation with FFmpeg
-        segments = runSegmentationFFmpeg(track, videoContent, mediaFile, changesThresholdLocal);
+        // run the segmentation with FFmpeg or on the scene scores already read
+        if (sceneScores != null) {
+          segments = createSegments(track, videoContent, sceneScores.getChangeTimes(changesThresholdLocal));
+          logger.info("Segmentation of {} with changes threshold {} yields {} segments", mediaUrl,
+                  changesThresholdLocal, segments.size());
+        } else {
+          segments = runSegmentationFFmpeg(track, videoContent, mediaFile, changesThresholdLocal);
+        }
 
 
         // calculate errors for "normal" and filtered segmentation
@@ -655,10 +687,75 @@ VideoSegmenterService, ManagedService {
     // fmt:rgb24 sar:0/1 s:320x240 i:P iskey:1 type:I checksum:8DF39EA9
     // plane_checksum:[8DF39EA9]
 
+    List<Long> changeTimes = new LinkedList<>();
+    Pattern pattern = Pattern.compile("pts_time\\:\\d+(\\.\\d+)?");
+    for (String seginfo : segmentsStrings) {
+      Matcher matcher = pattern.matcher(seginfo);
+      String time = "";
+      while (matcher.find()) {
+        time = matcher.group().substring(9);
+      }
+      if ("".equals(time)) {
+        // continue if the showinfo does not contain any time information. This may happen since the FFmpeg showinfo
+        // filter is used for multiple purposes.
+        continue;
+      }
+      try {
+        changeTimes.add((long) Math.round(Float.parseFloat(time) * 1000));
+      } catch (NumberFormatException e) {
+        logger.error("Unable to parse FFmpeg output, likely FFmpeg version mismatch!", e);
+        throw new VideoSegmenterException(e);
+      }
+    }
+
+    LinkedList<Segment> segments = createSegments(track, videoContent, changeTimes);
+
+   logger.info("Segmentation of {} yields {} segments",
+           mediaFile.toURI().toURL(), segments.size());
+
+    return segments;
+  }
+
+  /**
+   * Reads the scene change scores of all frames of the track with a single FFmpeg call.
+   *
+   * @param mediaFile the file of the track to analyze
+   * @return the scene change scores
+   * @throws IOException
+   * @throws VideoSegmenterException
+   */
+  private SceneChangeScores runSceneDetectionFFmpeg(File mediaFile) throws IOException, VideoSegmenterException {
+
+    String[] command = new String[] { binary, "-nostats", "-nostdin", "-i", mediaFile.getAbsolutePath(),
+      "-filter:v", "select=gt(scene\\,0),metadata=print:key=lavfi.scene_score", "-f", "null", "-"};
+
+    logger.info("Detecting scene scores using command: {}", (Object) command);
+
+    ProcessBuilder pbuilder = new ProcessBuilder(command);
+    Process process = pbuilder.start();
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getErrorStream()))) {
+      return SceneChangeScores.parse(reader);
+    } catch (NumberFormatException e) {
+      logger.error("Unable to parse FFmpeg output, likely FFmpeg version mismatch!", e);
+      throw new VideoSegmenterException(e);
+    }
+  }
+
+  /**
+   * Creates the segments between the given scene changes and adds them to the given videoContent of a catalog. Scene
+   * changes following the previous one within the prefilter stability threshold are skipped and the last segment ends
+   * with the track.
+   *
+   * @param track the element to analyze
+   * @param videoContent the videoContent of the Mpeg7Catalog that the segments should be added to
+   * @param changeTimes the times of the scene changes in milliseconds
+   * @return a list of the resulting segments
+   */
+  private LinkedList<Segment> createSegments(Track track, Video videoContent, List<Long> changeTimes) {
     int segmentcount = 1;
     LinkedList<Segment> segments = new LinkedList<>();
 
-    if (segmentsStrings.size() == 0) {
+    if (changeTimes.size() == 0) {
       Segment s = videoContent.getTemporalDecomposition()
           .createSegment("segment-" + segmentcount);
       s.setMediaTime(new MediaRelTimeImpl(0, track.getDuration()));
@@ -666,24 +763,8 @@ VideoSegmenterService, ManagedService {
     } else {
       long starttime = 0;
       long endtime = 0;
-      Pattern pattern = Pattern.compile("pts_time\\:\\d+(\\.\\d+)?");
-      for (String seginfo : segmentsStrings) {
-        Matcher matcher = pattern.matcher(seginfo);
-        String time = "";
-        while (matcher.find()) {
-          time = matcher.group().substring(9);
-        }
-        if ("".equals(time)) {
-          // continue if the showinfo does not contain any time information. This may happen since the FFmpeg showinfo
-          // filter is used for multiple purposes.
-          continue;
-        }
-        try {
-          endtime = Math.round(Float.parseFloat(time) * 1000);
-        } catch (NumberFormatException e) {
-          logger.error("Unable to parse FFmpeg output, likely FFmpeg version mismatch!", e);
-          throw new VideoSegmenterException(e);
-        }
+      for (long changeTime : changeTimes) {
+        endtime = changeTime;
         long segmentLength = endtime - starttime;
         if (1000 * stabilityThresholdPrefilter < segmentLength) {
           Segment segment = videoContent.getTemporalDecomposition()
@@ -705,9 +786,6 @@ VideoSegmenterService, ManagedService {
       segments.add(s);
     }
 
-   logger.info("Segmentation of {} yields {} segments",
-           mediaFile.toURI().toURL(), segments.size());
-
     return segments;
   }
 
@@ -0,0 +1,67 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package org.opencastproject.videosegmenter.ffmpeg;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Test class for reading scene change scores from FFmpeg output.
+ */
+public class SceneChangeScoresTest {
+
+  private static final String FFMPEG_OUTPUT = "Input #0, mov,mp4,m4a,3gp,3g2,mj2, from 'in.mp4':\n"
+          + "[Parsed_metadata_1 @ 0x2a4e5c0] frame:0    pts:1024    pts_time:0.08\n"
+          + "[Parsed_metadata_1 @ 0x2a4e5c0] lavfi.scene_score=0.010000\n"
+          + "[Parsed_metadata_1 @ 0x2a4e5c0] frame:1    pts:153600  pts_time:12\n"
+          + "[Parsed_metadata_1 @ 0x2a4e5c0] lavfi.scene_score=0.634513\n"
+          + "[Parsed_metadata_1 @ 0x2a4e5c0] frame:2    pts:195328  pts_time:15.26\n"
+          + "[Parsed_metadata_1 @ 0x2a4e5c0] lavfi.scene_score=0.030000\n"
+          + "frame=  500 fps=0.0 q=-0.0 Lsize=N/A time=00:00:20.00 bitrate=N/A speed= 213x\n";
+
+  @Test
+  public void testParse() throws Exception {
+    SceneChangeScores scores = SceneChangeScores.parse(new BufferedReader(new StringReader(FFMPEG_OUTPUT)));
+    assertEquals(3, scores.size());
+    assertEquals(Arrays.asList(80L, 12000L, 15260L), scores.getChangeTimes(0.0f));
+    assertEquals(Arrays.asList(12000L, 15260L), scores.getChangeTimes(0.025f));
+    assertEquals(Arrays.asList(12000L), scores.getChangeTimes(0.2f));
+    assertEquals(Collections.emptyList(), scores.getChangeTimes(0.9f));
+  }
+
+  @Test
+  public void testGrow() {
+    SceneChangeScores scores = new SceneChangeScores();
+    for (int i = 0; i < 1000; i++) {
+      scores.add(i * 40L, i % 2 == 0 ? 0.5f : 0.01f);
+    }
+    assertEquals(1000, scores.size());
+    assertEquals(500, scores.getChangeTimes(0.1f).size());
+  }
+
+}
@@ -0,0 +1,165 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package org.opencastproject.workflow.conditionparser;
+
+import static org.apache.commons.lang3.StringUtils.isNotBlank;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A string containing <code>${...}</code> variables, split into its literal parts and variables once so that it can be
+ * resolved repeatedly without matching the variable pattern again.
+ */
+final class PropertyTemplate {
+
+  static final Pattern PROPERTY_PATTERN = Pattern.compile("\\$\\{(?<varname>[^:}]+)(:(?<def>[^}]+))?}");
+
+  /** The maximum number of compiled templates to keep */
+  private static final int CACHE_SIZE = 1024;
+
+  /** Templates longer than this are compiled, but not cached */
+  private static final int MAX_CACHED_LENGTH = 4096;
+
+  /** Recently compiled templates */
+  private static final Map<String, PropertyTemplate> cache = Collections.synchronizedMap(
+          new LinkedHashMap<String, PropertyTemplate>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PropertyTemplate> eldest) {
+              return size() > CACHE_SIZE;
+            }
+          });
+
+  /** The literal parts, one more than there are variables */
+  private final String[] literals;
+
+  /** The variable names, including the default value if there is one */
+  private final String[] keys;
+
+  /** The variables as they appear in the source */
+  private final String[] variables;
+
+  private PropertyTemplate(String[] literals, String[] keys, String[] variables) {
+    this.literals = literals;
+    this.keys = keys;
+    this.variables = variables;
+  }
+
+  /**
+   * Returns the compiled template for the given source.
+   *
+   * @param source
+   *          the source string
+   * @return the template
+   */
+  static PropertyTemplate compile(String source) {
+    PropertyTemplate template = cache.get(source);
+    if (template != null)
+      return template;
+
+    List<String> literals = new ArrayList<>();
+    List<String> keys = new ArrayList<>();
+    List<String> variables = new ArrayList<>();
+    Matcher matcher = PROPERTY_PATTERN.matcher(source);
+    int cursor = 0;
+    while (matcher.find()) {
+      literals.add(source.substring(cursor, matcher.start()));
+      keys.add(source.substring(matcher.start() + 2, matcher.end() - 1));
+      variables.add(matcher.group());
+      cursor = matcher.end();
+    }
+    literals.add(source.substring(cursor));
+    template = new PropertyTemplate(literals.toArray(new String[0]), keys.toArray(new String[0]),
+            variables.toArray(new String[0]));
+
+    if (source.length() <= MAX_CACHED_LENGTH)
+      cache.put(source, template);
+    return template;
+  }
+
+  /**
+   * @return whether the template contains any variables
+   */
+  boolean hasVariables() {
+    return keys.length > 0;
+  }
+
+  /**
+   * Replaces the variables with the property in the provided map, or if not available in the map, from the system
+   * properties. Variables without a value are left as they are.
+   *
+   * @param systemPropertyGetter
+   *          the system properties
+   * @param properties
+   *          the map of properties to replace
+   * @param quoteStrings
+   *          whether values other than numbers and booleans are to be quoted
+   * @return the resulting string
+   */
+  String replace(Function<String, String> systemPropertyGetter, Map<String, String> properties,
+          boolean quoteStrings) {
+    StringBuilder result = new StringBuilder(literals[0]);
+    for (int i = 0; i < keys.length; i++) {
+      String key = keys[i];
+      String systemProperty = systemPropertyGetter.apply(key);
+      String providedProperty = null;
+      if (properties != null) {
+        providedProperty = properties.get(key);
+      }
+      final String toAppend;
+      if (isNotBlank(providedProperty)) {
+        toAppend = providedProperty;
+      } else if (isNotBlank(systemProperty)) {
+        toAppend = systemProperty;
+      } else {
+        toAppend = null;
+      }
+      if (toAppend != null) {
+        if (!quoteStrings) {
+          result.append(toAppend);
+        } else {
+          try {
+            if ("false".equals(toAppend) || "true".equals(toAppend)) {
+              result.append(toAppend);
+            } else {
+              Integer.parseInt(toAppend);
+              result.append(toAppend);
+            }
+          } catch (NumberFormatException e) {
+            result.append("'").append(toAppend.replace("''", "'")).append("'");
+          }
+        }
+      } else {
+        result.append(variables[i]);
+      }
+      result.append(literals[i + 1]);
+    }
+    return result.toString();
+  }
+
+}
@@ -21,8 +21,6 @@
 
 package org.opencastproject.workflow.conditionparser;
 
-import static org.apache.commons.lang3.StringUtils.isNotBlank;
-
 import org.opencastproject.workflow.conditionparser.antlr.WorkflowConditionLexer;
 import org.opencastproject.workflow.conditionparser.antlr.WorkflowConditionParser;
 
@@ -35,13 +33,27 @@ import org.antlr.v4.runtime.Recognizer;
 import org.antlr.v4.runtime.misc.ParseCancellationException;
 import org.antlr.v4.runtime.tree.ParseTree;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 public final class WorkflowConditionInterpreter {
-  private static final Pattern PROPERTY_PATTERN = Pattern.compile("\\$\\{(?<varname>[^:}]+)(:(?<def>[^}]+))?}");
+  private static final Pattern PROPERTY_PATTERN = PropertyTemplate.PROPERTY_PATTERN;
+
+  /** The maximum number of interpreted conditions to remember */
+  private static final int CACHE_SIZE = 1024;
+
+  /** Results of recently interpreted conditions. The result only depends on the condition itself. */
+  private static final Map<String, Boolean> results = Collections.synchronizedMap(
+          new LinkedHashMap<String, Boolean>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+              return size() > CACHE_SIZE;
+            }
+          });
 
   private WorkflowConditionInterpreter() {
   }
@@ -58,54 +70,12 @@ public final class WorkflowConditionInterpreter {
    */
   public static String replaceVariables(String source, Function<String, String> systemPropertyGetter,
           Map<String, String> properties, boolean quoteStrings) {
-    Matcher matcher = PROPERTY_PATTERN.matcher(source);
-    StringBuilder result = new StringBuilder();
-    int cursor = 0;
-    boolean matchFound = matcher.find();
-    if (!matchFound)
+    if (source.indexOf("${") < 0)
       return source;
-    while (matchFound) {
-      int matchStart = matcher.start();
-      int matchEnd = matcher.end();
-      result.append(source, cursor, matchStart); // add the content before the match
-      String key = source.substring(matchStart + 2, matchEnd - 1);
-      String systemProperty = systemPropertyGetter.apply(key);
-      String providedProperty = null;
-      if (properties != null) {
-        providedProperty = properties.get(key);
-      }
-      final String toAppend;
-      if (isNotBlank(providedProperty)) {
-        toAppend = providedProperty;
-      } else if (isNotBlank(systemProperty)) {
-        toAppend = systemProperty;
-      } else {
-        toAppend = null;
-      }
-      if (toAppend != null) {
-        if (!quoteStrings) {
-          result.append(toAppend);
-        } else {
-          try {
-            if ("false".equals(toAppend) || "true".equals(toAppend)) {
-              result.append(toAppend);
-            } else {
-              Integer.parseInt(toAppend);
-              result.append(toAppend);
-            }
-          } catch (NumberFormatException e) {
-            result.append("'").append(toAppend.replace("''", "'")).append("'");
-          }
-        }
-      } else {
-        result.append(source, matchStart, matchEnd);
-      }
-      cursor = matchEnd;
-      matchFound = matcher.find();
-      if (!matchFound)
-        result.append(source.substring(matchEnd));
-    }
-    return result.toString();
+    PropertyTemplate template = PropertyTemplate.compile(source);
+    if (!template.hasVariables())
+      return source;
+    return template.replace(systemPropertyGetter, properties, quoteStrings);
   }
 
   static String replaceDefaults(String source) {
@@ -135,6 +105,16 @@ public final class WorkflowConditionInterpreter {
 
 
   public static boolean interpret(final String input) throws IllegalArgumentException {
+    final Boolean result = results.get(input);
+    if (result != null) {
+      return result;
+    }
+    final boolean value = interpretUncached(input);
+    results.put(input, value);
+    return value;
+  }
+
+  private static boolean interpretUncached(final String input) throws IllegalArgumentException {
     final String s = replaceDefaults(input);
     final WorkflowConditionLexer l = new WorkflowConditionLexer(CharStreams.fromString(s));
     l.removeErrorListeners();
@@ -79,4 +79,18 @@ public class PropertyReplacementTest {
             "<config key=\"foo\">true</config><config key=\"bar\">'propertyForBar'</config>"
                     + "<config key=\"baz\">${baz}</config>", result);
   }
+
+  @Test
+  public void testRepeatedReplacement() {
+    String source = "${foo} and ${bar:1}";
+    Map<String, String> properties = new HashMap<>();
+    properties.put("foo", "first");
+    assertEquals("first and ${bar:1}", WorkflowConditionInterpreter.replaceVariables(source, x -> null, properties,
+            false));
+    properties.put("foo", "second");
+    assertEquals("second and system", WorkflowConditionInterpreter.replaceVariables(source,
+            x -> "bar:1".equals(x) ? "system" : null, properties, false));
+    assertEquals("no variables", WorkflowConditionInterpreter.replaceVariables("no variables", x -> null, properties,
+            false));
+  }
 }
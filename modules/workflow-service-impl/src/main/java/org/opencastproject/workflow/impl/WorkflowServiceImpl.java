@@ -36,11 +36,13 @@ import org.opencastproject.assetmanager.util.WorkflowPropertiesUtil;
 import org.opencastproject.index.IndexProducer;
 import org.opencastproject.job.api.Job;
 import org.opencastproject.job.api.Job.Status;
+import org.opencastproject.job.api.JobExecutor;
 import org.opencastproject.job.api.JobProducer;
 import org.opencastproject.mediapackage.Catalog;
 import org.opencastproject.mediapackage.MediaPackage;
 import org.opencastproject.mediapackage.MediaPackageElement;
 import org.opencastproject.mediapackage.MediaPackageElements;
+import org.opencastproject.mediapackage.MediaPackageException;
 import org.opencastproject.mediapackage.MediaPackageParser;
 import org.opencastproject.mediapackage.MediaPackageSupport;
 import org.opencastproject.message.broker.api.MessageReceiver;
@@ -75,6 +77,7 @@ import org.opencastproject.util.Log;
 import org.opencastproject.util.NotFoundException;
 import org.opencastproject.util.data.Tuple;
 import org.opencastproject.util.jmx.JmxUtil;
+import org.opencastproject.workflow.api.Configurable;
 import org.opencastproject.workflow.api.ResumableWorkflowOperationHandler;
 import org.opencastproject.workflow.api.RetryStrategy;
 import org.opencastproject.workflow.api.WorkflowDatabaseException;
@@ -108,9 +111,12 @@ import org.opencastproject.workflow.impl.jmx.WorkflowsStatistics;
 import org.opencastproject.workspace.api.Workspace;
 
 import com.entwinemedia.fn.data.Opt;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.util.concurrent.Striped;
 
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringEscapeUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.time.DateUtils;
 import org.osgi.framework.InvalidSyntaxException;
@@ -209,9 +215,12 @@ public class WorkflowServiceImpl extends AbstractIndexProducer implements Workfl
   /** The list of workflow listeners */
   private final List<WorkflowListener> listeners = new CopyOnWriteArrayList<WorkflowListener>();
 
-  /** The thread pool to use for firing listeners and handling dispatched jobs */
+  /** The thread pool to use for firing listeners */
   protected ThreadPoolExecutor executorService;
 
+  /** The executor handling dispatched jobs */
+  protected JobExecutor jobExecutor = JobExecutor.forJobType(JOB_TYPE);
+
   /** The workspace */
   protected Workspace workspace = null;
 
@@ -309,18 +318,35 @@ public class WorkflowServiceImpl extends AbstractIndexProducer implements Workfl
   }
 
   /**
-   * Fires the workflow listeners on workflow updates.
+   * Fires the workflow listeners on workflow updates. The listeners are handed a copy of the updated workflow instance,
+   * which is parsed from its serialized form by the first listener being notified.
+   *
+   * @param oldWorkflowInstance
+   *          the workflow instance before the update or <code>null</code> if it is new
+   * @param newWorkflowInstance
+   *          the updated workflow instance
+   * @param xml
+   *          the updated workflow instance serialized by {@link WorkflowParser#toXml(WorkflowInstance)}
    */
-  protected void fireListeners(final WorkflowInstance oldWorkflowInstance, final WorkflowInstance newWorkflowInstance) {
+  protected void fireListeners(final WorkflowInstance oldWorkflowInstance, final WorkflowInstance newWorkflowInstance,
+          final String xml) {
     final User currentUser = securityService.getUser();
     final Organization currentOrganization = securityService.getOrganization();
+    final Supplier<WorkflowInstance> snapshot = Suppliers.memoize(() -> {
+      try {
+        return WorkflowParser.parseWorkflowInstance(xml);
+      } catch (WorkflowParsingException e) {
+        // Can't happen, since the workflow instance has been serialized by us
+        throw new IllegalStateException("Serialized workflow instance could not be parsed", e);
+      }
+    });
     for (final WorkflowListener listener : listeners) {
       if (oldWorkflowInstance == null || !oldWorkflowInstance.getState().equals(newWorkflowInstance.getState())) {
         Runnable runnable = () -> {
           try {
             securityService.setUser(currentUser);
             securityService.setOrganization(currentOrganization);
-            listener.stateChanged(newWorkflowInstance);
+            listener.stateChanged(snapshot.get());
           } finally {
             securityService.setUser(null);
             securityService.setOrganization(null);
@@ -338,7 +364,7 @@ public class WorkflowServiceImpl extends AbstractIndexProducer implements Workfl
             try {
               securityService.setUser(currentUser);
               securityService.setOrganization(currentOrganization);
-              listener.operationChanged(newWorkflowInstance);
+              listener.operationChanged(snapshot.get());
             } finally {
               securityService.setUser(null);
               securityService.setOrganization(null);
@@ -630,6 +656,17 @@ public class WorkflowServiceImpl extends AbstractIndexProducer implements Workfl
     }
   }
 
+  /**
+   * Adds the given properties to the workflow configuration and resolves the <code>${...}</code> variables in the
+   * configuration values, conditions and descriptions of the workflow and its operations as well as in its media
+   * package. Execution conditions are resolved against the given properties first, with strings being quoted.
+   *
+   * @param instance
+   *          the workflow instance
+   * @param properties
+   *          the properties to add, may be <code>null</code>
+   * @return the updated workflow instance
+   */
   protected WorkflowInstance updateConfiguration(WorkflowInstance instance, Map<String, String> properties) {
     try {
       if (properties != null) {
@@ -645,21 +682,92 @@ public class WorkflowServiceImpl extends AbstractIndexProducer implements Workfl
       final Function<String, String> systemVariableGetter = key -> componentContext == null
               ? null
               : componentContext.getBundleContext().getProperty(key);
-      if (instance.getOperations().stream().anyMatch(op -> op.getExecutionCondition() != null)) {
-        instance = WorkflowParser.parseWorkflowInstance(WorkflowParser.toXml(instance));
-        instance.getOperations().stream().filter(op -> op.getExecutionCondition() != null).forEach(
-                op -> op.setExecutionCondition(WorkflowConditionInterpreter.replaceVariables(op.getExecutionCondition(),
-                        systemVariableGetter,
-                        properties, true)));
+      final Function<String, String> replace = value -> value == null
+              ? null
+              : WorkflowConditionInterpreter.replaceVariables(value, systemVariableGetter, wfProperties, false);
+
+      replaceConfiguration(instance, replace);
+      if (instance instanceof WorkflowInstanceImpl) {
+        WorkflowInstanceImpl instanceImpl = (WorkflowInstanceImpl) instance;
+        instanceImpl.setTitle(replace.apply(instance.getTitle()));
+        instanceImpl.setDescription(replace.apply(instance.getDescription()));
+      }
+
+      for (WorkflowOperationInstance op : instance.getOperations()) {
+        replaceConfiguration(op, replace);
+        if (op.getExecutionCondition() != null) {
+          op.setExecutionCondition(replace.apply(WorkflowConditionInterpreter.replaceVariables(
+                  op.getExecutionCondition(), systemVariableGetter, properties, true)));
+        }
+        if (op instanceof WorkflowOperationInstanceImpl) {
+          WorkflowOperationInstanceImpl opImpl = (WorkflowOperationInstanceImpl) op;
+          opImpl.setSkipCondition(replace.apply(op.getSkipCondition()));
+          opImpl.setDescription(replace.apply(op.getDescription()));
+          opImpl.setHoldActionTitle(replace.apply(op.getHoldActionTitle()));
+          opImpl.setExceptionHandlingWorkflow(replace.apply(op.getExceptionHandlingWorkflow()));
+        }
       }
-      String xml = WorkflowConditionInterpreter.replaceVariables(WorkflowParser.toXml(instance),
-              systemVariableGetter, wfProperties, false);
-      return WorkflowParser.parseWorkflowInstance(xml);
+
+      replaceMediaPackageVariables(instance, systemVariableGetter, wfProperties);
+      return instance;
     } catch (Exception e) {
       throw new IllegalStateException("Unable to replace workflow instance variables", e);
     }
   }
 
+  /**
+   * Resolves the variables in the media package of a workflow. The media package is only parsed again if its XML
+   * representation contains any variables. The values are escaped so that they end up in the media package as they are.
+   *
+   * @param instance
+   *          the workflow instance
+   * @param systemVariableGetter
+   *          the system properties
+   * @param properties
+   *          the workflow configuration
+   */
+  private static void replaceMediaPackageVariables(WorkflowInstance instance,
+          Function<String, String> systemVariableGetter, Map<String, String> properties)
+          throws MediaPackageException {
+    MediaPackage mediaPackage = instance.getMediaPackage();
+    if (mediaPackage == null)
+      return;
+    String xml = MediaPackageParser.getAsXml(mediaPackage);
+    if (!xml.contains("${"))
+      return;
+    Map<String, String> escapedProperties = new HashMap<>();
+    for (Entry<String, String> entry : properties.entrySet()) {
+      escapedProperties.put(entry.getKey(), entry.getValue() == null ? null
+              : StringEscapeUtils.escapeXml10(entry.getValue()));
+    }
+    Function<String, String> escapedSystemVariableGetter = key -> {
+      String value = systemVariableGetter.apply(key);
+      return value == null ? null : StringEscapeUtils.escapeXml10(value);
+    };
+    String replaced = WorkflowConditionInterpreter.replaceVariables(xml, escapedSystemVariableGetter,
+            escapedProperties, false);
+    if (!replaced.equals(xml))
+      instance.setMediaPackage(MediaPackageParser.getFromXml(replaced));
+  }
+
+  /**
+   * Resolves the variables in the configuration values of a workflow or workflow operation.
+   *
+   * @param configurable
+   *          the workflow or workflow operation
+   * @param replace
+   *          the function resolving the variables of a value
+   */
+  private static void replaceConfiguration(Configurable configurable, Function<String, String> replace) {
+    for (String key : new ArrayList<>(configurable.getConfigurationKeys())) {
+      String value = configurable.getConfiguration(key);
+      String replaced = replace.apply(value);
+      if (replaced != null && !replaced.equals(value)) {
+        configurable.setConfiguration(key, replaced);
+      }
+    }
+  }
+
   /**
    * Does a lookup of available operation handlers for the given workflow operation.
    *
@@ -1241,7 +1349,8 @@ public class WorkflowServiceImpl extends AbstractIndexProducer implements Workfl
         logger.error("Metadata for mediapackage {} could not be updated", updatedMediaPackage, e);
       }
 
-      // Synchronize the job status with the workflow
+      // Synchronize the job status with the workflow. The workflow instance is serialized once, the serialized form is
+      // reused for the index and for the copy handed to the listeners, which is only parsed if it is needed.
       WorkflowState workflowState = workflowInstance.getState();
       String xml;
       try {
@@ -1306,7 +1415,7 @@ public class WorkflowServiceImpl extends AbstractIndexProducer implements Workfl
           messageSender.sendObjectMessage(WorkflowItem.WORKFLOW_QUEUE, MessageSender.DestinationType.Queue,
                   WorkflowItem.updateInstance(workflowInstance, dcXml, accessControlList));
         }
-        index(workflowInstance);
+        index(workflowInstance, xml);
       } catch (ServiceRegistryException e) {
         logger.error(
                 "Update of workflow job %s in the service registry failed, service registry and workflow index may be out of sync",
@@ -1326,13 +1435,7 @@ public class WorkflowServiceImpl extends AbstractIndexProducer implements Workfl
         workflowsStatistics.updateWorkflow(getBeanStatistics(), getHoldWorkflows());
       }
 
-      try {
-        WorkflowInstance clone = WorkflowParser.parseWorkflowInstance(WorkflowParser.toXml(workflowInstance));
-        fireListeners(originalWorkflowInstance, clone);
-      } catch (Exception e) {
-        // Can't happen, since we are converting from an in-memory object
-        throw new IllegalStateException("In-memory workflow instance could not be serialized", e);
-      }
+      fireListeners(originalWorkflowInstance, workflowInstance, xml);
     } finally {
       lock.unlock();
     }
@@ -1343,12 +1446,14 @@ public class WorkflowServiceImpl extends AbstractIndexProducer implements Workfl
    *
    * @param workflowInstance
    *          the workflow
+   * @param xml
+   *          the serialized workflow
    * @throws WorkflowDatabaseException
    *           if there is a problem storing the workflow instance
    */
-  protected void index(final WorkflowInstance workflowInstance) throws WorkflowDatabaseException {
+  protected void index(final WorkflowInstance workflowInstance, final String xml) throws WorkflowDatabaseException {
     // Update the search index
-    index.update(workflowInstance);
+    index.update(workflowInstance, xml);
   }
 
   /**
@@ -1542,8 +1647,8 @@ public class WorkflowServiceImpl extends AbstractIndexProducer implements Workfl
     // The action to take
     Action action = result.getAction();
 
-    // Update the workflow configuration. Update the reference to the current operation as well, since the workflow has
-    // been serialized and deserialized in the meantime.
+    // Update the workflow configuration. Update the reference to the current operation as well, in case the operations
+    // have been replaced in the meantime.
     int currentOperationPosition = currentOperation.getPosition();
     workflow = updateConfiguration(workflow, result.getProperties());
     currentOperation = (WorkflowOperationInstanceImpl) workflow.getOperations().get(currentOperationPosition);
@@ -1646,6 +1751,12 @@ public class WorkflowServiceImpl extends AbstractIndexProducer implements Workfl
   public boolean isReadyToAccept(Job job) throws UndispatchableJobException {
     String operation = job.getOperation();
 
+    if (jobExecutor.isSaturated()) {
+      logger.debug("Declining job {} because {} workflow jobs are already waiting for a thread", job.getId(),
+              jobExecutor.getQueueDepth());
+      return false;
+    }
+
     // Only restrict execution of new jobs
     if (!Operation.START_WORKFLOW.toString().equals(operation))
       return true;
@@ -1736,7 +1847,7 @@ public class WorkflowServiceImpl extends AbstractIndexProducer implements Workfl
         logger.info("Starting initially delayed workflow %s, %d more waiting", job.getId(), delayedWorkflows.size());
       }
 
-      executorService.submit(new JobRunner(job, serviceRegistry.getCurrentJob()));
+      jobExecutor.submit(new JobRunner(job, serviceRegistry.getCurrentJob()));
     } catch (Exception e) {
       if (e instanceof ServiceRegistryException)
         throw (ServiceRegistryException) e;
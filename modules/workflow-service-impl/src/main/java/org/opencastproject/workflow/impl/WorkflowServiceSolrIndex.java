@@ -388,9 +388,24 @@ public class WorkflowServiceSolrIndex implements WorkflowServiceIndex {
   }
 
   public void index(final WorkflowInstance instance) throws WorkflowDatabaseException {
+    index(instance, null);
+  }
+
+  /**
+   * Adds the workflow instance to the search index.
+   *
+   * @param instance
+   *          the instance
+   * @param xml
+   *          the serialized instance or <code>null</code> to serialize it when the document is created. If given, an
+   *          asynchronously created document is based on it instead of on the instance, which may have changed by then
+   * @throws WorkflowDatabaseException
+   *           if indexing synchronously fails
+   */
+  private void index(final WorkflowInstance instance, final String xml) throws WorkflowDatabaseException {
     if (synchronousIndexing) {
       try {
-        SolrInputDocument doc = createDocument(instance);
+        SolrInputDocument doc = createDocument(instance, xml);
         synchronized (solrServer) {
           solrServer.add(doc);
           solrServer.commit();
@@ -403,7 +418,8 @@ public class WorkflowServiceSolrIndex implements WorkflowServiceIndex {
         @Override
         public void run() {
           try {
-            SolrInputDocument doc = createDocument(instance);
+            final WorkflowInstance snapshot = xml != null ? WorkflowParser.parseWorkflowInstance(xml) : instance;
+            SolrInputDocument doc = createDocument(snapshot, xml);
             synchronized (solrServer) {
               solrServer.add(doc);
               // Use solr's autoCommit feature instead of committing on each document addition.
@@ -424,16 +440,17 @@ public class WorkflowServiceSolrIndex implements WorkflowServiceIndex {
    *
    * @param instance
    *          the instance
+   * @param xml
+   *          the serialized instance or <code>null</code> to serialize it
    * @return the solr input document
    * @throws Exception
    */
-  protected SolrInputDocument createDocument(WorkflowInstance instance) throws Exception {
+  protected SolrInputDocument createDocument(WorkflowInstance instance, String xml) throws Exception {
     SolrInputDocument doc = new SolrInputDocument();
     doc.addField(ID_KEY, instance.getId());
     doc.addField(WORKFLOW_DEFINITION_KEY, instance.getTemplate());
     doc.addField(STATE_KEY, instance.getState().toString());
-    String xml = WorkflowParser.toXml(instance);
-    doc.addField(XML_KEY, xml);
+    doc.addField(XML_KEY, xml != null ? xml : WorkflowParser.toXml(instance));
 
     // index the current operation if there is one. If the workflow is finished, there is no current operation, so use a
     // constant
@@ -1073,6 +1090,17 @@ public class WorkflowServiceSolrIndex implements WorkflowServiceIndex {
     index(instance);
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * @see org.opencastproject.workflow.impl.WorkflowServiceIndex#update(org.opencastproject.workflow.api.WorkflowInstance,
+   *      String)
+   */
+  @Override
+  public void update(WorkflowInstance instance, String xml) throws WorkflowDatabaseException {
+    index(instance, xml);
+  }
+
   /**
    * Clears the index of all workflow instances.
    */
@@ -0,0 +1,239 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+package org.opencastproject.workflow.impl;
+
+import static org.apache.commons.lang3.StringUtils.isNotBlank;
+
+import org.opencastproject.mediapackage.MediaPackage;
+import org.opencastproject.mediapackage.MediaPackageBuilderFactory;
+import org.opencastproject.workflow.api.WorkflowInstance;
+import org.opencastproject.workflow.api.WorkflowInstanceImpl;
+import org.opencastproject.workflow.api.WorkflowOperationInstance;
+import org.opencastproject.workflow.api.WorkflowOperationInstance.OperationState;
+import org.opencastproject.workflow.api.WorkflowOperationInstanceImpl;
+import org.opencastproject.workflow.api.WorkflowParser;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compares the variable substitution of {@link WorkflowServiceImpl#updateConfiguration(WorkflowInstance, Map)} with
+ * the substitution on the XML representation of the whole workflow it replaces.
+ */
+public class WorkflowVariableSubstitutionTest {
+
+  private static final Pattern PROPERTY_PATTERN = Pattern.compile("\\$\\{(?<varname>[^:}]+)(:(?<def>[^}]+))?}");
+
+  private final WorkflowServiceImpl service = new WorkflowServiceImpl();
+
+  @Test
+  public void testSubstitutionMatchesXmlSubstitution() throws Exception {
+    Map<String, String> properties = new HashMap<>();
+    properties.put("flag", "true");
+    properties.put("count", "3");
+    properties.put("name", "some name");
+    properties.put("new", "added");
+
+    WorkflowInstance expected = substituteXml(createWorkflow(), properties);
+    WorkflowInstance actual = service.updateConfiguration(createWorkflow(), properties);
+
+    Assert.assertEquals(describe(expected), describe(actual));
+    Assert.assertEquals("Lecture My Title", actual.getMediaPackage().getTitle());
+    Assert.assertEquals("true && 3 > 2 && 'some name' == 'some name'",
+            actual.getOperations().get(0).getExecutionCondition());
+  }
+
+  @Test
+  public void testSubstitutionWithoutPropertiesMatchesXmlSubstitution() throws Exception {
+    WorkflowInstance expected = substituteXml(createWorkflow(), null);
+    WorkflowInstance actual = service.updateConfiguration(createWorkflow(), null);
+
+    Assert.assertEquals(describe(expected), describe(actual));
+    Assert.assertEquals("${flag} && 1 > 2 && ${name} == 'some name'",
+            actual.getOperations().get(0).getExecutionCondition());
+  }
+
+  @Test
+  public void testSubstitutionOfXmlCharacters() throws Exception {
+    Map<String, String> properties = new HashMap<>();
+    properties.put("title", "Q&A <live>");
+
+    WorkflowInstance actual = service.updateConfiguration(createWorkflow(), properties);
+    Assert.assertEquals("Lecture Q&A <live>", actual.getMediaPackage().getTitle());
+    Assert.assertEquals("Q&A <live>", actual.getTitle());
+  }
+
+  /** Creates a workflow with variables in all places that the substitution covers. */
+  private static WorkflowInstance createWorkflow() throws Exception {
+    MediaPackage mediaPackage = MediaPackageBuilderFactory.newInstance().newMediaPackageBuilder().createNew();
+    mediaPackage.setTitle("Lecture ${title}");
+    mediaPackage.setSeriesTitle("${series:Unknown}");
+
+    WorkflowOperationInstanceImpl first = new WorkflowOperationInstanceImpl("first", OperationState.INSTANTIATED);
+    first.setExecutionCondition("${flag} && ${count} > 2 && ${name} == 'some name'");
+    first.setDescription("Processing ${title}");
+    first.setConfiguration("target", "${target}");
+    first.setConfiguration("literal", "no variables");
+    first.setConfiguration("undefined", "${undefined}");
+    WorkflowOperationInstanceImpl second = new WorkflowOperationInstanceImpl("second", OperationState.INSTANTIATED);
+    second.setSkipCondition("${skip:false}");
+    second.setHoldActionTitle("Review ${title}");
+    second.setExceptionHandlingWorkflow("${error-workflow}");
+    second.setConfiguration("target", "${target}/${count}");
+    List<WorkflowOperationInstance> operations = new ArrayList<>();
+    operations.add(first);
+    operations.add(second);
+
+    WorkflowInstanceImpl workflow = new WorkflowInstanceImpl();
+    workflow.setTitle("${title}");
+    workflow.setDescription("Workflow for ${target}");
+    workflow.setMediaPackage(mediaPackage);
+    workflow.setOperations(operations);
+    workflow.setConfiguration("title", "My Title");
+    workflow.setConfiguration("target", "presenter/delivery");
+    workflow.setConfiguration("count", "1");
+    workflow.setConfiguration("error-workflow", "error");
+    workflow.setConfiguration("self", "${target}");
+    return workflow;
+  }
+
+  /** Returns the parts of a workflow affected by the substitution. */
+  private static Map<String, Object> describe(WorkflowInstance workflow) {
+    Map<String, Object> description = new TreeMap<>();
+    description.put("title", workflow.getTitle());
+    description.put("description", workflow.getDescription());
+    description.put("configuration", configuration(workflow));
+    description.put("mediapackage.title", workflow.getMediaPackage().getTitle());
+    description.put("mediapackage.seriestitle", workflow.getMediaPackage().getSeriesTitle());
+    for (WorkflowOperationInstance op : workflow.getOperations()) {
+      String prefix = op.getTemplate() + ".";
+      description.put(prefix + "configuration", configuration(op));
+      description.put(prefix + "if", op.getExecutionCondition());
+      description.put(prefix + "unless", op.getSkipCondition());
+      description.put(prefix + "description", op.getDescription());
+      description.put(prefix + "hold-action-title", op.getHoldActionTitle());
+      description.put(prefix + "exception-handler-workflow", op.getExceptionHandlingWorkflow());
+    }
+    return description;
+  }
+
+  private static Map<String, String> configuration(WorkflowInstance workflow) {
+    Map<String, String> configuration = new TreeMap<>();
+    for (String key : workflow.getConfigurationKeys()) {
+      configuration.put(key, workflow.getConfiguration(key));
+    }
+    return configuration;
+  }
+
+  private static Map<String, String> configuration(WorkflowOperationInstance op) {
+    Map<String, String> configuration = new TreeMap<>();
+    for (String key : op.getConfigurationKeys()) {
+      configuration.put(key, op.getConfiguration(key));
+    }
+    return configuration;
+  }
+
+  /** The substitution on the XML representation of the whole workflow, as it used to be done. */
+  private static WorkflowInstance substituteXml(WorkflowInstance instance, Map<String, String> properties)
+          throws Exception {
+    if (properties != null) {
+      for (Map.Entry<String, String> entry : properties.entrySet()) {
+        instance.setConfiguration(entry.getKey(), entry.getValue());
+      }
+    }
+    Map<String, String> wfProperties = new HashMap<>();
+    for (String key : instance.getConfigurationKeys()) {
+      wfProperties.put(key, instance.getConfiguration(key));
+    }
+    final Function<String, String> systemVariableGetter = key -> null;
+    if (instance.getOperations().stream().anyMatch(op -> op.getExecutionCondition() != null)) {
+      instance = WorkflowParser.parseWorkflowInstance(WorkflowParser.toXml(instance));
+      instance.getOperations().stream().filter(op -> op.getExecutionCondition() != null).forEach(
+              op -> op.setExecutionCondition(replaceVariables(op.getExecutionCondition(), systemVariableGetter,
+                      properties, true)));
+    }
+    String xml = replaceVariables(WorkflowParser.toXml(instance), systemVariableGetter, wfProperties, false);
+    return WorkflowParser.parseWorkflowInstance(xml);
+  }
+
+  /** The variable replacement as it used to be done, matching the variable pattern on every call. */
+  private static String replaceVariables(String source, Function<String, String> systemPropertyGetter,
+          Map<String, String> properties, boolean quoteStrings) {
+    Matcher matcher = PROPERTY_PATTERN.matcher(source);
+    StringBuilder result = new StringBuilder();
+    int cursor = 0;
+    boolean matchFound = matcher.find();
+    if (!matchFound)
+      return source;
+    while (matchFound) {
+      int matchStart = matcher.start();
+      int matchEnd = matcher.end();
+      result.append(source, cursor, matchStart);
+      String key = source.substring(matchStart + 2, matchEnd - 1);
+      String systemProperty = systemPropertyGetter.apply(key);
+      String providedProperty = null;
+      if (properties != null) {
+        providedProperty = properties.get(key);
+      }
+      final String toAppend;
+      if (isNotBlank(providedProperty)) {
+        toAppend = providedProperty;
+      } else if (isNotBlank(systemProperty)) {
+        toAppend = systemProperty;
+      } else {
+        toAppend = null;
+      }
+      if (toAppend != null) {
+        if (!quoteStrings) {
+          result.append(toAppend);
+        } else {
+          try {
+            if ("false".equals(toAppend) || "true".equals(toAppend)) {
+              result.append(toAppend);
+            } else {
+              Integer.parseInt(toAppend);
+              result.append(toAppend);
+            }
+          } catch (NumberFormatException e) {
+            result.append("'").append(toAppend.replace("''", "'")).append("'");
+          }
+        }
+      } else {
+        result.append(source, matchStart, matchEnd);
+      }
+      cursor = matchEnd;
+      matchFound = matcher.find();
+      if (!matchFound)
+        result.append(source.substring(matchEnd));
+    }
+    return result.toString();
+  }
+
+}
@@ -77,6 +77,29 @@ public interface WorkingFileRepository extends StorageUsage {
   URI put(String mediaPackageID, String mediaPackageElementID, String filename, InputStream in) throws IOException,
           IllegalArgumentException;
 
+  /**
+   * Store a local file under the given media package and element IDs with filename as name of the file. Where possible,
+   * the file is linked into the repository rather than copied, so it must not be modified afterwards.
+   *
+   * @param mediaPackageID
+   *          the media package identifier
+   * @param mediaPackageElementID
+   *          the media package element identifier
+   * @param filename
+   *          the file name to use
+   * @param file
+   *          the file to store
+   * @param md5
+   *          the md5 hash of the file if already known, <code>null</code> otherwise
+   * @return The URL to access this file
+   * @throws IOException
+   *           if the file cannot be accessed or the element cannot be written to the repository
+   * @throws IllegalArgumentException
+   *           if a <code>URI</code> cannot be created from the arguments
+   */
+  URI put(String mediaPackageID, String mediaPackageElementID, String filename, File file, String md5)
+          throws IOException, IllegalArgumentException;
+
   /**
    * Stream the file stored under the given media package and element IDs.
    *
@@ -173,6 +196,24 @@ public interface WorkingFileRepository extends StorageUsage {
    */
   URI putInCollection(String collectionId, String fileName, InputStream in) throws IOException;
 
+  /**
+   * Puts a local file into a collection, overwriting the existing file if present. Where possible, the file is linked
+   * into the repository rather than copied, so it must not be modified afterwards.
+   *
+   * @param collectionId
+   *          The collection identifier
+   * @param fileName
+   *          The filename to use in storing the file
+   * @param file
+   *          the file to store
+   * @param md5
+   *          the md5 hash of the file if already known, <code>null</code> otherwise
+   * @return The URI identifying the file
+   * @throws IOException
+   *           if the file cannot be accessed or cannot be written to the repository
+   */
+  URI putInCollection(String collectionId, String fileName, File file, String md5) throws IOException;
+
   /**
    * Gets the URIs of the members of this collection
    *
@@ -195,6 +236,22 @@ public interface WorkingFileRepository extends StorageUsage {
    */
   InputStream getFromCollection(String collectionId, String fileName) throws NotFoundException, IOException;
 
+  /**
+   * Gets the md5 hash of a file in a collection. The hash is calculated while the file is stored, so the file does not
+   * need to be read again.
+   *
+   * @param collectionId
+   *          the collection identifier
+   * @param fileName
+   *          the file name
+   * @return the md5 hash of the file
+   * @throws NotFoundException
+   *           if the file does not exist
+   * @throws IOException
+   *           if the hash cannot be read
+   */
+  String getCollectionElementDigest(String collectionId, String fileName) throws NotFoundException, IOException;
+
   /**
    * Gets data from a collection
    *
@@ -47,6 +47,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.FilenameFilter;
 import java.io.IOException;
@@ -322,6 +323,95 @@ public class WorkingFileRepositoryImpl implements WorkingFileRepository, PathMap
       IOUtils.closeQuietly(in);
     }
 
+    replace(f, fTmp, md5File, md5FileTmp, filesToDelete);
+    return getURI(mediaPackageID, mediaPackageElementID, filename);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @see org.opencastproject.workingfilerepository.api.WorkingFileRepository#put(java.lang.String, java.lang.String,
+   * java.lang.String, java.io.File, java.lang.String)
+   */
+  @Override
+  public URI put(String mediaPackageID, String mediaPackageElementID, String filename, File file, String md5)
+          throws IOException {
+    checkPathSafe(mediaPackageID);
+    checkPathSafe(mediaPackageElementID);
+    if (!file.isFile())
+      throw new FileNotFoundException("File " + file.getAbsolutePath() + " can not be read");
+    File dir = getElementDirectory(mediaPackageID, mediaPackageElementID);
+
+    File[] filesToDelete = null;
+
+    if (dir.exists()) {
+      filesToDelete = dir.listFiles();
+    } else {
+      logger.debug("Attempting to create a new directory at {}", dir.getAbsolutePath());
+      FileUtils.forceMkdir(dir);
+    }
+
+    // Destination files
+    File f = new File(dir, PathSupport.toSafeName(filename));
+    File md5File = getMd5File(f);
+
+    // Temporary files while adding
+    File fTmp = null;
+    File md5FileTmp = null;
+    try {
+      fTmp = File.createTempFile(f.getName(), ".tmp", dir);
+      md5FileTmp = File.createTempFile(md5File.getName(), ".tmp", dir);
+      logger.debug("Linking {} to {}", file, f);
+      link(file, fTmp, md5FileTmp, md5);
+    } catch (IOException e) {
+      FileUtils.deleteQuietly(fTmp);
+      FileUtils.deleteQuietly(md5FileTmp);
+      throw e;
+    }
+
+    replace(f, fTmp, md5File, md5FileTmp, filesToDelete);
+    return getURI(mediaPackageID, mediaPackageElementID, filename);
+  }
+
+  /**
+   * Links or, if that is not possible, copies a file to a temporary location in the repository and stores its md5 hash
+   * next to it. The hash is only calculated if it is not known yet.
+   *
+   * @param file
+   *         the file to store
+   * @param fTmp
+   *         the temporary file
+   * @param md5FileTmp
+   *         the temporary md5 file
+   * @param md5
+   *         the md5 hash of the file or <code>null</code>
+   */
+  private void link(File file, File fTmp, File md5FileTmp, String md5) throws IOException {
+    FileSupport.link(file, fTmp, true);
+    if (md5 == null) {
+      try (InputStream in = new FileInputStream(fTmp)) {
+        md5 = DigestUtils.md5Hex(in);
+      }
+    }
+    FileUtils.writeStringToFile(md5FileTmp, md5);
+  }
+
+  /**
+   * Moves the temporary files of an element to their final location, atomically if the file system supports it, and
+   * deletes the former files of the element.
+   *
+   * @param f
+   *         the element file
+   * @param fTmp
+   *         the temporary element file
+   * @param md5File
+   *         the md5 file
+   * @param md5FileTmp
+   *         the temporary md5 file
+   * @param filesToDelete
+   *         the files the element directory contained before, may be <code>null</code>
+   */
+  private void replace(File f, File fTmp, File md5File, File md5FileTmp, File[] filesToDelete) throws IOException {
     // Rename temporary files to the final version atomically
     try {
       Files.move(md5FileTmp.toPath(), md5File.toPath(), StandardCopyOption.ATOMIC_MOVE);
@@ -343,8 +433,6 @@ public class WorkingFileRepositoryImpl implements WorkingFileRepository, PathMap
         }
       }
     }
-
-    return getURI(mediaPackageID, mediaPackageElementID, filename);
   }
 
   /**
@@ -643,6 +731,37 @@ public class WorkingFileRepositoryImpl implements WorkingFileRepository, PathMap
     return getCollectionURI(collectionId, fileName);
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * @see org.opencastproject.workingfilerepository.api.WorkingFileRepository#putInCollection(java.lang.String,
+   * java.lang.String, java.io.File, java.lang.String)
+   */
+  @Override
+  public URI putInCollection(String collectionId, String fileName, File file, String md5) throws IOException {
+    checkPathSafe(collectionId);
+    checkPathSafe(fileName);
+    if (!file.isFile())
+      throw new FileNotFoundException("File " + file.getAbsolutePath() + " can not be read");
+    File collectionDirectory = getCollectionDirectory(collectionId, true);
+    File f = new File(collectionDirectory, PathSupport.toSafeName(fileName));
+    File md5File = getMd5File(f);
+    File fTmp = null;
+    File md5FileTmp = null;
+    try {
+      fTmp = File.createTempFile(f.getName(), ".tmp", collectionDirectory);
+      md5FileTmp = File.createTempFile(md5File.getName(), ".tmp", collectionDirectory);
+      logger.debug("Linking {} to {}", file, f);
+      link(file, fTmp, md5FileTmp, md5);
+      replace(f, fTmp, md5File, md5FileTmp, null);
+    } catch (IOException e) {
+      FileUtils.deleteQuietly(fTmp);
+      FileUtils.deleteQuietly(md5FileTmp);
+      throw e;
+    }
+    return getCollectionURI(collectionId, fileName);
+  }
+
   /**
    * {@inheritDoc}
    *
@@ -669,7 +788,12 @@ public class WorkingFileRepositoryImpl implements WorkingFileRepository, PathMap
     try {
       destFile = new File(destDir, PathSupport.toSafeName(toFileName));
       FileSupport.link(source, destFile);
-      createMd5(destFile);
+      // The content is the same, so reuse the hash of the source rather than reading the file again
+      File sourceMd5 = getMd5File(source);
+      if (sourceMd5.isFile())
+        FileUtils.copyFile(sourceMd5, getMd5File(destFile));
+      else
+        createMd5(destFile);
     } catch (Exception e) {
       FileUtils.deleteDirectory(destDir);
     }
@@ -817,12 +941,14 @@ public class WorkingFileRepositoryImpl implements WorkingFileRepository, PathMap
   }
 
   /**
-   * Returns the md5 hash value for the given collection element.
+   * {@inheritDoc}
    *
-   * @throws NotFoundException
-   *         if the collection element does not exist
+   * @see org.opencastproject.workingfilerepository.api.WorkingFileRepository#getCollectionElementDigest(
+   *      java.lang.String, java.lang.String)
    */
-  String getCollectionElementDigest(String collectionId, String fileName) throws IOException, NotFoundException {
+  @Override
+  public String getCollectionElementDigest(String collectionId, String fileName) throws IOException,
+          NotFoundException {
     return getFileDigest(getFileFromCollection(collectionId, fileName));
   }
 
@@ -841,7 +967,7 @@ public class WorkingFileRepositoryImpl implements WorkingFileRepository, PathMap
 
     // Check if there is a precalculated md5 hash
     File md5HashFile = getMd5File(file);
-    if (file.exists()) {
+    if (md5HashFile.exists()) {
       logger.trace("Reading precalculated hash for {} from {}", file, md5HashFile.getName());
       return FileUtils.readFileToString(md5HashFile, "utf-8");
     }
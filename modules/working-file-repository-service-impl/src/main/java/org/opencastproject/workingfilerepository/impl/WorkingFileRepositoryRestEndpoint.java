@@ -229,7 +229,8 @@ public class WorkingFileRepositoryRestEndpoint extends WorkingFileRepositoryImpl
           @RestResponse(responseCode = SC_NOT_FOUND, description = "Not found") })
   public Response restGet(@PathParam("mediaPackageID") final String mediaPackageID,
           @PathParam("mediaPackageElementID") final String mediaPackageElementID,
-          @HeaderParam("If-None-Match") String ifNoneMatch) throws NotFoundException {
+          @HeaderParam("If-None-Match") String ifNoneMatch, @HeaderParam("Range") String range)
+          throws NotFoundException {
     // Check the If-None-Match header first
     String md5 = null;
     try {
@@ -249,6 +250,10 @@ public class WorkingFileRepositoryRestEndpoint extends WorkingFileRepositoryImpl
         contentType = "application/octet-stream";
       }
       try {
+        if (StringUtils.isNotBlank(range)) {
+          logger.debug("trying to retrieve range: {}", range);
+          return partialFileResponse(file, contentType, none(""), range).tag(md5).build();
+        }
         return ok(get(mediaPackageID, mediaPackageElementID), contentType, some(file.length()), none(""));
       } catch (IOException e) {
         throw new NotFoundException();
@@ -293,7 +298,7 @@ public class WorkingFileRepositoryRestEndpoint extends WorkingFileRepositoryImpl
       } else {
         // No If-Non-Match header provided, or the file changed in the meantime
         return fileResponse(getFile(mediaPackageID, mediaPackageElementID), getMimeType(fileName),
-                some(fileName)).tag(md5).build();
+                some(fileName)).header("Accept-Ranges", "bytes").tag(md5).build();
       }
     } catch (Exception e) {
       logger.error("Unable to provide element '{}' from mediapackage '{}': {}", mediaPackageElementID,
@@ -310,9 +315,24 @@ public class WorkingFileRepositoryRestEndpoint extends WorkingFileRepositoryImpl
           @RestResponse(responseCode = SC_OK, description = "File returned"),
           @RestResponse(responseCode = SC_NOT_FOUND, description = "Not found") })
   public Response restGetFromCollection(@PathParam("collectionId") String collectionId,
-          @PathParam("fileName") String fileName) throws NotFoundException {
+          @PathParam("fileName") String fileName, @HeaderParam("Range") String range) throws NotFoundException {
+    String md5 = null;
+    try {
+      md5 = getCollectionElementDigest(collectionId, fileName);
+    } catch (IOException e) {
+      logger.warn("Error reading digest of {}/{}", collectionId, fileName);
+    }
+    if (StringUtils.isNotBlank(range)) {
+      try {
+        return partialFileResponse(getFileFromCollection(collectionId, fileName), getMimeType(fileName),
+                some(fileName), range).tag(md5).build();
+      } catch (IOException e) {
+        logger.error("Unable to provide file '{}' from collection '{}': {}", fileName, collectionId, e);
+        return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
+      }
+    }
     return fileResponse(getFileFromCollection(collectionId, fileName), getMimeType(fileName), some(fileName))
-            .build();
+            .header("Accept-Ranges", "bytes").tag(md5).build();
   }
 
   @GET
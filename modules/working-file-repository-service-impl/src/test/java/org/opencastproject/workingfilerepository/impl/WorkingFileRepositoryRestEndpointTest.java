@@ -89,7 +89,7 @@ public class WorkingFileRepositoryRestEndpointTest {
     }
 
     // execute gets, and ensure that the content types are correct
-    Response response = endpoint.restGet(mediaPackageId, image, null);
+    Response response = endpoint.restGet(mediaPackageId, image, null, null);
 
     Assert.assertEquals("Gif content type", "image/gif", response.getMetadata().getFirst("Content-Type"));
 
@@ -120,7 +120,7 @@ public class WorkingFileRepositoryRestEndpointTest {
     }
 
     // execute gets, and ensure that the content types are correct
-    Response response = endpoint.restGetFromCollection("collection-2", "opencast_header.gif");
+    Response response = endpoint.restGetFromCollection("collection-2", "opencast_header.gif", null);
 
     Assert.assertEquals("Gif content type", "image/gif", response.getMetadata().getFirst("Content-Type"));
   }
@@ -135,7 +135,7 @@ public class WorkingFileRepositoryRestEndpointTest {
     }
 
     // execute gets, and ensure that the content types are correct
-    Response response = endpoint.restGet(mediaPackageId, dc, null);
+    Response response = endpoint.restGet(mediaPackageId, dc, null, null);
 
     Assert.assertEquals("DC content type", "text/xml", response.getMetadata().getFirst("Content-Type"));
 
@@ -149,6 +149,32 @@ public class WorkingFileRepositoryRestEndpointTest {
     }
   }
 
+  @Test
+  public void testRange() throws Exception {
+    String mediaPackageId = "mp";
+    String dc = "element1";
+    try (InputStream in = getClass().getResourceAsStream("/dublincore.xml")) {
+      endpoint.put(mediaPackageId, dc, "dublincore.xml", in);
+    }
+
+    byte[] bytesFromClasspath;
+    try (InputStream in = getClass().getResourceAsStream("/dublincore.xml")) {
+      bytesFromClasspath = IOUtils.toByteArray(in);
+    }
+
+    Response response = endpoint.restGet(mediaPackageId, dc, null, "bytes=10-19");
+    Assert.assertEquals(206, response.getStatus());
+    Assert.assertEquals("bytes 10-19/" + bytesFromClasspath.length,
+            response.getMetadata().getFirst("Content-Range"));
+    try (InputStream responseIn = (InputStream) response.getEntity()) {
+      Assert.assertArrayEquals(Arrays.copyOfRange(bytesFromClasspath, 10, 20), IOUtils.toByteArray(responseIn));
+    }
+
+    response = endpoint.restGet(mediaPackageId, dc, null, "bytes=" + bytesFromClasspath.length + "-");
+    Assert.assertEquals(416, response.getStatus());
+    Assert.assertEquals("bytes */" + bytesFromClasspath.length, response.getMetadata().getFirst("Content-Range"));
+  }
+
   public void testEtag() throws Exception {
     String mediaPackageId = "mp";
     String dc = "element1";
@@ -164,11 +190,11 @@ public class WorkingFileRepositoryRestEndpointTest {
     try {
       in = getClass().getResourceAsStream("/dublincore.xml");
       String md5 = DigestUtils.md5Hex(in);
-      Response response = endpoint.restGet(mediaPackageId, dc, md5);
+      Response response = endpoint.restGet(mediaPackageId, dc, md5, null);
       Assert.assertEquals(Response.Status.NOT_MODIFIED.getStatusCode(), response.getStatus());
       responseIn = (InputStream) response.getEntity();
       Assert.assertNull(responseIn);
-      response = endpoint.restGet(mediaPackageId, dc, "foo");
+      response = endpoint.restGet(mediaPackageId, dc, "foo", null);
       Assert.assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
       responseIn = (InputStream) response.getEntity();
       Assert.assertNotNull(responseIn);
@@ -247,4 +247,26 @@ public class WorkingFileRepositoryTest {
     Assert.assertFalse(result);
   }
 
+  @Test
+  public void testPutFile() throws Exception {
+    File source = new File(repo.rootDirectory, "source.gif");
+    try (InputStream in = getClass().getClassLoader().getResourceAsStream("opencast_header.gif")) {
+      FileUtils.copyInputStreamToFile(in, source);
+    }
+    String md5 = repo.getMediaPackageElementDigest(mediaPackageID, mediaPackageElementID);
+
+    // A known hash is taken as is
+    repo.put(mediaPackageID, "element-2", "header.gif", source, md5);
+    Assert.assertEquals(md5, repo.getMediaPackageElementDigest(mediaPackageID, "element-2"));
+    Assert.assertTrue(FileUtils.contentEquals(source, repo.getFile(mediaPackageID, "element-2")));
+
+    // An unknown hash is calculated
+    repo.put(mediaPackageID, "element-3", "header.gif", source, null);
+    Assert.assertEquals(md5, repo.getMediaPackageElementDigest(mediaPackageID, "element-3"));
+
+    repo.putInCollection(collectionId, "header.gif", source, null);
+    Assert.assertEquals(md5, repo.getCollectionElementDigest(collectionId, "header.gif"));
+    Assert.assertTrue(source.isFile());
+  }
+
 }
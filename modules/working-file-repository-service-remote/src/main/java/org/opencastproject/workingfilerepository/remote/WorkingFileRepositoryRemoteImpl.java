@@ -31,10 +31,12 @@ import org.opencastproject.util.UrlSupport;
 import org.opencastproject.util.data.Option;
 import org.opencastproject.workingfilerepository.api.WorkingFileRepository;
 
+import org.apache.http.Header;
 import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
 import org.apache.http.client.methods.HttpDelete;
 import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpHead;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.entity.mime.MultipartEntity;
 import org.apache.http.entity.mime.content.ContentBody;
@@ -47,6 +49,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
@@ -292,6 +295,33 @@ public class WorkingFileRepositoryRemoteImpl extends RemoteBase implements Worki
     throw new RuntimeException("Error get from collection");
   }
 
+  /**
+   * {@inheritDoc} The hash is read from the entity tag of the file, so the file itself is not transferred.
+   *
+   * @see org.opencastproject.workingfilerepository.api.WorkingFileRepository#getCollectionElementDigest(
+   *      java.lang.String, java.lang.String)
+   */
+  @Override
+  public String getCollectionElementDigest(String collectionId, String fileName) throws NotFoundException,
+          IOException {
+    String url = UrlSupport.concat(new String[] { COLLECTION_PATH_PREFIX, collectionId, fileName });
+    HttpHead head = new HttpHead(url);
+    HttpResponse response = getResponse(head, SC_OK, SC_NOT_FOUND);
+    try {
+      if (response != null) {
+        if (SC_NOT_FOUND == response.getStatusLine().getStatusCode())
+          throw new NotFoundException();
+        Header etag = response.getFirstHeader("ETag");
+        if (etag == null)
+          throw new IOException("No digest returned for " + collectionId + "/" + fileName);
+        return etag.getValue().replace("\"", "");
+      }
+    } finally {
+      closeConnection(response);
+    }
+    throw new RuntimeException("Error getting the digest of " + collectionId + "/" + fileName);
+  }
+
   @Override
   public File getFileFromCollection(String collectionId, String fileName) throws NotFoundException, IllegalArgumentException {
     throw new RuntimeException("Unsupported");
@@ -413,6 +443,20 @@ public class WorkingFileRepositoryRemoteImpl extends RemoteBase implements Worki
     throw new RuntimeException("Unable to put file");
   }
 
+  /**
+   * {@inheritDoc} The file is streamed to the remote repository, which calculates the md5 hash on its own.
+   *
+   * @see org.opencastproject.workingfilerepository.api.WorkingFileRepository#put(java.lang.String, java.lang.String,
+   *      java.lang.String, java.io.File, java.lang.String)
+   */
+  @Override
+  public URI put(String mediaPackageID, String mediaPackageElementID, String filename, File file, String md5)
+          throws IOException {
+    try (InputStream in = new FileInputStream(file)) {
+      return put(mediaPackageID, mediaPackageElementID, filename, in);
+    }
+  }
+
   /**
    * {@inheritDoc}
    *
@@ -441,6 +485,19 @@ public class WorkingFileRepositoryRemoteImpl extends RemoteBase implements Worki
     throw new RuntimeException("Unable to put file in collection");
   }
 
+  /**
+   * {@inheritDoc} The file is streamed to the remote repository, which calculates the md5 hash on its own.
+   *
+   * @see org.opencastproject.workingfilerepository.api.WorkingFileRepository#putInCollection(java.lang.String,
+   *      java.lang.String, java.io.File, java.lang.String)
+   */
+  @Override
+  public URI putInCollection(String collectionId, String fileName, File file, String md5) throws IOException {
+    try (InputStream in = new FileInputStream(file)) {
+      return putInCollection(collectionId, fileName, in);
+    }
+  }
+
   /**
    * {@inheritDoc}
    *
@@ -122,6 +122,25 @@ public interface Workspace extends StorageUsage {
   URI putInCollection(String collectionId, String fileName, InputStream in) throws IOException,
           IllegalArgumentException;
 
+  /**
+   * Moves a local file into the given collection, overwriting any data with the same collection id and file name. If
+   * the file is on the same file system as the working file repository, it is moved there without copying its
+   * contents. The file is gone after this method returns, regardless of the outcome.
+   *
+   * @param collectionId
+   *          The collection to use for storing this data
+   * @param fileName
+   *          the filename to use in the collection.
+   * @param file
+   *          the local file to move
+   * @return the URI of the stored data
+   * @throws IOException
+   *           if moving the file to the workspace fails
+   * @throws IllegalArgumentException
+   *           if a URI cannot be created using the arguments provided
+   */
+  URI moveToCollection(String collectionId, String fileName, File file) throws IOException, IllegalArgumentException;
+
   /**
    * Gets the URIs of the members of this collection
    *
@@ -0,0 +1,519 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package org.opencastproject.workspace.impl;
+
+import org.opencastproject.job.api.Job;
+import org.opencastproject.job.api.JobListener;
+import org.opencastproject.util.IoSupport;
+import org.opencastproject.util.NotFoundException;
+import org.opencastproject.util.data.Function;
+
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Index of the files held by the workspace, ordered by last access. Once the total size of the indexed files exceeds
+ * the configured budget, the least recently used files are deleted. Files that are currently being transferred and
+ * files referenced by jobs that are still running are never evicted. Evicted files are deleted while holding their
+ * file lock, the same lock the workspace holds while writing a file.
+ * <p>
+ * The index also remembers the md5 hash of the files, so that a cached file can be validated against its source
+ * without reading it again. Files that are hard linked when they are indexed, e.g. to the working file repository, do
+ * not count towards the budget, but are still cleaned up once they have not been used for a while.
+ * <p>
+ * Without a budget the index is disabled and does not track any files.
+ */
+public final class WorkspaceCache implements JobListener {
+
+  /** The logging facility */
+  private static final Logger logger = LoggerFactory.getLogger(WorkspaceCache.class);
+
+  /** The indexed files in access order */
+  private final LinkedHashMap<File, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+
+  /** The files referenced by running jobs, by job identifier */
+  private final Map<Long, Set<Entry>> pins = new HashMap<>();
+
+  /** The number of transfers in progress by file */
+  private final Map<File, Integer> transfers = new HashMap<>();
+
+  /** The minimum number of jobs pinning files before the index asks which of them are still running */
+  static final int MIN_PRUNE_THRESHOLD = 64;
+
+  /** Returns the identifiers of all running jobs, or <code>null</code> if they cannot be determined */
+  private Supplier<Set<Long>> activeJobs = Collections::emptySet;
+
+  /** The number of jobs pinning files above which finished jobs are released */
+  private int pruneThreshold = MIN_PRUNE_THRESHOLD;
+
+  /** Whether finished jobs are currently being released */
+  private boolean pruning = false;
+
+  /** The maximum total size of the indexed files in bytes, <code>0</code> meaning unbounded */
+  private long maxSize = 0;
+
+  /** The total size of the indexed files in bytes */
+  private long size = 0;
+
+  private long hits = 0;
+  private long misses = 0;
+  private long evictions = 0;
+
+  /** An indexed file. */
+  private static final class Entry {
+    private final File file;
+    private final long length;
+    private final long weight;
+    private final long lastModified;
+    private final String md5;
+    private final Set<Long> jobs = new HashSet<>();
+    private long lastAccess;
+
+    Entry(File file, String md5) {
+      this(file, md5, System.currentTimeMillis());
+    }
+
+    Entry(File file, String md5, long lastAccess) {
+      this.file = file;
+      this.length = file.length();
+      this.weight = isLinked(file) ? 0 : length;
+      this.lastModified = file.lastModified();
+      this.md5 = md5;
+      this.lastAccess = lastAccess;
+    }
+
+    boolean matches(File file) {
+      return file.length() == length && file.lastModified() == lastModified;
+    }
+  }
+
+  /**
+   * Sets the size budget.
+   *
+   * @param maxSize
+   *          the maximum total size of the indexed files in bytes, or <code>0</code> for no limit
+   */
+  public synchronized void setMaxSize(long maxSize) {
+    this.maxSize = Math.max(0, maxSize);
+  }
+
+  /** Whether the index is enabled, i.e. a size budget has been set. */
+  public synchronized boolean isEnabled() {
+    return maxSize > 0;
+  }
+
+  /**
+   * Sets the function used to look up the running jobs. Files referenced by jobs which are not running anymore are
+   * released even if no status change has been reported for the jobs, e.g. because the service registry is remote.
+   *
+   * @param activeJobs
+   *          returns the identifiers of all running jobs in a single lookup, or <code>null</code> if they cannot be
+   *          determined
+   */
+  public synchronized void setActiveJobs(Supplier<Set<Long>> activeJobs) {
+    this.activeJobs = activeJobs;
+  }
+
+  /**
+   * Adds a file to the index or refreshes its index entry and evicts other files if the size budget is exceeded. Does
+   * nothing if the index is disabled.
+   *
+   * @param file
+   *          the file in the workspace
+   * @param md5
+   *          the md5 hash of the file, may be <code>null</code> if unknown
+   * @param jobId
+   *          the identifier of the job referencing the file, may be <code>null</code>
+   */
+  public void add(File file, String md5, Long jobId) {
+    final List<Entry> evicted = new ArrayList<>();
+    final List<Long> pinnedJobs;
+    synchronized (this) {
+      if (maxSize <= 0)
+        return;
+      final Entry previous = entries.remove(file);
+      if (previous != null)
+        size -= previous.weight;
+      final Entry entry = new Entry(file, md5);
+      if (previous != null) {
+        for (Long previousJobId : previous.jobs) {
+          pin(entry, previousJobId);
+        }
+        unpin(previous);
+      }
+      entries.put(file, entry);
+      size += entry.weight;
+      if (jobId != null)
+        pin(entry, jobId);
+      pinnedJobs = evict(evicted);
+    }
+    evict(pinnedJobs, evicted);
+    pruneIfNecessary();
+  }
+
+  /**
+   * Adds files found in the workspace to the index, ordered by the time they have last been accessed, and evicts other
+   * files if the size budget is exceeded. Files which are already indexed keep their entries.
+   *
+   * @param files
+   *          the files and the time they have last been accessed in milliseconds
+   */
+  public void seed(Map<File, Long> files) {
+    final List<Entry> evicted = new ArrayList<>();
+    final List<Long> pinnedJobs;
+    synchronized (this) {
+      final List<Entry> all = new ArrayList<>(entries.values());
+      for (Map.Entry<File, Long> file : files.entrySet()) {
+        if (!entries.containsKey(file.getKey())) {
+          final Entry entry = new Entry(file.getKey(), null, file.getValue());
+          all.add(entry);
+          size += entry.weight;
+        }
+      }
+      // entries which have been added while the files were collected may be older than some of the seeded ones
+      all.sort(Comparator.comparingLong(entry -> entry.lastAccess));
+      entries.clear();
+      for (Entry entry : all) {
+        entries.put(entry.file, entry);
+      }
+      pinnedJobs = evict(evicted);
+    }
+    evict(pinnedJobs, evicted);
+  }
+
+  /**
+   * Looks up the md5 hash of an indexed file and marks it as recently used.
+   *
+   * @param file
+   *          the file in the workspace
+   * @param jobId
+   *          the identifier of the job referencing the file, may be <code>null</code>
+   * @return the md5 hash or <code>null</code> if the file is not indexed, has been modified since or its hash is unknown
+   */
+  public String getMd5(File file, Long jobId) {
+    final String md5;
+    synchronized (this) {
+      final Entry entry = entries.get(file);
+      if (entry == null || !entry.matches(file)) {
+        if (maxSize > 0)
+          misses++;
+        return null;
+      }
+      hits++;
+      entry.lastAccess = System.currentTimeMillis();
+      if (jobId != null)
+        pin(entry, jobId);
+      md5 = entry.md5;
+    }
+    pruneIfNecessary();
+    return md5;
+  }
+
+  /** Protects a file from eviction while it is being transferred. */
+  public synchronized void beginTransfer(File file) {
+    transfers.merge(file, 1, Integer::sum);
+  }
+
+  /** Releases the protection of {@link #beginTransfer(File)}. */
+  public synchronized void endTransfer(File file) {
+    transfers.computeIfPresent(file, (f, count) -> count > 1 ? count - 1 : null);
+  }
+
+  /** Whether a file is in the index. */
+  public synchronized boolean contains(File file) {
+    return entries.containsKey(file);
+  }
+
+  /** Removes a file from the index, e.g. because it has been deleted. */
+  public synchronized void remove(File file) {
+    final Entry entry = entries.remove(file);
+    if (entry != null) {
+      size -= entry.weight;
+      unpin(entry);
+    }
+  }
+
+  /** Removes all files within a directory from the index. */
+  public synchronized void removeAll(File directory) {
+    final String prefix = directory.getAbsolutePath() + File.separator;
+    final Iterator<Map.Entry<File, Entry>> i = entries.entrySet().iterator();
+    while (i.hasNext()) {
+      final Map.Entry<File, Entry> e = i.next();
+      if (e.getKey().getAbsolutePath().startsWith(prefix)) {
+        size -= e.getValue().weight;
+        unpin(e.getValue());
+        i.remove();
+      }
+    }
+  }
+
+  /**
+   * Deletes all files that have not been used within the given amount of time and that are not referenced by running
+   * jobs.
+   *
+   * @param maxAge
+   *          the maximum age in milliseconds
+   * @return the number of deleted files
+   */
+  public int cleanup(long maxAge) {
+    unpinFinishedJobs(new ArrayList<>(getPinnedJobs()));
+    final long threshold = System.currentTimeMillis() - maxAge;
+    final List<Entry> expired = new ArrayList<>();
+    synchronized (this) {
+      final Iterator<Map.Entry<File, Entry>> i = entries.entrySet().iterator();
+      while (i.hasNext()) {
+        final Map.Entry<File, Entry> e = i.next();
+        // entries are ordered by last access, so all following entries are younger
+        if (e.getValue().lastAccess >= threshold)
+          break;
+        if (isEvictable(e.getValue())) {
+          size -= e.getValue().weight;
+          expired.add(e.getValue());
+          i.remove();
+        }
+      }
+    }
+    return delete(expired);
+  }
+
+  @Override
+  public void jobStatusChanged(Job job) {
+    if (job.getStatus() != null && job.getStatus().isTerminated()) {
+      unpin(job.getId());
+    }
+  }
+
+  public synchronized long getSize() {
+    return size;
+  }
+
+  public synchronized long getMaxSize() {
+    return maxSize;
+  }
+
+  public synchronized int getFileCount() {
+    return entries.size();
+  }
+
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+  public synchronized long getEvictions() {
+    return evictions;
+  }
+
+  synchronized int getPinnedJobCount() {
+    return pins.size();
+  }
+
+  private synchronized Set<Long> getPinnedJobs() {
+    return new HashSet<>(pins.keySet());
+  }
+
+  /**
+   * Releases the files of finished jobs once the number of jobs pinning files has grown beyond the threshold. Without
+   * job status events, e.g. on a worker talking to a remote service registry, the pins would otherwise only be released
+   * by eviction or cleanup. The threshold is raised along with the number of jobs that are still running, so that the
+   * running jobs are looked up only every now and then.
+   */
+  private void pruneIfNecessary() {
+    synchronized (this) {
+      if (pruning || pins.size() <= pruneThreshold)
+        return;
+      pruning = true;
+    }
+    try {
+      unpinFinishedJobs(new ArrayList<>(getPinnedJobs()));
+    } finally {
+      synchronized (this) {
+        pruneThreshold = Math.max(MIN_PRUNE_THRESHOLD, 2 * pins.size());
+        pruning = false;
+      }
+    }
+  }
+
+  private void pin(Entry entry, long jobId) {
+    if (entry.jobs.add(jobId))
+      pins.computeIfAbsent(jobId, id -> new HashSet<>()).add(entry);
+  }
+
+  /** Removes the references of all jobs to an entry. */
+  private void unpin(Entry entry) {
+    for (Long jobId : entry.jobs) {
+      final Set<Entry> pinned = pins.get(jobId);
+      if (pinned != null) {
+        pinned.remove(entry);
+        if (pinned.isEmpty())
+          pins.remove(jobId);
+      }
+    }
+    entry.jobs.clear();
+  }
+
+  /** Removes the references of a job to all entries. */
+  private synchronized void unpin(long jobId) {
+    final Set<Entry> pinned = pins.remove(jobId);
+    if (pinned == null)
+      return;
+    for (Entry entry : pinned) {
+      entry.jobs.remove(jobId);
+    }
+  }
+
+  /**
+   * Looks up the running jobs once and unpins the files of the given jobs which are no longer running. The jobs must
+   * have been collected before calling this method, so that a job which pins a file while the lookup is in progress
+   * is not mistaken for a finished one.
+   *
+   * @return whether any job has been unpinned
+   */
+  private boolean unpinFinishedJobs(List<Long> jobs) {
+    final Supplier<Set<Long>> supplier;
+    synchronized (this) {
+      supplier = activeJobs;
+    }
+    final Set<Long> running = supplier.get();
+    if (running == null)
+      return false;
+    boolean unpinned = false;
+    for (Long jobId : jobs) {
+      if (!running.contains(jobId)) {
+        unpin(jobId);
+        unpinned = true;
+      }
+    }
+    return unpinned;
+  }
+
+  private boolean isEvictable(Entry entry) {
+    return entry.jobs.isEmpty() && !transfers.containsKey(entry.file);
+  }
+
+  /** Whether a file has more than one hard link. */
+  static boolean isLinked(File file) {
+    try {
+      return ((Number) Files.getAttribute(file.toPath(), "unix:nlink")).intValue() > 1;
+    } catch (UnsupportedOperationException | IllegalArgumentException | IOException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Removes the least recently used files from the index until the size budget is met.
+   *
+   * @param evicted
+   *          the list to add the removed entries to, their files still need to be deleted
+   * @return the jobs pinning files that would otherwise have been evicted
+   */
+  private List<Long> evict(List<Entry> evicted) {
+    final List<Long> pinnedJobs = new ArrayList<>();
+    if (maxSize <= 0 || size <= maxSize)
+      return pinnedJobs;
+    final Iterator<Map.Entry<File, Entry>> i = entries.entrySet().iterator();
+    while (size > maxSize && i.hasNext()) {
+      final Map.Entry<File, Entry> e = i.next();
+      // linked files do not take up space of their own
+      if (e.getValue().weight == 0)
+        continue;
+      if (isEvictable(e.getValue())) {
+        size -= e.getValue().weight;
+        evicted.add(e.getValue());
+        i.remove();
+        evictions++;
+      } else {
+        pinnedJobs.addAll(e.getValue().jobs);
+      }
+    }
+    if (size > maxSize)
+      logger.debug("Workspace cache exceeds its budget of {} bytes, remaining files are in use", maxSize);
+    return pinnedJobs;
+  }
+
+  /**
+   * Completes an eviction outside of the monitor of the index. Some of the files that would have to go may be pinned
+   * by jobs which have finished without us noticing. Those are asked for first, then the evicted files are deleted.
+   */
+  private void evict(List<Long> pinnedJobs, List<Entry> evicted) {
+    if (!pinnedJobs.isEmpty() && unpinFinishedJobs(pinnedJobs)) {
+      synchronized (this) {
+        evict(evicted);
+      }
+    }
+    delete(evicted);
+  }
+
+  /**
+   * Deletes the files of entries which have been removed from the index. Each file is deleted while holding its lock,
+   * so a file is never deleted while it is being written. Files which have been added to the index again in the
+   * meantime are kept.
+   *
+   * @return the number of deleted files
+   */
+  private int delete(List<Entry> removed) {
+    int deleted = 0;
+    for (final Entry entry : removed) {
+      try {
+        final boolean gone = IoSupport.locked(entry.file, new Function.X<File, Boolean>() {
+          @Override
+          protected Boolean xapply(File file) {
+            if (contains(file))
+              return false;
+            return FileUtils.deleteQuietly(file);
+          }
+        });
+        if (gone) {
+          logger.debug("Evicted {} from the workspace", entry.file);
+          deleted++;
+        } else if (entry.file.exists() && !contains(entry.file)) {
+          logger.warn("Could not delete {}", entry.file);
+        }
+      } catch (NotFoundException e) {
+        // the directory of the file is gone already
+      } catch (IOException e) {
+        logger.warn("Could not delete {}: {}", entry.file, e.getMessage());
+      }
+    }
+    return deleted;
+  }
+
+}
@@ -38,12 +38,18 @@ import static org.opencastproject.util.data.Tuple.tuple;
 
 import org.opencastproject.assetmanager.util.AssetPathUtils;
 import org.opencastproject.assetmanager.util.DistributionPathUtils;
+import org.opencastproject.job.api.Job;
 import org.opencastproject.mediapackage.identifier.Id;
+import org.opencastproject.security.api.Organization;
 import org.opencastproject.security.api.SecurityService;
 import org.opencastproject.security.api.TrustedHttpClient;
+import org.opencastproject.security.api.User;
+import org.opencastproject.security.util.SecurityUtil;
+import org.opencastproject.serviceregistry.api.JobStatusPublisher;
+import org.opencastproject.serviceregistry.api.ServiceRegistry;
+import org.opencastproject.serviceregistry.api.ServiceRegistryException;
 import org.opencastproject.util.FileSupport;
 import org.opencastproject.util.HttpUtil;
-import org.opencastproject.util.IoSupport;
 import org.opencastproject.util.NotFoundException;
 import org.opencastproject.util.PathSupport;
 import org.opencastproject.util.data.Effect;
@@ -58,12 +64,13 @@ import org.opencastproject.workingfilerepository.api.WorkingFileRepository;
 import org.opencastproject.workspace.api.Workspace;
 import org.opencastproject.workspace.impl.jmx.WorkspaceBean;
 
+import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.io.IOUtils;
-import org.apache.commons.io.input.TeeInputStream;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.http.Header;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.utils.URIBuilder;
@@ -77,14 +84,46 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import javax.management.ObjectInstance;
 import javax.servlet.http.HttpServletResponse;
@@ -111,6 +150,33 @@ public final class WorkspaceImpl implements Workspace {
   public static final String WORKSPACE_CLEANUP_PERIOD_KEY = "org.opencastproject.workspace.cleanup.period";
   /** Configuration key for garbage collection max age. */
   public static final String WORKSPACE_CLEANUP_MAX_AGE_KEY = "org.opencastproject.workspace.cleanup.max.age";
+  /** Configuration key for the maximum size of the files cached in the workspace. */
+  public static final String WORKSPACE_CACHE_SIZE_KEY = "org.opencastproject.workspace.cache.size";
+  /** Configuration key for the number of parallel range requests used to download a single file. */
+  public static final String WORKSPACE_DOWNLOAD_THREADS_KEY = "org.opencastproject.workspace.download.threads";
+  /** Configuration key for the size of the ranges requested when downloading a file. */
+  public static final String WORKSPACE_DOWNLOAD_CHUNK_SIZE_KEY = "org.opencastproject.workspace.download.chunk.size";
+
+  /** Default number of parallel range requests per download */
+  private static final int DEFAULT_DOWNLOAD_THREADS = 4;
+
+  /** Default size of the requested ranges */
+  private static final long DEFAULT_DOWNLOAD_CHUNK_SIZE = 64L * 1024L * 1024L;
+
+  /** Number of attempts to download a range before giving up */
+  private static final int DOWNLOAD_ATTEMPTS = 5;
+
+  /** Initial delay before asking again for a file which is not ready yet */
+  private static final long MIN_RETRY_DELAY = 1000L;
+
+  /** Maximum delay before asking again for a file which is not ready yet */
+  private static final long MAX_RETRY_DELAY = 60000L;
+
+  /** Pattern of the <code>Content-Range</code> header of a partial response */
+  private static final Pattern CONTENT_RANGE = Pattern.compile("bytes\\s+(\\d+)-(\\d+)/(\\d+)");
+
+  /** Pattern of an md5 hash as used in the <code>ETag</code> header */
+  private static final Pattern MD5 = Pattern.compile("[0-9a-fA-F]{32}");
 
   /** Workspace JMX type */
   private static final String JMX_WORKSPACE_TYPE = "Workspace";
@@ -118,8 +184,11 @@ public final class WorkspaceImpl implements Workspace {
   /** Unknown file name string */
   private static final String UNKNOWN_FILENAME = "unknown";
 
+  /** The index of the files cached in the workspace */
+  private final WorkspaceCache cache = new WorkspaceCache();
+
   /** The JMX workspace bean */
-  private WorkspaceBean workspaceBean = new WorkspaceBean(this);
+  private WorkspaceBean workspaceBean = new WorkspaceBean(this, cache);
 
   /** The JMX bean object instance */
   private ObjectInstance registeredMXBean;
@@ -136,6 +205,9 @@ public final class WorkspaceImpl implements Workspace {
 
   private SecurityService securityService = null;
 
+  /** The service registry, used to find out which jobs are referencing cached files */
+  private ServiceRegistry serviceRegistry = null;
+
   /** The working file repository */
   private WorkingFileRepository wfr = null;
 
@@ -156,6 +228,18 @@ public final class WorkspaceImpl implements Workspace {
   /** The workspce cleaner */
   private WorkspaceCleaner workspaceCleaner = null;
 
+  /** The transfers in progress by URI, each resulting in the downloaded file and its checksum */
+  private final ConcurrentMap<String, CompletableFuture<Tuple<File, String>>> transfers = new ConcurrentHashMap<>();
+
+  /** Number of parallel range requests per download */
+  private int downloadThreads = 1;
+
+  /** Size of the requested ranges */
+  private long downloadChunkSize = DEFAULT_DOWNLOAD_CHUNK_SIZE;
+
+  /** Executes range requests in parallel to the thread initiating a download */
+  private ExecutorService downloadExecutor = null;
+
   public WorkspaceImpl() {
   }
 
@@ -276,6 +360,53 @@ public final class WorkspaceImpl implements Workspace {
       }
     }
 
+    // Configure the size budget of the workspace cache
+    long cacheSize = 0;
+    if (ensureContextProp(cc, WORKSPACE_CACHE_SIZE_KEY)) {
+      String size = cc.getBundleContext().getProperty(WORKSPACE_CACHE_SIZE_KEY);
+      try {
+        cacheSize = parseSize(size);
+      } catch (NumberFormatException e) {
+        logger.warn("Invalid configuration for workspace cache size ({}={})", WORKSPACE_CACHE_SIZE_KEY, size);
+      }
+    }
+    cache.setMaxSize(cacheSize);
+    cache.setActiveJobs(this::getActiveJobIds);
+    if (cacheSize > 0) {
+      logger.info("Limiting the files cached in the workspace to {}", FileUtils.byteCountToDisplaySize(cacheSize));
+      final Thread indexer = new Thread(this::indexWorkspace, "workspace-cache-indexer");
+      indexer.setDaemon(true);
+      indexer.start();
+    }
+
+    // Configure parallel downloads
+    downloadThreads = DEFAULT_DOWNLOAD_THREADS;
+    if (ensureContextProp(cc, WORKSPACE_DOWNLOAD_THREADS_KEY)) {
+      String threads = cc.getBundleContext().getProperty(WORKSPACE_DOWNLOAD_THREADS_KEY);
+      try {
+        downloadThreads = Math.max(1, Integer.parseInt(threads.trim()));
+      } catch (NumberFormatException e) {
+        logger.warn("Invalid configuration for workspace download threads ({}={})", WORKSPACE_DOWNLOAD_THREADS_KEY,
+                threads);
+      }
+    }
+    if (ensureContextProp(cc, WORKSPACE_DOWNLOAD_CHUNK_SIZE_KEY)) {
+      String chunkSize = cc.getBundleContext().getProperty(WORKSPACE_DOWNLOAD_CHUNK_SIZE_KEY);
+      try {
+        downloadChunkSize = Math.max(1, parseSize(chunkSize));
+      } catch (NumberFormatException e) {
+        logger.warn("Invalid configuration for workspace download chunk size ({}={})",
+                WORKSPACE_DOWNLOAD_CHUNK_SIZE_KEY, chunkSize);
+      }
+    }
+    if (downloadThreads > 1) {
+      downloadExecutor = Executors.newCachedThreadPool(r -> {
+        final Thread thread = new Thread(r, "workspace-download");
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+
     registeredMXBean = JmxUtil.registerMXBean(workspaceBean, JMX_WORKSPACE_TYPE);
 
     // Start cleanup scheduler if we have sensible cleanup values:
@@ -314,6 +445,10 @@ public final class WorkspaceImpl implements Workspace {
     if (workspaceCleaner != null) {
       workspaceCleaner.shutdown();
     }
+    if (downloadExecutor != null) {
+      downloadExecutor.shutdownNow();
+      downloadExecutor = null;
+    }
   }
 
   @Override
@@ -344,8 +479,12 @@ public final class WorkspaceImpl implements Workspace {
           if (workspaceFileLastModified < wfrCopy.lastModified()) {
             logger.debug("Replacing {} with an updated version from the file repository", inWs.getAbsolutePath());
             locked(inWs, copyOrLink(wfrCopy));
+            if (!uniqueFilename)
+              cache.add(inWs, null, getCurrentJobId());
           } else {
             logger.debug("{} is up to date", inWs);
+            if (!uniqueFilename)
+              cache.getMd5(inWs, getCurrentJobId());
           }
           logger.debug("Getting {} directly from working file repository root at {}", uri, inWs);
           return new File(inWs.getAbsolutePath());
@@ -360,12 +499,85 @@ public final class WorkspaceImpl implements Workspace {
     final File asset = AssetPathUtils.getLocalFile(assetManagerPath, securityService.getOrganization().getId(), uri);
     if (asset != null) {
       logger.debug("Copy local file {} from asset manager to workspace", asset);
-      Files.copy(asset.toPath(), inWs.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      final File tmp = tempFile(inWs);
+      try {
+        Files.copy(asset.toPath(), tmp.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        replace(tmp, inWs);
+      } finally {
+        FileUtils.deleteQuietly(tmp);
+      }
+      if (!uniqueFilename)
+        cache.add(inWs, null, getCurrentJobId());
       return new File(inWs.getAbsolutePath());
     }
 
-    // do HTTP transfer
-    return locked(inWs, downloadIfNecessary(uri));
+    // do HTTP transfer into the shared copy and hand out a private link to it if a unique file has been requested
+    if (!uniqueFilename)
+      return fetch(uri, inWs);
+    final File shared = toWorkspaceFile(uri);
+    // keep the shared copy from being evicted until it is linked
+    cache.beginTransfer(shared);
+    try {
+      fetch(uri, shared);
+      logger.debug("Linking {} to {}", shared, inWs);
+      return FileSupport.link(shared, inWs, true);
+    } finally {
+      cache.endTransfer(shared);
+    }
+  }
+
+  /**
+   * Downloads a file into the workspace unless it is up to date. Concurrent requests for the same URI share a single
+   * transfer. A request joining a running transfer takes over its result only if the local copy still has the checksum
+   * the transfer ended with. Otherwise the copy has been replaced in the meantime, and the request validates it
+   * against the source itself.
+   */
+  private File fetch(final URI uri, final File dst) throws NotFoundException, IOException {
+    final String key = uri.toString();
+    final CompletableFuture<Tuple<File, String>> flight = new CompletableFuture<>();
+    final CompletableFuture<Tuple<File, String>> running = transfers.putIfAbsent(key, flight);
+    if (running != null) {
+      logger.debug("Waiting for the running transfer of {}", uri);
+      final Tuple<File, String> result = await(running);
+      final File file = result.getA();
+      if (result.getB() != null && result.getB().equals(localMd5(file)))
+        return file;
+      logger.debug("{} has changed since it was transferred, validating it against {}", file, uri);
+    }
+
+    cache.beginTransfer(dst);
+    try {
+      final File file = locked(dst, downloadIfNecessary(uri, true));
+      if (running == null)
+        flight.complete(tuple(file, localMd5(file)));
+      return file;
+    } catch (NotFoundException | IOException | RuntimeException e) {
+      flight.completeExceptionally(e);
+      throw e;
+    } finally {
+      transfers.remove(key, flight);
+      cache.endTransfer(dst);
+    }
+  }
+
+  /** Waits for a transfer started by another thread to finish. */
+  private static Tuple<File, String> await(final CompletableFuture<Tuple<File, String>> transfer)
+          throws NotFoundException, IOException {
+    try {
+      return transfer.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for a transfer to finish");
+    } catch (ExecutionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof NotFoundException)
+        throw new NotFoundException(cause.getMessage(), cause);
+      if (cause instanceof IOException)
+        throw new IOException(cause.getMessage(), cause);
+      if (cause instanceof RuntimeException)
+        throw (RuntimeException) cause;
+      throw new IOException(cause);
+    }
   }
 
   @Override
@@ -402,13 +614,18 @@ public final class WorkspaceImpl implements Workspace {
     return new DeleteOnCloseFileInputStream(get(uri, true));
   }
 
-  /** Copy or link <code>src</code> to <code>dst</code>. */
+  /** Copy or link <code>src</code> to <code>dst</code>, replacing <code>dst</code> atomically. */
   private void copyOrLink(final File src, final File dst) throws IOException {
-    if (linkingEnabled) {
-      FileUtils.deleteQuietly(dst);
-      FileSupport.link(src, dst);
-    } else {
-      FileSupport.copy(src, dst);
+    final File tmp = tempFile(dst);
+    try {
+      if (linkingEnabled) {
+        FileSupport.link(src, tmp, true);
+      } else {
+        FileSupport.copy(src, tmp, true);
+      }
+      replace(tmp, dst);
+    } finally {
+      FileUtils.deleteQuietly(tmp);
     }
   }
 
@@ -429,8 +646,8 @@ public final class WorkspaceImpl implements Workspace {
    * @throws IOException
    *           in case of any IO related issues
    */
-  private Either<String, Option<File>> handleDownloadResponse(HttpResponse response, URI src, File dst)
-          throws IOException {
+  private Either<String, Option<File>> handleDownloadResponse(HttpResponse response, HttpGet get, URI src, File dst,
+          boolean cached) throws IOException {
     final String url = src.toString();
     final int status = response.getStatusLine().getStatusCode();
     switch (status) {
@@ -443,8 +660,23 @@ public final class WorkspaceImpl implements Workspace {
         logger.debug("{} is not ready, try again later.", url);
         return left(response.getHeaders("token")[0].getValue());
       case HttpServletResponse.SC_OK:
-        logger.debug("Downloading {} to {}", url, dst.getAbsolutePath());
-        return right(some(downloadTo(response, dst)));
+        final File part = partFile(dst);
+        try {
+          final String md5;
+          if (isSplittable(response)) {
+            logger.debug("Downloading {} to {} in ranges", url, dst.getAbsolutePath());
+            md5 = downloadRanges(response, get, src, part);
+          } else {
+            logger.debug("Downloading {} to {}", url, dst.getAbsolutePath());
+            md5 = verify(src, downloadTo(response, part), getMd5Tag(response));
+          }
+          replace(part, dst);
+          if (cached)
+            cache.add(dst, md5, getCurrentJobId());
+        } finally {
+          FileUtils.deleteQuietly(part);
+        }
+        return right(some(dst));
       default:
         logger.warn("Received unexpected response status {} while trying to download from {}", status, url);
         FileUtils.deleteQuietly(dst);
@@ -453,20 +685,22 @@ public final class WorkspaceImpl implements Workspace {
   }
 
   /**
-   * {@link #handleDownloadResponse(org.apache.http.HttpResponse, java.net.URI, java.io.File)} as a function.
-   * <code>(URI, dst_file) -> HttpResponse -> Either token (Option File)</code>
+   * {@link #handleDownloadResponse(HttpResponse, HttpGet, URI, File, boolean)} as a function.
+   * <code>(request, URI, dst_file, cached) -> HttpResponse -> Either token (Option File)</code>
    */
-  private Function<HttpResponse, Either<String, Option<File>>> handleDownloadResponse(final URI src, final File dst) {
+  private Function<HttpResponse, Either<String, Option<File>>> handleDownloadResponse(final HttpGet get,
+          final URI src, final File dst, final boolean cached) {
     return new Function.X<HttpResponse, Either<String, Option<File>>>() {
       @Override
       public Either<String, Option<File>> xapply(HttpResponse response) throws Exception {
-        return handleDownloadResponse(response, src, dst);
+        return handleDownloadResponse(response, get, src, dst, cached);
       }
     };
   }
 
   /** Create a get request to the given URI. */
-  private HttpGet createGetRequest(final URI src, final File dst, Tuple<String, String>... params) throws IOException {
+  private HttpGet createGetRequest(final URI src, final File dst, boolean cached, Tuple<String, String>... params)
+          throws IOException {
     try {
       URIBuilder builder = new URIBuilder(src.toString());
       for (final Tuple<String, String> a : params) {
@@ -474,9 +708,9 @@ public final class WorkspaceImpl implements Workspace {
       }
       final HttpGet get = new HttpGet(builder.build());
       // if the destination file already exists add the If-None-Match header
-      if (dst.isFile() && dst.length() > 0) {
-        get.setHeader("If-None-Match", md5(dst));
-      }
+      final String md5 = cached ? localMd5(dst) : dst.isFile() && dst.length() > 0 ? md5(dst) : null;
+      if (md5 != null)
+        get.setHeader("If-None-Match", md5);
       return get;
     } catch (URISyntaxException e) {
       throw new IOException(e);
@@ -489,12 +723,15 @@ public final class WorkspaceImpl implements Workspace {
    *
    * @return the file
    */
-  private File downloadIfNecessary(final URI src, final File dst) throws IOException, NotFoundException {
-    HttpGet get = createGetRequest(src, dst);
+  private File downloadIfNecessary(final URI src, final File dst, final boolean cached)
+          throws IOException, NotFoundException {
+    HttpGet get = createGetRequest(src, dst, cached);
+    long retryDelay = MIN_RETRY_DELAY;
+    int restarts = 0;
     while (true) {
       // run the http request and handle its response
       final Either<Exception, Either<String, Option<File>>> result = trustedHttpClient
-              .<Either<String, Option<File>>> runner(get).run(handleDownloadResponse(src, dst));
+              .<Either<String, Option<File>>> runner(get).run(handleDownloadResponse(get, src, dst, cached));
       // handle to result of response processing
       // right: there's an expected result
       for (Either<String, Option<File>> a : result.right()) {
@@ -503,52 +740,346 @@ public final class WorkspaceImpl implements Workspace {
           for (File f : ff) {
             return f;
           }
+          cache.remove(dst);
           FileUtils.deleteQuietly(dst);
           // none
           throw new NotFoundException();
         }
         // left: file will be ready later
         for (String token : a.left()) {
-          get = createGetRequest(src, dst, tuple("token", token));
-          sleep(60000);
+          get = createGetRequest(src, dst, cached, tuple("token", token));
+          sleep(retryDelay);
+          retryDelay = Math.min(2 * retryDelay, MAX_RETRY_DELAY);
         }
       }
       // left: an exception occurred
       for (Exception e : result.left()) {
-        logger.warn(format("Could not copy %s to %s: %s", src.toString(), dst.getAbsolutePath(), e.getMessage()));
-        FileUtils.deleteQuietly(dst);
-        throw new NotFoundException(e);
+        if (isSourceChanged(e) && ++restarts < DOWNLOAD_ATTEMPTS) {
+          logger.info("{} has changed while it was being downloaded, starting over", src);
+          get = createGetRequest(src, dst, cached);
+        } else {
+          logger.warn(format("Could not copy %s to %s: %s", src.toString(), dst.getAbsolutePath(), e.getMessage()));
+          cache.remove(dst);
+          FileUtils.deleteQuietly(dst);
+          throw new NotFoundException(e);
+        }
       }
     }
   }
 
   /**
-   * {@link #downloadIfNecessary(java.net.URI, java.io.File)} as a function.
-   * <code>src_uri -&gt; dst_file -&gt; dst_file</code>
+   * {@link #downloadIfNecessary(java.net.URI, java.io.File, boolean)} as a function.
+   * <code>src_uri -&gt; cached -&gt; dst_file -&gt; dst_file</code>
    */
-  private Function<File, File> downloadIfNecessary(final URI src) {
+  private Function<File, File> downloadIfNecessary(final URI src, final boolean cached) {
     return new Function.X<File, File>() {
       @Override
       public File xapply(final File dst) throws Exception {
-        return downloadIfNecessary(src, dst);
+        return downloadIfNecessary(src, dst, cached);
       }
     };
   }
 
+  /**
+   * Returns the file a download to <code>dst</code> is written to before it is complete. Files in the workspace are
+   * never overwritten in place, since they may be hard linked to copies handed out to callers of
+   * {@link #get(URI, boolean)}, to the working file repository or to the asset manager. All writes go to a temporary
+   * file in the same directory which then replaces the destination.
+   */
+  private static File partFile(final File dst) {
+    return new File(dst.getParentFile(), "." + dst.getName() + ".part");
+  }
+
+  /**
+   * Creates a temporary file next to <code>dst</code> to write its new content to before it replaces it. Unlike
+   * {@link #partFile(File)}, the file is unique, so concurrent writers do not get in each other's way.
+   */
+  private static File tempFile(final File dst) throws IOException {
+    return File.createTempFile("." + dst.getName() + ".", ".tmp", dst.getParentFile());
+  }
+
+  /** Replaces <code>dst</code> with a completely downloaded file. */
+  private static void replace(final File part, final File dst) throws IOException {
+    try {
+      Files.move(part.toPath(), dst.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(part.toPath(), dst.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  /**
+   * Whether the content of a response should rather be requested in parallel ranges than read from the response. This
+   * is the case if parallel downloads are enabled, the server supports range requests and the file is larger than a
+   * single range.
+   */
+  private boolean isSplittable(final HttpResponse response) {
+    final Header acceptRanges = response.getFirstHeader("Accept-Ranges");
+    return downloadExecutor != null && acceptRanges != null && "bytes".equalsIgnoreCase(acceptRanges.getValue().trim())
+            && response.getEntity() != null && response.getEntity().getContentLength() > downloadChunkSize;
+  }
+
+  /**
+   * Download a file in ranges. The first range is read from the response to the initial request, which is aborted
+   * afterwards. The remaining ranges are requested in parallel, each of them being resumed if its transfer is
+   * interrupted. Range requests are conditional on the entity tag of the initial response, so a file that is replaced
+   * at the source in the meantime is detected instead of being assembled from both versions.
+   *
+   * @return the md5 hash of the downloaded file
+   * @throws SourceChangedException
+   *           if the file has changed at the source during the download
+   */
+  private String downloadRanges(final HttpResponse response, final HttpGet get, final URI src, final File dst)
+          throws IOException {
+    final long length = response.getEntity().getContentLength();
+    final String validator = getValidator(response);
+    final long firstEnd = Math.min(downloadChunkSize, length) - 1;
+
+    try (RandomAccessFile file = new RandomAccessFile(dst, "rw")) {
+      file.setLength(length);
+      final FileChannel channel = file.getChannel();
+
+      // Store the first range. If it is interrupted, the rest of it is requested along with the other ranges.
+      final AtomicLong position = new AtomicLong(0);
+      try {
+        transfer(response.getEntity().getContent(), channel, position, firstEnd);
+      } catch (IOException e) {
+        logger.debug("Download of {} interrupted at byte {}: {}", src, position.get(), e.getMessage());
+      } finally {
+        // release the connection without reading the remainder of the file
+        get.abort();
+      }
+
+      final Queue<long[]> ranges = new ConcurrentLinkedQueue<>();
+      if (position.get() <= firstEnd)
+        ranges.add(new long[] { position.get(), firstEnd });
+      for (long start = firstEnd + 1; start < length; start += downloadChunkSize) {
+        ranges.add(new long[] { start, Math.min(start + downloadChunkSize, length) - 1 });
+      }
+      downloadRanges(src, channel, ranges, validator, length);
+    }
+    return verify(src, md5(dst), getMd5Tag(response));
+  }
+
+  /** Download the given ranges of a file using up to {@link #downloadThreads} parallel requests. */
+  private void downloadRanges(final URI src, final FileChannel channel, final Queue<long[]> ranges,
+          final String validator, final long length) throws IOException {
+    final Organization organization = securityService != null ? securityService.getOrganization() : null;
+    final User user = organization != null ? securityService.getUser() : null;
+    final Callable<Void> worker = () -> {
+      long[] range;
+      while ((range = ranges.poll()) != null) {
+        downloadRange(src, channel, range[0], range[1], validator, length);
+      }
+      return null;
+    };
+
+    final List<Future<Void>> futures = new ArrayList<>();
+    final ExecutorService executor = downloadExecutor;
+    if (executor != null) {
+      for (int i = 1; i < Math.min(downloadThreads, ranges.size()); i++) {
+        futures.add(executor.submit(() -> {
+          if (organization == null)
+            return worker.call();
+          final Exception[] error = new Exception[1];
+          SecurityUtil.runAs(securityService, organization, user, () -> {
+            try {
+              worker.call();
+            } catch (Exception e) {
+              error[0] = e;
+            }
+          });
+          if (error[0] != null)
+            throw error[0];
+          return null;
+        }));
+      }
+    }
+
+    IOException failure = null;
+    try {
+      worker.call();
+    } catch (Exception e) {
+      failure = e instanceof IOException ? (IOException) e : new IOException(e);
+      ranges.clear();
+    }
+    for (Future<Void> future : futures) {
+      try {
+        future.get();
+      } catch (ExecutionException e) {
+        if (failure == null)
+          failure = e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        ranges.clear();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        if (failure == null)
+          failure = new IOException(e);
+        ranges.clear();
+      }
+    }
+    if (failure != null)
+      throw failure;
+  }
+
+  /**
+   * Download a range of a file, resuming the transfer where it stopped in case of a failure.
+   *
+   * @param validator
+   *          the entity tag of the version of the file being downloaded or <code>null</code> if it is unknown
+   * @param length
+   *          the length of the file being downloaded
+   * @throws SourceChangedException
+   *           if the file has changed at the source
+   */
+  private void downloadRange(final URI src, final FileChannel channel, final long start, final long end,
+          final String validator, final long length) throws IOException {
+    final AtomicLong position = new AtomicLong(start);
+    for (int attempt = 1; position.get() <= end; attempt++) {
+      final long from = position.get();
+      final HttpGet get = new HttpGet(src);
+      get.setHeader("Range", "bytes=" + from + "-" + end);
+      if (validator != null)
+        get.setHeader("If-Range", validator);
+      final Either<Exception, Long> result = trustedHttpClient.<Long> runner(get).run(
+              new Function.X<HttpResponse, Long>() {
+                @Override
+                public Long xapply(HttpResponse response) throws Exception {
+                  final int status = response.getStatusLine().getStatusCode();
+                  final long[] range = getContentRange(response);
+                  // the server answers with the whole file if it does not match the If-Range condition any more
+                  if (status == HttpServletResponse.SC_OK || (status == HttpServletResponse.SC_PARTIAL_CONTENT
+                          && (range != null && range[2] != length || !Objects.equals(validator, getValidator(response)))))
+                    throw new SourceChangedException(format("%s has changed while it was being downloaded", src));
+                  if (status != HttpServletResponse.SC_PARTIAL_CONTENT || range == null || range[0] != from)
+                    throw new IOException(format("Unexpected response %d to range request %d-%d of %s", status, from,
+                            end, src));
+                  try (InputStream in = response.getEntity().getContent()) {
+                    return transfer(in, channel, position, end);
+                  }
+                }
+              });
+      for (Exception e : result.left()) {
+        if (isSourceChanged(e))
+          throw new SourceChangedException(e.getMessage());
+        if (attempt >= DOWNLOAD_ATTEMPTS)
+          throw new IOException(format("Unable to download bytes %d-%d of %s", start, end, src), e);
+        logger.debug("Resuming download of {} at byte {} after failure: {}", src, position.get(), e.getMessage());
+        sleep(attempt * MIN_RETRY_DELAY);
+      }
+    }
+  }
+
+  /**
+   * Write the content of a stream to a file channel, starting at the given position and ending with the given byte at
+   * the latest. The position is updated as the content is being written.
+   *
+   * @return the position after the last written byte
+   */
+  private static long transfer(final InputStream in, final FileChannel channel, final AtomicLong position,
+          final long end) throws IOException {
+    final byte[] buffer = new byte[64 * 1024];
+    int read;
+    while (position.get() <= end
+            && (read = in.read(buffer, 0, (int) Math.min(buffer.length, end - position.get() + 1))) != -1) {
+      final ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, read);
+      while (bytes.hasRemaining()) {
+        position.addAndGet(channel.write(bytes, position.get()));
+      }
+    }
+    return position.get();
+  }
+
+  /**
+   * Parses the <code>Content-Range</code> header of a partial response.
+   *
+   * @return the first and last byte of the range and the total length of the file or <code>null</code> if the header
+   *         is missing or invalid
+   */
+  private static long[] getContentRange(final HttpResponse response) {
+    final Header header = response.getFirstHeader("Content-Range");
+    if (header == null)
+      return null;
+    final Matcher matcher = CONTENT_RANGE.matcher(header.getValue().trim());
+    if (!matcher.matches())
+      return null;
+    return new long[] { Long.parseLong(matcher.group(1)), Long.parseLong(matcher.group(2)),
+            Long.parseLong(matcher.group(3)) };
+  }
+
+  /** Returns the entity tag of a response if it is an md5 hash, <code>null</code> otherwise. */
+  private static String getMd5Tag(final HttpResponse response) {
+    final Header header = response.getFirstHeader("ETag");
+    if (header == null)
+      return null;
+    final String tag = StringUtils.strip(header.getValue().trim(), "\"");
+    return MD5.matcher(tag).matches() ? tag.toLowerCase() : null;
+  }
+
+  /**
+   * Returns the strong entity tag of a response to be used in an <code>If-Range</code> header.
+   *
+   * @return the entity tag or <code>null</code> if the response has none or only a weak one
+   */
+  private static String getValidator(final HttpResponse response) {
+    final Header header = response.getFirstHeader("ETag");
+    if (header == null || header.getValue().trim().startsWith("W/"))
+      return null;
+    return header.getValue().trim();
+  }
+
+  /**
+   * Checks the md5 hash of a downloaded file against the one announced by the server, if any.
+   *
+   * @return the md5 hash of the file
+   * @throws SourceChangedException
+   *           if the hashes do not match
+   */
+  private static String verify(final URI src, final String md5, final String expected) throws IOException {
+    if (expected != null && !expected.equalsIgnoreCase(md5))
+      throw new SourceChangedException(format("Checksum %s of the download of %s does not match %s", md5, src,
+              expected));
+    return md5;
+  }
+
+  /** Whether an exception, or one of its causes, signals that a file has changed during its download. */
+  private static boolean isSourceChanged(final Throwable e) {
+    for (Throwable t = e; t != null; t = t.getCause()) {
+      if (t instanceof SourceChangedException)
+        return true;
+    }
+    return false;
+  }
+
   /**
    * Download content of an HTTP response to a file.
    *
-   * @return the destination file
+   * @return the md5 hash of the downloaded content
    */
-  private static File downloadTo(final HttpResponse response, final File dst) throws IOException {
+  private static String downloadTo(final HttpResponse response, final File dst) throws IOException {
     // ignore return value
     dst.createNewFile();
-    try (InputStream in = response.getEntity().getContent()) {
+    final MessageDigest digest = DigestUtils.getMd5Digest();
+    try (InputStream in = new DigestInputStream(response.getEntity().getContent(), digest)) {
       try (OutputStream out = new FileOutputStream(dst)) {
         IOUtils.copyLarge(in, out);
       }
     }
-    return dst;
+    return Hex.encodeHexString(digest.digest());
+  }
+
+  /**
+   * Returns the md5 hash of a file in the workspace, looking it up in the cache index first.
+   *
+   * @return the md5 hash or <code>null</code> if the file does not exist or is empty
+   */
+  private String localMd5(final File file) throws IOException {
+    if (!file.isFile() || file.length() == 0)
+      return null;
+    String md5 = cache.getMd5(file, getCurrentJobId());
+    if (md5 == null) {
+      md5 = md5(file);
+      cache.add(file, md5, getCurrentJobId());
+    }
+    return md5;
   }
 
   /**
@@ -604,6 +1135,7 @@ public final class WorkspaceImpl implements Workspace {
 
     // Remove the file and optionally its parent directory if empty
     File f = toWorkspaceFile(uri);
+    cache.remove(f);
     if (f.isFile()) {
       synchronized (lock) {
         File mpElementDir = f.getParentFile();
@@ -627,6 +1159,7 @@ public final class WorkspaceImpl implements Workspace {
   public void delete(String mediaPackageID, String mediaPackageElementID) throws NotFoundException, IOException {
     // delete locally
     final File f = workspaceFile(WorkingFileRepository.MEDIAPACKAGE_PATH_PREFIX, mediaPackageID, mediaPackageElementID);
+    cache.removeAll(f);
     FileUtils.deleteQuietly(f);
     FileSupport.delete(f.getParentFile());
     // delete in WFR
@@ -637,7 +1170,6 @@ public final class WorkspaceImpl implements Workspace {
   @Override
   public URI put(String mediaPackageID, String mediaPackageElementID, String fileName, InputStream in)
           throws IOException {
-    String safeFileName = PathSupport.toSafeName(fileName);
     final URI uri = wfr.getURI(mediaPackageID, mediaPackageElementID, fileName);
     notNull(in, "in");
 
@@ -645,24 +1177,16 @@ public final class WorkspaceImpl implements Workspace {
     File workspaceFile = null;
     synchronized (lock) {
       workspaceFile = toWorkspaceFile(uri);
-      FileUtils.touch(workspaceFile);
-    }
-
-    // Try hard linking first and fall back to tee-ing to both the working file repository and the workspace
-    if (linkingEnabled) {
-      // The WFR stores an md5 hash along with the file, so we need to use the API and not try to write (link) the file
-      // there ourselves
-      wfr.put(mediaPackageID, mediaPackageElementID, fileName, in);
-      File workingFileRepoDirectory = workingFileRepositoryFile(WorkingFileRepository.MEDIAPACKAGE_PATH_PREFIX,
-              mediaPackageID, mediaPackageElementID);
-      File workingFileRepoCopy = new File(workingFileRepoDirectory, safeFileName);
-      FileSupport.link(workingFileRepoCopy, workspaceFile, true);
-    } else {
-      try (FileOutputStream out = new FileOutputStream(workspaceFile)) {
-        try (InputStream tee = new TeeInputStream(in, out, true)) {
-          wfr.put(mediaPackageID, mediaPackageElementID, fileName, tee);
-        }
-      }
+    }
+
+    // Store the stream in the workspace and let the working file repository link or copy the file from there
+    try {
+      final String md5 = writeTo(in, workspaceFile);
+      wfr.put(mediaPackageID, mediaPackageElementID, fileName, workspaceFile, md5);
+      cache.add(workspaceFile, md5, getCurrentJobId());
+    } catch (IOException e) {
+      FileUtils.deleteQuietly(workspaceFile);
+      throw e;
     }
     // wait until the file appears on the WFR node
     waitForResource(uri, HttpServletResponse.SC_OK, "File %s does not appear in WFR");
@@ -671,44 +1195,97 @@ public final class WorkspaceImpl implements Workspace {
 
   @Override
   public URI putInCollection(String collectionId, String fileName, InputStream in) throws IOException {
-    String safeFileName = PathSupport.toSafeName(fileName);
-    URI uri = wfr.getCollectionURI(collectionId, fileName);
+    final URI uri = wfr.getCollectionURI(collectionId, fileName);
+    notNull(in, "in");
 
     // Determine the target location in the workspace
-    InputStream tee = null;
-    File tempFile = null;
-    FileOutputStream out = null;
+    File workspaceFile = null;
+    synchronized (lock) {
+      workspaceFile = toWorkspaceFile(uri);
+    }
+
+    // Store the stream in the workspace and let the working file repository link or copy the file from there
     try {
-      synchronized (lock) {
-        tempFile = toWorkspaceFile(uri);
-        FileUtils.touch(tempFile);
-        out = new FileOutputStream(tempFile);
-      }
+      final String md5 = writeTo(in, workspaceFile);
+      wfr.putInCollection(collectionId, fileName, workspaceFile, md5);
+      cache.add(workspaceFile, md5, getCurrentJobId());
+    } catch (IOException e) {
+      FileUtils.deleteQuietly(workspaceFile);
+      throw e;
+    }
+    waitForResource(uri, HttpServletResponse.SC_OK, "File %s does not appear in WFR");
+    return uri;
+  }
 
-      // Try hard linking first and fall back to tee-ing to both the working file repository and the workspace
-      if (linkingEnabled) {
-        tee = in;
-        wfr.putInCollection(collectionId, fileName, tee);
-        FileUtils.forceMkdir(tempFile.getParentFile());
-        File workingFileRepoDirectory = workingFileRepositoryFile(WorkingFileRepository.COLLECTION_PATH_PREFIX,
-                collectionId);
-        File workingFileRepoCopy = new File(workingFileRepoDirectory, safeFileName);
-        FileSupport.link(workingFileRepoCopy, tempFile, true);
-      } else {
-        tee = new TeeInputStream(in, out, true);
-        wfr.putInCollection(collectionId, fileName, tee);
+  /**
+   * Writes a stream to a temporary file next to <code>dst</code> and replaces <code>dst</code> with it once the stream
+   * has been consumed. The stream is closed afterwards.
+   *
+   * @return the md5 hash of the content
+   */
+  private static String writeTo(final InputStream in, final File dst) throws IOException {
+    FileUtils.forceMkdir(dst.getParentFile());
+    final File tmp = tempFile(dst);
+    try {
+      final MessageDigest digest = DigestUtils.getMd5Digest();
+      try (InputStream digestIn = new DigestInputStream(in, digest); OutputStream out = new FileOutputStream(tmp)) {
+        IOUtils.copyLarge(digestIn, out);
       }
+      replace(tmp, dst);
+      return Hex.encodeHexString(digest.digest());
+    } finally {
+      FileUtils.deleteQuietly(tmp);
+    }
+  }
+
+  @Override
+  public URI moveToCollection(String collectionId, String fileName, File file) throws IOException {
+    notNull(file, "file");
+    final URI uri = wfr.getCollectionURI(collectionId, fileName);
+
+    // Determine the target location in the workspace
+    File workspaceFile = null;
+    synchronized (lock) {
+      workspaceFile = toWorkspaceFile(uri);
+    }
+
+    try {
+      // Move the file into the workspace and let the working file repository link or copy it from there
+      moveInto(file, workspaceFile);
+      wfr.putInCollection(collectionId, fileName, workspaceFile, null);
+      cache.add(workspaceFile, null, getCurrentJobId());
     } catch (IOException e) {
-      FileUtils.deleteQuietly(tempFile);
+      FileUtils.deleteQuietly(workspaceFile);
       throw e;
     } finally {
-      IoSupport.closeQuietly(tee);
-      IoSupport.closeQuietly(out);
+      FileUtils.deleteQuietly(file);
     }
     waitForResource(uri, HttpServletResponse.SC_OK, "File %s does not appear in WFR");
     return uri;
   }
 
+  /**
+   * Moves a file to a location in the workspace. If the file is located on a different file system, it is copied to a
+   * temporary file next to its destination first, so that the destination is replaced atomically in either case.
+   */
+  private static void moveInto(final File src, final File dst) throws IOException {
+    FileUtils.forceMkdir(dst.getParentFile());
+    try {
+      Files.move(src.toPath(), dst.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      return;
+    } catch (AtomicMoveNotSupportedException e) {
+      logger.debug("Unable to move {} to {}, falling back to copying it", src, dst);
+    }
+    final File tmp = tempFile(dst);
+    try {
+      Files.copy(src.toPath(), tmp.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      replace(tmp, dst);
+    } finally {
+      FileUtils.deleteQuietly(tmp);
+    }
+    FileUtils.deleteQuietly(src);
+  }
+
   @Override
   public URI getURI(String mediaPackageID, String mediaPackageElementID) {
     return wfr.getURI(mediaPackageID, mediaPackageElementID);
@@ -761,6 +1338,7 @@ public final class WorkspaceImpl implements Workspace {
       File copy = toWorkspaceFile(copyURI);
       FileUtils.forceMkdir(copy.getParentFile());
       FileUtils.deleteQuietly(copy);
+      cache.remove(original);
       FileUtils.moveFile(original, copy);
       if (!isStaticCollection(collection))
         FileSupport.delete(original.getParentFile());
@@ -782,6 +1360,7 @@ public final class WorkspaceImpl implements Workspace {
     // local delete
     final File f = workspaceFile(WorkingFileRepository.COLLECTION_PATH_PREFIX, collectionId,
             PathSupport.toSafeName(fileName));
+    cache.remove(f);
     FileUtils.deleteQuietly(f);
     if (removeCollection) {
       FileSupport.delete(f.getParentFile());
@@ -906,6 +1485,19 @@ public final class WorkspaceImpl implements Workspace {
     this.securityService = securityService;
   }
 
+  public void setServiceRegistry(ServiceRegistry serviceRegistry) {
+    this.serviceRegistry = serviceRegistry;
+    if (serviceRegistry instanceof JobStatusPublisher)
+      ((JobStatusPublisher) serviceRegistry).addJobListener(cache);
+  }
+
+  public void unsetServiceRegistry(ServiceRegistry serviceRegistry) {
+    if (serviceRegistry instanceof JobStatusPublisher)
+      ((JobStatusPublisher) serviceRegistry).removeJobListener(cache);
+    if (this.serviceRegistry == serviceRegistry)
+      this.serviceRegistry = null;
+  }
+
   private static final long TIMEOUT = 2L * 60L * 1000L;
   private static final long INTERVAL = 1000L;
 
@@ -941,6 +1533,14 @@ public final class WorkspaceImpl implements Workspace {
               + "avoid deleting data in use by running workflows.");
     }
 
+    // With a size budget, the cache index knows all files in the workspace and when they have last been used
+    if (cache.isEnabled()) {
+      logger.info("Starting cleanup of workspace cache");
+      int deleted = cache.cleanup(maxAgeInSeconds * 1000L);
+      logger.info("Finished cleanup of workspace cache, deleted {} files", deleted);
+      return;
+    }
+
     // Get workspace root directly
     final File workspaceDirectory = new File(wsRoot);
     logger.info("Starting cleanup of workspace at {}", workspaceDirectory);
@@ -976,10 +1576,12 @@ public final class WorkspaceImpl implements Workspace {
 
     if (filesOnly) {
       logger.debug("Clean workspace media package directory {} (files only)", mediaPackageDir);
+      cache.removeAll(mediaPackageDir);
       FileSupport.delete(mediaPackageDir, FileSupport.DELETE_FILES);
     }
     else {
       logger.debug("Clean workspace media package directory {}", mediaPackageDir);
+      cache.removeAll(mediaPackageDir);
       FileUtils.deleteDirectory(mediaPackageDir);
     }
   }
@@ -989,6 +1591,90 @@ public final class WorkspaceImpl implements Workspace {
     return wsRoot;
   }
 
+  /** Returns the identifier of the job the current thread is working on, if any. */
+  private Long getCurrentJobId() {
+    final ServiceRegistry registry = serviceRegistry;
+    if (registry == null)
+      return null;
+    final Job job = registry.getCurrentJob();
+    return job != null ? job.getId() : null;
+  }
+
+  /**
+   * Returns the identifiers of all running jobs in a single lookup.
+   *
+   * @return the job identifiers or <code>null</code> if the running jobs cannot be determined
+   */
+  private Set<Long> getActiveJobIds() {
+    final ServiceRegistry registry = serviceRegistry;
+    if (registry == null)
+      return Collections.emptySet();
+    try {
+      final Set<Long> ids = new HashSet<>();
+      for (Job job : registry.getActiveJobs()) {
+        ids.add(job.getId());
+      }
+      return ids;
+    } catch (ServiceRegistryException e) {
+      logger.debug("Unable to look up the running jobs: {}", e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * Adds the files found in the workspace to the cache index, ordered by the time they have last been accessed. Since
+   * file systems are often mounted without updating the access time on every read, the modification time is used if
+   * it is more recent. Files that are hard linked to the working file repository are indexed as well, so that they are
+   * cleaned up, but do not count towards the size budget.
+   */
+  private void indexWorkspace() {
+    final Map<File, Long> files = new HashMap<>();
+    try {
+      Files.walkFileTree(new File(wsRoot).toPath(), new SimpleFileVisitor<Path>() {
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+          if (attrs.isRegularFile())
+            files.put(file.toFile(),
+                    Math.max(attrs.lastAccessTime().toMillis(), attrs.lastModifiedTime().toMillis()));
+          return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFileFailed(Path file, IOException e) {
+          return FileVisitResult.CONTINUE;
+        }
+      });
+    } catch (IOException e) {
+      logger.warn("Unable to index the workspace at {}: {}", wsRoot, e.getMessage());
+      return;
+    }
+    cache.seed(files);
+    logger.info("Indexed {} files in the workspace, taking up {}", cache.getFileCount(),
+            FileUtils.byteCountToDisplaySize(cache.getSize()));
+  }
+
+  /**
+   * Parses a size in bytes, optionally followed by one of the units <code>K</code>, <code>M</code>, <code>G</code> or
+   * <code>T</code>.
+   */
+  static long parseSize(String size) {
+    final String value = StringUtils.trimToEmpty(size).toUpperCase();
+    final String units = "KMGT";
+    final int unit = value.isEmpty() ? -1 : units.indexOf(value.charAt(value.length() - 1));
+    if (unit < 0)
+      return Long.parseLong(value);
+    return Long.parseLong(value.substring(0, value.length() - 1).trim()) << (10 * (unit + 1));
+  }
+
+  /** Signals that a file has been replaced at its source while it was being downloaded. */
+  private static final class SourceChangedException extends IOException {
+    private static final long serialVersionUID = 6407946377813342126L;
+
+    SourceChangedException(String message) {
+      super(message);
+    }
+  }
+
   private class DeleteOnCloseFileInputStream extends FileInputStream {
     private File file;
 
@@ -47,4 +47,46 @@ public interface WorkspaceMXBean {
    */
   long getTotalSpace();
 
+  /**
+   * Gets the size of the files tracked by the workspace cache in bytes
+   *
+   * @return cached bytes
+   */
+  long getCacheSize();
+
+  /**
+   * Gets the configured size limit of the workspace cache in bytes
+   *
+   * @return the size limit, or 0 if the cache is unbounded
+   */
+  long getCacheMaxSize();
+
+  /**
+   * Gets the number of files tracked by the workspace cache
+   *
+   * @return number of cached files
+   */
+  int getCachedFiles();
+
+  /**
+   * Gets the number of requests served from a cached file
+   *
+   * @return number of cache hits
+   */
+  long getCacheHits();
+
+  /**
+   * Gets the number of requests which had to fetch a file
+   *
+   * @return number of cache misses
+   */
+  long getCacheMisses();
+
+  /**
+   * Gets the number of files evicted to keep the cache within its size limit
+   *
+   * @return number of evicted files
+   */
+  long getCacheEvictions();
+
 }
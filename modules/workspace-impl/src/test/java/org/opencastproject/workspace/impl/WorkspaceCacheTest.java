@@ -0,0 +1,230 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package org.opencastproject.workspace.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.opencastproject.job.api.Job;
+
+import org.apache.commons.io.FileUtils;
+import org.easymock.EasyMock;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class WorkspaceCacheTest {
+
+  @Rule
+  public TemporaryFolder testFolder = new TemporaryFolder();
+
+  private WorkspaceCache cache;
+
+  @Before
+  public void setUp() {
+    cache = new WorkspaceCache();
+    cache.setMaxSize(30);
+  }
+
+  private File newFile(String name) throws IOException {
+    final File file = testFolder.newFile(name);
+    FileUtils.writeStringToFile(file, "0123456789", "UTF-8");
+    return file;
+  }
+
+  @Test
+  public void testLeastRecentlyUsedFileIsEvicted() throws Exception {
+    final File a = newFile("a");
+    final File b = newFile("b");
+    final File c = newFile("c");
+    cache.add(a, "a", null);
+    cache.add(b, "b", null);
+    cache.add(c, "c", null);
+    assertEquals(30, cache.getSize());
+
+    // touch a so that b becomes the least recently used file
+    assertEquals("a", cache.getMd5(a, null));
+    cache.add(newFile("d"), "d", null);
+    assertTrue(a.exists());
+    assertFalse(b.exists());
+    assertTrue(c.exists());
+    assertEquals(30, cache.getSize());
+    assertEquals(1, cache.getEvictions());
+    assertNull(cache.getMd5(b, null));
+  }
+
+  @Test
+  public void testFilesOfRunningJobsAreNotEvicted() throws Exception {
+    cache.setActiveJobs(() -> Collections.singleton(1L));
+    final File a = newFile("a");
+    cache.add(a, "a", 1L);
+    cache.add(newFile("b"), "b", null);
+    cache.add(newFile("c"), "c", null);
+    cache.add(newFile("d"), "d", null);
+    assertTrue(a.exists());
+    assertEquals(30, cache.getSize());
+  }
+
+  @Test
+  public void testFilesAreReleasedWhenJobFinishes() throws Exception {
+    cache.setActiveJobs(() -> Collections.singleton(1L));
+    final File a = newFile("a");
+    cache.add(a, "a", 1L);
+
+    final Job job = EasyMock.createNiceMock(Job.class);
+    EasyMock.expect(job.getId()).andReturn(1L).anyTimes();
+    EasyMock.expect(job.getStatus()).andReturn(Job.Status.FINISHED).anyTimes();
+    EasyMock.replay(job);
+    cache.jobStatusChanged(job);
+
+    cache.add(newFile("b"), "b", null);
+    cache.add(newFile("c"), "c", null);
+    cache.add(newFile("d"), "d", null);
+    assertFalse(a.exists());
+  }
+
+  @Test
+  public void testFilesOfFinishedJobsAreReleasedOnDemand() throws Exception {
+    final File a = newFile("a");
+    cache.add(a, "a", 1L);
+    cache.add(newFile("b"), "b", null);
+    cache.add(newFile("c"), "c", null);
+    cache.add(newFile("d"), "d", null);
+    assertFalse(a.exists());
+  }
+
+  @Test
+  public void testSeededFilesAreOrderedByLastAccess() throws Exception {
+    // a file used while the workspace is being indexed is more recent than the files found on disk
+    final File c = newFile("c");
+    cache.add(c, "c", null);
+    final File a = newFile("a");
+    final File b = newFile("b");
+    final long now = System.currentTimeMillis();
+    final Map<File, Long> files = new HashMap<>();
+    files.put(b, now - 1000L);
+    files.put(a, now - 2000L);
+    files.put(c, now - 3000L);
+    cache.seed(files);
+    assertTrue(cache.contains(a));
+    assertEquals(30, cache.getSize());
+
+    cache.add(newFile("d"), "d", null);
+    assertFalse(a.exists());
+    assertTrue(b.exists());
+    assertTrue(c.exists());
+    assertEquals("c", cache.getMd5(c, null));
+  }
+
+  @Test
+  public void testCleanupDeletesUnusedFiles() throws Exception {
+    final File a = newFile("a");
+    final File b = newFile("b");
+    final Map<File, Long> files = new HashMap<>();
+    files.put(a, System.currentTimeMillis() - 10000L);
+    cache.seed(files);
+    cache.add(b, "b", null);
+    assertEquals(1, cache.cleanup(5000L));
+    assertFalse(a.exists());
+    assertFalse(cache.contains(a));
+    assertTrue(b.exists());
+  }
+
+  @Test
+  public void testFilesOfUnknownJobsAreNotEvicted() throws Exception {
+    cache.setActiveJobs(() -> null);
+    final File a = newFile("a");
+    cache.add(a, "a", 1L);
+    cache.add(newFile("b"), "b", null);
+    cache.add(newFile("c"), "c", null);
+    cache.add(newFile("d"), "d", null);
+    assertTrue(a.exists());
+  }
+
+  @Test
+  public void testPinsOfFinishedJobsAreReleasedInBatches() throws Exception {
+    final Set<Long> running = new HashSet<>();
+    final AtomicInteger lookups = new AtomicInteger();
+    cache.setActiveJobs(() -> {
+      lookups.incrementAndGet();
+      return running;
+    });
+    cache.setMaxSize(Long.MAX_VALUE);
+    final File a = newFile("a");
+    cache.add(a, "a", null);
+    running.add(0L);
+    for (long jobId = 0; jobId <= WorkspaceCache.MIN_PRUNE_THRESHOLD; jobId++) {
+      cache.getMd5(a, jobId);
+    }
+    // a single lookup releases all jobs but the running one
+    assertEquals(1, lookups.get());
+    assertEquals(1, cache.getPinnedJobCount());
+  }
+
+  @Test
+  public void testLinkedFilesDoNotCountTowardsTheBudget() throws Exception {
+    final File a = newFile("a");
+    Files.createLink(testFolder.getRoot().toPath().resolve("link"), a.toPath());
+    cache.add(a, "a", null);
+    cache.add(newFile("b"), "b", null);
+    cache.add(newFile("c"), "c", null);
+    cache.add(newFile("d"), "d", null);
+    assertEquals(30, cache.getSize());
+    assertTrue(a.exists());
+    assertEquals(4, cache.getFileCount());
+  }
+
+  @Test
+  public void testDisabledCacheDoesNotTrackFiles() throws Exception {
+    cache.setMaxSize(0);
+    final File a = newFile("a");
+    cache.add(a, "a", 1L);
+    assertFalse(cache.isEnabled());
+    assertFalse(cache.contains(a));
+    assertNull(cache.getMd5(a, 1L));
+    assertEquals(0, cache.getPinnedJobCount());
+    assertEquals(0, cache.getMisses());
+  }
+
+  @Test
+  public void testModifiedFileIsNotServedFromCache() throws Exception {
+    final File a = newFile("a");
+    cache.add(a, "a", null);
+    FileUtils.writeStringToFile(a, "modified", "UTF-8");
+    assertNull(cache.getMd5(a, null));
+    assertEquals(1, cache.getMisses());
+  }
+
+}
@@ -40,6 +40,7 @@ import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 import org.apache.http.StatusLine;
 import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.message.BasicHeader;
 import org.easymock.EasyMock;
 import org.junit.After;
 import org.junit.Assert;
@@ -48,12 +49,16 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.InputStream;
 import java.net.URI;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.servlet.http.HttpServletResponse;
 
@@ -135,7 +140,7 @@ public class WorkspaceImplTest {
                             + "foo/bar/header.gif"));
     EasyMock.expect(
             repo.put(EasyMock.anyString(), EasyMock.anyString(), EasyMock.anyString(),
-                    EasyMock.anyObject(InputStream.class))).andReturn(
+                    EasyMock.anyObject(File.class), EasyMock.anyString())).andReturn(
             new URI("http://localhost:8080/files" + WorkingFileRepository.MEDIAPACKAGE_PATH_PREFIX
                     + "foo/bar/header.gif"));
     EasyMock.expect(repo.getBaseUri()).andReturn(new URI("http://localhost:8080/files")).anyTimes();
@@ -170,7 +175,7 @@ public class WorkspaceImplTest {
                             WorkingFileRepository.MEDIAPACKAGE_PATH_PREFIX, "foo", "bar", "header.gif")));
     EasyMock.expect(
             repo.put(EasyMock.anyString(), EasyMock.anyString(), EasyMock.anyString(),
-                    EasyMock.anyObject(InputStream.class))).andReturn(
+                    EasyMock.anyObject(File.class), EasyMock.anyString())).andReturn(
             new URI("http://localhost:8080/files" + WorkingFileRepository.MEDIAPACKAGE_PATH_PREFIX
                     + "foo/bar/header.gif"));
     EasyMock.expect(repo.getBaseUri()).andReturn(new URI("http://localhost:8080/files")).anyTimes();
@@ -192,6 +197,64 @@ public class WorkspaceImplTest {
     Assert.assertTrue(file.exists());
   }
 
+  // Overwriting a file must not change the content of hard links to its former version
+  @Test
+  public void testPutDoesNotWriteThroughLinks() throws Exception {
+    URI uri = new URI(UrlSupport.concat("http://localhost:8080", WorkingFileRepository.URI_PREFIX,
+            WorkingFileRepository.MEDIAPACKAGE_PATH_PREFIX, "foo", "bar", "file.txt"));
+    WorkingFileRepository repo = EasyMock.createMock(WorkingFileRepository.class);
+    EasyMock.expect(repo.getURI("foo", "bar", "file.txt")).andReturn(uri).times(2);
+    EasyMock.expect(repo.put(EasyMock.eq("foo"), EasyMock.eq("bar"), EasyMock.eq("file.txt"),
+            EasyMock.anyObject(File.class), EasyMock.anyString())).andReturn(uri).times(2);
+    EasyMock.expect(repo.getBaseUri()).andReturn(new URI("http://localhost:8080/files")).anyTimes();
+    EasyMock.replay(repo);
+    workspace.setRepository(repo);
+
+    workspace.put("foo", "bar", "file.txt", new ByteArrayInputStream("first".getBytes(StandardCharsets.UTF_8)));
+    File file = new File(PathSupport.concat(new String[] { workspaceRoot,
+            WorkingFileRepository.MEDIAPACKAGE_PATH_PREFIX, "foo", "bar", "file.txt" }));
+    File link = new File(file.getParentFile(), "archived.txt");
+    Files.createLink(link.toPath(), file.toPath());
+
+    workspace.put("foo", "bar", "file.txt", new ByteArrayInputStream("second".getBytes(StandardCharsets.UTF_8)));
+    EasyMock.verify(repo);
+    Assert.assertEquals("second", FileUtils.readFileToString(file, StandardCharsets.UTF_8));
+    Assert.assertEquals("first", FileUtils.readFileToString(link, StandardCharsets.UTF_8));
+  }
+
+  // Calls to moveToCollection() should move the file into the local cache and hand it to the working file repository
+  // from there if there is no valid filesystem mapping present
+  @Test
+  public void testMoveToCollectionWithoutFilesystemMapping() throws Exception {
+    URI uri = new URI(UrlSupport.concat("http://localhost:8080", WorkingFileRepository.URI_PREFIX,
+            WorkingFileRepository.COLLECTION_PATH_PREFIX, "foo", "header.gif"));
+    WorkingFileRepository repo = EasyMock.createMock(WorkingFileRepository.class);
+    EasyMock.expect(repo.getCollectionURI("foo", "header.gif")).andReturn(uri);
+    EasyMock.expect(repo.putInCollection(EasyMock.eq("foo"), EasyMock.eq("header.gif"),
+            EasyMock.anyObject(File.class), EasyMock.isNull(String.class))).andReturn(uri);
+    EasyMock.expect(repo.getBaseUri()).andReturn(new URI("http://localhost:8080/files")).anyTimes();
+    EasyMock.replay(repo);
+    workspace.setRepository(repo);
+
+    File source = testFolder.newFile("header.gif");
+    try (InputStream in = getClass().getResourceAsStream("/opencast_header.gif")) {
+      FileUtils.copyInputStreamToFile(in, source);
+    }
+    long size = source.length();
+
+    Assert.assertEquals(uri, workspace.moveToCollection("foo", "header.gif", source));
+
+    // Ensure that the file was put into the working file repository
+    EasyMock.verify(repo);
+
+    // Ensure that the file was moved into the workspace
+    File file = new File(PathSupport.concat(new String[] { workspaceRoot,
+            WorkingFileRepository.COLLECTION_PATH_PREFIX, "foo", "header.gif" }));
+    Assert.assertTrue(file.exists());
+    Assert.assertEquals(size, file.length());
+    Assert.assertFalse(source.exists());
+  }
+
   @Test
   public void testGetWorkspaceFileWithOutPort() throws Exception {
     WorkingFileRepository repo = EasyMock.createNiceMock(WorkingFileRepository.class);
@@ -270,6 +333,116 @@ public class WorkspaceImplTest {
     Assert.assertEquals(expectedFile, resultingFile);
   }
 
+  @Test
+  public void testConcurrentGetsShareTransfer() throws Exception {
+    WorkingFileRepository repo = EasyMock.createNiceMock(WorkingFileRepository.class);
+    EasyMock.expect(repo.getBaseUri()).andReturn(new URI("http://localhost:8080/files")).anyTimes();
+    EasyMock.replay(repo);
+    workspace.setRepository(repo);
+
+    Organization organization = EasyMock.createMock(Organization.class);
+    EasyMock.expect(organization.getId()).andReturn("org1").anyTimes();
+    SecurityService securityService = EasyMock.createMock(SecurityService.class);
+    EasyMock.expect(securityService.getOrganization()).andReturn(organization).anyTimes();
+    EasyMock.replay(securityService, organization);
+    workspace.setSecurityService(securityService);
+
+    StatusLine statusLine = EasyMock.createNiceMock(StatusLine.class);
+    EasyMock.expect(statusLine.getStatusCode()).andReturn(HttpServletResponse.SC_OK).anyTimes();
+    HttpEntity entity = EasyMock.createNiceMock(HttpEntity.class);
+    EasyMock.expect(entity.getContent()).andReturn(new ByteArrayInputStream("asdf".getBytes(StandardCharsets.UTF_8)));
+    HttpResponse response = EasyMock.createNiceMock(HttpResponse.class);
+    EasyMock.expect(response.getStatusLine()).andReturn(statusLine).anyTimes();
+    EasyMock.expect(response.getEntity()).andReturn(entity).anyTimes();
+    EasyMock.replay(statusLine, entity, response);
+
+    final AtomicInteger transfers = new AtomicInteger();
+    final CountDownLatch started = new CountDownLatch(1);
+    RequestRunner<Either<String, Option<File>>> requestRunner = f -> {
+      transfers.incrementAndGet();
+      started.countDown();
+      // give the second request the chance to join this transfer
+      Prelude.sleep(1000L);
+      return Either.right(f.apply(response));
+    };
+    TrustedHttpClient trustedHttpClient = EasyMock.createNiceMock(TrustedHttpClient.class);
+    EasyMock.expect(trustedHttpClient.<Either<String, Option<File>>> runner(EasyMock.anyObject(HttpUriRequest.class)))
+            .andReturn(requestRunner).anyTimes();
+    EasyMock.replay(trustedHttpClient);
+    workspace.setTrustedHttpClient(trustedHttpClient);
+
+    final URI uri = URI.create("http://foo.com/myaccount/videos/bar.mov");
+    final File[] shared = new File[1];
+    final Thread first = new Thread(() -> {
+      try {
+        shared[0] = workspace.get(uri);
+      } catch (Exception e) {
+        throw new RuntimeException(e);
+      }
+    });
+    first.start();
+    started.await();
+    final File unique = workspace.get(uri, true);
+    first.join();
+
+    Assert.assertEquals(1, transfers.get());
+    Assert.assertEquals(workspace.toWorkspaceFile(uri), shared[0]);
+    Assert.assertNotEquals(shared[0], unique);
+    Assert.assertEquals("asdf", FileUtils.readFileToString(shared[0], StandardCharsets.UTF_8));
+    Assert.assertEquals("asdf", FileUtils.readFileToString(unique, StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testGetRestartsChangedDownload() throws Exception {
+    WorkingFileRepository repo = EasyMock.createNiceMock(WorkingFileRepository.class);
+    EasyMock.expect(repo.getBaseUri()).andReturn(new URI("http://localhost:8080/files")).anyTimes();
+    EasyMock.replay(repo);
+    workspace.setRepository(repo);
+
+    Organization organization = EasyMock.createMock(Organization.class);
+    EasyMock.expect(organization.getId()).andReturn("org1").anyTimes();
+    SecurityService securityService = EasyMock.createMock(SecurityService.class);
+    EasyMock.expect(securityService.getOrganization()).andReturn(organization).anyTimes();
+    EasyMock.replay(securityService, organization);
+    workspace.setSecurityService(securityService);
+
+    // The first response is replaced while being sent and does not match its entity tag any more
+    final String tag = "\"912ec803b2ce49e4a541068d495ab570\"";
+    final HttpResponse changed = createResponse("asdx", tag);
+    final HttpResponse current = createResponse("asdf", tag);
+    final AtomicInteger requests = new AtomicInteger();
+    RequestRunner<Either<String, Option<File>>> requestRunner = f -> {
+      try {
+        return Either.right(f.apply(requests.getAndIncrement() == 0 ? changed : current));
+      } catch (Exception e) {
+        return Either.left(e);
+      }
+    };
+    TrustedHttpClient trustedHttpClient = EasyMock.createNiceMock(TrustedHttpClient.class);
+    EasyMock.expect(trustedHttpClient.<Either<String, Option<File>>> runner(EasyMock.anyObject(HttpUriRequest.class)))
+            .andReturn(requestRunner).anyTimes();
+    EasyMock.replay(trustedHttpClient);
+    workspace.setTrustedHttpClient(trustedHttpClient);
+
+    final File file = workspace.get(URI.create("http://foo.com/myaccount/videos/bar.mov"));
+    Assert.assertEquals(2, requests.get());
+    Assert.assertEquals("asdf", FileUtils.readFileToString(file, StandardCharsets.UTF_8));
+  }
+
+  private static HttpResponse createResponse(String content, String tag) throws Exception {
+    StatusLine statusLine = EasyMock.createNiceMock(StatusLine.class);
+    EasyMock.expect(statusLine.getStatusCode()).andReturn(HttpServletResponse.SC_OK).anyTimes();
+    HttpEntity entity = EasyMock.createNiceMock(HttpEntity.class);
+    EasyMock.expect(entity.getContent()).andReturn(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+    EasyMock.expect(entity.getContentLength()).andReturn((long) content.length()).anyTimes();
+    HttpResponse response = EasyMock.createNiceMock(HttpResponse.class);
+    EasyMock.expect(response.getStatusLine()).andReturn(statusLine).anyTimes();
+    EasyMock.expect(response.getEntity()).andReturn(entity).anyTimes();
+    EasyMock.expect(response.getFirstHeader("ETag")).andReturn(new BasicHeader("ETag", tag)).anyTimes();
+    EasyMock.replay(statusLine, entity, response);
+    return response;
+  }
+
   @Test
   public void testCleanup() throws Exception {
     workspace.cleanup(-1);